@@ -182,6 +182,115 @@ public void storeItem(BaseItem item) throws BlockBagException {
         throw new OutOfSpaceException(id);
     }
 
+    @Override
+    public int fetchItems(BaseItem item, int amount) throws BlockBagException {
+        final int id = item.getType();
+        final int damage = item.getData();
+        boolean usesDamageValue = ItemType.usesDamageValue(id);
+
+        if (id == BlockID.AIR) {
+            throw new IllegalArgumentException("Can't fetch air block");
+        }
+
+        loadInventory();
+
+        int fetched = 0;
+
+        for (int slot = 0; slot < items.length && fetched < amount; ++slot) {
+            ItemStack bukkitItem = items[slot];
+
+            if (bukkitItem == null) {
+                continue;
+            }
+
+            if (bukkitItem.getTypeId() != id) {
+                // Type id doesn't fit
+                continue;
+            }
+
+            if (usesDamageValue && bukkitItem.getDurability() != damage) {
+                // Damage value doesn't fit.
+                continue;
+            }
+
+            int currentAmount = bukkitItem.getAmount();
+            if (currentAmount < 0) {
+                // Unlimited
+                return amount;
+            }
+
+            int taken = Math.min(currentAmount, amount - fetched);
+            if (taken < currentAmount) {
+                bukkitItem.setAmount(currentAmount - taken);
+            } else {
+                items[slot] = null;
+            }
+
+            fetched += taken;
+        }
+
+        return fetched;
+    }
+
+    @Override
+    public int storeItems(BaseItem item, int amount) throws BlockBagException {
+        final int id = item.getType();
+        final int damage = item.getData();
+        boolean usesDamageValue = ItemType.usesDamageValue(id);
+
+        if (id == BlockID.AIR) {
+            throw new IllegalArgumentException("Can't store air block");
+        }
+
+        loadInventory();
+
+        int left = amount;
+
+        // Merge into existing stacks first
+        for (int slot = 0; slot < items.length && left > 0; ++slot) {
+            ItemStack bukkitItem = items[slot];
+
+            if (bukkitItem == null) {
+                continue;
+            }
+
+            if (bukkitItem.getTypeId() != id) {
+                // Type id doesn't fit
+                continue;
+            }
+
+            if (usesDamageValue && bukkitItem.getDurability() != damage) {
+                // Damage value doesn't fit.
+                continue;
+            }
+
+            int currentAmount = bukkitItem.getAmount();
+            if (currentAmount < 0) {
+                // Unlimited
+                return amount;
+            }
+            if (currentAmount >= 64) {
+                // Full stack
+                continue;
+            }
+
+            int added = Math.min(64 - currentAmount, left);
+            bukkitItem.setAmount(currentAmount + added);
+            left -= added;
+        }
+
+        // Then fill free slots
+        for (int slot = 0; slot < items.length && left > 0; ++slot) {
+            if (items[slot] == null) {
+                int added = Math.min(64, left);
+                items[slot] = new ItemStack(id, added);
+                left -= added;
+            }
+        }
+
+        return amount - left;
+    }
+
     @Override
     public void flushChanges() {
         if (items != null) {
@@ -19,6 +19,10 @@
 
 package com.sk89q.worldedit.bukkit;
 
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalWorld;
@@ -31,11 +35,18 @@
 import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.bukkit.adapter.BukkitImplAdapter;
 import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.util.TreeGenerator;
+import com.sk89q.worldedit.world.SurfaceType;
 import com.sk89q.worldedit.world.biome.BaseBiome;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
 import com.sk89q.worldedit.world.registry.WorldData;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
 import org.bukkit.Effect;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.TreeType;
 import org.bukkit.World;
@@ -53,6 +64,7 @@
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -85,22 +97,14 @@ public BukkitWorld(World world) {
 
     @Override
     public List<com.sk89q.worldedit.entity.Entity> getEntities(Region region) {
-        World world = getWorld();
-
-        List<com.sk89q.worldedit.entity.Entity> entities = new ArrayList<com.sk89q.worldedit.entity.Entity>();
-        for (Vector2D pt : region.getChunks()) {
-            if (!world.isChunkLoaded(pt.getBlockX(), pt.getBlockZ())) {
-                continue;
-            }
+        return Lists.newArrayList(queryEntities(region, Predicates.<EntityType>alwaysTrue()));
+    }
 
-            final Entity[] ents = world.getChunkAt(pt.getBlockX(), pt.getBlockZ()).getEntities();
-            for (Entity ent : ents) {
-                if (region.contains(BukkitUtil.toVector(ent.getLocation()))) {
-                    entities.add(BukkitAdapter.adapt(ent));
-                }
-            }
-        }
-        return entities;
+    @Override
+    public Iterator<com.sk89q.worldedit.entity.Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        checkNotNull(region);
+        checkNotNull(filter);
+        return new EntityQueryIterator(getWorld(), region, filter);
     }
 
     @Override
@@ -162,21 +166,8 @@ public int getBlockLightLevel(Vector pt) {
 
     @Override
     public boolean regenerate(Region region, EditSession editSession) {
-        BaseBlock[] history = new BaseBlock[16 * 16 * (getMaxY() + 1)];
-
         for (Vector2D chunk : region.getChunks()) {
-            Vector min = new Vector(chunk.getBlockX() * 16, 0, chunk.getBlockZ() * 16);
-
-            // First save all the blocks inside
-            for (int x = 0; x < 16; ++x) {
-                for (int y = 0; y < (getMaxY() + 1); ++y) {
-                    for (int z = 0; z < 16; ++z) {
-                        Vector pt = min.add(x, y, z);
-                        int index = y * 16 * 16 + z * 16 + x;
-                        history[index] = editSession.getBlock(pt);
-                    }
-                }
-            }
+            ChunkColumn previous = captureChunk(chunk.toBlockVector2D());
 
             try {
                 getWorld().regenerateChunk(chunk.getBlockX(), chunk.getBlockZ());
@@ -184,26 +175,66 @@ public boolean regenerate(Region region, EditSession editSession) {
                 logger.log(Level.WARNING, "Chunk generation via Bukkit raised an error", t);
             }
 
-            // Then restore
-            for (int x = 0; x < 16; ++x) {
-                for (int y = 0; y < (getMaxY() + 1); ++y) {
-                    for (int z = 0; z < 16; ++z) {
-                        Vector pt = min.add(x, y, z);
-                        int index = y * 16 * 16 + z * 16 + x;
-
-                        // We have to restore the block if it was outside
-                        if (!region.contains(pt)) {
-                            editSession.smartSetBlock(pt, history[index]);
-                        } else { // Otherwise fool with history
-                            editSession.rememberChange(pt, history[index],
-                                    editSession.rawGetBlock(pt));
-                        }
+            restoreRegeneratedChunk(previous, region, editSession);
+        }
+
+        return true;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position, int minY, int maxY) {
+        World world = getWorld();
+        Chunk chunk = world.getChunkAt(position.getBlockX(), position.getBlockZ());
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        ChunkColumn column = new ChunkColumn(position, getMaxY() + 1);
+
+        int firstSection = Math.max(minY, 0) >> 4;
+        int lastSection = Math.min(maxY >> 4, column.getSectionCount() - 1);
+        for (int section = firstSection; section <= lastSection; section++) {
+            if (snapshot.isSectionEmpty(section)) {
+                continue;
+            }
+
+            short[] ids = new short[ChunkColumn.SECTION_VOLUME];
+            byte[] data = new byte[ChunkColumn.SECTION_VOLUME];
+            int sectionMinY = section << 4;
+            int index = 0;
+            for (int y = sectionMinY; y < sectionMinY + 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        ids[index] = (short) snapshot.getBlockTypeId(x, y, z);
+                        data[index] = (byte) snapshot.getBlockData(x, y, z);
+                        index++;
                     }
                 }
             }
+            column.setSection(section, ids, data);
         }
 
-        return true;
+        // Only tile entities need to be read through the adapter to get their NBT data
+        BukkitImplAdapter adapter = WorldEditPlugin.getInstance().getBukkitImplAdapter();
+        if (adapter != null) {
+            for (BlockState state : chunk.getTileEntities()) {
+                if (state.getY() < minY || state.getY() > maxY) {
+                    continue;
+                }
+                BaseBlock block = adapter.getBlock(state.getLocation());
+                column.setTileBlock(state.getX() & 15, state.getY(), state.getZ() & 15, block);
+            }
+        }
+
+        return column;
+    }
+
+    @Override
+    public boolean isChunkLoaded(BlockVector2D position) {
+        return getWorld().isChunkLoaded(position.getBlockX(), position.getBlockZ());
+    }
+
+    @Override
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        return getSurfaceHeightsFromChunks(min, max, minY, maxY, type);
     }
 
     /**
@@ -377,6 +408,14 @@ public void fixAfterFastMode(Iterable<BlockVector2D> chunks) {
         }
     }
 
+    @Override
+    public void refreshChunks(Iterable<BlockVector2D> chunks) {
+        World world = getWorld();
+        for (BlockVector2D chunkPos : chunks) {
+            world.refreshChunk(chunkPos.getBlockX(), chunkPos.getBlockZ());
+        }
+    }
+
     @Override
     public boolean playEffect(Vector position, int type, int data) {
         World world = getWorld();
@@ -461,4 +500,74 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
     public boolean setBlock(Vector pt, com.sk89q.worldedit.foundation.Block block, boolean notifyAdjacent) throws WorldEditException {
         return setBlock(pt, (BaseBlock) block, notifyAdjacent);
     }
+
+    /**
+     * Finds entities in a region one loaded chunk at a time, testing the
+     * type and position of each Bukkit entity before adapting it.
+     */
+    private static class EntityQueryIterator extends AbstractIterator<com.sk89q.worldedit.entity.Entity> {
+        private final World world;
+        private final Region region;
+        private final Predicate<? super EntityType> filter;
+        private final Location location;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int maxChunkX;
+        private final int maxChunkZ;
+        private int chunkX;
+        private int chunkZ;
+        private Entity[] entities = new Entity[0];
+        private int index;
+
+        private EntityQueryIterator(World world, Region region, Predicate<? super EntityType> filter) {
+            this.world = world;
+            this.region = region;
+            this.filter = filter;
+            this.location = new Location(world, 0, 0, 0);
+            Vector min = region.getMinimumPoint();
+            Vector max = region.getMaximumPoint();
+            minChunkX = min.getBlockX() >> 4;
+            minChunkZ = min.getBlockZ() >> 4;
+            maxChunkX = max.getBlockX() >> 4;
+            maxChunkZ = max.getBlockZ() >> 4;
+            chunkX = minChunkX;
+            chunkZ = minChunkZ - 1;
+        }
+
+        @Override
+        protected com.sk89q.worldedit.entity.Entity computeNext() {
+            while (true) {
+                while (index < entities.length) {
+                    Entity entity = entities[index++];
+                    if (filter.apply(new BukkitEntityType(entity))) {
+                        entity.getLocation(location);
+                        if (region.contains(new Vector(location.getX(), location.getY(), location.getZ()))) {
+                            return BukkitAdapter.adapt(entity);
+                        }
+                    }
+                }
+
+                if (!nextChunk()) {
+                    return endOfData();
+                }
+            }
+        }
+
+        private boolean nextChunk() {
+            while (true) {
+                if (++chunkZ > maxChunkZ) {
+                    chunkZ = minChunkZ;
+                    if (++chunkX > maxChunkX) {
+                        return false;
+                    }
+                }
+
+                if (world.isChunkLoaded(chunkX, chunkZ) && Regions.mayIntersectChunk(region, chunkX, chunkZ)) {
+                    entities = world.getChunkAt(chunkX, chunkZ).getEntities();
+                    index = 0;
+                    return true;
+                }
+            }
+        }
+    }
 }
@@ -37,6 +37,7 @@
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 
 /**
  * Handles all events thrown in relation to a Player
@@ -71,6 +72,17 @@ public void onGamemode(PlayerGameModeChangeEvent event) {
         WorldEdit.getInstance().getSession(plugin.wrapPlayer(event.getPlayer()));
     }
 
+    /**
+     * Called when a player joins
+     *
+     * @param event Relevant event details
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        // Read the session in the background so that the first use doesn't wait for it
+        plugin.getWorldEdit().getSessionManager().preload(plugin.wrapPlayer(event.getPlayer()));
+    }
+
     /**
      * Called when a player attempts to use a command
      *
@@ -39,12 +39,34 @@ public class CommandContext {
     protected final SuggestionContext suggestionContext;
     protected final CommandLocals locals;
 
+    /**
+     * Split a command line on every space, keeping empty arguments.
+     *
+     * <p>This is the same as {@code args.split(" ", -1)}, but doesn't go
+     * through a regular expression.</p>
+     *
+     * @param args the command line
+     * @return the arguments
+     */
     public static String[] split(String args) {
-        return args.split(" ", -1);
+        int count = 1;
+        for (int i = args.indexOf(' '); i != -1; i = args.indexOf(' ', i + 1)) {
+            count++;
+        }
+
+        String[] split = new String[count];
+        int start = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int end = args.indexOf(' ', start);
+            split[i] = args.substring(start, end);
+            start = end + 1;
+        }
+        split[count - 1] = args.substring(start);
+        return split;
     }
 
     public CommandContext(String args) throws CommandException {
-        this(args.split(" ", -1), null);
+        this(split(args), null);
     }
 
     public CommandContext(String[] args) throws CommandException {
@@ -52,12 +74,12 @@ public CommandContext(String[] args) throws CommandException {
     }
 
     public CommandContext(String args, Set<Character> valueFlags) throws CommandException {
-        this(args.split(" ", -1), valueFlags);
+        this(split(args), valueFlags);
     }
 
     public CommandContext(String args, Set<Character> valueFlags, boolean allowHangingFlag) 
             throws CommandException {
-        this(args.split(" ", -1), valueFlags, allowHangingFlag, new CommandLocals());
+        this(split(args), valueFlags, allowHangingFlag, new CommandLocals());
     }
 
     public CommandContext(String[] args, Set<Character> valueFlags) throws CommandException {
@@ -146,7 +168,7 @@ public CommandContext(String[] args, Set<Character> valueFlags,
             suggestionContext = SuggestionContext.hangingValue();
 
             // Not a flag?
-            if (arg.charAt(0) != '-' || arg.length() == 1 || !arg.matches("^-[a-zA-Z\\?]+$")) {
+            if (!isFlagArgument(arg)) {
                 if (!isHanging) {
                     suggestionContext = SuggestionContext.lastValue();
                 }
@@ -197,6 +219,28 @@ public CommandContext(String[] args, Set<Character> valueFlags,
         this.suggestionContext = suggestionContext;
     }
 
+    /**
+     * Test whether an argument is a group of flags, which is a dash
+     * followed by one or more letters or question marks.
+     *
+     * @param arg the argument
+     * @return true if the argument is a group of flags
+     */
+    private static boolean isFlagArgument(String arg) {
+        if (arg.length() < 2 || arg.charAt(0) != '-') {
+            return false;
+        }
+
+        for (int i = 1; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && c != '?') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     public SuggestionContext getSuggestionContext() {
         return suggestionContext;
     }
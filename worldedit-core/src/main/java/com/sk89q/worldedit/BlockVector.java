@@ -19,6 +19,8 @@
 
 package com.sk89q.worldedit;
 
+import com.sk89q.worldedit.math.BlockPosition;
+
 /**
  * Extension of {@code Vector} that that compares with other instances
  * using integer components.
@@ -86,9 +88,7 @@ public boolean equals(Object obj) {
 
     @Override
     public int hashCode() {
-        return ((int) x << 19) ^
-                ((int) y << 12) ^
-                (int) z;
+        return BlockPosition.hash((int) x, (int) y, (int) z);
     }
 
     @Override
@@ -19,11 +19,13 @@
 
 package com.sk89q.worldedit;
 
+import com.google.common.base.Predicate;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
 import com.sk89q.worldedit.extent.ChangeSetExtent;
 import com.sk89q.worldedit.extent.Extent;
@@ -31,6 +33,7 @@
 import com.sk89q.worldedit.extent.NullExtent;
 import com.sk89q.worldedit.extent.buffer.ForgetfulExtentBuffer;
 import com.sk89q.worldedit.extent.cache.LastAccessExtentCache;
+import com.sk89q.worldedit.extent.cache.SurfaceExtentCache;
 import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.extent.inventory.BlockBagExtent;
 import com.sk89q.worldedit.extent.reorder.MultiStageReorder;
@@ -41,10 +44,12 @@
 import com.sk89q.worldedit.extent.world.FastModeExtent;
 import com.sk89q.worldedit.extent.world.SurvivalModeExtent;
 import com.sk89q.worldedit.function.GroundFunction;
+import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.RegionMaskingFilter;
 import com.sk89q.worldedit.function.block.BlockReplace;
 import com.sk89q.worldedit.function.block.Counter;
 import com.sk89q.worldedit.function.block.Naturalizer;
+import com.sk89q.worldedit.function.generator.ForestGenerator;
 import com.sk89q.worldedit.function.generator.GardenPatchGenerator;
 import com.sk89q.worldedit.function.mask.*;
 import com.sk89q.worldedit.function.operation.*;
@@ -54,15 +59,16 @@
 import com.sk89q.worldedit.function.visitor.*;
 import com.sk89q.worldedit.history.UndoContext;
 import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.history.change.ChunkBiomeChange;
 import com.sk89q.worldedit.history.changeset.BlockOptimizedHistory;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.internal.expression.Expression;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.internal.expression.runtime.RValue;
+import com.sk89q.worldedit.math.BlockPosition;
 import com.sk89q.worldedit.math.interpolation.Interpolation;
 import com.sk89q.worldedit.math.interpolation.KochanekBartelsInterpolation;
 import com.sk89q.worldedit.math.interpolation.Node;
-import com.sk89q.worldedit.math.noise.RandomNoise;
 import com.sk89q.worldedit.math.transform.AffineTransform;
 import com.sk89q.worldedit.patterns.Pattern;
 import com.sk89q.worldedit.patterns.SingleBlockPattern;
@@ -72,9 +78,13 @@
 import com.sk89q.worldedit.regions.shape.RegionShape;
 import com.sk89q.worldedit.regions.shape.WorldEditExpressionEnvironment;
 import com.sk89q.worldedit.util.*;
-import com.sk89q.worldedit.util.collection.DoubleArrayList;
+import com.sk89q.worldedit.util.collection.BlockBitSet;
+import com.sk89q.worldedit.util.collection.BoundedBlockBitSet;
+import com.sk89q.worldedit.util.collection.LongArrayQueue;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
 import com.sk89q.worldedit.util.eventbus.EventBus;
 import com.sk89q.worldedit.world.NullWorld;
+import com.sk89q.worldedit.world.SurfaceType;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 
@@ -115,6 +125,7 @@ public enum Stage {
     private final ChangeSet changeSet = new BlockOptimizedHistory();
 
     private @Nullable FastModeExtent fastModeExtent;
+    private @Nullable SurfaceExtentCache surfaceCache;
     private final SurvivalModeExtent survivalExtent;
     private @Nullable ChunkLoadingExtent chunkLoadingExtent;
     private @Nullable LastAccessExtentCache cacheExtent;
@@ -180,6 +191,7 @@ public EditSession(LocalWorld world, int maxBlocks, @Nullable BlockBag blockBag)
 
             // This extents are ALWAYS used
             extent = fastModeExtent = new FastModeExtent(world, false);
+            extent = surfaceCache = new SurfaceExtentCache(extent, world);
             extent = survivalExtent = new SurvivalModeExtent(extent, world);
             extent = quirkExtent = new BlockQuirkExtent(extent, world);
             extent = chunkLoadingExtent = new ChunkLoadingExtent(extent, world);
@@ -269,9 +281,13 @@ public boolean isQueueEnabled() {
 
     /**
      * Queue certain types of block for better reproduction of those blocks.
+     *
+     * <p>While the queue is enabled, block changes are also charged to the
+     * block bag in batches rather than one at a time.</p>
      */
     public void enableQueue() {
         reorderExtent.setEnabled(true);
+        blockBagExtent.setBatching(true);
     }
 
     /**
@@ -282,6 +298,7 @@ public void disableQueue() {
             flushQueue();
         }
         reorderExtent.setEnabled(true);
+        blockBagExtent.setBatching(false);
     }
 
     /**
@@ -296,6 +313,9 @@ public Mask getMask() {
     /**
      * Set a mask.
      *
+     * <p>The mask is optimized with {@link MaskOptimizer#optimize(Mask)},
+     * so changes made to it after this call are not seen.</p>
+     *
      * @param mask mask or null
      */
     public void setMask(Mask mask) {
@@ -303,7 +323,7 @@ public void setMask(Mask mask) {
         if (mask == null) {
             maskingExtent.setMask(Masks.alwaysTrue());
         } else {
-            maskingExtent.setMask(mask);
+            maskingExtent.setMask(MaskOptimizer.optimize(mask));
         }
     }
 
@@ -375,6 +395,18 @@ public void setBlockBag(BlockBag blockBag) {
         blockBagExtent.setBlockBag(blockBag);
     }
 
+    /**
+     * Flush the changes of the {@link BlockBag} that is used, first giving
+     * back the blocks that were taken from it in bulk but not used.
+     *
+     * <p>Blocks are only taken in bulk while the queue is enabled, and are
+     * otherwise given back when the queue is flushed, which an edit that
+     * is abandoned may never do.</p>
+     */
+    public void flushBlockBag() {
+        blockBagExtent.flushChanges();
+    }
+
     /**
      * Gets the list of missing blocks and clears the list for the next
      * operation.
@@ -406,6 +438,57 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
         return bypassNone.setBiome(position, biome);
     }
 
+    /**
+     * Set the biome of every column of a region.
+     *
+     * <p>Regions that are not {@link FlatRegion}s have the biome set in
+     * every column of their bounding cuboid.</p>
+     *
+     * <p>The biomes of each chunk are read at once, only columns with a
+     * different biome are written, and the change to each chunk is stored
+     * in the history as one entry. Chunks are sent to clients again when
+     * the queue is flushed.</p>
+     *
+     * @param region the region
+     * @param biome the biome to set
+     * @param mask a mask that columns must match to be changed, or null to change all columns
+     * @return the number of columns in the region that matched the mask
+     */
+    public int setBiomes(Region region, BaseBiome biome, @Nullable Mask2D mask) {
+        checkNotNull(region);
+        checkNotNull(biome);
+
+        int affected = 0;
+        for (Map.Entry<BlockVector2D, BitSet> entry : Regions.getColumnsByChunk(Regions.asFlatRegion(region)).entrySet()) {
+            BlockVector2D chunk = entry.getKey();
+            BitSet columns = entry.getValue();
+            int baseX = chunk.getBlockX() << 4;
+            int baseZ = chunk.getBlockZ() << 4;
+            int[] previous = world.getChunkBiomes(chunk);
+            int[] current = previous.clone();
+            boolean changed = false;
+
+            for (int i = columns.nextSetBit(0); i >= 0; i = columns.nextSetBit(i + 1)) {
+                Vector2D position = new Vector2D(baseX + (i & 15), baseZ + (i >> 4));
+                if (mask != null && !mask.test(position)) {
+                    continue;
+                }
+
+                affected++;
+                if (previous[i] != biome.getId() && bypassHistory.setBiome(position, biome)) {
+                    current[i] = biome.getId();
+                    changed = true;
+                }
+            }
+
+            if (changed) {
+                changeSet.add(new ChunkBiomeChange(chunk, previous, current));
+            }
+        }
+
+        return affected;
+    }
+
     @Override
     public BaseBlock getLazyBlock(Vector position) {
         return world.getLazyBlock(position);
@@ -476,6 +559,11 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY) {
      * @return height of highest block found or 'minY'
      */
     public int getHighestTerrainBlock(int x, int z, int minY, int maxY, boolean naturalOnly) {
+        if (surfaceCache != null) {
+            SurfaceType type = naturalOnly ? SurfaceType.NATURAL_TERRAIN : SurfaceType.SOLID;
+            return Math.max(surfaceCache.getSurfaceHeight(x, z, minY, maxY, type), minY);
+        }
+
         for (int y = maxY; y >= minY; --y) {
             Vector pt = new Vector(x, y, z);
             int id = getBlockType(pt);
@@ -488,6 +576,29 @@ public int getHighestTerrainBlock(int x, int z, int minY, int maxY, boolean natu
         return minY;
     }
 
+    /**
+     * Get the Y coordinate of the highest block of the given surface type
+     * in each column of a rectangle.
+     *
+     * <p>Heights are cached per chunk until the queue is next flushed and
+     * are kept up to date as blocks are changed by this session.</p>
+     *
+     * @param min the minimum X and Z coordinates, inclusive
+     * @param max the maximum X and Z coordinates, inclusive
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return an array of heights indexed by {@code (z - minZ) * width + (x - minX)},
+     *         with {@code minY - 1} for columns without a matching block
+     */
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        if (surfaceCache != null) {
+            return surfaceCache.getSurfaceHeights(min, max, minY, maxY, type);
+        } else {
+            return world.getSurfaceHeights(min, max, minY, maxY, type);
+        }
+    }
+
     /**
      * Set a block, bypassing both history and block re-ordering.
      *
@@ -574,7 +685,7 @@ public boolean setBlock(Vector position, Pattern pattern) throws MaxChangedBlock
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
      */
     @SuppressWarnings("deprecation")
-    private int setBlocks(Set<Vector> vset, Pattern pattern) throws MaxChangedBlocksException {
+    private int setBlocks(BlockBitSet vset, Pattern pattern) throws MaxChangedBlocksException {
         int affected = 0;
         for (Vector v : vset) {
             affected += setBlock(v, pattern) ? 1 : 0;
@@ -684,11 +795,23 @@ public List<? extends Entity> getEntities() {
         return bypassNone.getEntities();
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return bypassNone.queryEntities(region, filter);
+    }
+
     /**
      * Finish off the queue.
+     *
+     * <p>Cached surface heights are also forgotten, as the world may have
+     * been changed without going through this edit session since they
+     * were read.</p>
      */
     public void flushQueue() {
         Operations.completeBlindly(commit());
+        if (surfaceCache != null) {
+            surfaceCache.clear();
+        }
     }
 
     @Override
@@ -1572,36 +1695,36 @@ public int thaw(Vector position, double radius)
         BaseBlock water = new BaseBlock(BlockID.STATIONARY_WATER);
 
         int ceilRadius = (int) Math.ceil(radius);
+        int width = 2 * ceilRadius + 1;
+        int[] heights = getSurfaceHeights(
+                new Vector2D(ox - ceilRadius, oz - ceilRadius), new Vector2D(ox + ceilRadius, oz + ceilRadius),
+                1, world.getMaxY(), SurfaceType.NON_AIR);
         for (int x = ox - ceilRadius; x <= ox + ceilRadius; ++x) {
             for (int z = oz - ceilRadius; z <= oz + ceilRadius; ++z) {
                 if ((new Vector(x, oy, z)).distanceSq(position) > radiusSq) {
                     continue;
                 }
 
-                for (int y = world.getMaxY(); y >= 1; --y) {
-                    Vector pt = new Vector(x, y, z);
-                    int id = getBlockType(pt);
-
-                    switch (id) {
-                    case BlockID.ICE:
-                        if (setBlock(pt, water)) {
-                            ++affected;
-                        }
-                        break;
-
-                    case BlockID.SNOW:
-                        if (setBlock(pt, air)) {
-                            ++affected;
-                        }
-                        break;
+                int y = heights[(z - oz + ceilRadius) * width + (x - ox + ceilRadius)];
+                if (y < 1) {
+                    continue;
+                }
 
-                    case BlockID.AIR:
-                        continue;
+                Vector pt = new Vector(x, y, z);
+                switch (getBlockType(pt)) {
+                case BlockID.ICE:
+                    if (setBlock(pt, water)) {
+                        ++affected;
+                    }
+                    break;
 
-                    default:
-                        break;
+                case BlockID.SNOW:
+                    if (setBlock(pt, air)) {
+                        ++affected;
                     }
+                    break;
 
+                default:
                     break;
                 }
             }
@@ -1630,43 +1753,45 @@ public int simulateSnow(Vector position, double radius) throws MaxChangedBlocksE
         BaseBlock snow = new BaseBlock(BlockID.SNOW);
 
         int ceilRadius = (int) Math.ceil(radius);
+        int width = 2 * ceilRadius + 1;
+        int[] heights = getSurfaceHeights(
+                new Vector2D(ox - ceilRadius, oz - ceilRadius), new Vector2D(ox + ceilRadius, oz + ceilRadius),
+                1, world.getMaxY(), SurfaceType.NON_AIR);
         for (int x = ox - ceilRadius; x <= ox + ceilRadius; ++x) {
             for (int z = oz - ceilRadius; z <= oz + ceilRadius; ++z) {
                 if ((new Vector(x, oy, z)).distanceSq(position) > radiusSq) {
                     continue;
                 }
 
-                for (int y = world.getMaxY(); y >= 1; --y) {
-                    Vector pt = new Vector(x, y, z);
-                    int id = getBlockType(pt);
+                int y = heights[(z - oz + ceilRadius) * width + (x - ox + ceilRadius)];
+                if (y < 1) {
+                    continue;
+                }
 
-                    if (id == BlockID.AIR) {
-                        continue;
-                    }
+                Vector pt = new Vector(x, y, z);
+                int id = getBlockType(pt);
 
-                    // Ice!
-                    if (id == BlockID.WATER || id == BlockID.STATIONARY_WATER) {
-                        if (setBlock(pt, ice)) {
-                            ++affected;
-                        }
-                        break;
+                // Ice!
+                if (id == BlockID.WATER || id == BlockID.STATIONARY_WATER) {
+                    if (setBlock(pt, ice)) {
+                        ++affected;
                     }
+                    continue;
+                }
 
-                    // Snow should not cover these blocks
-                    if (BlockType.isTranslucent(id)) {
-                        break;
-                    }
+                // Snow should not cover these blocks
+                if (BlockType.isTranslucent(id)) {
+                    continue;
+                }
 
-                    // Too high?
-                    if (y == world.getMaxY()) {
-                        break;
-                    }
+                // Too high?
+                if (y == world.getMaxY()) {
+                    continue;
+                }
 
-                    // add snow cover
-                    if (setBlock(pt.add(0, 1, 0), snow)) {
-                        ++affected;
-                    }
-                    break;
+                // add snow cover
+                if (setBlock(pt.add(0, 1, 0), snow)) {
+                    ++affected;
                 }
             }
         }
@@ -1709,41 +1834,33 @@ public int green(Vector position, double radius, boolean onlyNormalDirt)
         final BaseBlock grass = new BaseBlock(BlockID.GRASS);
 
         final int ceilRadius = (int) Math.ceil(radius);
+        final int width = 2 * ceilRadius + 1;
+        // Stop at liquids and all non-passable blocks
+        final int[] heights = getSurfaceHeights(
+                new Vector2D(ox - ceilRadius, oz - ceilRadius), new Vector2D(ox + ceilRadius, oz + ceilRadius),
+                1, world.getMaxY(), SurfaceType.SOLID_OR_LIQUID);
         for (int x = ox - ceilRadius; x <= ox + ceilRadius; ++x) {
             for (int z = oz - ceilRadius; z <= oz + ceilRadius; ++z) {
                 if ((new Vector(x, oy, z)).distanceSq(position) > radiusSq) {
                     continue;
                 }
 
-                loop: for (int y = world.getMaxY(); y >= 1; --y) {
-                    final Vector pt = new Vector(x, y, z);
-                    final int id = getBlockType(pt);
-                    final int data = getBlockData(pt);
+                final int y = heights[(z - oz + ceilRadius) * width + (x - ox + ceilRadius)];
+                if (y < 1) {
+                    continue;
+                }
 
-                    switch (id) {
-                    case BlockID.DIRT:
-                        if (onlyNormalDirt && data != 0) {
-                            break loop;
-                        }
+                final Vector pt = new Vector(x, y, z);
+                if (getBlockType(pt) != BlockID.DIRT) {
+                    continue;
+                }
 
-                        if (setBlock(pt, grass)) {
-                            ++affected;
-                        }
-                        break loop;
-
-                    case BlockID.WATER:
-                    case BlockID.STATIONARY_WATER:
-                    case BlockID.LAVA:
-                    case BlockID.STATIONARY_LAVA:
-                        // break on liquids...
-                        break loop;
-
-                    default:
-                        // ...and all non-passable blocks
-                        if (!BlockType.canPassThrough(id, data)) {
-                            break loop;
-                        }
-                    }
+                if (onlyNormalDirt && getBlockData(pt) != 0) {
+                    continue;
+                }
+
+                if (setBlock(pt, grass)) {
+                    ++affected;
                 }
             }
         }
@@ -1771,11 +1888,10 @@ public int makePumpkinPatches(Vector position, int apothem) throws MaxChangedBlo
                 position.add(apothem, 10, apothem));
         double density = 0.02;
 
-        GroundFunction ground = new GroundFunction(new ExistingBlockMask(this), generator);
-        LayerVisitor visitor = new LayerVisitor(region, minimumBlockY(region), maximumBlockY(region), ground);
-        visitor.setMask(new NoiseFilter2D(new RandomNoise(), density));
+        DecorationVisitor visitor = new DecorationVisitor(getWorld(), region, minimumBlockY(region), maximumBlockY(region), generator);
+        visitor.setDensity(density);
         Operations.completeLegacy(visitor);
-        return ground.getAffected();
+        return visitor.getAffected();
     }
 
     /**
@@ -1789,38 +1905,36 @@ public int makePumpkinPatches(Vector position, int apothem) throws MaxChangedBlo
      * @throws MaxChangedBlocksException thrown if too many blocks are changed
      */
     public int makeForest(Vector basePosition, int size, double density, TreeGenerator treeGenerator) throws MaxChangedBlocksException {
-        int affected = 0;
-
-        for (int x = basePosition.getBlockX() - size; x <= basePosition.getBlockX()
-                + size; ++x) {
-            for (int z = basePosition.getBlockZ() - size; z <= basePosition.getBlockZ()
-                    + size; ++z) {
+        final ForestGenerator generator = new ForestGenerator(this, treeGenerator);
+        final int baseY = basePosition.getBlockY();
+        RegionFunction function = new RegionFunction() {
+            @Override
+            public boolean apply(Vector position) throws WorldEditException {
                 // Don't want to be in the ground
-                if (!getBlock(new Vector(x, basePosition.getBlockY(), z)).isAir()) {
-                    continue;
+                if (!getBlock(new Vector(position.getBlockX(), baseY, position.getBlockZ())).isAir()) {
+                    return false;
                 }
-                // The gods don't want a tree here
-                if (Math.random() >= density) {
-                    continue;
-                } // def 0.05
 
-                for (int y = basePosition.getBlockY(); y >= basePosition.getBlockY() - 10; --y) {
-                    // Check if we hit the ground
-                    int t = getBlock(new Vector(x, y, z)).getType();
-                    if (t == BlockID.GRASS || t == BlockID.DIRT) {
-                        treeGenerator.generate(this, new Vector(x, y + 1, z));
-                        ++affected;
-                        break;
-                    } else if (t == BlockID.SNOW) {
-                        setBlock(new Vector(x, y, z), new BaseBlock(BlockID.AIR));
-                    } else if (t != BlockID.AIR) { // Trees won't grow on this!
-                        break;
+                // Clear all of the snow that the search went through
+                for (int y = position.getBlockY() + 1; y < baseY; y++) {
+                    Vector pt = new Vector(position.getBlockX(), y, position.getBlockZ());
+                    if (getBlock(pt).getType() == BlockID.SNOW) {
+                        setBlock(pt, new BaseBlock(BlockID.AIR));
                     }
                 }
+
+                return generator.apply(position);
             }
-        }
+        };
 
-        return affected;
+        FlatRegion region = new CuboidRegion(
+                basePosition.add(-size, 0, -size),
+                basePosition.add(size, 0, size));
+        DecorationVisitor visitor = new DecorationVisitor(getWorld(), region, baseY - 10, baseY - 1, function);
+        visitor.setPassable(BlockID.SNOW);
+        visitor.setDensity(Math.max(0, Math.min(1, density)));
+        Operations.completeLegacy(visitor);
+        return visitor.getAffected();
     }
 
     /**
@@ -1982,9 +2096,17 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
         final RValue z = expression.getVariable("z", false);
 
         final WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(this, unit, zero);
+        // Nothing is changed until every block has been evaluated
+        environment.setFrozen(true);
         expression.setEnvironment(environment);
 
-        final DoubleArrayList<BlockVector, BaseBlock> queue = new DoubleArrayList<BlockVector, BaseBlock>(false);
+        // Evaluate the expression for every block first, keeping packed target and source positions
+        long[] targets = new long[Math.max(16, region.getArea())];
+        long[] sources = new long[targets.length];
+        // Sources outside of the world are read as air, and could not all be packed
+        final BitSet outside = new BitSet();
+        final int maxY = world.getMaxY();
+        int count = 0;
 
         for (BlockVector position : region) {
             // offset, scale
@@ -1995,18 +2117,64 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
 
             final BlockVector sourcePosition = environment.toWorld(x.getValue(), y.getValue(), z.getValue());
 
-            // read block from world
-            // TODO: use getBlock here once the reflection is out of the way
-            final BaseBlock material = new BaseBlock(world.getBlockType(sourcePosition), world.getBlockData(sourcePosition));
+            if (count == targets.length) {
+                targets = Arrays.copyOf(targets, count * 2);
+                sources = Arrays.copyOf(sources, count * 2);
+            }
+            final int sourceX = sourcePosition.getBlockX();
+            final int sourceY = sourcePosition.getBlockY();
+            final int sourceZ = sourcePosition.getBlockZ();
+            targets[count] = BlockPosition.pack(position);
+            if (sourceY < 0 || sourceY > maxY || !BlockPosition.isPackable(sourceX, sourceY, sourceZ)) {
+                outside.set(count);
+            } else {
+                sources[count] = BlockPosition.pack(sourceX, sourceY, sourceZ);
+            }
+            count++;
+        }
+
+        // Read the source blocks one chunk section at a time, reading each block only once
+        final int[] materials = new int[count];
+        final int[] sectionCache = new int[4096];
+        long currentSection = 0;
+        boolean first = true;
+
+        for (int i : groupBySection(sources, count)) {
+            if (outside.get(i)) {
+                materials[i] = 0;
+                continue;
+            }
 
-            // queue operation
-            queue.put(position, material);
+            final long source = sources[i];
+            final int sourceX = BlockPosition.unpackX(source);
+            final int sourceY = BlockPosition.unpackY(source);
+            final int sourceZ = BlockPosition.unpackZ(source);
+            final long section = BlockPosition.pack(sourceX >> 4, sourceY >> 4, sourceZ >> 4);
+
+            if (first || section != currentSection) {
+                Arrays.fill(sectionCache, -1);
+                currentSection = section;
+                first = false;
+            }
+
+            final int index = (sourceY & 15) << 8 | (sourceZ & 15) << 4 | (sourceX & 15);
+            int material = sectionCache[index];
+            if (material == -1) {
+                // read block from world
+                final BaseBlock block = world.getLazyBlock(new BlockVector(sourceX, sourceY, sourceZ));
+                material = block.getType() << 16 | (block.getData() & 0xFFFF);
+                sectionCache[index] = material;
+            }
+            materials[i] = material;
         }
 
+        // Write the blocks one chunk section at a time
         int affected = 0;
-        for (Map.Entry<BlockVector, BaseBlock> entry : queue) {
-            BlockVector position = entry.getKey();
-            BaseBlock material = entry.getValue();
+        for (int i : groupBySection(targets, count)) {
+            final long target = targets[i];
+            final BlockVector position = new BlockVector(
+                    BlockPosition.unpackX(target), BlockPosition.unpackY(target), BlockPosition.unpackZ(target));
+            final BaseBlock material = new BaseBlock(materials[i] >>> 16, materials[i] & 0xFFFF);
 
             // set at new position
             if (setBlock(position, material)) {
@@ -2017,6 +2185,45 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
         return affected;
     }
 
+    /**
+     * Return the indices of the given packed positions, grouped by the chunk
+     * section that contains them. Positions in the same section keep their
+     * relative order.
+     *
+     * @param positions packed positions
+     * @param count the number of positions to use
+     * @return an array of indices into {@code positions}
+     */
+    private static int[] groupBySection(long[] positions, int count) {
+        final LongIntHashMap buckets = new LongIntHashMap();
+        final int[] bucketOf = new int[count];
+        final int[] offsets = new int[count + 1];
+        int bucketCount = 0;
+
+        for (int i = 0; i < count; i++) {
+            final long position = positions[i];
+            final long section = BlockPosition.pack(
+                    BlockPosition.unpackX(position) >> 4, BlockPosition.unpackY(position) >> 4, BlockPosition.unpackZ(position) >> 4);
+            int bucket = buckets.get(section, -1);
+            if (bucket == -1) {
+                bucket = bucketCount++;
+                buckets.put(section, bucket);
+            }
+            bucketOf[i] = bucket;
+            offsets[bucket + 1]++;
+        }
+
+        for (int b = 0; b < bucketCount; b++) {
+            offsets[b + 1] += offsets[b];
+        }
+
+        final int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[offsets[bucketOf[i]]++] = i;
+        }
+        return order;
+    }
+
     /**
      * Hollows out the region (Semi-well-defined for non-cuboid selections).
      *
@@ -2030,8 +2237,6 @@ public int deformRegion(final Region region, final Vector zero, final Vector uni
     public int hollowOutRegion(Region region, int thickness, Pattern pattern) throws MaxChangedBlocksException {
         int affected = 0;
 
-        final Set<BlockVector> outside = new HashSet<BlockVector>();
-
         final Vector min = region.getMinimumPoint();
         final Vector max = region.getMaximumPoint();
 
@@ -2042,52 +2247,89 @@ public int hollowOutRegion(Region region, int thickness, Pattern pattern) throws
         final int maxY = max.getBlockY();
         final int maxZ = max.getBlockZ();
 
+        // The sets cover one extra block on each side so that the neighbours of the region fit
+        final BoundedBlockBitSet inside = new BoundedBlockBitSet(minX - 1, minY - 1, minZ - 1, maxX + 1, maxY + 1, maxZ + 1);
+        final BoundedBlockBitSet outside = new BoundedBlockBitSet(minX - 1, minY - 1, minZ - 1, maxX + 1, maxY + 1, maxZ + 1);
+        final BoundedBlockBitSet checked = new BoundedBlockBitSet(minX - 1, minY - 1, minZ - 1, maxX + 1, maxY + 1, maxZ + 1);
+
+        if (region instanceof CuboidRegion) {
+            for (int y = minY; y <= maxY; ++y) {
+                for (int z = minZ; z <= maxZ; ++z) {
+                    for (int x = minX; x <= maxX; ++x) {
+                        inside.set(x, y, z);
+                    }
+                }
+            }
+        } else {
+            for (BlockVector position : region) {
+                inside.set(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+            }
+        }
+
+        // Flood fill the passable blocks that can be reached from the faces of the bounding box
+        final LongArrayQueue queue = new LongArrayQueue();
+
         for (int x = minX; x <= maxX; ++x) {
             for (int y = minY; y <= maxY; ++y) {
-                recurseHollow(region, new BlockVector(x, y, minZ), outside);
-                recurseHollow(region, new BlockVector(x, y, maxZ), outside);
+                queue.add(BlockPosition.pack(x, y, minZ));
+                queue.add(BlockPosition.pack(x, y, maxZ));
             }
         }
 
         for (int y = minY; y <= maxY; ++y) {
             for (int z = minZ; z <= maxZ; ++z) {
-                recurseHollow(region, new BlockVector(minX, y, z), outside);
-                recurseHollow(region, new BlockVector(maxX, y, z), outside);
+                queue.add(BlockPosition.pack(minX, y, z));
+                queue.add(BlockPosition.pack(maxX, y, z));
             }
         }
 
         for (int z = minZ; z <= maxZ; ++z) {
             for (int x = minX; x <= maxX; ++x) {
-                recurseHollow(region, new BlockVector(x, minY, z), outside);
-                recurseHollow(region, new BlockVector(x, maxY, z), outside);
+                queue.add(BlockPosition.pack(x, minY, z));
+                queue.add(BlockPosition.pack(x, maxY, z));
             }
         }
 
-        for (int i = 1; i < thickness; ++i) {
-            final Set<BlockVector> newOutside = new HashSet<BlockVector>();
-            outer: for (BlockVector position : region) {
-                for (Vector recurseDirection: recurseDirections) {
-                    BlockVector neighbor = position.add(recurseDirection).toBlockVector();
-
-                    if (outside.contains(neighbor)) {
-                        newOutside.add(position);
-                        continue outer;
-                    }
-                }
+        while (!queue.isEmpty()) {
+            long packed = queue.remove();
+            int x = BlockPosition.unpackX(packed);
+            int y = BlockPosition.unpackY(packed);
+            int z = BlockPosition.unpackZ(packed);
+
+            if (!checked.set(x, y, z)) {
+                continue;
             }
 
-            outside.addAll(newOutside);
-        }
+            BlockVector current = new BlockVector(x, y, z);
+            if (!BlockType.canPassThrough(getBlockType(current), getBlockData(current))) {
+                continue;
+            }
 
-        outer: for (BlockVector position : region) {
-            for (Vector recurseDirection: recurseDirections) {
-                BlockVector neighbor = position.add(recurseDirection).toBlockVector();
+            outside.set(x, y, z);
 
-                if (outside.contains(neighbor)) {
-                    continue outer;
-                }
+            if (!inside.get(x, y, z)) {
+                continue;
             }
 
+            queue.add(BlockPosition.pack(x + 1, y, z));
+            queue.add(BlockPosition.pack(x - 1, y, z));
+            queue.add(BlockPosition.pack(x, y + 1, z));
+            queue.add(BlockPosition.pack(x, y - 1, z));
+            queue.add(BlockPosition.pack(x, y, z + 1));
+            queue.add(BlockPosition.pack(x, y, z - 1));
+        }
+
+        // Grow the outside into the region by one block per extra layer of thickness
+        for (int i = 1; i < thickness; ++i) {
+            final BoundedBlockBitSet layer = outside.getNeighbours();
+            layer.and(inside);
+            outside.or(layer);
+        }
+
+        // Fill the blocks of the region that do not touch the outside
+        inside.andNot(outside.getNeighbours());
+
+        for (BlockVector position : inside) {
             if (setBlock(position, pattern.next(position))) {
                 ++affected;
             }
@@ -2111,7 +2353,7 @@ public int hollowOutRegion(Region region, int thickness, Pattern pattern) throws
     public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, boolean filled)
             throws MaxChangedBlocksException {
 
-        Set<Vector> vset = new HashSet<Vector>();
+        BlockBitSet vset = new BlockBitSet();
         boolean notdrawn = true;
 
         int x1 = pos1.getBlockX(), y1 = pos1.getBlockY(), z1 = pos1.getBlockZ();
@@ -2120,7 +2362,7 @@ public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, bo
         int dx = Math.abs(x2 - x1), dy = Math.abs(y2 - y1), dz = Math.abs(z2 - z1);
 
         if (dx + dy + dz == 0) {
-            vset.add(new Vector(tipx, tipy, tipz));
+            vset.set(tipx, tipy, tipz);
             notdrawn = false;
         }
 
@@ -2130,7 +2372,7 @@ public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, bo
                 tipy = (int) Math.round(y1 + domstep * ((double) dy) / ((double) dx) * (y2 - y1 > 0 ? 1 : -1));
                 tipz = (int) Math.round(z1 + domstep * ((double) dz) / ((double) dx) * (z2 - z1 > 0 ? 1 : -1));
 
-                vset.add(new Vector(tipx, tipy, tipz));
+                vset.set(tipx, tipy, tipz);
             }
             notdrawn = false;
         }
@@ -2141,7 +2383,7 @@ public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, bo
                 tipx = (int) Math.round(x1 + domstep * ((double) dx) / ((double) dy) * (x2 - x1 > 0 ? 1 : -1));
                 tipz = (int) Math.round(z1 + domstep * ((double) dz) / ((double) dy) * (z2 - z1 > 0 ? 1 : -1));
 
-                vset.add(new Vector(tipx, tipy, tipz));
+                vset.set(tipx, tipy, tipz);
             }
             notdrawn = false;
         }
@@ -2152,7 +2394,7 @@ public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, bo
                 tipy = (int) Math.round(y1 + domstep * ((double) dy) / ((double) dz) * (y2-y1>0 ? 1 : -1));
                 tipx = (int) Math.round(x1 + domstep * ((double) dx) / ((double) dz) * (x2-x1>0 ? 1 : -1));
 
-                vset.add(new Vector(tipx, tipy, tipz));
+                vset.set(tipx, tipy, tipz);
             }
             notdrawn = false;
         }
@@ -2182,7 +2424,7 @@ public int drawLine(Pattern pattern, Vector pos1, Vector pos2, double radius, bo
     public int drawSpline(Pattern pattern, List<Vector> nodevectors, double tension, double bias, double continuity, double quality, double radius, boolean filled)
             throws MaxChangedBlocksException {
 
-        Set<Vector> vset = new HashSet<Vector>();
+        BlockBitSet vset = new BlockBitSet();
         List<Node> nodes = new ArrayList<Node>(nodevectors.size());
 
         Interpolation interpol = new KochanekBartelsInterpolation();
@@ -2203,7 +2445,7 @@ public int drawSpline(Pattern pattern, List<Vector> nodevectors, double tension,
             int tipy = (int) Math.round(tipv.getY());
             int tipz = (int) Math.round(tipv.getZ());
 
-            vset.add(new Vector(tipx, tipy, tipz));
+            vset.set(tipx, tipy, tipz);
         }
 
         vset = getBallooned(vset, radius);
@@ -2213,72 +2455,58 @@ public int drawSpline(Pattern pattern, List<Vector> nodevectors, double tension,
         return setBlocks(vset, pattern);
     }
 
-    private static double hypot(double... pars) {
-        double sum = 0;
-        for (double d : pars) {
-            sum += Math.pow(d, 2);
-        }
-        return Math.sqrt(sum);
-    }
-
-    private static Set<Vector> getBallooned(Set<Vector> vset, double radius) {
-        Set<Vector> returnset = new HashSet<Vector>();
+    /**
+     * Return the union of the balls of the given radius that are centered
+     * on each of the given points.
+     *
+     * <p>The extent of the ball along the X axis is worked out once for
+     * each Y and Z offset, and each point then adds whole runs of blocks,
+     * so overlapping balls along a path cost little.</p>
+     *
+     * @param vset the center points
+     * @param radius the radius of the balls
+     * @return the set of blocks in the union
+     */
+    private static BlockBitSet getBallooned(BlockBitSet vset, double radius) {
+        BlockBitSet returnset = new BlockBitSet();
         int ceilrad = (int) Math.ceil(radius);
+        if (ceilrad < 0) {
+            return returnset;
+        }
 
-        for (Vector v : vset) {
-            int tipx = v.getBlockX(), tipy = v.getBlockY(), tipz = v.getBlockZ();
-
-            for (int loopx = tipx - ceilrad; loopx <= tipx + ceilrad; loopx++) {
-                for (int loopy = tipy - ceilrad; loopy <= tipy + ceilrad; loopy++) {
-                    for (int loopz = tipz - ceilrad; loopz <= tipz + ceilrad; loopz++) {
-                        if (hypot(loopx - tipx, loopy - tipy, loopz - tipz) <= radius) {
-                            returnset.add(new Vector(loopx, loopy, loopz));
-                        }
+        // Half the length of the X run for each Y and Z offset, or -1 if the ball does not reach it
+        int width = 2 * ceilrad + 1;
+        int[] halfWidths = new int[width * width];
+        for (int loopy = -ceilrad; loopy <= ceilrad; loopy++) {
+            for (int loopz = -ceilrad; loopz <= ceilrad; loopz++) {
+                int halfWidth = -1;
+                for (int loopx = 0; loopx <= ceilrad; loopx++) {
+                    if (Math.sqrt(loopx * loopx + loopy * loopy + loopz * loopz) > radius) {
+                        break;
                     }
+                    halfWidth = loopx;
                 }
+                halfWidths[(loopy + ceilrad) * width + loopz + ceilrad] = halfWidth;
             }
         }
-        return returnset;
-    }
 
-    private static Set<Vector> getHollowed(Set<Vector> vset) {
-        Set<Vector> returnset = new HashSet<Vector>();
-        for (Vector v : vset) {
-            double x = v.getX(), y = v.getY(), z = v.getZ();
-            if (!(vset.contains(new Vector(x + 1, y, z)) &&
-            vset.contains(new Vector(x - 1, y, z)) &&
-            vset.contains(new Vector(x, y + 1, z)) &&
-            vset.contains(new Vector(x, y - 1, z)) &&
-            vset.contains(new Vector(x, y, z + 1)) &&
-            vset.contains(new Vector(x, y, z - 1)))) {
-                returnset.add(v);
+        for (BlockVector v : vset) {
+            int tipx = v.getBlockX(), tipy = v.getBlockY(), tipz = v.getBlockZ();
+
+            for (int loopy = -ceilrad; loopy <= ceilrad; loopy++) {
+                for (int loopz = -ceilrad; loopz <= ceilrad; loopz++) {
+                    int halfWidth = halfWidths[(loopy + ceilrad) * width + loopz + ceilrad];
+                    if (halfWidth >= 0) {
+                        returnset.setSpan(tipx - halfWidth, tipx + halfWidth, tipy + loopy, tipz + loopz);
+                    }
+                }
             }
         }
         return returnset;
     }
 
-    private void recurseHollow(Region region, BlockVector origin, Set<BlockVector> outside) {
-        final LinkedList<BlockVector> queue = new LinkedList<BlockVector>();
-        queue.addLast(origin);
-
-        while (!queue.isEmpty()) {
-            final BlockVector current = queue.removeFirst();
-            if (!BlockType.canPassThrough(getBlockType(current), getBlockData(current))) {
-                continue;
-            }
-
-            if (!outside.add(current)) {
-                continue;
-            }
-
-            if (!region.contains(current)) {
-                continue;
-            }
-
-            for (Vector recurseDirection: recurseDirections) {
-                queue.addLast(current.add(recurseDirection).toBlockVector());
-            }
-        } // while
+    private static BlockBitSet getHollowed(BlockBitSet vset) {
+        return vset.getShell();
     }
 
     public int makeBiomeShape(final Region region, final Vector zero, final Vector unit, final BaseBiome biomeType, final String expressionString, final boolean hollow) throws ExpressionException, MaxChangedBlocksException {
@@ -2316,15 +2544,6 @@ protected BaseBiome getBiome(int x, int z, BaseBiome defaultBiomeType) {
         return shape.generate(this, biomeType, hollow);
     }
 
-    private static final Vector[] recurseDirections = {
-            PlayerDirection.NORTH.vector(),
-            PlayerDirection.EAST.vector(),
-            PlayerDirection.SOUTH.vector(),
-            PlayerDirection.WEST.vector(),
-            PlayerDirection.UP.vector(),
-            PlayerDirection.DOWN.vector(),
-    };
-
     private static double lengthSq(double x, double y, double z) {
         return (x * x) + (y * y) + (z * z);
     }
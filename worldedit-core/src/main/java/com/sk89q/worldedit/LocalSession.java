@@ -189,6 +189,9 @@ public void clearHistory() {
     public void remember(EditSession editSession) {
         checkNotNull(editSession);
 
+        // Brush strokes in progress were started first
+        finishStrokes();
+
         // Don't store anything if no changes were made
         if (editSession.size() == 0) return;
 
@@ -203,6 +206,17 @@ public void remember(EditSession editSession) {
         historyPointer = history.size();
     }
 
+    /**
+     * End the brush strokes in progress so that they are in the history.
+     */
+    private void finishStrokes() {
+        for (Tool tool : tools.values()) {
+            if (tool instanceof BrushTool) {
+                ((BrushTool) tool).finishStroke();
+            }
+        }
+    }
+
     /**
      * Performs an undo.
      *
@@ -223,6 +237,7 @@ public EditSession undo(@Nullable BlockBag newBlockBag, LocalPlayer player) {
      */
     public EditSession undo(@Nullable BlockBag newBlockBag, Player player) {
         checkNotNull(player);
+        finishStrokes();
         --historyPointer;
         if (historyPointer >= 0) {
             EditSession editSession = history.get(historyPointer);
@@ -258,6 +273,7 @@ public EditSession redo(@Nullable BlockBag newBlockBag, LocalPlayer player) {
      */
     public EditSession redo(@Nullable BlockBag newBlockBag, Player player) {
         checkNotNull(player);
+        finishStrokes();
         if (historyPointer < history.size()) {
             EditSession editSession = history.get(historyPointer);
             EditSession newEditSession = WorldEdit.getInstance().getEditSessionFactory()
@@ -34,7 +34,6 @@
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.extension.platform.PlatformManager;
-import com.sk89q.worldedit.extent.inventory.BlockBag;
 import com.sk89q.worldedit.function.mask.Masks;
 import com.sk89q.worldedit.function.pattern.Patterns;
 import com.sk89q.worldedit.masks.Mask;
@@ -607,11 +606,7 @@ public FlipDirection getFlipDirection(Player player, String dirStr) throws Unkno
      * @param editSession the edit session
      */
     public void flushBlockBag(Actor actor, EditSession editSession) {
-        BlockBag blockBag = editSession.getBlockBag();
-
-        if (blockBag != null) {
-            blockBag.flushChanges();
-        }
+        editSession.flushBlockBag();
 
         Map<Integer, Integer> missingBlocks = editSession.popMissingBlocks();
 
@@ -743,7 +738,9 @@ public void runScript(Player player, File f, String[] args) throws WorldEditExce
         CraftScriptEngine engine = null;
 
         try {
-            engine = new RhinoCraftScriptEngine();
+            RhinoCraftScriptEngine rhinoEngine = new RhinoCraftScriptEngine();
+            rhinoEngine.setOptimizationLevel(getConfiguration().scriptOptimizationLevel);
+            engine = rhinoEngine;
         } catch (NoClassDefFoundError e) {
             player.printError("Failed to find an installed script engine.");
             player.printError("Please see http://wiki.sk89q.com/wiki/WorldEdit/Installation");
@@ -758,7 +755,12 @@ public void runScript(Player player, File f, String[] args) throws WorldEditExce
         vars.put("player", player);
 
         try {
-            engine.evaluate(script, filename, vars);
+            if (engine instanceof RhinoCraftScriptEngine) {
+                // Reuse the compiled script if the file hasn't changed
+                ((RhinoCraftScriptEngine) engine).evaluate(script, filename, f.exists() ? f.lastModified() : 0, vars);
+            } else {
+                engine.evaluate(script, filename, vars);
+            }
         } catch (ScriptException e) {
             player.printError("Failed to execute:");
             player.printRaw(e.getMessage());
@@ -26,25 +26,18 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.Vector;
-import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Player;
-import com.sk89q.worldedit.function.FlatRegionFunction;
-import com.sk89q.worldedit.function.FlatRegionMaskingFilter;
-import com.sk89q.worldedit.function.biome.BiomeReplace;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.mask.Mask2D;
-import com.sk89q.worldedit.function.operation.Operations;
-import com.sk89q.worldedit.function.visitor.FlatRegionVisitor;
 import com.sk89q.worldedit.regions.CuboidRegion;
-import com.sk89q.worldedit.regions.FlatRegion;
 import com.sk89q.worldedit.regions.Region;
-import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.util.command.binding.Switch;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.sk89q.worldedit.world.biome.BiomeData;
+import com.sk89q.worldedit.world.biome.Biomes;
 import com.sk89q.worldedit.world.registry.BiomeRegistry;
 
 import java.util.HashSet;
@@ -148,13 +141,10 @@ public void biomeInfo(Player player, LocalSession session, CommandContext args)
             World world = player.getWorld();
             Region region = session.getSelection(world);
 
-            if (region instanceof FlatRegion) {
-                for (Vector2D pt : ((FlatRegion) region).asFlatRegion()) {
-                    biomes.add(world.getBiome(pt));
-                }
-            } else {
-                for (Vector pt : region) {
-                    biomes.add(world.getBiome(pt.toVector2D()));
+            int[] counts = Biomes.getHistogram(world, region);
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    biomes.add(new BaseBiome(id));
                 }
             }
 
@@ -196,14 +186,9 @@ public void setBiome(Player player, LocalSession session, EditSession editSessio
             region = session.getSelection(world);
         }
 
-        FlatRegionFunction replace = new BiomeReplace(editSession, target);
-        if (mask2d != null) {
-            replace = new FlatRegionMaskingFilter(mask2d, replace);
-        }
-        FlatRegionVisitor visitor = new FlatRegionVisitor(Regions.asFlatRegion(region), replace);
-        Operations.completeLegacy(visitor);
+        int affected = editSession.setBiomes(region, target, mask2d);
 
-        player.print("Biomes were changed in " + visitor.getAffected() + " columns. You may have to rejoin your game (or close and reopen your world) to see a change.");
+        player.print("Biomes were changed in " + affected + " columns.");
     }
 
 }
@@ -25,23 +25,20 @@
 import com.sk89q.worldedit.*;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.entity.Player;
-import com.sk89q.worldedit.function.GroundFunction;
 import com.sk89q.worldedit.function.generator.FloraGenerator;
 import com.sk89q.worldedit.function.generator.ForestGenerator;
 import com.sk89q.worldedit.function.mask.ExistingBlockMask;
 import com.sk89q.worldedit.function.mask.Mask;
-import com.sk89q.worldedit.function.mask.NoiseFilter2D;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.function.pattern.Patterns;
-import com.sk89q.worldedit.function.visitor.LayerVisitor;
+import com.sk89q.worldedit.function.visitor.DecorationVisitor;
 import com.sk89q.worldedit.internal.annotation.Direction;
 import com.sk89q.worldedit.internal.annotation.Selection;
 import com.sk89q.worldedit.internal.expression.ExpressionException;
 import com.sk89q.worldedit.math.convolution.GaussianKernel;
 import com.sk89q.worldedit.math.convolution.HeightMap;
 import com.sk89q.worldedit.math.convolution.HeightMapFilter;
-import com.sk89q.worldedit.math.noise.RandomNoise;
 import com.sk89q.worldedit.regions.ConvexPolyhedralRegion;
 import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
@@ -453,12 +450,11 @@ public void forest(Player player, EditSession editSession, @Selection Region reg
                        @Optional("5") @Range(min = 0, max = 100) double density) throws WorldEditException {
         density = density / 100;
         ForestGenerator generator = new ForestGenerator(editSession, new TreeGenerator(type));
-        GroundFunction ground = new GroundFunction(new ExistingBlockMask(editSession), generator);
-        LayerVisitor visitor = new LayerVisitor(asFlatRegion(region), minimumBlockY(region), maximumBlockY(region), ground);
-        visitor.setMask(new NoiseFilter2D(new RandomNoise(), density));
+        DecorationVisitor visitor = new DecorationVisitor(player.getWorld(), asFlatRegion(region), minimumBlockY(region), maximumBlockY(region), generator);
+        visitor.setDensity(density);
         Operations.completeLegacy(visitor);
 
-        player.print(ground.getAffected() + " trees created.");
+        player.print(visitor.getAffected() + " trees created.");
     }
 
     @Command(
@@ -473,12 +469,11 @@ public void forest(Player player, EditSession editSession, @Selection Region reg
     public void flora(Player player, EditSession editSession, @Selection Region region, @Optional("10") @Range(min = 0, max = 100) double density) throws WorldEditException {
         density = density / 100;
         FloraGenerator generator = new FloraGenerator(editSession);
-        GroundFunction ground = new GroundFunction(new ExistingBlockMask(editSession), generator);
-        LayerVisitor visitor = new LayerVisitor(asFlatRegion(region), minimumBlockY(region), maximumBlockY(region), ground);
-        visitor.setMask(new NoiseFilter2D(new RandomNoise(), density));
+        DecorationVisitor visitor = new DecorationVisitor(player.getWorld(), asFlatRegion(region), minimumBlockY(region), maximumBlockY(region), generator);
+        visitor.setDensity(density);
         Operations.completeLegacy(visitor);
 
-        player.print(ground.getAffected() + " flora created.");
+        player.print(visitor.getAffected() + " flora created.");
     }
 
 }
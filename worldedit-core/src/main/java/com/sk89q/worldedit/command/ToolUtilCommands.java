@@ -23,7 +23,9 @@
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.minecraft.util.commands.CommandPermissions;
 import com.sk89q.worldedit.*;
+import com.sk89q.worldedit.command.tool.BrushTool;
 import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.extension.platform.Capability;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.util.command.parametric.Optional;
@@ -129,4 +131,37 @@ public void size(Player player, LocalSession session, EditSession editSession, C
         session.getBrushTool(player.getItemInHand()).setSize(radius);
         player.print("Brush size set.");
     }
+
+    @Command(
+        aliases = { "stroke" },
+        usage = "[window]",
+        desc = "Merge brush uses into strokes",
+        help =
+            "Merges uses of the brush that are no more than the given\n" +
+            "number of milliseconds apart into one stroke, which is\n" +
+            "carried out over the following ticks and undone as one.\n" +
+            "A window of 0, or no window, disables strokes.",
+        min = 0,
+        max = 1
+    )
+    @CommandPermissions("worldedit.brush.options.stroke")
+    public void stroke(Player player, LocalSession session, EditSession editSession, CommandContext args) throws WorldEditException {
+        int window = args.getInteger(0, 0);
+        if (window < 0) {
+            player.printError("The stroke window cannot be negative.");
+            return;
+        }
+
+        if (window > 0 && !BrushTool.scheduleStrokes(we.getPlatformManager().queryCapability(Capability.WORLD_EDITING))) {
+            player.printError("Brush strokes are not supported on this server.");
+            return;
+        }
+
+        session.getBrushTool(player.getItemInHand()).setStrokeWindow(window);
+        if (window == 0) {
+            player.print("Brush strokes disabled.");
+        } else {
+            player.print("Brush strokes set to a " + window + " ms window.");
+        }
+    }
 }
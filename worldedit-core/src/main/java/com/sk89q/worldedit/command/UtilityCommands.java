@@ -65,6 +65,7 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -414,14 +415,14 @@ public void butcher(Actor actor, CommandContext args) throws WorldEditException
             session = we.getSessionManager().get(player);
             Vector center = session.getPlacementPosition(player);
             editSession = session.createEditSession(player);
-            List<? extends Entity> entities;
+            Iterator<? extends Entity> entities;
             if (radius >= 0) {
                 CylinderRegion region = CylinderRegion.createRadius(editSession, center, radius);
-                entities = editSession.getEntities(region);
+                entities = editSession.queryEntities(region, flags.createTypeFilter());
             } else {
-                entities = editSession.getEntities();
+                entities = editSession.getEntities().iterator();
             }
-            visitors.add(new EntityVisitor(entities.iterator(), flags.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
+            visitors.add(new EntityVisitor(entities, flags.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
         } else {
             Platform platform = we.getPlatformManager().queryCapability(Capability.WORLD_EDITING);
             for (World world : platform.getWorlds()) {
@@ -478,14 +479,14 @@ public void remove(Actor actor, CommandContext args) throws WorldEditException,
             session = we.getSessionManager().get(player);
             Vector center = session.getPlacementPosition(player);
             editSession = session.createEditSession(player);
-            List<? extends Entity> entities;
+            Iterator<? extends Entity> entities;
             if (radius >= 0) {
                 CylinderRegion region = CylinderRegion.createRadius(editSession, center, radius);
-                entities = editSession.getEntities(region);
+                entities = editSession.queryEntities(region, remover.createTypeFilter());
             } else {
-                entities = editSession.getEntities();
+                entities = editSession.getEntities().iterator();
             }
-            visitors.add(new EntityVisitor(entities.iterator(), remover.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
+            visitors.add(new EntityVisitor(entities, remover.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
         } else {
             Platform platform = we.getPlatformManager().queryCapability(Capability.WORLD_EDITING);
             for (World world : platform.getWorlds()) {
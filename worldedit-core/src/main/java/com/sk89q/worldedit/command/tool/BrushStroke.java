@@ -0,0 +1,316 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.command.tool;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.command.tool.brush.Brush;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.event.platform.PlatformUnreadyEvent;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.extent.inventory.BlockBag;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.session.request.Request;
+import com.sk89q.worldedit.util.eventbus.Subscribe;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A series of brush uses that are made into one edit session and one
+ * entry in the player's history.
+ *
+ * <p>Uses of the brush are queued and carried out over the following
+ * server ticks, within a time budget per tick that is shared by all
+ * strokes. A stroke ends once its queue is empty and the brush has not
+ * been used for the stroke's window of time.</p>
+ *
+ * <p>The queue is flushed after every use, so that a brush that reads
+ * blocks, such as the smooth brush, sees what earlier uses have done.</p>
+ */
+class BrushStroke {
+
+    private static final long TICK_BUDGET = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final List<BrushStroke> active = new ArrayList<BrushStroke>();
+    private static int taskId = -1;
+    @Nullable private static Platform scheduler;
+    private static boolean listening;
+
+    private final LocalSession session;
+    private final Player player;
+    private final EditSession editSession;
+    @Nullable private final BlockBag blockBag;
+    private final long window;
+    private final Map<BlockVector, Dab> pending = new LinkedHashMap<BlockVector, Dab>();
+    private long lastUse;
+    private boolean finished;
+
+    /**
+     * Create a new stroke.
+     *
+     * @param session the session to remember the stroke in
+     * @param player the player using the brush
+     * @param editSession the edit session to make changes with
+     * @param blockBag the block bag of the edit session, or null
+     * @param window the time in milliseconds after the last use of the brush before the stroke ends
+     */
+    BrushStroke(LocalSession session, Player player, EditSession editSession, @Nullable BlockBag blockBag, long window) {
+        checkNotNull(session);
+        checkNotNull(player);
+        checkNotNull(editSession);
+        checkArgument(window > 0, "window must be > 0");
+        this.session = session;
+        this.player = player;
+        this.editSession = editSession;
+        this.blockBag = blockBag;
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.lastUse = System.nanoTime();
+    }
+
+    /**
+     * Make sure that strokes will be carried out on the given platform.
+     *
+     * @param platform the platform to schedule the work with
+     * @return false if the platform cannot schedule tasks
+     */
+    static boolean schedule(Platform platform) {
+        checkNotNull(platform);
+
+        if (taskId == -1) {
+            taskId = platform.schedule(1, 1, new Runnable() {
+                @Override
+                public void run() {
+                    tick(TICK_BUDGET);
+                }
+            });
+
+            if (taskId != -1) {
+                scheduler = platform;
+
+                if (!listening) {
+                    WorldEdit.getInstance().getEventBus().register(new PlatformListener());
+                    listening = true;
+                }
+            }
+        }
+
+        return taskId != -1;
+    }
+
+    /**
+     * End all strokes, carrying out their queued uses right away.
+     *
+     * <p>This is done when the platform that strokes are scheduled with
+     * is unregistered, as its tasks are cancelled with it.</p>
+     */
+    static void finishAll() {
+        List<BrushStroke> strokes = new ArrayList<BrushStroke>(active);
+        active.clear();
+        taskId = -1;
+        scheduler = null;
+
+        for (BrushStroke stroke : strokes) {
+            stroke.end();
+        }
+    }
+
+    /**
+     * Start carrying out the stroke over the following ticks.
+     *
+     * @param platform the platform to schedule the work with
+     * @return false if the platform cannot schedule tasks
+     */
+    boolean start(Platform platform) {
+        if (!schedule(platform)) {
+            return false;
+        }
+
+        active.add(this);
+        return true;
+    }
+
+    /**
+     * Get whether the stroke has ended.
+     *
+     * @return true if ended
+     */
+    boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get whether the stroke can take another use of the brush by the
+     * given player.
+     *
+     * @param player the player
+     * @return true if the stroke can continue
+     */
+    boolean canContinue(Player player) {
+        return !finished && editSession.getWorld().equals(player.getWorld());
+    }
+
+    /**
+     * Queue a use of the brush.
+     *
+     * <p>If a use at the same position is still queued, it is replaced, as
+     * brushing over the same spot again before it has been painted does not
+     * need to be done twice.</p>
+     *
+     * @param position the target position
+     * @param brush the brush
+     * @param material the material
+     * @param size the size
+     */
+    void add(Vector position, Brush brush, Pattern material, double size) {
+        checkNotNull(position);
+        checkNotNull(brush);
+        checkNotNull(material);
+        BlockVector key = position.toBlockVector();
+        pending.remove(key);
+        pending.put(key, new Dab(position, brush, material, size));
+        lastUse = System.nanoTime();
+    }
+
+    /**
+     * Carry out queued uses until the deadline has passed, always carrying
+     * out at least one.
+     *
+     * @param deadline the deadline, from {@link System#nanoTime()}
+     */
+    private void process(long deadline) {
+        Request.request().setEditSession(editSession);
+
+        boolean limitReached = false;
+        Iterator<Dab> it = pending.values().iterator();
+        try {
+            while (it.hasNext()) {
+                Dab dab = it.next();
+                it.remove();
+                try {
+                    dab.brush.build(editSession, dab.position, dab.material, dab.size);
+                } finally {
+                    // Later uses may read the blocks that this one changed
+                    editSession.flushQueue();
+                }
+
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        } catch (MaxChangedBlocksException e) {
+            player.printError("Max blocks change limit reached.");
+            pending.clear();
+            limitReached = true;
+        }
+
+        if (limitReached || (pending.isEmpty() && System.nanoTime() - lastUse >= window)) {
+            finish();
+        }
+    }
+
+    /**
+     * End the stroke now, carrying out all queued uses, and remember it in
+     * the session. Nothing is done if the stroke has already ended.
+     */
+    void end() {
+        if (!finished) {
+            process(Long.MAX_VALUE);
+        }
+
+        if (!finished) {
+            finish();
+        }
+    }
+
+    /**
+     * End the stroke and remember it in the session.
+     */
+    private void finish() {
+        finished = true;
+        if (blockBag != null) {
+            blockBag.flushChanges();
+        }
+        session.remember(editSession);
+    }
+
+    /**
+     * Carry out queued uses of all strokes.
+     *
+     * @param budget the time in nanoseconds to spend, although each stroke carries out at least one use
+     */
+    static void tick(long budget) {
+        if (active.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + budget;
+        Iterator<BrushStroke> it = active.iterator();
+        while (it.hasNext()) {
+            BrushStroke stroke = it.next();
+            // The stroke may have been ended outside of a tick
+            if (!stroke.isFinished()) {
+                stroke.process(deadline);
+            }
+            if (stroke.isFinished()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Ends all strokes when the platform that they are scheduled with is
+     * unregistered.
+     */
+    private static class PlatformListener {
+        @Subscribe
+        public void onPlatformUnready(PlatformUnreadyEvent event) {
+            if (event.getPlatform().equals(scheduler)) {
+                finishAll();
+            }
+        }
+    }
+
+    private static class Dab {
+        private final Vector position;
+        private final Brush brush;
+        private final Pattern material;
+        private final double size;
+
+        private Dab(Vector position, Brush brush, Pattern material, double size) {
+            this.position = position;
+            this.brush = brush;
+            this.material = material;
+            this.size = size;
+        }
+    }
+
+}
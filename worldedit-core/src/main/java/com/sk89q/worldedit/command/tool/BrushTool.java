@@ -34,6 +34,7 @@
 import com.sk89q.worldedit.function.pattern.Pattern;
 import com.sk89q.worldedit.session.request.Request;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -48,6 +49,8 @@ public class BrushTool implements TraceTool {
     private Pattern material = new BlockPattern(new BaseBlock(BlockID.COBBLESTONE));
     private double size = 1;
     private String permission;
+    private long strokeWindow = 0;
+    private transient BrushStroke stroke;
 
     /**
      * Construct the tool.
@@ -156,6 +159,53 @@ public void setRange(int range) {
         this.range = range;
     }
 
+    /**
+     * Get the stroke window.
+     *
+     * @return the time in milliseconds, or 0 if strokes are disabled
+     * @see #setStrokeWindow(long)
+     */
+    public long getStrokeWindow() {
+        return strokeWindow;
+    }
+
+    /**
+     * Set the stroke window.
+     *
+     * <p>If the window is greater than 0, uses of the brush that are no
+     * further apart than the window are made into one stroke that is carried
+     * out over the following ticks and is undone as one.</p>
+     *
+     * @param strokeWindow the time in milliseconds, or 0 to disable strokes
+     */
+    public void setStrokeWindow(long strokeWindow) {
+        checkArgument(strokeWindow >= 0, "strokeWindow must be >= 0");
+        this.strokeWindow = strokeWindow;
+    }
+
+    /**
+     * End the current stroke, if there is one, carrying out its queued uses
+     * of the brush right away.
+     */
+    public void finishStroke() {
+        BrushStroke current = stroke;
+        if (current != null) {
+            // Cleared first as ending the stroke remembers it in the session
+            stroke = null;
+            current.end();
+        }
+    }
+
+    /**
+     * Make sure that brush strokes can be carried out on the given platform.
+     *
+     * @param platform the platform
+     * @return false if the platform cannot schedule tasks, so strokes can't be used
+     */
+    public static boolean scheduleStrokes(Platform platform) {
+        return BrushStroke.schedule(platform);
+    }
+
     @Override
     public boolean actPrimary(Platform server, LocalConfiguration config, Player player, LocalSession session) {
         WorldVector target = null;
@@ -166,24 +216,26 @@ public boolean actPrimary(Platform server, LocalConfiguration config, Player pla
             return true;
         }
 
-        BlockBag bag = session.getBlockBag(player);
+        if (strokeWindow > 0) {
+            // If the platform can't schedule tasks, brush right away
+            if (BrushStroke.schedule(server)) {
+                if (stroke == null || !stroke.canContinue(player)) {
+                    BlockBag bag = session.getBlockBag(player);
+                    EditSession editSession = createEditSession(player, session);
+                    stroke = new BrushStroke(session, player, editSession, bag, strokeWindow);
+                    stroke.start(server);
+                }
 
-        EditSession editSession = session.createEditSession(player);
-        Request.request().setEditSession(editSession);
-        if (mask != null) {
-            Mask existingMask = editSession.getMask();
-
-            if (existingMask == null) {
-                editSession.setMask(mask);
-            } else if (existingMask instanceof MaskIntersection) {
-                ((MaskIntersection) existingMask).add(mask);
-            } else {
-                MaskIntersection newMask = new MaskIntersection(existingMask);
-                newMask.add(mask);
-                editSession.setMask(newMask);
+                stroke.add(target, brush, material, size);
+                return true;
             }
         }
 
+        BlockBag bag = session.getBlockBag(player);
+
+        EditSession editSession = createEditSession(player, session);
+        Request.request().setEditSession(editSession);
+
         try {
             brush.build(editSession, target, material, size);
         } catch (MaxChangedBlocksException e) {
@@ -198,4 +250,19 @@ public boolean actPrimary(Platform server, LocalConfiguration config, Player pla
         return true;
     }
 
+    private EditSession createEditSession(Player player, LocalSession session) {
+        EditSession editSession = session.createEditSession(player);
+        if (mask != null) {
+            Mask existingMask = editSession.getMask();
+
+            if (existingMask == null) {
+                editSession.setMask(mask);
+            } else {
+                // The session's mask is shared between edits, so don't add to it
+                editSession.setMask(new MaskIntersection(existingMask, mask));
+            }
+        }
+        return editSession;
+    }
+
 }
@@ -29,7 +29,7 @@
 import com.sk89q.worldedit.function.visitor.EntityVisitor;
 import com.sk89q.worldedit.regions.CylinderRegion;
 
-import java.util.List;
+import java.util.Iterator;
 
 public class ButcherBrush implements Brush {
 
@@ -42,8 +42,8 @@ public ButcherBrush(CreatureButcher flags) {
     @Override
     public void build(EditSession editSession, Vector position, Pattern pattern, double size) throws MaxChangedBlocksException {
         CylinderRegion region = CylinderRegion.createRadius(editSession, position, size);
-        List<? extends Entity> entities = editSession.getEntities(region);
-        Operations.completeLegacy(new EntityVisitor(entities.iterator(), flags.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
+        Iterator<? extends Entity> entities = editSession.queryEntities(region, flags.createTypeFilter());
+        Operations.completeLegacy(new EntityVisitor(entities, flags.createFunction(editSession.getWorld().getWorldData().getEntityRegistry())));
     }
 
 }
@@ -22,9 +22,11 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.world.SurfaceType;
 
 import java.util.*;
 
@@ -43,6 +45,12 @@ public void build(EditSession editSession, Vector position, Pattern pattern, dou
         for (double x = position.getBlockX() + size; x > position.getBlockX() - size; --x) {
             for (double z = position.getBlockZ() + size; z > position.getBlockZ() - size; --z) {
                 double y = startY;
+                // Everything above the highest block in the column is air
+                final int surface = editSession.getSurfaceHeights(new Vector2D(x, z), new Vector2D(x, z),
+                        (int) Math.floor(position.getBlockY() - size), (int) Math.floor(startY), SurfaceType.NON_AIR)[0];
+                if (y >= surface + 1) {
+                    y -= Math.floor(y - surface);
+                }
                 final List<BaseBlock> blockTypes = new ArrayList<BaseBlock>();
                 for (; y > position.getBlockY() - size; --y) {
                     final Vector pt = new Vector(x, y, z);
@@ -19,14 +19,19 @@
 
 package com.sk89q.worldedit.command.util;
 
+import com.google.common.base.Predicate;
 import com.sk89q.minecraft.util.commands.CommandContext;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.extension.platform.Actor;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.EntityFunction;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.registry.EntityRegistry;
 
+import javax.annotation.Nullable;
+
 /**
  * The implementation of /butcher.
  */
@@ -77,10 +82,16 @@ public void fromCommand(CommandContext args) {
         or(Flags.WITH_LIGHTNING, args.hasFlag('l'), "worldedit.butcher.lightning");
     }
 
-    public EntityFunction createFunction(final EntityRegistry entityRegistry) {
-        return new EntityFunction() {
+    /**
+     * Create a filter that accepts the types of entity that would be
+     * killed, for use with {@link Extent#queryEntities(Region, Predicate)}.
+     *
+     * @return a filter
+     */
+    public Predicate<EntityType> createTypeFilter() {
+        return new Predicate<EntityType>() {
             @Override
-            public boolean apply(Entity entity) throws WorldEditException {
+            public boolean apply(@Nullable EntityType type) {
                 boolean killPets = (flags & Flags.PETS) != 0;
                 boolean killNPCs = (flags & Flags.NPCS) != 0;
                 boolean killAnimals = (flags & Flags.ANIMALS) != 0;
@@ -88,8 +99,6 @@ public boolean apply(Entity entity) throws WorldEditException {
                 boolean killAmbient = (flags & Flags.AMBIENT) != 0;
                 boolean killTagged = (flags & Flags.TAGGED) != 0;
 
-                EntityType type = entity.getFacet(EntityType.class);
-
                 if (type == null) {
                     return false;
                 }
@@ -126,6 +135,20 @@ public boolean apply(Entity entity) throws WorldEditException {
                     return false;
                 }
 
+                return true;
+            }
+        };
+    }
+
+    public EntityFunction createFunction(final EntityRegistry entityRegistry) {
+        final Predicate<EntityType> filter = createTypeFilter();
+        return new EntityFunction() {
+            @Override
+            public boolean apply(Entity entity) throws WorldEditException {
+                if (!filter.apply(entity.getFacet(EntityType.class))) {
+                    return false;
+                }
+
                 entity.remove();
                 return true;
             }
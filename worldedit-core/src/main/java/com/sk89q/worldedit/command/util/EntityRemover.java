@@ -19,11 +19,14 @@
 
 package com.sk89q.worldedit.command.util;
 
+import com.google.common.base.Predicate;
 import com.sk89q.minecraft.util.commands.CommandException;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Entity;
 import com.sk89q.worldedit.entity.metadata.EntityType;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.EntityFunction;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.world.registry.EntityRegistry;
 
 import javax.annotation.Nullable;
@@ -138,18 +141,31 @@ public void fromString(String str) throws CommandException {
         }
     }
 
-    public EntityFunction createFunction(final EntityRegistry entityRegistry) {
+    /**
+     * Create a filter that accepts the types of entity that would be
+     * removed, for use with {@link Extent#queryEntities(Region, Predicate)}.
+     *
+     * @return a filter
+     */
+    public Predicate<EntityType> createTypeFilter() {
         final Type type = this.type;
         checkNotNull("type can't be null", type);
+        return new Predicate<EntityType>() {
+            @Override
+            public boolean apply(@Nullable EntityType registryType) {
+                return registryType != null && type.matches(registryType);
+            }
+        };
+    }
+
+    public EntityFunction createFunction(final EntityRegistry entityRegistry) {
+        final Predicate<EntityType> filter = createTypeFilter();
         return new EntityFunction() {
             @Override
             public boolean apply(Entity entity) throws WorldEditException {
-                EntityType registryType = entity.getFacet(EntityType.class);
-                if (registryType != null) {
-                    if (type.matches(registryType)) {
-                        entity.remove();
-                        return true;
-                    }
+                if (filter.apply(entity.getFacet(EntityType.class))) {
+                    entity.remove();
+                    return true;
                 }
 
                 return false;
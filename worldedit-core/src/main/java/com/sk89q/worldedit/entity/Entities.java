@@ -0,0 +1,71 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.entity;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.entity.metadata.EntityType;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Utility methods for working with {@link Entity}s.
+ *
+ * @see Extent#queryEntities(Region, Predicate)
+ */
+public final class Entities {
+
+    private Entities() {
+    }
+
+    /**
+     * Filter entities that have already been adapted to those that are
+     * within the given region and whose type is accepted by the filter.
+     *
+     * <p>This is the fallback for extents that cannot test entities
+     * before adapting them.</p>
+     *
+     * @param entities the entities
+     * @param region the region, or null to not filter by position
+     * @param filter the type filter, which is given null for entities without a type
+     * @param <T> the type of entity
+     * @return an iterator of matching entities
+     */
+    public static <T extends Entity> Iterator<T> filter(Iterator<T> entities, @Nullable final Region region, final Predicate<? super EntityType> filter) {
+        checkNotNull(entities);
+        checkNotNull(filter);
+        return Iterators.filter(entities, new Predicate<T>() {
+            @Override
+            public boolean apply(T entity) {
+                if (region != null && !region.contains(entity.getLocation().toVector())) {
+                    return false;
+                }
+                EntityType type = entity.getFacet(EntityType.class);
+                return filter.apply(type);
+            }
+        });
+    }
+
+}
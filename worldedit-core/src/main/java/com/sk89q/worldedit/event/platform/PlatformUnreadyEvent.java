@@ -0,0 +1,58 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.event.platform;
+
+import com.sk89q.worldedit.event.Event;
+import com.sk89q.worldedit.extension.platform.Platform;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Raised when a platform is being unregistered, before another platform is
+ * chosen for the capabilities that it provided.
+ *
+ * <p>Tasks that were scheduled with the platform will no longer run, so
+ * work that was left to them should be done right away.</p>
+ */
+public class PlatformUnreadyEvent extends Event {
+
+    private final Platform platform;
+
+    /**
+     * Create a new event.
+     *
+     * @param platform the platform that is being unregistered
+     */
+    public PlatformUnreadyEvent(Platform platform) {
+        checkNotNull(platform);
+        this.platform = platform;
+    }
+
+    /**
+     * Get the platform that is being unregistered.
+     *
+     * @return the platform
+     */
+    public Platform getPlatform() {
+        return platform;
+    }
+
+}
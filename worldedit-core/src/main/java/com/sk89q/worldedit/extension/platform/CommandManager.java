@@ -181,7 +181,7 @@ void unregister() {
 
     public String[] commandDetection(String[] split) {
         // Quick script shortcut
-        if (split[0].matches("^[^/].*\\.js$")) {
+        if (isScriptShortcut(split[0])) {
             String[] newSplit = new String[split.length + 1];
             System.arraycopy(split, 0, newSplit, 1, split.length);
             newSplit[0] = "cs";
@@ -203,12 +203,32 @@ public String[] commandDetection(String[] split) {
         return split;
     }
 
+    /**
+     * Test whether the command is the name of a script to run, which is
+     * a name that ends in {@code .js} and doesn't start with a slash.
+     *
+     * @param command the command
+     * @return true if it is a script
+     */
+    private static boolean isScriptShortcut(String command) {
+        return command.length() >= 4 && command.charAt(0) != '/' && command.endsWith(".js");
+    }
+
     @Subscribe
     public void handleCommand(CommandEvent event) {
         Request.reset();
 
         Actor actor = platformManager.createProxyActor(event.getActor());
-        String[] split = commandDetection(event.getArguments().split(" "));
+
+        // Only the command itself needs to be split off to be detected
+        String arguments = event.getArguments();
+        int end = arguments.length();
+        while (end > 0 && arguments.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int space = arguments.indexOf(' ');
+        String[] split = commandDetection(new String[] { space != -1 && space < end ? arguments.substring(0, space) : arguments.substring(0, end) });
+        String rest = space != -1 && space < end ? arguments.substring(space, end) : "";
 
         // No command found!
         if (!dispatcher.contains(split[0])) {
@@ -224,7 +244,7 @@ public void handleCommand(CommandEvent event) {
         long start = System.currentTimeMillis();
 
         try {
-            dispatcher.call(Joiner.on(" ").join(split), locals, new String[0]);
+            dispatcher.call(Joiner.on(" ").join(split) + rest, locals, new String[0]);
         } catch (CommandPermissionsException e) {
             actor.printError("You are not permitted to do that. Are you in the right mode?");
         } catch (InvalidUsageException e) {
@@ -36,6 +36,7 @@
 import com.sk89q.worldedit.event.platform.Interaction;
 import com.sk89q.worldedit.event.platform.PlatformInitializeEvent;
 import com.sk89q.worldedit.event.platform.PlatformReadyEvent;
+import com.sk89q.worldedit.event.platform.PlatformUnreadyEvent;
 import com.sk89q.worldedit.event.platform.PlayerInputEvent;
 import com.sk89q.worldedit.extension.platform.permission.ActorSelectorLimits;
 import com.sk89q.worldedit.internal.ServerInterfaceAdapter;
@@ -131,6 +132,9 @@ public synchronized boolean unregister(Platform platform) {
         if (removed) {
             logger.log(Level.FINE, "Unregistering " + platform.getClass().getCanonicalName() + " from WorldEdit");
 
+            // Give work left to the platform's tasks a chance to be done
+            worldEdit.getEventBus().post(new PlatformUnreadyEvent(platform));
+
             boolean choosePreferred = false;
 
             // Check whether this platform was chosen to be the preferred one
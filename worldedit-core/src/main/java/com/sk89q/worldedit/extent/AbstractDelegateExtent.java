@@ -19,12 +19,14 @@
 
 package com.sk89q.worldedit.extent;
 
+import com.google.common.base.Predicate;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.util.Location;
@@ -33,6 +35,7 @@
 
 import javax.annotation.Nullable;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -94,6 +97,11 @@ public List<? extends Entity> getEntities(Region region) {
         return extent.getEntities(region);
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return extent.queryEntities(region, filter);
+    }
+
     @Override
     public BaseBiome getBiome(Vector2D position) {
         return extent.getBiome(position);
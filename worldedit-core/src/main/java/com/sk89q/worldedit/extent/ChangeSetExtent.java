@@ -19,21 +19,29 @@
 
 package com.sk89q.worldedit.extent;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
+import com.sk89q.worldedit.history.change.BiomeChange;
 import com.sk89q.worldedit.history.change.BlockChange;
 import com.sk89q.worldedit.history.change.EntityCreate;
 import com.sk89q.worldedit.history.change.EntityRemove;
 import com.sk89q.worldedit.history.changeset.ChangeSet;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.biome.BaseBiome;
 
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -64,6 +72,16 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         return super.setBlock(location, block);
     }
 
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        BaseBiome previous = getBiome(position);
+        boolean success = super.setBiome(position, biome);
+        if (success && previous != null && !previous.equals(biome)) {
+            changeSet.add(new BiomeChange(position, previous, biome));
+        }
+        return success;
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity state) {
@@ -84,6 +102,16 @@ public List<? extends Entity> getEntities(Region region) {
         return wrapEntities(super.getEntities(region));
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return Iterators.transform(super.queryEntities(region, filter), new Function<Entity, Entity>() {
+            @Override
+            public Entity apply(Entity entity) {
+                return new TrackedEntity(entity);
+            }
+        });
+    }
+
     private List<? extends Entity> wrapEntities(List<? extends Entity> entities) {
         List<Entity> newList = new ArrayList<Entity>(entities.size());
         for (Entity entity : entities) {
@@ -19,13 +19,16 @@
 
 package com.sk89q.worldedit.extent;
 
+import com.google.common.base.Predicate;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.regions.Region;
 
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -80,6 +83,22 @@ public interface Extent extends InputExtent, OutputExtent {
      */
     List<? extends Entity> getEntities();
 
+    /**
+     * Find the entities within the given region whose type is accepted by
+     * the given filter.
+     *
+     * <p>Unlike {@link #getEntities(Region)}, entities are found lazily as
+     * the returned iterator is advanced, and implementations should test
+     * the position and type of an entity before adapting it into an
+     * {@link Entity}, so that rejected entities cost as little as
+     * possible. Unloaded chunks are skipped.</p>
+     *
+     * @param region the region in which entities must be contained
+     * @param filter the type filter, which is given null for entities whose type is unknown
+     * @return an iterator of entities
+     */
+    Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter);
+
     /**
      * Create an entity at the given location.
      *
@@ -19,12 +19,15 @@
 
 package com.sk89q.worldedit.extent;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.regions.Region;
@@ -32,6 +35,7 @@
 
 import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -62,6 +66,11 @@ public List<Entity> getEntities() {
         return Collections.emptyList();
     }
 
+    @Override
+    public Iterator<Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return Iterators.emptyIterator();
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity entity) {
@@ -0,0 +1,189 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.cache;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.AbstractDelegateExtent;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.world.SurfaceType;
+import com.sk89q.worldedit.world.World;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches the height of the surface of each column, one chunk at a time,
+ * and keeps the cached heights up to date as blocks are set through
+ * this extent.
+ *
+ * <p>This extent should be placed directly above the world so that it
+ * sees blocks as they are actually changed. Heights are fetched from
+ * {@link World#getSurfaceHeights(Vector2D, Vector2D, int, int, SurfaceType)}
+ * for a whole chunk when a column is first queried. When the top block of
+ * a column is replaced by one that is not part of the surface, the
+ * column is rescanned downwards from that block.</p>
+ */
+public class SurfaceExtentCache extends AbstractDelegateExtent {
+
+    private static final int MAX_CACHED_CHUNKS = 4096;
+
+    private final World world;
+    private final Map<SurfaceType, Map<BlockVector2D, int[]>> heights =
+            new EnumMap<SurfaceType, Map<BlockVector2D, int[]>>(SurfaceType.class);
+
+    /**
+     * Create a new instance.
+     *
+     * @param extent the extent
+     * @param world the world that the extent writes to
+     */
+    public SurfaceExtentCache(Extent extent, World world) {
+        super(extent);
+        checkNotNull(world);
+        this.world = world;
+    }
+
+    /**
+     * Get the Y coordinate of the highest block of the given surface type
+     * in a column.
+     *
+     * @param x the X coordinate
+     * @param z the Z coordinate
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return the Y coordinate, or {@code minY - 1} if no block matches
+     */
+    public int getSurfaceHeight(int x, int z, int minY, int maxY, SurfaceType type) {
+        checkNotNull(type);
+        int height = getChunkHeights(x >> 4, z >> 4, type)[(z & 15) << 4 | (x & 15)];
+        if (height > maxY) {
+            // The range is below the surface, so only that part can be scanned
+            height = scan(x, z, minY, maxY, type);
+        }
+        return height >= minY ? height : minY - 1;
+    }
+
+    /**
+     * Get the Y coordinate of the highest block of the given surface type
+     * in each column of a rectangle.
+     *
+     * @param min the minimum X and Z coordinates, inclusive
+     * @param max the maximum X and Z coordinates, inclusive
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return an array of heights, laid out as described in
+     *         {@link World#getSurfaceHeights(Vector2D, Vector2D, int, int, SurfaceType)}
+     */
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        checkNotNull(min);
+        checkNotNull(max);
+        int minX = min.getBlockX();
+        int minZ = min.getBlockZ();
+        int width = max.getBlockX() - minX + 1;
+        int length = max.getBlockZ() - minZ + 1;
+        int[] result = new int[width * length];
+        for (int z = 0; z < length; z++) {
+            for (int x = 0; x < width; x++) {
+                result[z * width + x] = getSurfaceHeight(minX + x, minZ + z, minY, maxY, type);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forget all cached heights, such as after blocks were changed
+     * without going through this extent.
+     */
+    public void clear() {
+        heights.clear();
+    }
+
+    @Override
+    public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
+        boolean changed = super.setBlock(location, block);
+        if (changed && !heights.isEmpty()) {
+            update(location.getBlockX(), location.getBlockY(), location.getBlockZ(), block);
+        }
+        return changed;
+    }
+
+    private void update(int x, int y, int z, BaseBlock block) {
+        BlockVector2D chunk = new BlockVector2D(x >> 4, z >> 4);
+        int index = (z & 15) << 4 | (x & 15);
+        for (Map.Entry<SurfaceType, Map<BlockVector2D, int[]>> entry : heights.entrySet()) {
+            int[] chunkHeights = entry.getValue().get(chunk);
+            if (chunkHeights == null) {
+                continue;
+            }
+
+            SurfaceType type = entry.getKey();
+            int height = chunkHeights[index];
+            if (type.matches(block.getType(), block.getData())) {
+                if (y > height) {
+                    chunkHeights[index] = y;
+                }
+            } else if (y == height) {
+                chunkHeights[index] = scan(x, z, 0, y - 1, type);
+            }
+        }
+    }
+
+    private int[] getChunkHeights(int chunkX, int chunkZ, SurfaceType type) {
+        Map<BlockVector2D, int[]> chunks = heights.get(type);
+        if (chunks == null) {
+            chunks = new HashMap<BlockVector2D, int[]>();
+            heights.put(type, chunks);
+        }
+
+        BlockVector2D chunk = new BlockVector2D(chunkX, chunkZ);
+        int[] chunkHeights = chunks.get(chunk);
+        if (chunkHeights == null) {
+            if (chunks.size() >= MAX_CACHED_CHUNKS) {
+                chunks.clear();
+            }
+            int baseX = chunkX << 4;
+            int baseZ = chunkZ << 4;
+            chunkHeights = world.getSurfaceHeights(
+                    new Vector2D(baseX, baseZ), new Vector2D(baseX + 15, baseZ + 15), 0, world.getMaxY(), type);
+            chunks.put(chunk, chunkHeights);
+        }
+        return chunkHeights;
+    }
+
+    private int scan(int x, int z, int minY, int maxY, SurfaceType type) {
+        for (int y = Math.min(maxY, world.getMaxY()); y >= Math.max(minY, 0); y--) {
+            BaseBlock block = getExtent().getLazyBlock(new Vector(x, y, z));
+            if (type.matches(block.getType(), block.getData())) {
+                return y;
+            }
+        }
+        return minY - 1;
+    }
+
+}
@@ -19,13 +19,16 @@
 
 package com.sk89q.worldedit.extent.clipboard;
 
+import com.google.common.base.Predicate;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entities;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.Location;
@@ -34,6 +37,7 @@
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -111,6 +115,11 @@ public List<? extends Entity> getEntities() {
         return Collections.unmodifiableList(entities);
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return Entities.filter(Collections.unmodifiableList(entities).iterator(), region, filter);
+    }
+
     @Nullable
     @Override
     public Entity createEntity(Location location, BaseEntity entity) {
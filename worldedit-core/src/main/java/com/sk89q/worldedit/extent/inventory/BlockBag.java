@@ -74,36 +74,17 @@ public void fetchPlacedBlock(int id) throws BlockBagException {
      * @throws BlockBagException on error
      */
     public void fetchPlacedBlock(int id, int data) throws BlockBagException {
-        try {
-            // Blocks that can't be fetched...
-            switch (id) {
-            case BlockID.BEDROCK:
-            case BlockID.GOLD_ORE:
-            case BlockID.IRON_ORE:
-            case BlockID.COAL_ORE:
-            case BlockID.DIAMOND_ORE:
-            case BlockID.TNT:
-            case BlockID.MOB_SPAWNER:
-            case BlockID.CROPS:
-            case BlockID.REDSTONE_ORE:
-            case BlockID.GLOWING_REDSTONE_ORE:
-            case BlockID.SNOW:
-            case BlockID.LIGHTSTONE:
-            case BlockID.PORTAL:
-                throw new UnplaceableBlockException();
-
-            case BlockID.WATER:
-            case BlockID.STATIONARY_WATER:
-            case BlockID.LAVA:
-            case BlockID.STATIONARY_LAVA:
-                // Override liquids
-                return;
-
-            default:
-                fetchBlock(id);
-                break;
-            }
+        if (isUnplaceable(id)) {
+            throw new UnplaceableBlockException();
+        }
+
+        if (isFreeToPlace(id)) {
+            // Override liquids
+            return;
+        }
 
+        try {
+            fetchBlock(id);
         } catch (OutOfBlocksException e) {
             BaseItem placed = BlockType.getBlockBagItem(id, data);
             if (placed == null) throw e; // TODO: check
@@ -113,6 +94,123 @@ public void fetchPlacedBlock(int id, int data) throws BlockBagException {
         }
     }
 
+    /**
+     * Return whether a block can never be fetched from a block bag.
+     *
+     * @param id the type ID
+     * @return true if the block can't be placed
+     */
+    public static boolean isUnplaceable(int id) {
+        switch (id) {
+        case BlockID.BEDROCK:
+        case BlockID.GOLD_ORE:
+        case BlockID.IRON_ORE:
+        case BlockID.COAL_ORE:
+        case BlockID.DIAMOND_ORE:
+        case BlockID.TNT:
+        case BlockID.MOB_SPAWNER:
+        case BlockID.CROPS:
+        case BlockID.REDSTONE_ORE:
+        case BlockID.GLOWING_REDSTONE_ORE:
+        case BlockID.SNOW:
+        case BlockID.LIGHTSTONE:
+        case BlockID.PORTAL:
+            return true;
+
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Return whether a block can be placed without taking anything from
+     * a block bag, as is the case with liquids.
+     *
+     * @param id the type ID
+     * @return true if the block is free
+     */
+    public static boolean isFreeToPlace(int id) {
+        switch (id) {
+        case BlockID.WATER:
+        case BlockID.STATIONARY_WATER:
+        case BlockID.LAVA:
+        case BlockID.STATIONARY_LAVA:
+            return true;
+
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Stores several blocks of the same type as if they were mined.
+     *
+     * <p>This is the bulk form of {@link #storeDroppedBlock(int, int)}. Running
+     * out of space is not an error here: the number of blocks that could be
+     * stored is returned instead.</p>
+     *
+     * @param id the type ID
+     * @param data the data value
+     * @param amount the number of blocks to store
+     * @return the number of blocks stored, between 0 and {@code amount}
+     * @throws BlockBagException on any other error
+     */
+    public int storeDroppedBlocks(int id, int data, int amount) throws BlockBagException {
+        BaseItem dropped = BlockType.getBlockBagItem(id, data);
+        if (dropped == null) return amount;
+        if (dropped.getType() == BlockID.AIR) return amount;
+
+        return storeItems(dropped, amount);
+    }
+
+    /**
+     * Get several of the same item.
+     *
+     * <p>The default implementation calls {@link #fetchItem(BaseItem)} once
+     * per item. Implementations that can take a whole stack at a time should
+     * override this method.</p>
+     *
+     * @param item the item
+     * @param amount the number of items to fetch
+     * @return the number of items fetched, between 0 and {@code amount}
+     * @throws BlockBagException on an error other than running out of items
+     */
+    public int fetchItems(BaseItem item, int amount) throws BlockBagException {
+        for (int i = 0; i < amount; i++) {
+            try {
+                fetchItem(item);
+            } catch (OutOfBlocksException e) {
+                return i;
+            }
+        }
+
+        return amount;
+    }
+
+    /**
+     * Store several of the same item.
+     *
+     * <p>The default implementation calls {@link #storeItem(BaseItem)} once
+     * per item. Implementations that can add a whole stack at a time should
+     * override this method.</p>
+     *
+     * @param item the item
+     * @param amount the number of items to store
+     * @return the number of items stored, between 0 and {@code amount}
+     * @throws BlockBagException on an error other than running out of space
+     */
+    public int storeItems(BaseItem item, int amount) throws BlockBagException {
+        for (int i = 0; i < amount; i++) {
+            try {
+                storeItem(item);
+            } catch (OutOfSpaceException e) {
+                return i;
+            }
+        }
+
+        return amount;
+    }
+
     /**
      * Get a block.
      *
@@ -22,20 +22,57 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BaseItem;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * Applies a {@link BlockBag} to operations.
+ *
+ * <p>When batching is enabled, blocks are taken from the block bag in bulk
+ * rather than one at a time: the first change that places a type of block
+ * fetches several blocks of that type, and later changes use those up
+ * before more are fetched, with the amount fetched growing each time. The
+ * blocks that changes replace are returned to the bag with one call per
+ * type. Every change is still paid for before it is written, so changes
+ * that can't be paid for are rejected as they are made. Blocks that were
+ * fetched but not used are given back when the extent is committed or
+ * when {@link #flushChanges()} is called, so batching should only be
+ * enabled when the caller does one of the two.</p>
  */
 public class BlockBagExtent extends AbstractDelegateExtent {
 
+    /**
+     * The default for the most blocks of one type fetched at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16 * 16 * 256;
+
+    private static final int FIRST_REQUEST = 16;
+    private static final int NONE = -1;
+
     private Map<Integer, Integer> missingBlocks = new HashMap<Integer, Integer>();
     private BlockBag blockBag;
+    private boolean batching = false;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final Map<Integer, Credit> credits = new HashMap<Integer, Credit>();
+    private final LongIntHashMap dropSlots = new LongIntHashMap();
+    private final List<BaseBlock> dropBlocks = new ArrayList<BaseBlock>();
+    private int[] dropAmounts = new int[16];
 
     /**
      * Create a new instance.
@@ -60,12 +97,61 @@ public BlockBagExtent(Extent extent, @Nullable BlockBag blockBag) {
     /**
      * Set the block bag.
      *
+     * <p>Blocks fetched in bulk from the previous block bag are given back
+     * to it first.</p>
+     *
      * @param blockBag a block bag, which may be null if none is used
      */
     public void setBlockBag(@Nullable BlockBag blockBag) {
+        settle();
         this.blockBag = blockBag;
     }
 
+    /**
+     * Return whether blocks are taken from the block bag in batches.
+     *
+     * @return true if batching is enabled
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Set whether blocks are taken from the block bag in batches.
+     *
+     * <p>Disabling batching gives back any blocks that were fetched but not
+     * used, and stores the blocks that were replaced.</p>
+     *
+     * @param batching true to enable batching
+     */
+    public void setBatching(boolean batching) {
+        if (!batching) {
+            settle();
+        }
+        this.batching = batching;
+    }
+
+    /**
+     * Get the most blocks of one type that are fetched from the block bag
+     * at once when batching.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Set the most blocks of one type that are fetched from the block bag
+     * at once when batching.
+     *
+     * @param batchSize the batch size, which must be at least 1
+     */
+    public void setBatchSize(int batchSize) {
+        checkArgument(batchSize >= 1, "batchSize >= 1 required");
+        this.batchSize = batchSize;
+    }
+
     /**
      * Gets the list of missing blocks and clears the list for the next
      * operation.
@@ -78,9 +164,32 @@ public Map<Integer, Integer> popMissing() {
         return missingBlocks;
     }
 
+    private void addMissing(int type, int amount) {
+        Integer count = missingBlocks.get(type);
+        missingBlocks.put(type, count == null ? amount : count + amount);
+    }
+
     @Override
     public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
-        if (blockBag != null) {
+        if (blockBag != null && batching) {
+            BaseBlock lazyBlock = getExtent().getLazyBlock(position);
+            final int type = block.getType();
+
+            if (type > 0 && !BlockBag.isFreeToPlace(type)) {
+                if (BlockBag.isUnplaceable(type)) {
+                    return false;
+                }
+
+                if (!takeCredit(type)) {
+                    addMissing(type, 1);
+                    return false;
+                }
+            }
+
+            if (lazyBlock.getType() > 0) {
+                addDrop(lazyBlock);
+            }
+        } else if (blockBag != null) {
             BaseBlock lazyBlock = getExtent().getLazyBlock(position);
             int existing = lazyBlock.getType();
             final int type = block.getType();
@@ -91,11 +200,7 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
                 } catch (UnplaceableBlockException e) {
                     return false;
                 } catch (BlockBagException e) {
-                    if (!missingBlocks.containsKey(type)) {
-                        missingBlocks.put(type, 1);
-                    } else {
-                        missingBlocks.put(type, missingBlocks.get(type) + 1);
-                    }
+                    addMissing(type, 1);
                     return false;
                 }
             }
@@ -110,4 +215,189 @@ public boolean setBlock(Vector position, BaseBlock block) throws WorldEditExcept
 
         return super.setBlock(position, block);
     }
+
+    /**
+     * Use up one block of the given type that was fetched in bulk,
+     * fetching more if none are left.
+     *
+     * @param type the type ID
+     * @return true if a block was available
+     */
+    private boolean takeCredit(int type) {
+        Credit credit = credits.get(type);
+        if (credit == null) {
+            credit = new Credit(type);
+            credits.put(type, credit);
+        }
+
+        if (credit.primary == 0 && credit.fallback == 0) {
+            if (!credit.refill()) {
+                // The blocks replaced so far may be what is needed
+                if (dropBlocks.isEmpty()) {
+                    return false;
+                }
+                storeDrops();
+                if (!credit.refill()) {
+                    return false;
+                }
+            }
+        }
+
+        if (credit.primary > 0) {
+            credit.primary--;
+        } else {
+            credit.fallback--;
+        }
+        return true;
+    }
+
+    /**
+     * Remember that a block was replaced, so that it is returned to the
+     * block bag with the other blocks of its type.
+     *
+     * @param existing the replaced block
+     */
+    private void addDrop(BaseBlock existing) {
+        long key = (long) existing.getType() << 32 | (existing.getData() & 0xFFFFFFFFL);
+        int slot = dropSlots.get(key, NONE);
+        if (slot == NONE) {
+            slot = dropBlocks.size();
+            dropSlots.put(key, slot);
+            dropBlocks.add(existing);
+            if (slot == dropAmounts.length) {
+                dropAmounts = Arrays.copyOf(dropAmounts, slot * 2);
+            }
+            dropAmounts[slot] = 0;
+        }
+        dropAmounts[slot]++;
+    }
+
+    /**
+     * Store the replaced blocks in the block bag, with one call for each
+     * type of block.
+     */
+    private void storeDrops() {
+        BlockBag blockBag = this.blockBag;
+        if (blockBag != null) {
+            for (int slot = 0; slot < dropBlocks.size(); slot++) {
+                BaseBlock dropped = dropBlocks.get(slot);
+                try {
+                    blockBag.storeDroppedBlocks(dropped.getType(), dropped.getData(), dropAmounts[slot]);
+                } catch (BlockBagException ignored) {
+                }
+            }
+        }
+
+        dropSlots.clear();
+        dropBlocks.clear();
+    }
+
+    /**
+     * Give back the blocks that were fetched but not used and store the
+     * replaced blocks, then flush the changes of the block bag.
+     *
+     * <p>Changes that are made after this fetch blocks again, so this can
+     * be called while changes are still to be committed.</p>
+     */
+    public void flushChanges() {
+        settle();
+        if (blockBag != null) {
+            blockBag.flushChanges();
+        }
+    }
+
+    /**
+     * Give back the blocks that were fetched but not used, then store the
+     * replaced blocks.
+     */
+    private void settle() {
+        BlockBag blockBag = this.blockBag;
+        if (blockBag != null) {
+            // Unused blocks go back first, as the space they came from is still free
+            for (Credit credit : credits.values()) {
+                credit.giveBack(blockBag);
+            }
+        }
+        credits.clear();
+        storeDrops();
+    }
+
+    @Override
+    protected Operation commitBefore() {
+        return new Operation() {
+            @Override
+            public Operation resume(RunContext run) throws WorldEditException {
+                settle();
+                return null;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        };
+    }
+
+    /**
+     * The blocks of one type that were fetched but not used yet.
+     *
+     * <p>Blocks are fetched as the block's own item if possible, and
+     * otherwise as the item that the block drops, as
+     * {@link BlockBag#fetchPlacedBlock(int, int)} does. The two are counted
+     * separately so that the right item can be given back.</p>
+     */
+    private class Credit {
+        private final BaseItem item;
+        @Nullable private final BaseItem fallbackItem;
+        private int primary;
+        private int fallback;
+        private int nextRequest = FIRST_REQUEST;
+
+        private Credit(int type) {
+            item = new BaseItem(type);
+            BaseItem placed = BlockType.getBlockBagItem(type, 0);
+            if (placed != null && placed.getType() != BlockID.AIR
+                    && (placed.getType() != type || placed.getData() != 0)) {
+                fallbackItem = placed;
+            } else {
+                fallbackItem = null;
+            }
+        }
+
+        private boolean refill() {
+            int request = Math.min(nextRequest, batchSize);
+            nextRequest = Math.min(request * 2, batchSize);
+
+            int fetched = fetch(item, request);
+            primary += fetched;
+            if (fetched < request && fallbackItem != null) {
+                int more = fetch(fallbackItem, request - fetched);
+                fallback += more;
+                fetched += more;
+            }
+            return fetched > 0;
+        }
+
+        private int fetch(BaseItem item, int amount) {
+            try {
+                return blockBag.fetchItems(item, amount);
+            } catch (BlockBagException e) {
+                return 0;
+            }
+        }
+
+        private void giveBack(BlockBag blockBag) {
+            try {
+                if (primary > 0) {
+                    blockBag.storeItems(item, primary);
+                }
+                if (fallback > 0 && fallbackItem != null) {
+                    blockBag.storeItems(fallbackItem, fallback);
+                }
+            } catch (BlockBagException ignored) {
+            }
+            primary = 0;
+            fallback = 0;
+        }
+    }
+
 }
@@ -33,9 +33,15 @@
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.OperationQueue;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockPosition;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
 import com.sk89q.worldedit.util.collection.TupleArrayList;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Re-orders blocks into several stages.
@@ -116,89 +122,161 @@ public Operation commitBefore() {
         return new OperationQueue(
                 new BlockMapEntryPlacer(
                         getExtent(),
-                        Iterators.concat(stage1.iterator(), stage2.iterator())),
+                        Iterators.concat(groupByChunk(stage1), groupByChunk(stage2))),
                 new Stage3Committer());
     }
 
+    /**
+     * Return the entries of a stage grouped by chunk, so that the blocks
+     * of one chunk are set together. The order of entries within each
+     * chunk is kept, so blocks that depend on the blocks below them in
+     * the same column (such as sand) are still placed after them.
+     *
+     * @param stage the stage
+     * @return an iterator over the grouped entries
+     */
+    private static Iterator<Map.Entry<BlockVector, BaseBlock>> groupByChunk(TupleArrayList<BlockVector, BaseBlock> stage) {
+        int size = stage.size();
+        LongIntHashMap buckets = new LongIntHashMap();
+        int[] bucketOf = new int[size];
+        int[] offsets = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            BlockVector pt = stage.get(i).getKey();
+            long chunk = (long) (pt.getBlockX() >> 4) << 32 | ((pt.getBlockZ() >> 4) & 0xFFFFFFFFL);
+            int bucket = buckets.get(chunk, -1);
+            if (bucket == -1) {
+                bucket = buckets.size();
+                buckets.put(chunk, bucket);
+            }
+            bucketOf[i] = bucket;
+            offsets[bucket]++;
+        }
+
+        int offset = 0;
+        for (int bucket = 0; bucket < buckets.size(); bucket++) {
+            int count = offsets[bucket];
+            offsets[bucket] = offset;
+            offset += count;
+        }
+
+        List<Map.Entry<BlockVector, BaseBlock>> sorted =
+                new ArrayList<Map.Entry<BlockVector, BaseBlock>>(Collections.<Map.Entry<BlockVector, BaseBlock>>nCopies(size, null));
+        for (int i = 0; i < size; i++) {
+            sorted.set(offsets[bucketOf[i]]++, stage.get(i));
+        }
+
+        return sorted.iterator();
+    }
+
+    /**
+     * Places the blocks of stage 3 so that every block is placed after
+     * the blocks that it is attached to.
+     *
+     * <p>Each block depends on at most two other blocks of the stage, so
+     * the dependencies are kept in two arrays and a depth-first search
+     * produces the placement order in linear time. Cycles, which should
+     * not occur in practice, are broken where they are found.</p>
+     */
     private class Stage3Committer implements Operation {
 
+        private static final int NONE = -1;
+
         @Override
         public Operation resume(RunContext run) throws WorldEditException {
             Extent extent = getExtent();
 
-            final Set<BlockVector> blocks = new HashSet<BlockVector>();
-            final Map<BlockVector, BaseBlock> blockTypes = new HashMap<BlockVector, BaseBlock>();
+            // A later block at the same position replaces an earlier one
+            LongIntHashMap indices = new LongIntHashMap(stage3.size());
+            List<BlockVector> positions = new ArrayList<BlockVector>(stage3.size());
+            List<BaseBlock> blocks = new ArrayList<BaseBlock>(stage3.size());
             for (Map.Entry<BlockVector, BaseBlock> entry : stage3) {
-                final BlockVector pt = entry.getKey();
-                blocks.add(pt);
-                blockTypes.put(pt, entry.getValue());
-            }
-
-            while (!blocks.isEmpty()) {
-                BlockVector current = blocks.iterator().next();
-                if (!blocks.contains(current)) {
-                    continue;
+                BlockVector pt = entry.getKey();
+                long key = BlockPosition.pack(pt);
+                int index = indices.get(key, NONE);
+                if (index == NONE) {
+                    indices.put(key, positions.size());
+                    positions.add(pt);
+                    blocks.add(entry.getValue());
+                } else {
+                    blocks.set(index, entry.getValue());
                 }
+            }
 
-                final Deque<BlockVector> walked = new LinkedList<BlockVector>();
-
-                while (true) {
-                    walked.addFirst(current);
-
-                    assert (blockTypes.containsKey(current));
-
-                    final BaseBlock baseBlock = blockTypes.get(current);
-
-                    final int type = baseBlock.getType();
-                    final int data = baseBlock.getData();
-
-                    switch (type) {
-                        case BlockID.WOODEN_DOOR:
-                        case BlockID.IRON_DOOR:
-                            if ((data & 0x8) == 0) {
-                                // Deal with lower door halves being attached to the floor AND the upper half
-                                BlockVector upperBlock = current.add(0, 1, 0).toBlockVector();
-                                if (blocks.contains(upperBlock) && !walked.contains(upperBlock)) {
-                                    walked.addFirst(upperBlock);
-                                }
-                            }
-                            break;
-
-                        case BlockID.MINECART_TRACKS:
-                        case BlockID.POWERED_RAIL:
-                        case BlockID.DETECTOR_RAIL:
-                        case BlockID.ACTIVATOR_RAIL:
-                            // Here, rails are hardcoded to be attached to the block below them.
-                            // They're also attached to the block they're ascending towards via BlockType.getAttachment.
-                            BlockVector lowerBlock = current.add(0, -1, 0).toBlockVector();
-                            if (blocks.contains(lowerBlock) && !walked.contains(lowerBlock)) {
-                                walked.addFirst(lowerBlock);
-                            }
-                            break;
-                    }
+            int count = positions.size();
+            int[] attachedTo = new int[count];
+            int[] alsoAfter = new int[count];
+
+            for (int i = 0; i < count; i++) {
+                BlockVector pt = positions.get(i);
+                int x = pt.getBlockX();
+                int y = pt.getBlockY();
+                int z = pt.getBlockZ();
+                int type = blocks.get(i).getType();
+                int data = blocks.get(i).getData();
+
+                alsoAfter[i] = NONE;
+                switch (type) {
+                    case BlockID.WOODEN_DOOR:
+                    case BlockID.IRON_DOOR:
+                        if ((data & 0x8) == 0) {
+                            // Deal with lower door halves being attached to the floor AND the upper half
+                            alsoAfter[i] = indices.get(BlockPosition.pack(x, y + 1, z), NONE);
+                        }
+                        break;
 
-                    final PlayerDirection attachment = BlockType.getAttachment(type, data);
-                    if (attachment == null) {
-                        // Block is not attached to anything => we can place it
+                    case BlockID.MINECART_TRACKS:
+                    case BlockID.POWERED_RAIL:
+                    case BlockID.DETECTOR_RAIL:
+                    case BlockID.ACTIVATOR_RAIL:
+                        // Here, rails are hardcoded to be attached to the block below them.
+                        // They're also attached to the block they're ascending towards via BlockType.getAttachment.
+                        alsoAfter[i] = indices.get(BlockPosition.pack(x, y - 1, z), NONE);
                         break;
-                    }
+                }
 
-                    current = current.add(attachment.vector()).toBlockVector();
+                final PlayerDirection attachment = BlockType.getAttachment(type, data);
+                if (attachment != null) {
+                    Vector offset = attachment.vector();
+                    attachedTo[i] = indices.get(BlockPosition.pack(x + offset.getBlockX(), y + offset.getBlockY(), z + offset.getBlockZ()), NONE);
+                } else {
+                    // Block is not attached to anything => we can place it
+                    attachedTo[i] = NONE;
+                }
+            }
 
-                    if (!blocks.contains(current)) {
-                        // We ran outside the remaining set => assume we can place blocks on this
-                        break;
-                    }
+            // 0 = not visited, 1 = waiting for the blocks it depends on, 2 = placed
+            byte[] state = new byte[count];
+            int[] stack = new int[count];
+            int[] progress = new int[count];
 
-                    if (walked.contains(current)) {
-                        // Cycle detected => This will most likely go wrong, but there's nothing we can do about it.
-                        break;
-                    }
+            for (int root = 0; root < count; root++) {
+                if (state[root] != 0) {
+                    continue;
                 }
 
-                for (BlockVector pt : walked) {
-                    extent.setBlock(pt, blockTypes.get(pt));
-                    blocks.remove(pt);
+                int depth = 0;
+                stack[0] = root;
+                progress[0] = 0;
+                state[root] = 1;
+
+                while (depth >= 0) {
+                    int node = stack[depth];
+                    int step = progress[depth]++;
+                    if (step < 2) {
+                        int dependency = step == 0 ? attachedTo[node] : alsoAfter[node];
+                        // A dependency that is already waiting means that there is a cycle, which is skipped
+                        if (dependency != NONE && state[dependency] == 0) {
+                            state[dependency] = 1;
+                            depth++;
+                            stack[depth] = dependency;
+                            progress[depth] = 0;
+                        }
+                    } else {
+                        extent.setBlock(positions.get(node), blocks.get(node));
+                        state[node] = 2;
+                        depth--;
+                    }
                 }
             }
 
@@ -21,12 +21,14 @@
 
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.RunContext;
 import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.biome.BaseBiome;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -40,6 +42,7 @@ public class FastModeExtent extends AbstractDelegateExtent {
 
     private final World world;
     private final Set<BlockVector2D> dirtyChunks = new HashSet<BlockVector2D>();
+    private final Set<BlockVector2D> biomeChunks = new HashSet<BlockVector2D>();
     private boolean enabled = true;
 
     /**
@@ -92,6 +95,13 @@ public boolean setBlock(Vector location, BaseBlock block) throws WorldEditExcept
         }
     }
 
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        // Clients only see biome changes when the chunk is sent again
+        biomeChunks.add(new BlockVector2D(position.getBlockX() >> 4, position.getBlockZ() >> 4));
+        return world.setBiome(position, biome);
+    }
+
     @Override
     protected Operation commitBefore() {
         return new Operation() {
@@ -100,6 +110,10 @@ public Operation resume(RunContext run) throws WorldEditException {
                 if (!dirtyChunks.isEmpty()) {
                     world.fixAfterFastMode(dirtyChunks);
                 }
+                if (!biomeChunks.isEmpty()) {
+                    world.refreshChunks(biomeChunks);
+                    biomeChunks.clear();
+                }
                 return null;
             }
 
@@ -0,0 +1,101 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An abstract implementation of {@link RegionFunction} that can also be
+ * applied to many positions at once.
+ */
+public abstract class AbstractRegionFunction implements RegionFunction {
+
+    /**
+     * Apply the function to the selected positions of a box, such as a
+     * 16x16x16 chunk section.
+     *
+     * <p>The position at {@code (x, y, z)} relative to the minimum corner
+     * is selected if bit {@code (y * sizeZ + z) * sizeX + x} is set. The
+     * default implementation calls {@link #apply(Vector)} for each selected
+     * position, and functions that can do better should override it.</p>
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param positions the selected positions
+     * @return the number of positions where something was changed
+     * @throws WorldEditException thrown on an error
+     */
+    public int apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet positions) throws WorldEditException {
+        return applyEach(this, minX, minY, minZ, sizeX, sizeY, sizeZ, positions);
+    }
+
+    /**
+     * Apply a function to the selected positions of a box.
+     *
+     * <p>Functions that extend {@link AbstractRegionFunction} are applied
+     * with {@link #apply(int, int, int, int, int, int, BitSet)}, while other
+     * functions are applied one position at a time.</p>
+     *
+     * @param function the function
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param positions the selected positions
+     * @return the number of positions where something was changed
+     * @throws WorldEditException thrown on an error
+     */
+    public static int apply(RegionFunction function, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet positions) throws WorldEditException {
+        checkNotNull(function);
+        if (function instanceof AbstractRegionFunction) {
+            return ((AbstractRegionFunction) function).apply(minX, minY, minZ, sizeX, sizeY, sizeZ, positions);
+        } else {
+            return applyEach(function, minX, minY, minZ, sizeX, sizeY, sizeZ, positions);
+        }
+    }
+
+    private static int applyEach(RegionFunction function, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet positions) throws WorldEditException {
+        checkNotNull(positions);
+        int layer = sizeX * sizeZ;
+        int size = layer * sizeY;
+        int affected = 0;
+        for (int i = positions.nextSetBit(0); i >= 0 && i < size; i = positions.nextSetBit(i + 1)) {
+            int y = i / layer;
+            int z = (i - y * layer) / sizeX;
+            int x = i - y * layer - z * sizeX;
+            if (function.apply(new Vector(minX + x, minY + y, minZ + z))) {
+                affected++;
+            }
+        }
+        return affected;
+    }
+
+}
@@ -22,6 +22,10 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.function.mask.Mask;
+import com.sk89q.worldedit.function.mask.MaskOptimizer;
+import com.sk89q.worldedit.function.mask.Masks;
+
+import java.util.BitSet;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -29,8 +33,11 @@
  * Passes calls to {@link #apply(com.sk89q.worldedit.Vector)} to the
  * delegate {@link com.sk89q.worldedit.function.RegionFunction} if they
  * match the given mask.
+ *
+ * <p>The mask is optimized with {@link MaskOptimizer#optimize(Mask)} when
+ * the filter is created.</p>
  */
-public class RegionMaskingFilter implements RegionFunction {
+public class RegionMaskingFilter extends AbstractRegionFunction {
 
     private final RegionFunction function;
     private Mask mask;
@@ -44,13 +51,30 @@ public class RegionMaskingFilter implements RegionFunction {
     public RegionMaskingFilter(Mask mask, RegionFunction function) {
         checkNotNull(function);
         checkNotNull(mask);
-        this.mask = mask;
+        this.mask = MaskOptimizer.optimize(mask);
         this.function = function;
     }
 
+    /**
+     * Get the mask that positions are tested against.
+     *
+     * @return the mask
+     */
+    public Mask getMask() {
+        return mask;
+    }
+
     @Override
     public boolean apply(Vector position) throws WorldEditException {
         return mask.test(position) && function.apply(position);
     }
 
+    @Override
+    public int apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet positions) throws WorldEditException {
+        BitSet matches = new BitSet(sizeX * sizeY * sizeZ);
+        Masks.test(mask, minX, minY, minZ, sizeX, sizeY, sizeZ, matches);
+        matches.and(positions);
+        return apply(function, minX, minY, minZ, sizeX, sizeY, sizeZ, matches);
+    }
+
 }
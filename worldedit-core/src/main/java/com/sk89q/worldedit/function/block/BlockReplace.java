@@ -22,15 +22,19 @@
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
-import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.function.AbstractRegionFunction;
 import com.sk89q.worldedit.function.pattern.Pattern;
+import com.sk89q.worldedit.function.pattern.Patterns;
+
+import java.util.BitSet;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Replaces blocks with a given pattern.
  */
-public class BlockReplace implements RegionFunction {
+public class BlockReplace extends AbstractRegionFunction {
 
     private final Extent extent;
     private Pattern pattern;
@@ -53,4 +57,30 @@ public boolean apply(Vector position) throws WorldEditException {
         return extent.setBlock(position, pattern.apply(position));
     }
 
+    @Override
+    public int apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet positions) throws WorldEditException {
+        int volume = sizeX * sizeY * sizeZ;
+        BaseBlock[] blocks = null;
+        if (positions.cardinality() == volume) {
+            // Every position is used, so the pattern can fill the whole box at once
+            blocks = new BaseBlock[volume];
+            Patterns.apply(pattern, minX, minY, minZ, sizeX, sizeY, sizeZ, blocks);
+        }
+
+        int layer = sizeX * sizeZ;
+        int affected = 0;
+        for (int i = positions.nextSetBit(0); i >= 0 && i < volume; i = positions.nextSetBit(i + 1)) {
+            int y = i / layer;
+            int z = (i - y * layer) / sizeX;
+            int x = i - y * layer - z * sizeX;
+            Vector position = new Vector(minX + x, minY + y, minZ + z);
+            // Otherwise only positions that are set are given to the pattern
+            BaseBlock block = blocks != null ? blocks[i] : pattern.apply(position);
+            if (extent.setBlock(position, block)) {
+                affected++;
+            }
+        }
+        return affected;
+    }
+
 }
\ No newline at end of file
@@ -19,8 +19,45 @@
 
 package com.sk89q.worldedit.function.mask;
 
+import com.sk89q.worldedit.Vector;
+
+import java.util.BitSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * A base class of {@link Mask} that all masks should inherit from.
  */
 public abstract class AbstractMask implements Mask {
+
+    /**
+     * Test every position in a box at once, such as a 16x16x16 chunk
+     * section.
+     *
+     * <p>The result for a position is stored at bit
+     * {@code (y * sizeZ + z) * sizeX + x}, where {@code x}, {@code y} and
+     * {@code z} are relative to the minimum corner. The default
+     * implementation calls {@link #test(Vector)} for each position, and
+     * masks that can do better should override it.</p>
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param result the bit set to store the results in
+     */
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        checkNotNull(result);
+        int i = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    result.set(i++, test(new Vector(minX + x, minY + y, minZ + z)));
+                }
+            }
+        }
+    }
+
 }
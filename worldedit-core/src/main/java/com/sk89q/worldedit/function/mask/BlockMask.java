@@ -25,6 +25,7 @@
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -98,6 +99,33 @@ public boolean test(Vector vector) {
         return blocks.contains(block) || blocks.contains(new BaseBlock(block.getType(), -1));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation reads blocks without their NBT data and
+     * without creating a block to compare with for every position.</p>
+     */
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        Extent extent = getExtent();
+        BitSet anyData = new BitSet();
+        for (BaseBlock block : blocks) {
+            if (block.getData() == -1) {
+                anyData.set(block.getType());
+            }
+        }
+
+        int i = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    BaseBlock block = extent.getLazyBlock(new Vector(minX + x, minY + y, minZ + z));
+                    result.set(i++, anyData.get(block.getType()) || blocks.contains(block));
+                }
+            }
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
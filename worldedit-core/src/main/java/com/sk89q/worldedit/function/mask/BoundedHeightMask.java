@@ -23,6 +23,8 @@
 
 import javax.annotation.Nullable;
 
+import java.util.BitSet;
+
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
@@ -46,11 +48,37 @@ public BoundedHeightMask(int minY, int maxY) {
         this.maxY = maxY;
     }
 
+    /**
+     * Get the minimum Y.
+     *
+     * @return the minimum Y
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the maximum Y.
+     *
+     * @return the maximum Y
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
     @Override
     public boolean test(Vector vector) {
         return vector.getY() >= minY && vector.getY() <= maxY;
     }
 
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        int layer = sizeX * sizeZ;
+        for (int y = 0; y < sizeY; y++) {
+            result.set(y * layer, (y + 1) * layer, minY + y >= this.minY && minY + y <= maxY);
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
@@ -19,13 +19,17 @@
 
 package com.sk89q.worldedit.function.mask;
 
+import com.google.common.collect.ForwardingCollection;
+import com.google.common.collect.ForwardingIterator;
 import com.sk89q.worldedit.Vector;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -35,10 +39,26 @@
  * Combines several masks and requires that all masks return true
  * when a certain position is tested. It serves as a logical AND operation
  * on a list of masks.
+ *
+ * <p>Masks are tested in order of their estimated cost (see
+ * {@link MaskOptimizer#getCost(Mask)}) divided by how often they have
+ * decided the result, and that order is periodically revised from the
+ * outcomes observed while testing, so that cheap and selective masks
+ * end up in front during long operations. The order and the outcomes are
+ * kept separately for each thread that tests this mask, so testing from
+ * several threads at once is as safe as the masks that are combined.</p>
+ *
+ * <p>The list of masks itself must not be changed while it is being
+ * tested.</p>
  */
 public class MaskIntersection extends AbstractMask {
 
-    private final Set<Mask> masks = new HashSet<Mask>();
+    private static final int REORDER_INTERVAL = 4096;
+
+    private final Set<Mask> masks = new LinkedHashSet<Mask>();
+    private final Collection<Mask> maskView = new MaskCollection();
+    private final ThreadLocal<Plan> plans = new ThreadLocal<Plan>();
+    private volatile int modifications = 0;
 
     /**
      * Create a new intersection.
@@ -67,6 +87,7 @@ public MaskIntersection(Mask... mask) {
     public void add(Collection<Mask> masks) {
         checkNotNull(masks);
         this.masks.addAll(masks);
+        modifications++;
     }
 
     /**
@@ -81,10 +102,13 @@ public void add(Mask... mask) {
     /**
      * Get the masks that are tested with.
      *
+     * <p>Changes made to the returned collection are reflected in
+     * this intersection.</p>
+     *
      * @return the masks
      */
     public Collection<Mask> getMasks() {
-        return masks;
+        return maskView;
     }
 
     @Override
@@ -93,13 +117,104 @@ public boolean test(Vector vector) {
             return false;
         }
 
-        for (Mask mask : masks) {
-            if (!mask.test(vector)) {
-                return false;
+        return test(vector, false);
+    }
+
+    /**
+     * Test the masks in their current order, stopping at the first mask
+     * that returns {@code decisive}.
+     *
+     * @param vector the vector to test
+     * @param decisive the result that ends the test early
+     * @return {@code decisive} if any mask returned it, otherwise its negation
+     */
+    boolean test(Vector vector, boolean decisive) {
+        Plan plan = getPlan();
+        if (--plan.untilReorder <= 0) {
+            plan.reorder();
+        }
+
+        Mask[] order = plan.order;
+        int[] tested = plan.tested;
+        int[] decided = plan.decided;
+
+        for (int i = 0; i < order.length; i++) {
+            tested[i]++;
+            if (order[i].test(vector) == decisive) {
+                decided[i]++;
+                return decisive;
+            }
+        }
+
+        return !decisive;
+    }
+
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        if (masks.isEmpty()) {
+            result.clear(0, sizeX * sizeY * sizeZ);
+            return;
+        }
+
+        test(minX, minY, minZ, sizeX, sizeY, sizeZ, result, false);
+    }
+
+    /**
+     * Test every position in a box, testing each mask after the first only
+     * where the result is still undecided.
+     *
+     * @param decisive the result that ends the test early
+     * @see #test(Vector, boolean)
+     */
+    void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result, boolean decisive) {
+        Mask[] order = getPlan().order;
+        int size = sizeX * sizeY * sizeZ;
+        BitSet next = null;
+
+        for (int i = 0; i < order.length; i++) {
+            if (i == 0) {
+                Masks.test(order[i], minX, minY, minZ, sizeX, sizeY, sizeZ, result);
+                continue;
+            }
+
+            // Positions that are still undecided are the clear bits for a union
+            int undecided = decisive ? size - result.cardinality() : result.cardinality();
+            if (undecided == 0) {
+                return;
+            } else if (undecided < size / 4) {
+                // Few positions are left, so test those individually
+                int layer = sizeX * sizeZ;
+                for (int j = decisive ? result.nextClearBit(0) : result.nextSetBit(0); j >= 0 && j < size;
+                        j = decisive ? result.nextClearBit(j + 1) : result.nextSetBit(j + 1)) {
+                    int y = j / layer;
+                    int z = (j - y * layer) / sizeX;
+                    int x = j - y * layer - z * sizeX;
+                    if (order[i].test(new Vector(minX + x, minY + y, minZ + z)) == decisive) {
+                        result.set(j, decisive);
+                    }
+                }
+            } else {
+                if (next == null) {
+                    next = new BitSet(size);
+                }
+                Masks.test(order[i], minX, minY, minZ, sizeX, sizeY, sizeZ, next);
+                if (decisive) {
+                    result.or(next);
+                } else {
+                    result.and(next);
+                }
             }
         }
+    }
 
-        return true;
+    private Plan getPlan() {
+        Plan plan = plans.get();
+        int modifications = this.modifications;
+        if (plan == null || plan.modifications != modifications) {
+            plan = new Plan(masks, modifications);
+            plans.set(plan);
+        }
+        return plan;
     }
 
     @Nullable
@@ -117,4 +232,134 @@ public Mask2D toMask2D() {
         return new MaskIntersection2D(mask2dList);
     }
 
+    /**
+     * The masks of this intersection, which invalidates the order that
+     * masks are tested in when it is changed.
+     */
+    private final class MaskCollection extends ForwardingCollection<Mask> {
+        @Override
+        protected Collection<Mask> delegate() {
+            return masks;
+        }
+
+        @Override
+        public Iterator<Mask> iterator() {
+            final Iterator<Mask> it = masks.iterator();
+            return new ForwardingIterator<Mask>() {
+                @Override
+                protected Iterator<Mask> delegate() {
+                    return it;
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                    modifications++;
+                }
+            };
+        }
+
+        @Override
+        public boolean add(Mask element) {
+            modifications++;
+            return masks.add(element);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Mask> collection) {
+            modifications++;
+            return masks.addAll(collection);
+        }
+
+        @Override
+        public boolean remove(Object object) {
+            modifications++;
+            return masks.remove(object);
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> collection) {
+            modifications++;
+            return masks.removeAll(collection);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> collection) {
+            modifications++;
+            return masks.retainAll(collection);
+        }
+
+        @Override
+        public void clear() {
+            modifications++;
+            masks.clear();
+        }
+    }
+
+    /**
+     * The order in which one thread tests the masks, along with the
+     * statistics used to revise it.
+     */
+    private static final class Plan {
+        private final int modifications;
+        private final Mask[] order;
+        private final int[] cost;
+        private final int[] tested;
+        private final int[] decided;
+        private int untilReorder = REORDER_INTERVAL;
+
+        private Plan(Collection<Mask> masks, int modifications) {
+            this.modifications = modifications;
+            order = masks.toArray(new Mask[masks.size()]);
+            cost = new int[order.length];
+            tested = new int[order.length];
+            decided = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                cost[i] = MaskOptimizer.getCost(order[i]);
+            }
+            sort();
+        }
+
+        /**
+         * Sort the masks by their cost per decided test, then halve the
+         * statistics so that recent behaviour counts for more.
+         */
+        private void reorder() {
+            untilReorder = REORDER_INTERVAL;
+            sort();
+            for (int i = 0; i < order.length; i++) {
+                tested[i] >>= 1;
+                decided[i] >>= 1;
+            }
+        }
+
+        private void sort() {
+            // Insertion sort, as there are only ever a few masks
+            for (int i = 1; i < order.length; i++) {
+                Mask mask = order[i];
+                int maskCost = cost[i];
+                int maskTested = tested[i];
+                int maskDecided = decided[i];
+                double rank = rank(maskCost, maskTested, maskDecided);
+                int j = i - 1;
+                while (j >= 0 && rank(cost[j], tested[j], decided[j]) > rank) {
+                    order[j + 1] = order[j];
+                    cost[j + 1] = cost[j];
+                    tested[j + 1] = tested[j];
+                    decided[j + 1] = decided[j];
+                    j--;
+                }
+                order[j + 1] = mask;
+                cost[j + 1] = maskCost;
+                tested[j + 1] = maskTested;
+                decided[j + 1] = maskDecided;
+            }
+        }
+
+        private static double rank(int cost, int tested, int decided) {
+            // Masks without statistics are assumed to decide half of the tests
+            return cost * (tested + 2) / (double) (decided + 1);
+        }
+    }
+
 }
@@ -0,0 +1,320 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiles masks into a form that is cheaper to test, and works out the
+ * area in which a mask can possibly match.
+ *
+ * <p>Nested intersections and unions are flattened, constant masks are
+ * folded away, and the remaining masks are ordered so that cheap ones
+ * are tested first. Cost estimates are relative: reading a block is
+ * considered to cost about eight times as much as a bounds check.</p>
+ */
+public final class MaskOptimizer {
+
+    private static final int DEFAULT_COST = 16;
+
+    /**
+     * Bounds that no position falls in.
+     */
+    private static final int[] EMPTY = new int[0];
+
+    private MaskOptimizer() {
+    }
+
+    /**
+     * Return an equivalent mask that is cheaper to test.
+     *
+     * <p>The returned mask may share the masks that {@code mask} is composed
+     * of, but changes made to {@code mask} afterwards (such as adding
+     * masks to an intersection) are not reflected in it.</p>
+     *
+     * @param mask the mask
+     * @return an optimized mask, which may be {@code mask} itself
+     */
+    public static Mask optimize(Mask mask) {
+        checkNotNull(mask);
+
+        if (mask.getClass() == MaskUnion.class) {
+            List<Mask> masks = new ArrayList<Mask>();
+            flatten(mask, MaskUnion.class, masks);
+            List<Mask> remaining = new ArrayList<Mask>();
+            for (Mask child : masks) {
+                Mask optimized = optimize(child);
+                if (optimized == Masks.alwaysTrue()) {
+                    return optimized;
+                } else if (optimized != Masks.alwaysFalse()) {
+                    remaining.add(optimized);
+                }
+            }
+            return combine(remaining, true);
+
+        } else if (mask.getClass() == MaskIntersection.class) {
+            List<Mask> masks = new ArrayList<Mask>();
+            flatten(mask, MaskIntersection.class, masks);
+            if (masks.isEmpty()) {
+                return Masks.alwaysFalse();
+            }
+            List<Mask> remaining = new ArrayList<Mask>();
+            for (Mask child : masks) {
+                Mask optimized = optimize(child);
+                if (optimized == Masks.alwaysFalse()) {
+                    return optimized;
+                } else if (optimized != Masks.alwaysTrue()) {
+                    remaining.add(optimized);
+                }
+            }
+            if (remaining.isEmpty()) {
+                return Masks.alwaysTrue();
+            }
+            Mask result = combine(remaining, false);
+            if (getBounds(result) == EMPTY) {
+                return Masks.alwaysFalse();
+            }
+            return result;
+
+        } else if (mask.getClass() == OffsetMask.class) {
+            OffsetMask offsetMask = (OffsetMask) mask;
+            Mask optimized = optimize(offsetMask.getMask());
+            if (optimized == Masks.alwaysTrue() || optimized == Masks.alwaysFalse()) {
+                return optimized;
+            } else if (optimized != offsetMask.getMask()) {
+                return new OffsetMask(optimized, offsetMask.getOffset());
+            }
+        }
+
+        return mask;
+    }
+
+    private static void flatten(Mask mask, Class<? extends MaskIntersection> type, List<Mask> out) {
+        for (Mask child : ((MaskIntersection) mask).getMasks()) {
+            // An empty intersection never matches, so it can't be flattened
+            if (child.getClass() == type && !((MaskIntersection) child).getMasks().isEmpty()) {
+                flatten(child, type, out);
+            } else {
+                out.add(child);
+            }
+        }
+    }
+
+    private static Mask combine(List<Mask> masks, boolean union) {
+        if (masks.isEmpty()) {
+            return Masks.alwaysFalse();
+        } else if (masks.size() == 1) {
+            return masks.get(0);
+        }
+
+        // Stable, so masks of the same cost keep their original order
+        Collections.sort(masks, new Comparator<Mask>() {
+            @Override
+            public int compare(Mask o1, Mask o2) {
+                int cost1 = getCost(o1);
+                int cost2 = getCost(o2);
+                return cost1 < cost2 ? -1 : (cost1 == cost2 ? 0 : 1);
+            }
+        });
+
+        return union ? new MaskUnion(masks) : new MaskIntersection(masks);
+    }
+
+    /**
+     * Estimate the relative cost of testing a position against a mask.
+     *
+     * @param mask the mask
+     * @return the estimated cost, at least 0
+     */
+    public static int getCost(Mask mask) {
+        checkNotNull(mask);
+
+        if (mask == Masks.alwaysTrue() || mask == Masks.alwaysFalse()) {
+            return 0;
+        } else if (mask instanceof BoundedHeightMask) {
+            return 1;
+        } else if (mask instanceof RegionMask) {
+            return ((RegionMask) mask).getRegion() instanceof CuboidRegion ? 2 : 4;
+        } else if (mask instanceof AbstractExtentMask) {
+            return 8;
+        } else if (mask instanceof MaskIntersection) {
+            int cost = 0;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                cost += getCost(child);
+            }
+            return cost;
+        } else if (mask instanceof OffsetMask) {
+            return getCost(((OffsetMask) mask).getMask()) + 1;
+        } else if (mask instanceof NoiseFilter) {
+            return 32;
+        } else if (mask instanceof ExpressionMask) {
+            return 64;
+        } else {
+            return DEFAULT_COST;
+        }
+    }
+
+    /**
+     * Get the part of the given box that positions accepted by the mask
+     * can fall in.
+     *
+     * @param mask the mask
+     * @param min the minimum point of the box
+     * @param max the maximum point of the box
+     * @return the clipped box, or {@code null} if the mask can match no position in it
+     */
+    @Nullable
+    public static CuboidRegion clip(Mask mask, Vector min, Vector max) {
+        checkNotNull(mask);
+        checkNotNull(min);
+        checkNotNull(max);
+
+        int[] bounds = getBounds(mask);
+        if (bounds == null) {
+            return new CuboidRegion(min, max);
+        } else if (bounds == EMPTY) {
+            return null;
+        }
+
+        int[] box = intersect(bounds, new int[] {
+                min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                max.getBlockX(), max.getBlockY(), max.getBlockZ() });
+        if (box == EMPTY) {
+            return null;
+        }
+        return new CuboidRegion(new Vector(box[0], box[1], box[2]), new Vector(box[3], box[4], box[5]));
+    }
+
+    /**
+     * Get the bounds of the positions that a mask can accept, as
+     * {minX, minY, minZ, maxX, maxY, maxZ}.
+     *
+     * @param mask the mask
+     * @return the bounds, {@link #EMPTY}, or {@code null} if unbounded
+     */
+    @Nullable
+    private static int[] getBounds(Mask mask) {
+        if (mask == Masks.alwaysFalse()) {
+            return EMPTY;
+
+        } else if (mask instanceof BoundedHeightMask) {
+            BoundedHeightMask heightMask = (BoundedHeightMask) mask;
+            return new int[] {
+                    Integer.MIN_VALUE, heightMask.getMinY(), Integer.MIN_VALUE,
+                    Integer.MAX_VALUE, heightMask.getMaxY(), Integer.MAX_VALUE };
+
+        } else if (mask instanceof RegionMask) {
+            Region region = ((RegionMask) mask).getRegion();
+            Vector min = region.getMinimumPoint();
+            Vector max = region.getMaximumPoint();
+            return new int[] {
+                    min.getBlockX(), min.getBlockY(), min.getBlockZ(),
+                    max.getBlockX(), max.getBlockY(), max.getBlockZ() };
+
+        } else if (mask.getClass() == MaskUnion.class) {
+            int[] bounds = EMPTY;
+            for (Mask child : ((MaskUnion) mask).getMasks()) {
+                int[] childBounds = getBounds(child);
+                if (childBounds == null) {
+                    return null;
+                }
+                bounds = union(bounds, childBounds);
+            }
+            return bounds;
+
+        } else if (mask.getClass() == MaskIntersection.class) {
+            if (((MaskIntersection) mask).getMasks().isEmpty()) {
+                return EMPTY;
+            }
+            int[] bounds = null;
+            for (Mask child : ((MaskIntersection) mask).getMasks()) {
+                int[] childBounds = getBounds(child);
+                if (childBounds != null) {
+                    bounds = bounds == null ? childBounds : intersect(bounds, childBounds);
+                }
+            }
+            return bounds;
+
+        } else if (mask instanceof OffsetMask) {
+            int[] bounds = getBounds(((OffsetMask) mask).getMask());
+            if (bounds == null || bounds == EMPTY) {
+                return bounds;
+            }
+            Vector offset = ((OffsetMask) mask).getOffset();
+            return new int[] {
+                    shift(bounds[0], -offset.getX(), false),
+                    shift(bounds[1], -offset.getY(), false),
+                    shift(bounds[2], -offset.getZ(), false),
+                    shift(bounds[3], -offset.getX(), true),
+                    shift(bounds[4], -offset.getY(), true),
+                    shift(bounds[5], -offset.getZ(), true) };
+        }
+
+        return null;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        if (a == EMPTY || b == EMPTY) {
+            return EMPTY;
+        }
+        int[] result = new int[6];
+        for (int i = 0; i < 3; i++) {
+            result[i] = Math.max(a[i], b[i]);
+            result[i + 3] = Math.min(a[i + 3], b[i + 3]);
+            if (result[i] > result[i + 3]) {
+                return EMPTY;
+            }
+        }
+        return result;
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a == EMPTY) {
+            return b;
+        } else if (b == EMPTY) {
+            return a;
+        }
+        int[] result = new int[6];
+        for (int i = 0; i < 3; i++) {
+            result[i] = Math.min(a[i], b[i]);
+            result[i + 3] = Math.max(a[i + 3], b[i + 3]);
+        }
+        return result;
+    }
+
+    private static int shift(int bound, double offset, boolean upper) {
+        if (bound == Integer.MIN_VALUE || bound == Integer.MAX_VALUE) {
+            return bound;
+        }
+        double shifted = upper ? Math.ceil(bound + offset) : Math.floor(bound + offset);
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE - 1, shifted));
+    }
+
+}
@@ -23,6 +23,7 @@
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
@@ -53,15 +54,17 @@ public MaskUnion(Mask... mask) {
 
     @Override
     public boolean test(Vector vector) {
-        Collection<Mask> masks = getMasks();
+        return test(vector, true);
+    }
 
-        for (Mask mask : masks) {
-            if (mask.test(vector)) {
-                return true;
-            }
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        if (getMasks().isEmpty()) {
+            result.clear(0, sizeX * sizeY * sizeZ);
+            return;
         }
 
-        return false;
+        test(minX, minY, minZ, sizeX, sizeY, sizeZ, result, true);
     }
 
     @Nullable
@@ -24,6 +24,8 @@
 
 import javax.annotation.Nullable;
 
+import java.util.BitSet;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -55,6 +57,52 @@ public static Mask2D alwaysTrue2D() {
         return ALWAYS_TRUE;
     }
 
+    /**
+     * Return a 3D mask that always returns false;
+     *
+     * @return a mask
+     */
+    public static Mask alwaysFalse() {
+        return ALWAYS_FALSE;
+    }
+
+    /**
+     * Test every position in a box at once.
+     *
+     * <p>Masks that extend {@link AbstractMask} are tested with
+     * {@link AbstractMask#test(int, int, int, int, int, int, BitSet)}, while
+     * other masks are tested one position at a time.</p>
+     *
+     * @param mask the mask
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param result the bit set to store the results in
+     * @see AbstractMask#test(int, int, int, int, int, int, BitSet)
+     */
+    public static void test(Mask mask, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        checkNotNull(mask);
+        checkNotNull(result);
+
+        if (mask instanceof AbstractMask) {
+            ((AbstractMask) mask).test(minX, minY, minZ, sizeX, sizeY, sizeZ, result);
+        } else if (mask instanceof AlwaysTrue || mask instanceof AlwaysFalse) {
+            result.set(0, sizeX * sizeY * sizeZ, mask instanceof AlwaysTrue);
+        } else {
+            int i = 0;
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        result.set(i++, mask.test(new Vector(minX + x, minY + y, minZ + z)));
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Negate the given mask.
      *
@@ -21,9 +21,12 @@
 
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.math.noise.NoiseGenerator;
+import com.sk89q.worldedit.math.noise.NoiseGenerators;
 
 import javax.annotation.Nullable;
 
+import java.util.BitSet;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -89,6 +92,16 @@ public boolean test(Vector vector) {
         return noiseGenerator.noise(vector) <= density;
     }
 
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        checkNotNull(result);
+        float[] values = new float[sizeX * sizeY * sizeZ];
+        NoiseGenerators.noise(noiseGenerator, minX, minY, minZ, sizeX, sizeY, sizeZ, values);
+        for (int i = 0; i < values.length; i++) {
+            result.set(i, values[i] <= density);
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
@@ -23,6 +23,8 @@
 
 import javax.annotation.Nullable;
 
+import java.util.BitSet;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -90,6 +92,16 @@ public boolean test(Vector vector) {
         return getMask().test(vector.add(offset));
     }
 
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        Vector offset = this.offset;
+        if (offset.getX() == offset.getBlockX() && offset.getY() == offset.getBlockY() && offset.getZ() == offset.getBlockZ()) {
+            Masks.test(getMask(), minX + offset.getBlockX(), minY + offset.getBlockY(), minZ + offset.getBlockZ(), sizeX, sizeY, sizeZ, result);
+        } else {
+            super.test(minX, minY, minZ, sizeX, sizeY, sizeZ, result);
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
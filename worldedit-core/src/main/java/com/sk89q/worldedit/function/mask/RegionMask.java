@@ -20,10 +20,13 @@
 package com.sk89q.worldedit.function.mask;
 
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 
 import javax.annotation.Nullable;
 
+import java.util.BitSet;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -66,6 +69,31 @@ public boolean test(Vector vector) {
         return region.contains(vector);
     }
 
+    @Override
+    public void test(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BitSet result) {
+        if (!(region instanceof CuboidRegion)) {
+            super.test(minX, minY, minZ, sizeX, sizeY, sizeZ, result);
+            return;
+        }
+
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        int fromX = Math.max(0, min.getBlockX() - minX);
+        int toX = Math.min(sizeX, max.getBlockX() - minX + 1);
+
+        result.clear(0, sizeX * sizeY * sizeZ);
+        if (fromX >= toX) {
+            return;
+        }
+
+        for (int y = Math.max(0, min.getBlockY() - minY); y < Math.min(sizeY, max.getBlockY() - minY + 1); y++) {
+            for (int z = Math.max(0, min.getBlockZ() - minZ); z < Math.min(sizeZ, max.getBlockZ() - minZ + 1); z++) {
+                int row = (y * sizeZ + z) * sizeX;
+                result.set(row + fromX, row + toX);
+            }
+        }
+    }
+
     @Nullable
     @Override
     public Mask2D toMask2D() {
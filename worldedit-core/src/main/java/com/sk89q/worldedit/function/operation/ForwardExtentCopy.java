@@ -19,9 +19,12 @@
 
 package com.sk89q.worldedit.function.operation;
 
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.function.CombinedRegionFunction;
 import com.sk89q.worldedit.function.RegionFunction;
@@ -231,7 +234,8 @@ public Operation resume(RunContext run) throws WorldEditException {
 
             ExtentEntityCopy entityCopy = new ExtentEntityCopy(from, destination, to, currentTransform);
             entityCopy.setRemoving(removingEntities);
-            List<? extends Entity> entities = source.getEntities(region);
+            // Collected up front so that copies created in an overlapping destination are not visited
+            List<? extends Entity> entities = ImmutableList.copyOf(source.queryEntities(region, Predicates.<EntityType>alwaysTrue()));
             EntityVisitor entityVisitor = new EntityVisitor(entities.iterator(), entityCopy);
 
             lastVisitor = blockVisitor;
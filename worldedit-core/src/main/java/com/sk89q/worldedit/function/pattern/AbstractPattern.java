@@ -19,8 +19,46 @@
 
 package com.sk89q.worldedit.function.pattern;
 
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * An abstract implementation for {@link Pattern}s.
  */
 public abstract class AbstractPattern implements Pattern {
+
+    /**
+     * Get the blocks for every position in a box at once, such as a
+     * 16x16x16 chunk section.
+     *
+     * <p>The block for a position is stored at index
+     * {@code (y * sizeZ + z) * sizeX + x}, where {@code x}, {@code y} and
+     * {@code z} are relative to the minimum corner. The default
+     * implementation calls {@link #apply(Vector)} for each position, and
+     * patterns that can do better should override it.</p>
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param result the array to store the blocks in
+     */
+    public void apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BaseBlock[] result) {
+        checkNotNull(result);
+        checkArgument(result.length >= sizeX * sizeY * sizeZ, "result is too small");
+        int i = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    result[i++] = apply(new Vector(minX + x, minY + y, minZ + z));
+                }
+            }
+        }
+    }
+
 }
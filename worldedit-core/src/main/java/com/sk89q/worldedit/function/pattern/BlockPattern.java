@@ -22,6 +22,8 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
 
+import java.util.Arrays;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -64,4 +66,9 @@ public BaseBlock apply(Vector position) {
         return block;
     }
 
+    @Override
+    public void apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BaseBlock[] result) {
+        Arrays.fill(result, 0, sizeX * sizeY * sizeZ, block);
+    }
+
 }
@@ -32,6 +32,41 @@ public final class Patterns {
     private Patterns() {
     }
 
+    /**
+     * Get the blocks for every position in a box at once.
+     *
+     * <p>Patterns that extend {@link AbstractPattern} are asked with
+     * {@link AbstractPattern#apply(int, int, int, int, int, int, BaseBlock[])},
+     * while other patterns are asked one position at a time.</p>
+     *
+     * @param pattern the pattern
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param result the array to store the blocks in
+     * @see AbstractPattern#apply(int, int, int, int, int, int, BaseBlock[])
+     */
+    public static void apply(Pattern pattern, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BaseBlock[] result) {
+        checkNotNull(pattern);
+        checkNotNull(result);
+
+        if (pattern instanceof AbstractPattern) {
+            ((AbstractPattern) pattern).apply(minX, minY, minZ, sizeX, sizeY, sizeZ, result);
+        } else {
+            int i = 0;
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        result[i++] = pattern.apply(new Vector(minX + x, minY + y, minZ + z));
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Wrap an old-style pattern and return a new pattern.
      *
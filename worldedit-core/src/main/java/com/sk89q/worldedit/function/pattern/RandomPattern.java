@@ -67,6 +67,47 @@ public BaseBlock apply(Vector position) {
         throw new RuntimeException("ProportionalFillPattern");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation picks the patterns using precomputed
+     * thresholds and uses the blocks of {@link BlockPattern}s directly.</p>
+     */
+    @Override
+    public void apply(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, BaseBlock[] result) {
+        int count = patterns.size();
+        double[] thresholds = new double[count];
+        Pattern[] choices = new Pattern[count];
+        BaseBlock[] blocks = new BaseBlock[count];
+        double offset = 0;
+        for (int i = 0; i < count; i++) {
+            Chance chance = patterns.get(i);
+            thresholds[i] = (offset + chance.getChance()) / max;
+            choices[i] = chance.getPattern();
+            if (choices[i] instanceof BlockPattern) {
+                blocks[i] = ((BlockPattern) choices[i]).getBlock();
+            }
+            offset += chance.getChance();
+        }
+
+        int index = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    double r = random.nextDouble();
+                    int i = 0;
+                    while (i < count && r > thresholds[i]) {
+                        i++;
+                    }
+                    if (i == count) {
+                        throw new RuntimeException("ProportionalFillPattern");
+                    }
+                    result[index++] = blocks[i] != null ? blocks[i] : choices[i].apply(new Vector(minX + x, minY + y, minZ + z));
+                }
+            }
+        }
+    }
+
     private static class Chance {
         private Pattern pattern;
         private double chance;
@@ -25,6 +25,8 @@
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockPosition;
+import com.sk89q.worldedit.util.collection.LongHashSet;
 
 import java.util.*;
 
@@ -45,7 +47,7 @@ public abstract class BreadthFirstSearch implements Operation {
 
     private final RegionFunction function;
     private final Queue<BlockVector> queue = new ArrayDeque<BlockVector>();
-    private final Set<BlockVector> visited = new HashSet<BlockVector>();
+    private final LongHashSet visited = new LongHashSet();
     private final List<Vector> directions = new ArrayList<Vector>();
     private int affected = 0;
 
@@ -113,10 +115,8 @@ protected void addDiagonal() {
      * @param position the position
      */
     public void visit(Vector position) {
-        BlockVector blockVector = position.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            queue.add(blockVector);
-            visited.add(blockVector);
+        if (visited.add(BlockPosition.pack(position))) {
+            queue.add(position.toBlockVector());
         }
     }
 
@@ -127,11 +127,9 @@ public void visit(Vector position) {
      * @param to the block under question
      */
     private void visit(Vector from, Vector to) {
-        BlockVector blockVector = to.toBlockVector();
-        if (!visited.contains(blockVector)) {
-            visited.add(blockVector);
+        if (visited.add(BlockPosition.pack(to))) {
             if (isVisitable(from, to)) {
-                queue.add(blockVector);
+                queue.add(to.toBlockVector());
             }
         }
     }
@@ -0,0 +1,341 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.function.visitor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.math.BlockPosition;
+import com.sk89q.worldedit.regions.FlatRegion;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decorates the surface of a region, such as with trees or flowers.
+ *
+ * <p>The visitor works in two phases. In the first phase, the layers
+ * between the minimum and maximum Y of the chunks covered by the region
+ * are captured as {@link ChunkColumn} snapshots and scanned in parallel
+ * on a shared pool of daemon threads to find the surface of each column
+ * and to decide, using a random number generator seeded by the chunk
+ * position, whether that column is decorated. In the second phase, the
+ * {@link RegionFunction} is applied to the ground block of every chosen
+ * column, chunk by chunk, on the calling thread.</p>
+ *
+ * <p>Because the surface is found in snapshots taken before any changes
+ * are made, decorations placed by this visitor do not affect where later
+ * decorations go. Given the same seed and the same terrain, the same
+ * columns are always chosen.</p>
+ */
+public class DecorationVisitor implements Operation {
+
+    private static final int CHUNKS_PER_BATCH = 64;
+    private static final int SCAN_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService scanExecutor = createScanExecutor();
+
+    private final World world;
+    private final FlatRegion flatRegion;
+    private final RegionFunction function;
+    private final int minY;
+    private final int maxY;
+    private final BitSet passable = new BitSet();
+    private double density = 1;
+    private long seed = new Random().nextLong();
+    private int affected = 0;
+
+    /**
+     * Create a new visitor.
+     *
+     * @param world the world to read the surface from
+     * @param flatRegion the flat region to visit
+     * @param minY the minimum Y to stop the search at
+     * @param maxY the maximum Y to begin the search at
+     * @param function the function to apply to ground blocks
+     */
+    public DecorationVisitor(World world, FlatRegion flatRegion, int minY, int maxY, RegionFunction function) {
+        checkNotNull(world);
+        checkNotNull(flatRegion);
+        checkArgument(minY <= maxY, "minY <= maxY required");
+        checkNotNull(function);
+
+        this.world = world;
+        this.flatRegion = flatRegion;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.function = function;
+        passable.set(0);
+    }
+
+    /**
+     * Get the chance that a column is decorated.
+     *
+     * @return the density, between 0 and 1, inclusive
+     */
+    public double getDensity() {
+        return density;
+    }
+
+    /**
+     * Set the chance that a column is decorated.
+     *
+     * @param density the density, between 0 and 1, inclusive
+     */
+    public void setDensity(double density) {
+        checkArgument(density >= 0 && density <= 1, "density must be between 0 and 1");
+        this.density = density;
+    }
+
+    /**
+     * Get the seed that columns are chosen with.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set the seed that columns are chosen with.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set additional block types that are skipped, like air, when
+     * searching for the ground.
+     *
+     * @param typeIds a list of type IDs
+     */
+    public void setPassable(int... typeIds) {
+        for (int typeId : typeIds) {
+            checkArgument(typeId >= 0, "typeId >= 0 required");
+            passable.set(typeId);
+        }
+    }
+
+    /**
+     * Get the number of affected objects.
+     *
+     * @return the number of affected
+     */
+    public int getAffected() {
+        return affected;
+    }
+
+    @Override
+    public Operation resume(RunContext run) throws WorldEditException {
+        List<ChunkColumns> chunks = groupByChunk();
+        List<long[]> placements = new ArrayList<long[]>(chunks.size());
+
+        boolean parallel = SCAN_THREADS > 1 && chunks.size() > 1;
+        try {
+            for (int start = 0; start < chunks.size(); start += CHUNKS_PER_BATCH) {
+                int end = Math.min(start + CHUNKS_PER_BATCH, chunks.size());
+                List<SurfaceScan> tasks = new ArrayList<SurfaceScan>(end - start);
+
+                // Snapshots must be taken on this thread
+                for (int i = start; i < end; i++) {
+                    ChunkColumns chunk = chunks.get(i);
+                    tasks.add(new SurfaceScan(world.captureChunk(chunk.position, minY, maxY + 1), chunk.columns));
+                }
+
+                if (parallel) {
+                    for (Future<long[]> future : scanExecutor.invokeAll(tasks)) {
+                        placements.add(future.get());
+                    }
+                } else {
+                    for (SurfaceScan task : tasks) {
+                        placements.add(task.call());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to find the surface of a chunk", e.getCause());
+        }
+
+        for (long[] chunkPlacements : placements) {
+            for (long position : chunkPlacements) {
+                BlockVector target = new BlockVector(
+                        BlockPosition.unpackX(position),
+                        BlockPosition.unpackY(position),
+                        BlockPosition.unpackZ(position));
+                if (function.apply(target)) {
+                    affected++;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    /**
+     * Group the columns of the region by chunk, with chunks sorted by their
+     * X and then Z coordinate.
+     *
+     * @return a list of chunks
+     */
+    private List<ChunkColumns> groupByChunk() {
+        LongIntHashMap index = new LongIntHashMap();
+        List<ChunkColumns> chunks = new ArrayList<ChunkColumns>();
+
+        for (Vector2D column : flatRegion.asFlatRegion()) {
+            int x = column.getBlockX();
+            int z = column.getBlockZ();
+            long key = ((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL);
+            int i = index.get(key, -1);
+            if (i == -1) {
+                i = chunks.size();
+                index.put(key, i);
+                chunks.add(new ChunkColumns(new BlockVector2D(x >> 4, z >> 4)));
+            }
+            chunks.get(i).columns.set((z & 15) << 4 | (x & 15));
+        }
+
+        Collections.sort(chunks, new Comparator<ChunkColumns>() {
+            @Override
+            public int compare(ChunkColumns o1, ChunkColumns o2) {
+                int cx1 = o1.position.getBlockX();
+                int cx2 = o2.position.getBlockX();
+                if (cx1 != cx2) {
+                    return cx1 < cx2 ? -1 : 1;
+                }
+                int cz1 = o1.position.getBlockZ();
+                int cz2 = o2.position.getBlockZ();
+                return cz1 < cz2 ? -1 : (cz1 == cz2 ? 0 : 1);
+            }
+        });
+
+        return chunks;
+    }
+
+    /**
+     * Create the pool that chunk snapshots are scanned on, which is shared
+     * by all visitors and whose threads exit after being idle for a minute.
+     *
+     * @return the executor
+     */
+    private static ExecutorService createScanExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                SCAN_THREADS, SCAN_THREADS,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("WorldEdit Surface Scanner #%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The columns of the region within one chunk.
+     */
+    private static final class ChunkColumns {
+        private final BlockVector2D position;
+        private final BitSet columns = new BitSet(256);
+
+        private ChunkColumns(BlockVector2D position) {
+            this.position = position;
+        }
+    }
+
+    /**
+     * Finds the ground blocks to decorate in one chunk snapshot.
+     */
+    private final class SurfaceScan implements Callable<long[]> {
+        private final ChunkColumn snapshot;
+        private final BitSet columns;
+
+        private SurfaceScan(ChunkColumn snapshot, BitSet columns) {
+            this.snapshot = snapshot;
+            this.columns = columns;
+        }
+
+        @Override
+        public long[] call() {
+            int chunkX = snapshot.getPosition().getBlockX();
+            int chunkZ = snapshot.getPosition().getBlockZ();
+            Random random = new Random(seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
+            long[] found = new long[columns.cardinality()];
+            int count = 0;
+
+            for (int i = columns.nextSetBit(0); i >= 0; i = columns.nextSetBit(i + 1)) {
+                // Always roll so that the choice of one column doesn't depend on another
+                if (random.nextDouble() >= density) {
+                    continue;
+                }
+
+                int x = i & 15;
+                int z = i >> 4;
+
+                // Skip if we are underground
+                if (!isPassable(x, maxY + 1, z)) {
+                    continue;
+                }
+
+                for (int y = maxY; y >= minY; --y) {
+                    if (!isPassable(x, y, z)) {
+                        found[count++] = BlockPosition.pack((chunkX << 4) + x, y, (chunkZ << 4) + z);
+                        break;
+                    }
+                }
+            }
+
+            long[] result = new long[count];
+            System.arraycopy(found, 0, result, 0, count);
+            return result;
+        }
+
+        private boolean isPassable(int x, int y, int z) {
+            return y < 0 || y >= snapshot.getHeight() || passable.get(snapshot.getTypeId(x, y, z));
+        }
+    }
+
+}
@@ -21,13 +21,24 @@
 
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.function.AbstractRegionFunction;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.RegionFunction;
+import com.sk89q.worldedit.function.RegionMaskingFilter;
+import com.sk89q.worldedit.function.mask.MaskOptimizer;
 import com.sk89q.worldedit.function.operation.RunContext;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
+
+import java.util.BitSet;
 
 /**
  * Utility class to apply region functions to {@link com.sk89q.worldedit.regions.Region}.
+ *
+ * <p>If the function is a {@link RegionMaskingFilter}, only the part of the
+ * region that its mask can possibly match is visited. Functions that extend
+ * {@link AbstractRegionFunction} are applied a chunk section at a time.</p>
  */
 public class RegionVisitor implements Operation {
 
@@ -51,15 +62,95 @@ public int getAffected() {
 
     @Override
     public Operation resume(RunContext run) throws WorldEditException {
-        for (Vector pt : region) {
-            if (function.apply(pt)) {
-                affected++;
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        boolean clipped = false;
+
+        if (function instanceof RegionMaskingFilter) {
+            CuboidRegion bounds = MaskOptimizer.clip(((RegionMaskingFilter) function).getMask(), min, max);
+            if (bounds == null) {
+                return null;
+            }
+
+            // Skip the parts of the region outside of what the mask can match
+            clipped = !bounds.getMinimumPoint().equals(min.floor()) || !bounds.getMaximumPoint().equals(max.floor());
+            min = bounds.getMinimumPoint();
+            max = bounds.getMaximumPoint();
+        }
+
+        if (function instanceof AbstractRegionFunction) {
+            visitSections((AbstractRegionFunction) function, min, max);
+        } else if (clipped) {
+            for (Vector pt : new CuboidRegion(min, max)) {
+                if (region.contains(pt) && function.apply(pt)) {
+                    affected++;
+                }
+            }
+        } else {
+            for (Vector pt : region) {
+                if (function.apply(pt)) {
+                    affected++;
+                }
             }
         }
 
         return null;
     }
 
+    /**
+     * Apply the function one chunk section at a time, from the bottom up.
+     *
+     * @param function the function
+     * @param min the minimum point of the area to visit
+     * @param max the maximum point of the area to visit
+     * @throws WorldEditException thrown on an error
+     */
+    private void visitSections(AbstractRegionFunction function, Vector min, Vector max) throws WorldEditException {
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+        int maxX = max.getBlockX();
+        int maxY = max.getBlockY();
+        int maxZ = max.getBlockZ();
+        boolean cuboid = region instanceof CuboidRegion;
+        BitSet positions = new BitSet(16 * 16 * 16);
+
+        for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+            int y0 = Math.max(minY, sectionY << 4);
+            int sizeY = Math.min(maxY, (sectionY << 4) + 15) - y0 + 1;
+            for (int sectionZ = minZ >> 4; sectionZ <= maxZ >> 4; sectionZ++) {
+                int z0 = Math.max(minZ, sectionZ << 4);
+                int sizeZ = Math.min(maxZ, (sectionZ << 4) + 15) - z0 + 1;
+                for (int sectionX = minX >> 4; sectionX <= maxX >> 4; sectionX++) {
+                    int x0 = Math.max(minX, sectionX << 4);
+                    int sizeX = Math.min(maxX, (sectionX << 4) + 15) - x0 + 1;
+
+                    if (!cuboid && !Regions.mayIntersectBox(region, x0, y0, z0, x0 + sizeX - 1, y0 + sizeY - 1, z0 + sizeZ - 1)) {
+                        continue;
+                    }
+
+                    positions.clear();
+                    if (cuboid) {
+                        positions.set(0, sizeX * sizeY * sizeZ);
+                    } else {
+                        int i = 0;
+                        for (int y = 0; y < sizeY; y++) {
+                            for (int z = 0; z < sizeZ; z++) {
+                                for (int x = 0; x < sizeX; x++) {
+                                    positions.set(i++, region.contains(new Vector(x0 + x, y0 + y, z0 + z)));
+                                }
+                            }
+                        }
+                    }
+
+                    if (!positions.isEmpty()) {
+                        affected += function.apply(x0, y0, z0, sizeX, sizeY, sizeZ, positions);
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public void cancel() {
     }
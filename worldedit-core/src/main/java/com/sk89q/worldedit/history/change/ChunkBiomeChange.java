@@ -0,0 +1,97 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.history.change;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.history.UndoContext;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Represents a change to the biomes of several columns of one chunk that
+ * may be undone or replayed.
+ *
+ * <p>The biomes are stored as arrays of IDs in the layout used by
+ * {@link World#getChunkBiomes(BlockVector2D)}. Only the columns whose
+ * biome differs between the two arrays are changed.</p>
+ *
+ * <p>This biome change does not have an {@link Extent} assigned to it because
+ * one will be taken from the passed {@link UndoContext}. If the context
+ * does not have an extent (it is null), cryptic errors may occur.</p>
+ */
+public class ChunkBiomeChange implements Change {
+
+    private final BlockVector2D chunk;
+    private final int[] previous;
+    private final int[] current;
+
+    /**
+     * Create a new biome change.
+     *
+     * @param chunk the chunk coordinates
+     * @param previous the previous biome IDs
+     * @param current the current biome IDs
+     */
+    public ChunkBiomeChange(BlockVector2D chunk, int[] previous, int[] current) {
+        checkNotNull(chunk);
+        checkNotNull(previous);
+        checkNotNull(current);
+        checkArgument(previous.length == 256 && current.length == 256, "biome arrays must have 256 entries");
+        this.chunk = chunk;
+        this.previous = previous;
+        this.current = current;
+    }
+
+    /**
+     * Get the chunk coordinates.
+     *
+     * @return the chunk coordinates
+     */
+    public BlockVector2D getChunk() {
+        return chunk;
+    }
+
+    @Override
+    public void undo(UndoContext context) throws WorldEditException {
+        apply(checkNotNull(context.getExtent()), previous);
+    }
+
+    @Override
+    public void redo(UndoContext context) throws WorldEditException {
+        apply(checkNotNull(context.getExtent()), current);
+    }
+
+    private void apply(Extent extent, int[] biomes) {
+        int baseX = chunk.getBlockX() << 4;
+        int baseZ = chunk.getBlockZ() << 4;
+        for (int i = 0; i < biomes.length; i++) {
+            if (previous[i] != current[i]) {
+                extent.setBiome(new Vector2D(baseX + (i & 15), baseZ + (i >> 4)), new BaseBiome(biomes[i]));
+            }
+        }
+    }
+
+}
@@ -19,6 +19,7 @@
 
 package com.sk89q.worldedit.internal;
 
+import com.google.common.base.Predicate;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalWorld;
@@ -30,16 +31,21 @@
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
+import com.sk89q.worldedit.world.SurfaceType;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.biome.BaseBiome;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
+import com.sk89q.worldedit.world.chunk.ChunkSnapshotExtent;
 import com.sk89q.worldedit.world.registry.WorldData;
 
 import javax.annotation.Nullable;
+import java.util.Iterator;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -139,6 +145,36 @@ public boolean regenerate(Region region, EditSession editSession) {
         return world.regenerate(region, editSession);
     }
 
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position) {
+        return world.captureChunk(position);
+    }
+
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position, int minY, int maxY) {
+        return world.captureChunk(position, minY, maxY);
+    }
+
+    @Override
+    public ChunkSnapshotExtent captureRegion(Region region, int maxBlocks) throws MaxChangedBlocksException {
+        return world.captureRegion(region, maxBlocks);
+    }
+
+    @Override
+    public boolean isChunkLoaded(BlockVector2D position) {
+        return world.isChunkLoaded(position);
+    }
+
+    @Override
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        return world.getSurfaceHeights(min, max, minY, maxY, type);
+    }
+
+    @Override
+    public int[] getChunkBiomes(BlockVector2D position) {
+        return world.getChunkBiomes(position);
+    }
+
     @Override
     public boolean generateTree(TreeType type, EditSession editSession, Vector position) throws MaxChangedBlocksException {
         return world.generateTree(type, editSession, position);
@@ -189,6 +225,11 @@ public void fixLighting(Iterable<BlockVector2D> chunks) {
         world.fixLighting(chunks);
     }
 
+    @Override
+    public void refreshChunks(Iterable<BlockVector2D> chunks) {
+        world.refreshChunks(chunks);
+    }
+
     @Override
     public boolean playEffect(Vector position, int type, int data) {
         return world.playEffect(position, type, data);
@@ -230,6 +271,11 @@ public List<? extends Entity> getEntities(Region region) {
         return world.getEntities(region);
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return world.queryEntities(region, filter);
+    }
+
     @Override
     public BaseBlock getBlock(Vector position) {
         return world.getBlock(position);
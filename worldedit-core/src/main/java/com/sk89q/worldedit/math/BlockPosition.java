@@ -0,0 +1,280 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable block position with integer coordinates.
+ *
+ * <p>Unlike {@link BlockVector}, which stores its coordinates as doubles,
+ * this class stores three ints and has a well-mixed hash code, so it is
+ * cheaper to use as a key in hash-based collections. A position can also be
+ * packed into a single {@code long} with {@link #toLong()} for use with
+ * primitive collections. Packing keeps 26 bits of the X and Z coordinates
+ * and 12 bits of the Y coordinate, which covers X and Z within
+ * &plusmn;33,554,432 and Y from -2048 to 2047.</p>
+ */
+public final class BlockPosition implements Comparable<BlockPosition> {
+
+    public static final BlockPosition ZERO = new BlockPosition(0, 0, 0);
+
+    private final int x;
+    private final int y;
+    private final int z;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public BlockPosition(int x, int y, int z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Construct a new instance from the block coordinates of a vector.
+     *
+     * @param position the position
+     */
+    public BlockPosition(Vector position) {
+        checkNotNull(position);
+        this.x = position.getBlockX();
+        this.y = position.getBlockY();
+        this.z = position.getBlockZ();
+    }
+
+    /**
+     * Get the X coordinate.
+     *
+     * @return the X coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the Y coordinate.
+     *
+     * @return the Y coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the Z coordinate.
+     *
+     * @return the Z coordinate
+     */
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * Add the given offsets to this position.
+     *
+     * @param x the value to add to the X coordinate
+     * @param y the value to add to the Y coordinate
+     * @param z the value to add to the Z coordinate
+     * @return a new position
+     */
+    public BlockPosition add(int x, int y, int z) {
+        return new BlockPosition(this.x + x, this.y + y, this.z + z);
+    }
+
+    /**
+     * Add another position to this position.
+     *
+     * @param other the other position
+     * @return a new position
+     */
+    public BlockPosition add(BlockPosition other) {
+        return add(other.x, other.y, other.z);
+    }
+
+    /**
+     * Subtract another position from this position.
+     *
+     * @param other the other position
+     * @return a new position
+     */
+    public BlockPosition subtract(BlockPosition other) {
+        return add(-other.x, -other.y, -other.z);
+    }
+
+    /**
+     * Convert this position to a {@link BlockVector}.
+     *
+     * @return a new block vector
+     */
+    public BlockVector toBlockVector() {
+        return new BlockVector(x, y, z);
+    }
+
+    /**
+     * Pack this position into a {@code long}.
+     *
+     * @return the packed position
+     * @see #pack(int, int, int)
+     */
+    public long toLong() {
+        return pack(x, y, z);
+    }
+
+    /**
+     * Pack the given coordinates into a {@code long}.
+     *
+     * <p>Coordinates outside of the range that can be packed wrap around.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+
+    /**
+     * Return whether the given coordinates can be packed into a
+     * {@code long} without wrapping around.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the coordinates can be packed
+     * @see #pack(int, int, int)
+     */
+    public static boolean isPackable(int x, int y, int z) {
+        return x >= -0x2000000 && x < 0x2000000
+                && z >= -0x2000000 && z < 0x2000000
+                && y >= -0x800 && y < 0x800;
+    }
+
+    /**
+     * Pack the block coordinates of the given vector into a {@code long}.
+     *
+     * @param position the position
+     * @return the packed position
+     * @see #pack(int, int, int)
+     */
+    public static long pack(Vector position) {
+        return pack(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+    }
+
+    /**
+     * Get the X coordinate from a packed position.
+     *
+     * @param packed the packed position
+     * @return the X coordinate
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    /**
+     * Get the Y coordinate from a packed position.
+     *
+     * @param packed the packed position
+     * @return the Y coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << 52 >> 52);
+    }
+
+    /**
+     * Get the Z coordinate from a packed position.
+     *
+     * @param packed the packed position
+     * @return the Z coordinate
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << 26 >> 38);
+    }
+
+    /**
+     * Create a position from a packed position.
+     *
+     * @param packed the packed position
+     * @return a new position
+     */
+    public static BlockPosition fromLong(long packed) {
+        return new BlockPosition(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    /**
+     * Compute a well-mixed hash code for the given coordinates.
+     *
+     * <p>The result is the same as the hash code of a {@code BlockPosition}
+     * with the same coordinates.</p>
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a hash code
+     */
+    public static int hash(int x, int y, int z) {
+        int h = x;
+        h = h * 0x9E3779B1 + y;
+        h = h * 0x9E3779B1 + z;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    @Override
+    public int compareTo(BlockPosition other) {
+        if (y != other.y) return y < other.y ? -1 : 1;
+        if (z != other.z) return z < other.z ? -1 : 1;
+        if (x != other.x) return x < other.x ? -1 : 1;
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof BlockPosition)) return false;
+
+        BlockPosition other = (BlockPosition) obj;
+        return x == other.x && y == other.y && z == other.z;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash(x, y, z);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ", " + z + ")";
+    }
+
+}
@@ -22,9 +22,11 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.SurfaceType;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -75,11 +77,12 @@ public HeightMap(EditSession session, Region region, boolean naturalOnly) {
         int maxY = region.getMaximumPoint().getBlockY();
 
         // Store current heightmap data
-        data = new int[width * height];
-        for (int z = 0; z < height; ++z) {
-            for (int x = 0; x < width; ++x) {
-                data[z * width + x] = session.getHighestTerrainBlock(x + minX, z + minZ, minY, maxY, naturalOnly);
-            }
+        SurfaceType type = naturalOnly ? SurfaceType.NATURAL_TERRAIN : SurfaceType.SOLID;
+        data = session.getSurfaceHeights(
+                new Vector2D(minX, minZ), new Vector2D(minX + width - 1, minZ + height - 1), minY, maxY, type);
+        for (int i = 0; i < data.length; ++i) {
+            // Columns without any terrain are treated as being at the bottom
+            data[i] = Math.max(data[i], minY);
         }
     }
 
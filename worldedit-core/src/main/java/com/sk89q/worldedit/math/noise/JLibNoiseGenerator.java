@@ -55,6 +55,43 @@ public float noise(Vector position) {
         return forceRange(module.GetValue(position.getX(), position.getY(), position.getZ()));
     }
 
+    /**
+     * Get the noise value for the given coordinates without creating
+     * a {@link Vector}.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return a noise value between 0 (inclusive) and 1 (inclusive)
+     */
+    public float noise(double x, double y, double z) {
+        return forceRange(module.GetValue(x, y, z));
+    }
+
+    /**
+     * Get the noise values for every block position in a box.
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param values an array of at least {@code sizeX * sizeY * sizeZ} entries to fill
+     * @see NoiseGenerators#noise(NoiseGenerator, int, int, int, int, int, int, float[])
+     */
+    public void noise(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] values) {
+        V module = this.module;
+        int index = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    values[index++] = forceRange(module.GetValue(minX + x, minY + y, minZ + z));
+                }
+            }
+        }
+    }
+
     private float forceRange(double value) {
         return (float) Math.max(0, Math.min(1, value / 2.0 + 0.5));
     }
@@ -0,0 +1,233 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math.noise;
+
+import com.sk89q.worldedit.Vector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Provides configured noise generators, reusing the same generator for
+ * repeated requests with the same parameters.
+ *
+ * <p>Generators are cached per thread, so the returned generators must
+ * not be reconfigured or passed to other threads. Creating a generator
+ * with invalid parameters throws an {@link IllegalArgumentException}.
+ * Noise can also be sampled for a whole box of blocks at once.</p>
+ */
+public final class NoiseGenerators {
+
+    private static final int CACHE_SIZE = 16;
+
+    private static final ThreadLocal<Cache> localCache = new ThreadLocal<Cache>() {
+        @Override
+        protected Cache initialValue() {
+            return new Cache();
+        }
+    };
+
+    private NoiseGenerators() {
+    }
+
+    /**
+     * Get a Perlin noise generator.
+     *
+     * @param seed the seed
+     * @param frequency the frequency
+     * @param octaves the number of octaves
+     * @param persistence the persistence
+     * @return a generator
+     */
+    public static PerlinNoise getPerlin(int seed, double frequency, int octaves, double persistence) {
+        Cache cache = localCache.get();
+        JLibNoiseGenerator<?> generator = cache.get(Type.PERLIN, seed, frequency, octaves, persistence);
+        if (generator == null) {
+            PerlinNoise perlin = new PerlinNoise();
+            perlin.setSeed(seed);
+            perlin.setFrequency(frequency);
+            perlin.setOctaveCount(octaves);
+            perlin.setPersistence(persistence);
+            cache.put(perlin);
+            return perlin;
+        }
+        return (PerlinNoise) generator;
+    }
+
+    /**
+     * Get a Voronoi noise generator.
+     *
+     * @param seed the seed
+     * @param frequency the frequency
+     * @return a generator
+     */
+    public static VoronoiNoise getVoronoi(int seed, double frequency) {
+        Cache cache = localCache.get();
+        JLibNoiseGenerator<?> generator = cache.get(Type.VORONOI, seed, frequency, 0, 0);
+        if (generator == null) {
+            VoronoiNoise voronoi = new VoronoiNoise();
+            voronoi.setSeed(seed);
+            voronoi.setFrequency(frequency);
+            cache.put(voronoi);
+            return voronoi;
+        }
+        return (VoronoiNoise) generator;
+    }
+
+    /**
+     * Get a ridged multi-fractal noise generator.
+     *
+     * @param seed the seed
+     * @param frequency the frequency
+     * @param octaves the number of octaves
+     * @return a generator
+     */
+    public static RidgedMultiFractalNoise getRidgedMulti(int seed, double frequency, int octaves) {
+        Cache cache = localCache.get();
+        JLibNoiseGenerator<?> generator = cache.get(Type.RIDGED_MULTI, seed, frequency, octaves, 0);
+        if (generator == null) {
+            RidgedMultiFractalNoise ridgedMulti = new RidgedMultiFractalNoise();
+            ridgedMulti.setSeed(seed);
+            ridgedMulti.setFrequency(frequency);
+            ridgedMulti.setOctaveCount(octaves);
+            cache.put(ridgedMulti);
+            return ridgedMulti;
+        }
+        return (RidgedMultiFractalNoise) generator;
+    }
+
+    /**
+     * Get the noise values for every block position in a box, as returned
+     * by {@link NoiseGenerator#noise(Vector)}.
+     *
+     * <p>The value for a position is stored at index
+     * {@code (y * sizeZ + z) * sizeX + x}, where {@code x}, {@code y} and
+     * {@code z} are relative to the minimum corner. For a 16 block cube
+     * this is the same layout as a chunk section.</p>
+     *
+     * <p>{@link JLibNoiseGenerator}s and {@link RandomNoise} fill the whole
+     * box at once, while other generators are called one position at
+     * a time.</p>
+     *
+     * @param generator the noise generator
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param values an array of at least {@code sizeX * sizeY * sizeZ} entries to fill
+     */
+    public static void noise(NoiseGenerator generator, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] values) {
+        checkNotNull(generator);
+        checkNotNull(values);
+
+        if (generator instanceof JLibNoiseGenerator) {
+            ((JLibNoiseGenerator<?>) generator).noise(minX, minY, minZ, sizeX, sizeY, sizeZ, values);
+        } else if (generator instanceof RandomNoise) {
+            ((RandomNoise) generator).noise(minX, minY, minZ, sizeX, sizeY, sizeZ, values);
+        } else {
+            int i = 0;
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    for (int x = 0; x < sizeX; x++) {
+                        values[i++] = generator.noise(new Vector(minX + x, minY + y, minZ + z));
+                    }
+                }
+            }
+        }
+    }
+
+    private enum Type {
+        PERLIN,
+        VORONOI,
+        RIDGED_MULTI
+    }
+
+    /**
+     * The parameters of a generator. The cache looks generators up with a
+     * reused key so that a hit does not allocate.
+     */
+    private static final class Key {
+        private Type type;
+        private int seed;
+        private double frequency;
+        private int octaves;
+        private double persistence;
+
+        private Key set(Type type, int seed, double frequency, int octaves, double persistence) {
+            this.type = type;
+            this.seed = seed;
+            this.frequency = frequency;
+            this.octaves = octaves;
+            this.persistence = persistence;
+            return this;
+        }
+
+        private Key copy() {
+            return new Key().set(type, seed, frequency, octaves, persistence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return type == key.type && seed == key.seed && octaves == key.octaves
+                    && Double.compare(frequency, key.frequency) == 0
+                    && Double.compare(persistence, key.persistence) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(frequency) * 31 + Double.doubleToLongBits(persistence);
+            int result = type.hashCode();
+            result = 31 * result + seed;
+            result = 31 * result + octaves;
+            result = 31 * result + (int) (bits ^ (bits >>> 32));
+            return result;
+        }
+    }
+
+    private static final class Cache {
+        private final Key probe = new Key();
+        private final Map<Key, JLibNoiseGenerator<?>> generators = new LinkedHashMap<Key, JLibNoiseGenerator<?>>(CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, JLibNoiseGenerator<?>> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+
+        private JLibNoiseGenerator<?> get(Type type, int seed, double frequency, int octaves, double persistence) {
+            return generators.get(probe.set(type, seed, frequency, octaves, persistence));
+        }
+
+        /**
+         * Store a generator under the parameters of the last call to
+         * {@link #get(Type, int, double, int, double)}.
+         */
+        private void put(JLibNoiseGenerator<?> generator) {
+            generators.put(probe.copy(), generator);
+        }
+    }
+
+}
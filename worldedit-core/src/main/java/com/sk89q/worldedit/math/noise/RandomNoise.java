@@ -59,4 +59,23 @@ public float noise(Vector position) {
         return random.nextFloat();
     }
 
+    /**
+     * Get the noise values for every block position in a box.
+     *
+     * @param minX the minimum X coordinate
+     * @param minY the minimum Y coordinate
+     * @param minZ the minimum Z coordinate
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param values an array of at least {@code sizeX * sizeY * sizeZ} entries to fill
+     * @see NoiseGenerators#noise(NoiseGenerator, int, int, int, int, int, int, float[])
+     */
+    public void noise(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, float[] values) {
+        int length = sizeX * sizeY * sizeZ;
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat();
+        }
+    }
+
 }
@@ -19,6 +19,14 @@
 
 package com.sk89q.worldedit.regions;
 
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Utility methods relating to {@link Region}s.
  */
@@ -89,4 +97,169 @@ public static FlatRegion asFlatRegion(Region region) {
         }
     }
 
+    /**
+     * Get the X/Z columns of the given region grouped by the chunk that
+     * they are in.
+     *
+     * <p>Each column is set in the bit set of its chunk at the index
+     * {@code z << 4 | x}, where {@code x} and {@code z} are the coordinates
+     * of the column within the chunk. Columns of regions that are not
+     * {@link FlatRegion}s are found by testing each column of the chunks
+     * that may intersect the region, from the middle of the region's
+     * height outwards, until a point of the region is found.</p>
+     *
+     * @param region the region
+     * @return a map of chunk coordinates to columns, in the order that the chunks were found
+     */
+    public static Map<BlockVector2D, BitSet> getColumnsByChunk(Region region) {
+        Map<BlockVector2D, BitSet> chunks = new LinkedHashMap<BlockVector2D, BitSet>();
+        if (region instanceof FlatRegion) {
+            for (Vector2D pt : ((FlatRegion) region).asFlatRegion()) {
+                addColumn(chunks, pt.getBlockX(), pt.getBlockZ());
+            }
+        } else {
+            Vector min = region.getMinimumPoint();
+            Vector max = region.getMaximumPoint();
+            int minX = min.getBlockX();
+            int minZ = min.getBlockZ();
+            int maxX = max.getBlockX();
+            int maxZ = max.getBlockZ();
+
+            for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+                for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                    if (!mayIntersectChunk(region, chunkX, chunkZ)) {
+                        continue;
+                    }
+
+                    for (int x = Math.max(minX, chunkX << 4); x <= Math.min(maxX, (chunkX << 4) + 15); x++) {
+                        for (int z = Math.max(minZ, chunkZ << 4); z <= Math.min(maxZ, (chunkZ << 4) + 15); z++) {
+                            if (containsColumn(region, x, z, min.getBlockY(), max.getBlockY())) {
+                                addColumn(chunks, x, z);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Return whether any point of the given column is in the region.
+     *
+     * <p>Points are tested from the middle of the Y range outwards, where
+     * a point of most regions is found first.</p>
+     */
+    private static boolean containsColumn(Region region, int x, int z, int minY, int maxY) {
+        int middle = (minY + maxY) >> 1;
+        for (int offset = 0; middle - offset >= minY || middle + offset <= maxY; offset++) {
+            if (middle - offset >= minY && region.contains(new Vector(x, middle - offset, z))) {
+                return true;
+            }
+            if (offset > 0 && middle + offset <= maxY && region.contains(new Vector(x, middle + offset, z))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addColumn(Map<BlockVector2D, BitSet> chunks, int x, int z) {
+        BlockVector2D chunk = new BlockVector2D(x >> 4, z >> 4);
+        BitSet columns = chunks.get(chunk);
+        if (columns == null) {
+            columns = new BitSet(256);
+            chunks.put(chunk, columns);
+        }
+        columns.set((z & 15) << 4 | (x & 15));
+    }
+
+    /**
+     * Return whether the given chunk column may contain points of
+     * the given region.
+     *
+     * <p>The test is conservative: it may return true for a chunk that
+     * does not intersect the region, but it never returns false for one
+     * that does. Cylinders and ellipsoids are tested exactly in the X/Z
+     * plane and other regions are tested against their bounding box.</p>
+     *
+     * @param region the region
+     * @param chunkX the chunk X coordinate
+     * @param chunkZ the chunk Z coordinate
+     * @return true if the chunk may intersect the region
+     */
+    public static boolean mayIntersectChunk(Region region, int chunkX, int chunkZ) {
+        double minX = chunkX << 4;
+        double minZ = chunkZ << 4;
+        double maxX = minX + 16;
+        double maxZ = minZ + 16;
+
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        if (maxX <= min.getX() || minX > max.getX() + 1 || maxZ <= min.getZ() || minZ > max.getZ() + 1) {
+            return false;
+        }
+
+        if (region instanceof CylinderRegion) {
+            Vector center = region.getCenter();
+            Vector2D radius = ((CylinderRegion) region).getRadius().add(0.5, 0.5);
+            return isEllipseNearRectangle(center.getX(), center.getZ(), radius.getX(), radius.getZ(), minX, minZ, maxX, maxZ);
+        } else if (region instanceof EllipsoidRegion) {
+            Vector center = region.getCenter();
+            Vector radius = ((EllipsoidRegion) region).getRadius().add(0.5, 0.5, 0.5);
+            return isEllipseNearRectangle(center.getX(), center.getZ(), radius.getX(), radius.getZ(), minX, minZ, maxX, maxZ);
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Return whether the given box of blocks may contain points of the
+     * given region.
+     *
+     * <p>The test is conservative in the same way as
+     * {@link #mayIntersectChunk(Region, int, int)}. Ellipsoids are tested
+     * exactly, cylinders are tested exactly in the X/Z plane and other
+     * regions are tested against their bounding box.</p>
+     *
+     * @param region the region
+     * @param minX the minimum X coordinate of the box
+     * @param minY the minimum Y coordinate of the box
+     * @param minZ the minimum Z coordinate of the box
+     * @param maxX the maximum X coordinate of the box
+     * @param maxY the maximum Y coordinate of the box
+     * @param maxZ the maximum Z coordinate of the box
+     * @return true if the box may intersect the region
+     */
+    public static boolean mayIntersectBox(Region region, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        Vector min = region.getMinimumPoint();
+        Vector max = region.getMaximumPoint();
+        if (maxX < min.getBlockX() || minX > max.getBlockX()
+                || maxY < min.getBlockY() || minY > max.getBlockY()
+                || maxZ < min.getBlockZ() || minZ > max.getBlockZ()) {
+            return false;
+        }
+
+        if (region instanceof CylinderRegion) {
+            Vector center = region.getCenter();
+            Vector2D radius = ((CylinderRegion) region).getRadius().add(0.5, 0.5);
+            return isEllipseNearRectangle(center.getX(), center.getZ(), radius.getX(), radius.getZ(), minX, minZ, maxX, maxZ);
+        } else if (region instanceof EllipsoidRegion) {
+            Vector center = region.getCenter();
+            Vector radius = ((EllipsoidRegion) region).getRadius().add(0.5, 0.5, 0.5);
+            double dx = (Math.max(minX, Math.min(center.getX(), maxX)) - center.getX()) / radius.getX();
+            double dy = (Math.max(minY, Math.min(center.getY(), maxY)) - center.getY()) / radius.getY();
+            double dz = (Math.max(minZ, Math.min(center.getZ(), maxZ)) - center.getZ()) / radius.getZ();
+            return dx * dx + dy * dy + dz * dz <= 1;
+        } else {
+            return true;
+        }
+    }
+
+    private static boolean isEllipseNearRectangle(double centerX, double centerZ, double radiusX, double radiusZ,
+                                                  double minX, double minZ, double maxX, double maxZ) {
+        double dx = (Math.max(minX, Math.min(centerX, maxX)) - centerX) / radiusX;
+        double dz = (Math.max(minZ, Math.min(centerZ, maxZ)) - centerZ) / radiusZ;
+        return dx * dx + dz * dz <= 1;
+    }
+
 }
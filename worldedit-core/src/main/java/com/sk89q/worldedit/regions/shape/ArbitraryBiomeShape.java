@@ -137,7 +137,7 @@ public int generate(EditSession editSession, BaseBiome baseBiome, boolean hollow
             if (!hollow) {
                 final BaseBiome material = getBiome(x, z, baseBiome);
                 if (material != OUTSIDE) {
-                    editSession.getWorld().setBiome(position, material);
+                    editSession.setBiome(position, material);
                     ++affected;
                 }
 
@@ -173,7 +173,7 @@ public int generate(EditSession editSession, BaseBiome baseBiome, boolean hollow
                 continue;
             }
 
-            editSession.getWorld().setBiome(position, material);
+            editSession.setBiome(position, material);
             ++affected;
         }
 
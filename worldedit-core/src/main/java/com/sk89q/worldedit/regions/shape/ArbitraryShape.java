@@ -22,10 +22,14 @@
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
-import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.math.BlockPosition;
 import com.sk89q.worldedit.patterns.Pattern;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Generates solid and hollow shapes according to materials returned by the
@@ -34,29 +38,9 @@
 public abstract class ArbitraryShape {
 
     protected final Region extent;
-    private int cacheOffsetX;
-    private int cacheOffsetY;
-    private int cacheOffsetZ;
-    @SuppressWarnings("FieldCanBeLocal")
-    private int cacheSizeX;
-    private int cacheSizeY;
-    private int cacheSizeZ;
 
     public ArbitraryShape(Region extent) {
         this.extent = extent;
-
-        Vector min = extent.getMinimumPoint();
-        Vector max = extent.getMaximumPoint();
-
-        cacheOffsetX = min.getBlockX() - 1;
-        cacheOffsetY = min.getBlockY() - 1;
-        cacheOffsetZ = min.getBlockZ() - 1;
-
-        cacheSizeX = (int) (max.getX() - cacheOffsetX + 2);
-        cacheSizeY = (int) (max.getY() - cacheOffsetY + 2);
-        cacheSizeZ = (int) (max.getZ() - cacheOffsetZ + 2);
-
-        cache = new short[cacheSizeX * cacheSizeY * cacheSizeZ];
     }
 
     protected Region getExtent() {
@@ -65,13 +49,42 @@ protected Region getExtent() {
 
 
     /**
-     * Cache entries:
+     * Cache entries, with one array for each 16x16x16 section that has been
+     * queried, allocated when first needed:
      * 0 = unknown
      * -1 = outside
      * -2 = inside but type and data 0
      * > 0 = inside, value = (type | (data << 8)), not handling data < 0
      */
-    private final short[] cache;
+    private final LongIntHashMap cacheSectionIndices = new LongIntHashMap();
+    private final List<short[]> cacheSections = new ArrayList<short[]>();
+    private long lastCacheSectionKey;
+    private short[] lastCacheSection;
+
+    private short[] getCacheSection(int x, int y, int z) {
+        long key = BlockPosition.pack(x >> 4, y >> 4, z >> 4);
+        if (lastCacheSection != null && key == lastCacheSectionKey) {
+            return lastCacheSection;
+        }
+
+        int index = cacheSectionIndices.get(key, -1);
+        short[] section;
+        if (index == -1) {
+            section = new short[4096];
+            cacheSectionIndices.put(key, cacheSections.size());
+            cacheSections.add(section);
+        } else {
+            section = cacheSections.get(index);
+        }
+
+        lastCacheSectionKey = key;
+        lastCacheSection = section;
+        return section;
+    }
+
+    private static int cacheIndex(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
 
     /**
      * Override this function to specify the shape to generate.
@@ -85,7 +98,8 @@ protected Region getExtent() {
     protected abstract BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial);
 
     private BaseBlock getMaterialCached(int x, int y, int z, Pattern pattern) {
-        final int index = (y - cacheOffsetY) + (z - cacheOffsetZ) * cacheSizeY + (x - cacheOffsetX) * cacheSizeY * cacheSizeZ;
+        final short[] cache = getCacheSection(x, y, z);
+        final int index = cacheIndex(x, y, z);
 
         final short cacheEntry = cache[index];
         switch (cacheEntry) {
@@ -120,9 +134,7 @@ private BaseBlock getMaterialCached(int x, int y, int z, Pattern pattern) {
     }
 
     private boolean isInsideCached(int x, int y, int z, Pattern pattern) {
-        final int index = (y - cacheOffsetY) + (z - cacheOffsetZ) * cacheSizeY + (x - cacheOffsetX) * cacheSizeY * cacheSizeZ;
-
-        switch (cache[index]) {
+        switch (getCacheSection(x, y, z)[cacheIndex(x, y, z)]) {
         case 0:
             // unknown block, meaning they must be outside the extent at this stage, but might still be inside the shape
             return getMaterialCached(x, y, z, pattern) != null;
@@ -22,19 +22,115 @@
 import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.internal.expression.runtime.ExpressionEnvironment;
+import com.sk89q.worldedit.math.BlockPosition;
+import com.sk89q.worldedit.util.collection.LongIntHashMap;
+import com.sk89q.worldedit.world.chunk.ChunkSnapshotExtent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Gives expressions access to the blocks of an extent, which is usually
+ * the world of an edit session.
+ *
+ * <p>Blocks are read into a cache of chunk sections, with the type and data
+ * of a block fetched together, so that expressions that query many nearby
+ * blocks don't read the same block from the world more than once. By
+ * default the cache is invalidated for every block that is evaluated (see
+ * {@link #setCurrentBlock(Vector)}), so changes made between evaluations
+ * are seen. Every cached block is stamped with the generation it was read
+ * in, so invalidating the cache only takes a new generation rather than
+ * clearing the cached sections, and only a limited number of sections are
+ * kept. If the environment is frozen, the cache is never invalidated and
+ * every block keeps the value it had the first time it was read.</p>
+ *
+ * <p>Blocks above or below the extent, or too far away for their section
+ * to be packed into a cache key, are read from the extent every time.</p>
+ */
 public class WorldEditExpressionEnvironment implements ExpressionEnvironment {
 
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+    private static final int MAX_SECTIONS = 64;
+
     private final Vector unit;
     private final Vector zero2;
+    private final double unitX, unitY, unitZ;
+    private final double zeroX, zeroY, zeroZ;
     private Vector current = new Vector();
-    private EditSession editSession;
+    private final Extent extent;
+    private final int minY;
+    private final int maxY;
+    private boolean frozen;
+
+    private final LongIntHashMap sectionIndices = new LongIntHashMap();
+    private final List<int[]> sections = new ArrayList<int[]>();
+    private final List<int[]> sectionStamps = new ArrayList<int[]>();
+    private int sectionCount;
+    private int generation = 1;
+    private long lastSectionKey;
+    private int[] lastSection;
+    private int[] lastStamps;
 
     public WorldEditExpressionEnvironment(EditSession editSession, Vector unit, Vector zero) {
-        this.editSession = editSession;
+        this(editSession.getWorld(), unit, zero);
+    }
+
+    /**
+     * Create a new environment that reads blocks from the given extent.
+     *
+     * <p>If the extent can be read from any thread, such as a
+     * {@link ChunkSnapshotExtent}, expressions using this environment can
+     * be evaluated off the server thread.</p>
+     *
+     * @param extent the extent to read blocks from
+     * @param unit the scale of the expression's coordinates
+     * @param zero the origin of the expression's coordinates
+     */
+    public WorldEditExpressionEnvironment(Extent extent, Vector unit, Vector zero) {
+        checkNotNull(extent);
+        this.extent = extent;
+        this.minY = extent.getMinimumPoint().getBlockY();
+        this.maxY = extent.getMaximumPoint().getBlockY();
         this.unit = unit;
         this.zero2 = zero.add(0.5, 0.5, 0.5);
+        this.unitX = unit.getX();
+        this.unitY = unit.getY();
+        this.unitZ = unit.getZ();
+        this.zeroX = zero2.getX();
+        this.zeroY = zero2.getY();
+        this.zeroZ = zero2.getZ();
+    }
+
+    /**
+     * Set whether blocks keep the value they had when they were first read,
+     * rather than being read again for every evaluated block.
+     *
+     * <p>An environment should be frozen when all queries happen before
+     * the edit session changes any block, as the whole world read by the
+     * expression is then only read once.</p>
+     *
+     * @param frozen true to freeze the environment
+     */
+    public void setFrozen(boolean frozen) {
+        this.frozen = frozen;
+        if (!frozen) {
+            clearCache();
+        }
+    }
+
+    /**
+     * Get whether blocks keep the value they had when they were first read.
+     *
+     * @return true if the environment is frozen
+     */
+    public boolean isFrozen() {
+        return frozen;
     }
 
     public BlockVector toWorld(double x, double y, double z) {
@@ -48,36 +144,126 @@ public Vector toWorldRel(double x, double y, double z) {
 
     @Override
     public int getBlockType(double x, double y, double z) {
-        return editSession.getBlockType(toWorld(x, y, z));
+        return getType(getScaled(x, y, z));
     }
 
     @Override
     public int getBlockData(double x, double y, double z) {
-        return editSession.getBlockData(toWorld(x, y, z));
+        return getData(getScaled(x, y, z));
     }
 
     @Override
     public int getBlockTypeAbs(double x, double y, double z) {
-        return editSession.getBlockType(new Vector(x, y, z));
+        return getType(getRounded(x, y, z));
     }
 
     @Override
     public int getBlockDataAbs(double x, double y, double z) {
-        return editSession.getBlockData(new Vector(x, y, z));
+        return getData(getRounded(x, y, z));
     }
 
     @Override
     public int getBlockTypeRel(double x, double y, double z) {
-        return editSession.getBlockType(toWorldRel(x, y, z));
+        return getType(getRounded(current.getX() + x, current.getY() + y, current.getZ() + z));
     }
 
     @Override
     public int getBlockDataRel(double x, double y, double z) {
-        return editSession.getBlockData(toWorldRel(x, y, z));
+        return getData(getRounded(current.getX() + x, current.getY() + y, current.getZ() + z));
     }
 
     public void setCurrentBlock(Vector current) {
         this.current = current;
+        if (!frozen) {
+            clearCache();
+        }
+    }
+
+    private static int getType(int material) {
+        return material >>> 16;
+    }
+
+    private static int getData(int material) {
+        return material & 0xFFFF;
+    }
+
+    /**
+     * Get the block at scaled coordinates, as {@link #toWorld(double, double, double)} does.
+     */
+    private int getScaled(double x, double y, double z) {
+        return getMaterial(
+                (int) Math.floor(x * unitX + zeroX),
+                (int) Math.floor(y * unitY + zeroY),
+                (int) Math.floor(z * unitZ + zeroZ));
+    }
+
+    /**
+     * Get the block at world coordinates, rounded as {@link Vector#getBlockX()} does.
+     */
+    private int getRounded(double x, double y, double z) {
+        return getMaterial((int) Math.round(x), (int) Math.round(y), (int) Math.round(z));
+    }
+
+    /**
+     * Get the type and data of a block, packed as {@code type << 16 | data}.
+     */
+    private int getMaterial(int x, int y, int z) {
+        if (y < minY || y > maxY || !BlockPosition.isPackable(x >> 4, y >> 4, z >> 4)) {
+            // Sections outside of this range would wrap around onto other sections
+            return toMaterial(extent.getLazyBlock(new Vector(x, y, z)));
+        }
+
+        int[] section = getSection(BlockPosition.pack(x >> 4, y >> 4, z >> 4));
+        int[] stamps = lastStamps;
+        int index = (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+        if (stamps[index] != generation) {
+            section[index] = toMaterial(extent.getLazyBlock(new Vector(x, y, z)));
+            stamps[index] = generation;
+        }
+        return section[index];
+    }
+
+    private static int toMaterial(BaseBlock block) {
+        return block.getType() << 16 | (block.getData() & 0xFFFF);
+    }
+
+    private int[] getSection(long key) {
+        if (lastSection != null && lastSectionKey == key) {
+            return lastSection;
+        }
+
+        int index = sectionIndices.get(key, -1);
+        if (index == -1) {
+            if (sectionCount == MAX_SECTIONS && !frozen) {
+                // Start over, as the blocks of the reused sections are out of date
+                clearCache();
+                sectionIndices.clear();
+                sectionCount = 0;
+            }
+
+            index = sectionCount++;
+            sectionIndices.put(key, index);
+            // Arrays of forgotten sections are reused
+            if (index == sections.size()) {
+                sections.add(new int[SECTION_VOLUME]);
+                sectionStamps.add(new int[SECTION_VOLUME]);
+            }
+        }
+
+        lastSectionKey = key;
+        lastSection = sections.get(index);
+        lastStamps = sectionStamps.get(index);
+        return lastSection;
+    }
+
+    private void clearCache() {
+        if (++generation == 0) {
+            // Stamps from before the generation wrapped around could match again
+            for (int[] stamps : sectionStamps) {
+                Arrays.fill(stamps, 0);
+            }
+            generation = 1;
+        }
     }
 
 }
@@ -33,6 +33,9 @@
 import java.util.List;
 import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * The context given to scripts.
  */
@@ -64,6 +67,128 @@ public EditSession remember() {
         return editSession;
     }
 
+    /**
+     * Create an array that can hold the blocks of a box, for use with
+     * {@link #getBlocks(EditSession, Vector, int, int, int)} and
+     * {@link #setBlocks(EditSession, Vector, int, int, int, int[])}.
+     *
+     * <p>Scripts should use these arrays rather than setting blocks one
+     * at a time, as every call from a script into Java is costly.</p>
+     *
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @return a new array of air
+     */
+    public int[] newBlockArray(int sizeX, int sizeY, int sizeZ) {
+        checkArgument(sizeX >= 0 && sizeY >= 0 && sizeZ >= 0, "sizes must be >= 0");
+        return new int[sizeX * sizeY * sizeZ];
+    }
+
+    /**
+     * Read the blocks in a box.
+     *
+     * <p>The block at {@code (x, y, z)} relative to {@code min} is stored
+     * at index {@code (y * sizeZ + z) * sizeX + x} as
+     * {@code (type << 4) | data}. Positions outside of the height of the
+     * world read as air.</p>
+     *
+     * @param editSession the edit session to read from
+     * @param min the minimum corner of the box
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @return the blocks
+     */
+    public int[] getBlocks(EditSession editSession, Vector min, int sizeX, int sizeY, int sizeZ) {
+        checkNotNull(editSession);
+        checkNotNull(min);
+        int[] blocks = newBlockArray(sizeX, sizeY, sizeZ);
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+        int maxY = editSession.getWorld().getMaxY();
+
+        int i = 0;
+        for (int y = minY; y < minY + sizeY; y++) {
+            if (y < 0 || y > maxY) {
+                i += sizeX * sizeZ;
+                continue;
+            }
+            for (int z = minZ; z < minZ + sizeZ; z++) {
+                for (int x = minX; x < minX + sizeX; x++) {
+                    BaseBlock block = editSession.getLazyBlock(new Vector(x, y, z));
+                    blocks[i++] = block.getType() << 4 | block.getData() & 0xF;
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Read the blocks of a 16x16x16 chunk section.
+     *
+     * @param editSession the edit session to read from
+     * @param chunkX the X coordinate of the chunk
+     * @param sectionY the index of the section, from 0 at the bottom
+     * @param chunkZ the Z coordinate of the chunk
+     * @return the blocks, laid out as in {@link #getBlocks(EditSession, Vector, int, int, int)}
+     */
+    public int[] getChunkSection(EditSession editSession, int chunkX, int sectionY, int chunkZ) {
+        return getBlocks(editSession, new Vector(chunkX << 4, sectionY << 4, chunkZ << 4), 16, 16, 16);
+    }
+
+    /**
+     * Set the blocks in a box.
+     *
+     * <p>The array is laid out as in
+     * {@link #getBlocks(EditSession, Vector, int, int, int)}. Entries that
+     * are -1 leave the existing block in place.</p>
+     *
+     * @param editSession the edit session to change
+     * @param min the minimum corner of the box
+     * @param sizeX the number of blocks along the X axis
+     * @param sizeY the number of blocks along the Y axis
+     * @param sizeZ the number of blocks along the Z axis
+     * @param blocks the blocks
+     * @return the number of blocks changed
+     * @throws MaxChangedBlocksException thrown if too many blocks are changed
+     */
+    public int setBlocks(EditSession editSession, Vector min, int sizeX, int sizeY, int sizeZ, int[] blocks) throws MaxChangedBlocksException {
+        checkNotNull(editSession);
+        checkNotNull(min);
+        checkNotNull(blocks);
+        checkArgument(blocks.length >= sizeX * sizeY * sizeZ, "blocks is too small for the given size");
+        int minX = min.getBlockX();
+        int minY = min.getBlockY();
+        int minZ = min.getBlockZ();
+
+        int affected = 0;
+        int lastValue = -1;
+        BaseBlock block = null;
+        int i = 0;
+        for (int y = minY; y < minY + sizeY; y++) {
+            for (int z = minZ; z < minZ + sizeZ; z++) {
+                for (int x = minX; x < minX + sizeX; x++) {
+                    int value = blocks[i++];
+                    if (value < 0) {
+                        continue;
+                    }
+                    if (value != lastValue) {
+                        block = new BaseBlock(value >> 4, value & 0xF);
+                        lastValue = value;
+                    }
+                    if (editSession.setBlock(new Vector(x, y, z), block)) {
+                        affected++;
+                    }
+                }
+            }
+        }
+
+        return affected;
+    }
+
     /**
      * Get the player.
      * 
@@ -27,14 +27,24 @@
 public class RhinoContextFactory extends ContextFactory {
 
     protected int timeLimit;
+    protected int optimizationLevel;
 
     public RhinoContextFactory(int timeLimit) {
+        this(timeLimit, 0);
+    }
+
+    public RhinoContextFactory(int timeLimit, int optimizationLevel) {
+        Context.checkOptimizationLevel(optimizationLevel);
         this.timeLimit = timeLimit;
+        this.optimizationLevel = optimizationLevel;
     }
 
     @Override
     protected Context makeContext() {
         RhinoContext cx = new RhinoContext(this);
+        cx.setOptimizationLevel(optimizationLevel);
+        // Compiled scripts only report instructions if asked to
+        cx.setGenerateObserverCount(true);
         cx.setInstructionObserverThreshold(10000);
         return cx;
     }
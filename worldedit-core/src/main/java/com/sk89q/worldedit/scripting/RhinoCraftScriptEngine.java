@@ -19,12 +19,14 @@
 
 package com.sk89q.worldedit.scripting;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.script.ScriptException;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
 import org.mozilla.javascript.JavaScriptException;
 import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.WrappedException;
@@ -32,7 +34,18 @@
 import com.sk89q.worldedit.WorldEditException;
 
 public class RhinoCraftScriptEngine implements CraftScriptEngine {
+
+    private static final int MAX_CACHED_SCRIPTS = 32;
+    private static final Map<String, CachedScript> cache =
+            new LinkedHashMap<String, CachedScript>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedScript> eldest) {
+                    return size() > MAX_CACHED_SCRIPTS;
+                }
+            };
+
     private int timeLimit;
+    private int optimizationLevel = 0;
 
     @Override
     public void setTimeLimit(int milliseconds) {
@@ -44,20 +57,57 @@ public int getTimeLimit() {
         return timeLimit;
     }
 
+    /**
+     * Set the Rhino optimization level, where -1 means that scripts are
+     * interpreted and 0 to 9 means that they are compiled to bytecode.
+     *
+     * @param optimizationLevel the optimization level
+     */
+    public void setOptimizationLevel(int optimizationLevel) {
+        Context.checkOptimizationLevel(optimizationLevel);
+        this.optimizationLevel = optimizationLevel;
+    }
+
+    /**
+     * Get the Rhino optimization level.
+     *
+     * @return the optimization level
+     */
+    public int getOptimizationLevel() {
+        return optimizationLevel;
+    }
+
     @Override
     public Object evaluate(String script, String filename, Map<String, Object> args)
             throws ScriptException, Throwable {
-        RhinoContextFactory factory = new RhinoContextFactory(timeLimit);
+        return evaluate(script, filename, 0, args);
+    }
+
+    /**
+     * Evaluate a script, reusing the compiled form of the script if the same
+     * file has been evaluated before and has not been modified since.
+     *
+     * @param script the source of the script
+     * @param filename the path of the script
+     * @param lastModified the modification time of the file
+     * @param args variables to make available to the script
+     * @return the result of the script
+     */
+    public Object evaluate(String script, String filename, long lastModified, Map<String, Object> args)
+            throws ScriptException, Throwable {
+        RhinoContextFactory factory = new RhinoContextFactory(timeLimit, optimizationLevel);
         Context cx = factory.enterContext();
-        ScriptableObject scriptable = new ImporterTopLevel(cx);
-        Scriptable scope = cx.initStandardObjects(scriptable);
 
-        for (Map.Entry<String, Object> entry : args.entrySet()) {
-            ScriptableObject.putProperty(scope, entry.getKey(),
-                    Context.javaToJS(entry.getValue(), scope));
-        }
         try {
-            return cx.evaluateString(scope, script, filename, 1, null);
+            ScriptableObject scriptable = new ImporterTopLevel(cx);
+            Scriptable scope = cx.initStandardObjects(scriptable);
+
+            for (Map.Entry<String, Object> entry : args.entrySet()) {
+                ScriptableObject.putProperty(scope, entry.getKey(),
+                        Context.javaToJS(entry.getValue(), scope));
+            }
+
+            return getScript(cx, script, filename, lastModified).exec(cx, scope);
         } catch (Error e) {
             throw new ScriptException(e.getMessage());
         } catch (RhinoException e) {
@@ -87,4 +137,44 @@ public Object evaluate(String script, String filename, Map<String, Object> args)
         }
     }
 
+    /**
+     * Get the compiled form of a script, compiling it if it is not cached
+     * or if the file has changed.
+     *
+     * @param cx the context
+     * @param script the source of the script
+     * @param filename the path of the script
+     * @param lastModified the modification time of the file
+     * @return the compiled script
+     */
+    private Script getScript(Context cx, String script, String filename, long lastModified) {
+        String key = filename + "\0" + lastModified + "\0" + cx.getOptimizationLevel();
+
+        synchronized (cache) {
+            CachedScript cached = cache.get(key);
+            // The modification time may not change if a file is edited quickly
+            if (cached != null && cached.source.equals(script)) {
+                return cached.script;
+            }
+        }
+
+        Script compiled = cx.compileString(script, filename, 1, null);
+
+        synchronized (cache) {
+            cache.put(key, new CachedScript(script, compiled));
+        }
+
+        return compiled;
+    }
+
+    private static class CachedScript {
+        private final String source;
+        private final Script script;
+
+        private CachedScript(String source, Script script) {
+            this.source = source;
+            this.script = script;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.sk89q.worldedit.LocalConfiguration;
@@ -28,7 +29,7 @@
 import com.sk89q.worldedit.WorldEdit;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.event.platform.ConfigurationLoadEvent;
-import com.sk89q.worldedit.session.storage.JsonFileSessionStore;
+import com.sk89q.worldedit.session.storage.LogFileSessionStore;
 import com.sk89q.worldedit.session.storage.SessionStore;
 import com.sk89q.worldedit.session.storage.VoidStore;
 import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
@@ -44,6 +45,11 @@
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,18 +60,23 @@
  *
  * <p>Get a reference to one from {@link WorldEdit}.</p>
  *
- * <p>While this class is thread-safe, the returned session may not be.</p>
+ * <p>While this class is thread-safe, the returned session may not be.
+ * Looking up a session doesn't take a lock, and sessions that aren't
+ * loaded yet are loaded without blocking lookups of other sessions.</p>
  */
 public class SessionManager {
 
     public static int EXPIRATION_GRACE = 600000;
     private static final int FLUSH_PERIOD = 1000 * 30;
     private static final ListeningExecutorService executorService = MoreExecutors.listeningDecorator(EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, 5));
+    private static final ExecutorService loadExecutor = EvenMoreExecutors.newBoundedCachedThreadPool(0, 4, 100);
     private static final Logger log = Logger.getLogger(SessionManager.class.getCanonicalName());
     private final Timer timer = new Timer();
     private final WorldEdit worldEdit;
-    private final Map<UUID, SessionHolder> sessions = new HashMap<UUID, SessionHolder>();
-    private SessionStore store = new VoidStore();
+    private final ConcurrentMap<UUID, SessionHolder> sessions = new ConcurrentHashMap<UUID, SessionHolder>();
+    private final ConcurrentMap<String, SessionHolder> sessionsByName = new ConcurrentHashMap<String, SessionHolder>();
+    private final ConcurrentMap<UUID, ListenableFutureTask<LocalSession>> loads = new ConcurrentHashMap<UUID, ListenableFutureTask<LocalSession>>();
+    private volatile SessionStore store = new VoidStore();
 
     /**
      * Create a new session manager.
@@ -86,7 +97,7 @@ public SessionManager(WorldEdit worldEdit) {
      * @param owner the owner
      * @return true if a session exists
      */
-    public synchronized boolean contains(SessionOwner owner) {
+    public boolean contains(SessionOwner owner) {
         checkNotNull(owner);
         return sessions.containsKey(getKey(owner));
     }
@@ -98,16 +109,10 @@ public synchronized boolean contains(SessionOwner owner) {
      * @return the session, if found, otherwise {@code null}
      */
     @Nullable
-    public synchronized LocalSession findByName(String name) {
+    public LocalSession findByName(String name) {
         checkNotNull(name);
-        for (SessionHolder holder : sessions.values()) {
-            String test = holder.key.getName();
-            if (test != null && name.equals(test)) {
-                return holder.session;
-            }
-        }
-
-        return null;
+        SessionHolder holder = sessionsByName.get(name);
+        return holder != null ? holder.session : null;
     }
 
     /**
@@ -118,7 +123,7 @@ public synchronized LocalSession findByName(String name) {
      * @return the session for the owner, if it exists
      */
     @Nullable
-    public synchronized LocalSession getIfPresent(SessionOwner owner) {
+    public LocalSession getIfPresent(SessionOwner owner) {
         checkNotNull(owner);
         SessionHolder stored = sessions.get(getKey(owner));
         if (stored != null) {
@@ -134,30 +139,16 @@ public synchronized LocalSession getIfPresent(SessionOwner owner) {
      * @param owner the owner
      * @return a session
      */
-    public synchronized LocalSession get(SessionOwner owner) {
+    public LocalSession get(SessionOwner owner) {
         checkNotNull(owner);
 
         LocalSession session = getIfPresent(owner);
         LocalConfiguration config = worldEdit.getConfiguration();
-        SessionKey sessionKey = owner.getSessionKey();
 
-        // No session exists yet -- create one
+        // No session exists yet -- load one, or wait for it if another
+        // thread is already loading it
         if (session == null) {
-            try {
-                session = store.load(getKey(sessionKey));
-                session.postLoad();
-            } catch (IOException e) {
-                log.log(Level.WARNING, "Failed to load saved session", e);
-                session = new LocalSession();
-            }
-
-            session.setConfiguration(config);
-            session.setBlockChangeLimit(config.defaultChangeLimit);
-
-            // Remember the session if the session is still active
-            if (sessionKey.isActive()) {
-                sessions.put(getKey(owner), new SessionHolder(sessionKey, session));
-            }
+            session = Futures.getUnchecked(load(owner.getSessionKey()));
         }
 
         // Set the limit on the number of blocks that an operation can
@@ -191,6 +182,108 @@ public synchronized LocalSession get(SessionOwner owner) {
         return session;
     }
 
+    /**
+     * Start loading the session for an owner in the background if it
+     * isn't loaded, such as when a player joins, so that a later call to
+     * {@link #get(SessionOwner)} doesn't have to wait for the session
+     * to be read.
+     *
+     * @param owner the owner
+     * @return a future that completes when the session has been loaded
+     */
+    public ListenableFuture<LocalSession> preload(SessionOwner owner) {
+        checkNotNull(owner);
+
+        LocalSession session = getIfPresent(owner);
+        if (session != null) {
+            return Futures.immediateFuture(session);
+        }
+
+        return load(owner.getSessionKey(), loadExecutor);
+    }
+
+    /**
+     * Get the future for the load of a session, starting the load on the
+     * calling thread unless the session is already being loaded.
+     *
+     * @param sessionKey the session key
+     * @return a future
+     */
+    private ListenableFuture<LocalSession> load(SessionKey sessionKey) {
+        return load(sessionKey, null);
+    }
+
+    /**
+     * Get the future for the load of a session, starting the load unless
+     * the session is already being loaded.
+     *
+     * @param sessionKey the session key
+     * @param executor the executor to load on, or null to use the calling thread
+     * @return a future
+     */
+    private ListenableFuture<LocalSession> load(final SessionKey sessionKey, @Nullable Executor executor) {
+        final UUID key = getKey(sessionKey);
+
+        final ListenableFutureTask<LocalSession> task = ListenableFutureTask.create(new Callable<LocalSession>() {
+            @Override
+            public LocalSession call() {
+                LocalConfiguration config = worldEdit.getConfiguration();
+                LocalSession session;
+
+                try {
+                    session = store.load(key);
+                    session.postLoad();
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to load saved session", e);
+                    session = new LocalSession();
+                }
+
+                session.setConfiguration(config);
+                session.setBlockChangeLimit(config.defaultChangeLimit);
+
+                // Remember the session if the session is still active
+                if (sessionKey.isActive()) {
+                    SessionHolder holder = new SessionHolder(sessionKey, session);
+                    SessionHolder existing = sessions.putIfAbsent(key, holder);
+                    if (existing != null) {
+                        return existing.session;
+                    }
+                    String name = sessionKey.getName();
+                    if (name != null) {
+                        sessionsByName.put(name, holder);
+                    }
+                }
+
+                return session;
+            }
+        });
+
+        ListenableFutureTask<LocalSession> existing = loads.putIfAbsent(key, task);
+        if (existing != null) {
+            return existing;
+        }
+
+        // The session is remembered before the load is forgotten, so no
+        // other thread can miss both
+        task.addListener(new Runnable() {
+            @Override
+            public void run() {
+                loads.remove(key, task);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        if (executor != null) {
+            try {
+                executor.execute(task);
+                return task;
+            } catch (RejectedExecutionException ignored) {
+            }
+        }
+
+        task.run();
+        return task;
+    }
+
     /**
      * Save a map of sessions to disk.
      *
@@ -262,23 +355,50 @@ protected UUID getKey(SessionKey key) {
      *
      * @param owner the owner
      */
-    public synchronized void remove(SessionOwner owner) {
+    public void remove(SessionOwner owner) {
         checkNotNull(owner);
-        sessions.remove(getKey(owner));
+        SessionHolder holder = sessions.remove(getKey(owner));
+        if (holder != null) {
+            forgetName(holder);
+        }
     }
 
     /**
      * Remove all sessions.
      */
-    public synchronized void clear() {
+    public void clear() {
         sessions.clear();
+        sessionsByName.clear();
+    }
+
+    /**
+     * Remove a session from the name index.
+     *
+     * @param holder the session holder
+     */
+    private void forgetName(SessionHolder holder) {
+        String name = holder.key.getName();
+        if (name != null) {
+            sessionsByName.remove(name, holder);
+        }
     }
 
     @Subscribe
     public void onConfigurationLoad(ConfigurationLoadEvent event) {
         LocalConfiguration config = event.getConfiguration();
         File dir = new File(config.getWorkingDirectory(), "sessions");
-        store = new JsonFileSessionStore(dir);
+        SessionStore previous = store;
+        if (previous instanceof LogFileSessionStore) {
+            LogFileSessionStore previousLog = (LogFileSessionStore) previous;
+            // Two stores must never write to the same log
+            if (previousLog.getDirectory().getAbsoluteFile().equals(dir.getAbsoluteFile())) {
+                return;
+            }
+            store = new LogFileSessionStore(dir);
+            previousLog.close();
+        } else {
+            store = new LogFileSessionStore(dir);
+        }
     }
 
     /**
@@ -302,33 +422,32 @@ private SessionHolder(SessionKey key, LocalSession session) {
     private class SessionTracker extends TimerTask {
         @Override
         public void run() {
-            synchronized (SessionManager.this) {
-                long now = System.currentTimeMillis();
-                Iterator<SessionHolder> it = sessions.values().iterator();
-                Map<SessionKey, LocalSession> saveQueue = new HashMap<SessionKey, LocalSession>();
+            Map<SessionKey, LocalSession> saveQueue = new HashMap<SessionKey, LocalSession>();
+            long now = System.currentTimeMillis();
+            Iterator<SessionHolder> it = sessions.values().iterator();
 
-                while (it.hasNext()) {
-                    SessionHolder stored = it.next();
-                    if (stored.key.isActive()) {
-                        stored.lastActive = now;
+            while (it.hasNext()) {
+                SessionHolder stored = it.next();
+                if (stored.key.isActive()) {
+                    stored.lastActive = now;
 
+                    if (stored.session.compareAndResetDirty()) {
+                        saveQueue.put(stored.key, stored.session);
+                    }
+                } else {
+                    if (now - stored.lastActive > EXPIRATION_GRACE) {
                         if (stored.session.compareAndResetDirty()) {
                             saveQueue.put(stored.key, stored.session);
                         }
-                    } else {
-                        if (now - stored.lastActive > EXPIRATION_GRACE) {
-                            if (stored.session.compareAndResetDirty()) {
-                                saveQueue.put(stored.key, stored.session);
-                            }
 
-                            it.remove();
-                        }
+                        it.remove();
+                        forgetName(stored);
                     }
                 }
+            }
 
-                if (!saveQueue.isEmpty()) {
-                    commit(saveQueue);
-                }
+            if (!saveQueue.isEmpty()) {
+                commit(saveQueue);
             }
         }
     }
@@ -0,0 +1,451 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.session.storage;
+
+import com.google.common.base.Charsets;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.util.concurrency.EvenMoreExecutors;
+import com.sk89q.worldedit.util.gson.GsonUtil;
+import com.sk89q.worldedit.util.io.Closer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Stores sessions as records appended to a single log file.
+ *
+ * <p>Saving a session only serializes it and queues the record. Queued
+ * records are written in batches on a background thread, and a session
+ * that is saved again before its record is written replaces the queued
+ * record. The log is compacted once most of it is taken up by records
+ * that have since been replaced.</p>
+ *
+ * <p>Each record holds the UUID of the session, the length of the
+ * serialized session and the serialized session itself, followed by a
+ * checksum. Records that were only partly written, such as because the
+ * server crashed, are discarded when the log is opened.</p>
+ *
+ * <p>Compaction writes the remaining records to a .tmp file that then
+ * replaces the log. If the server stops after the old log was removed but
+ * before the .tmp file took its place, the .tmp file is used as the log
+ * when it is next opened.</p>
+ *
+ * <p>Sessions that were saved by {@link JsonFileSessionStore} in the same
+ * directory are still loaded if there is no record for them.</p>
+ */
+public class LogFileSessionStore implements SessionStore {
+
+    private static final Logger log = Logger.getLogger(LogFileSessionStore.class.getCanonicalName());
+    private static final int MAGIC = 0x57455331;
+    private static final int HEADER_SIZE = 4;
+    private static final int RECORD_OVERHEAD = 8 + 8 + 4 + 4;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+
+    private final ExecutorService executor = EvenMoreExecutors.newBoundedCachedThreadPool(0, 1, 1);
+    private final Gson gson;
+    private final File dir;
+    private final File file;
+    private final File tempFile;
+    private final JsonFileSessionStore legacyStore;
+    private final Map<UUID, byte[]> pending = new LinkedHashMap<UUID, byte[]>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    private final Object fileLock = new Object();
+    private final Map<UUID, Record> index = new HashMap<UUID, Record>();
+    private long length = HEADER_SIZE;
+    private long liveLength = HEADER_SIZE;
+    private boolean opened = false;
+
+    /**
+     * Create a new session store.
+     *
+     * @param dir the directory
+     */
+    public LogFileSessionStore(File dir) {
+        checkNotNull(dir);
+
+        this.dir = dir;
+        legacyStore = new JsonFileSessionStore(dir);
+        file = new File(dir, "sessions.log");
+        tempFile = new File(dir, "sessions.log.tmp");
+        gson = GsonUtil.createBuilder().create();
+
+        synchronized (fileLock) {
+            try {
+                open();
+                opened = true;
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to read the session log at " + file.getPath(), e);
+            }
+        }
+    }
+
+    /**
+     * Get the directory that sessions are stored in.
+     *
+     * @return the directory
+     */
+    public File getDirectory() {
+        return dir;
+    }
+
+    @Override
+    public LocalSession load(UUID id) throws IOException {
+        checkNotNull(id);
+
+        byte[] payload;
+        synchronized (this) {
+            payload = pending.get(id);
+        }
+
+        // The record is removed from the queue only after it is written
+        if (payload == null) {
+            synchronized (fileLock) {
+                Record record = index.get(id);
+                if (record != null) {
+                    payload = read(record);
+                }
+            }
+        }
+
+        if (payload == null) {
+            return legacyStore.load(id);
+        }
+
+        try {
+            return gson.fromJson(new String(payload, Charsets.UTF_8), LocalSession.class);
+        } catch (JsonParseException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void save(UUID id, LocalSession session) throws IOException {
+        checkNotNull(id);
+        checkNotNull(session);
+
+        byte[] payload = gson.toJson(session).getBytes(Charsets.UTF_8);
+        boolean writeNow;
+
+        synchronized (this) {
+            pending.put(id, payload);
+            writeNow = closed;
+            if (!closed && !flushScheduled) {
+                flushScheduled = true;
+                executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (LogFileSessionStore.this) {
+                            flushScheduled = false;
+                        }
+                        flush();
+                    }
+                });
+            }
+        }
+
+        if (writeNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Stop writing in the background, waiting for a write that is in
+     * progress to finish, and write all queued records.
+     *
+     * <p>Sessions that are saved after the store is closed are written
+     * before {@link #save(UUID, LocalSession)} returns.</p>
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+    }
+
+    /**
+     * Write all queued records to the log, blocking until they have
+     * been written.
+     */
+    public void flush() {
+        Map<UUID, byte[]> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new LinkedHashMap<UUID, byte[]>(pending);
+        }
+
+        synchronized (fileLock) {
+            try {
+                append(batch);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to write " + batch.size() + " session(s) to " + file.getPath(), e);
+                return;
+            }
+
+            if (length > MIN_COMPACTION_SIZE && length > liveLength * 2) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to compact the session log at " + file.getPath(), e);
+                }
+            }
+        }
+
+        synchronized (this) {
+            for (Map.Entry<UUID, byte[]> entry : batch.entrySet()) {
+                // Keep records that were queued again while writing
+                if (pending.get(entry.getKey()) == entry.getValue()) {
+                    pending.remove(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the log and index its records, discarding any trailing record
+     * that is incomplete or corrupt.
+     *
+     * @throws IOException thrown on I/O error
+     */
+    private void open() throws IOException {
+        if (tempFile.exists()) {
+            if (file.exists()) {
+                // Compaction stopped before the log was replaced, so the log is intact
+                if (!tempFile.delete()) {
+                    log.log(Level.WARNING, "Failed to delete the unfinished compacted session log at " + tempFile.getPath());
+                }
+            } else if (tempFile.renameTo(file)) {
+                log.log(Level.INFO, "Finished replacing the session log with the compacted log at " + tempFile.getPath());
+            } else {
+                throw new IOException("Failed to rename the compacted session log at " + tempFile.getPath() + " to " + file.getPath());
+            }
+        }
+
+        if (!file.exists()) {
+            return;
+        }
+
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "rw"));
+            if (raf.length() == 0) {
+                return;
+            }
+
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+                closer.close();
+                File backup = new File(file.getParentFile(), file.getName() + ".bak");
+                if (!file.renameTo(backup)) {
+                    throw new IOException(file.getPath() + " is not a session log and could not be moved away");
+                }
+                log.log(Level.WARNING, file.getPath() + " is not a session log, so it has been moved to " + backup.getPath());
+                return;
+            }
+
+            long position = HEADER_SIZE;
+            long fileLength = raf.length();
+            CRC32 crc = new CRC32();
+
+            while (position < fileLength) {
+                try {
+                    long most = raf.readLong();
+                    long least = raf.readLong();
+                    int size = raf.readInt();
+                    if (size < 0 || size > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    byte[] payload = new byte[size];
+                    raf.readFully(payload);
+                    crc.reset();
+                    crc.update(payload);
+                    if (raf.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+
+                    put(new UUID(most, least), new Record(position, size));
+                    position += RECORD_OVERHEAD + size;
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+
+            if (position < fileLength) {
+                log.log(Level.WARNING, "Discarding " + (fileLength - position) + " byte(s) of incomplete session records in " + file.getPath());
+                raf.setLength(position);
+            }
+
+            length = position;
+        } finally {
+            closer.close();
+        }
+    }
+
+    private void append(Map<UUID, byte[]> batch) throws IOException {
+        if (!opened) {
+            // Don't overwrite a log that may only have been unreadable for now
+            throw new IOException("The session log could not be read when it was opened or could not be replaced when it was compacted");
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (length == HEADER_SIZE) {
+            // Start a new log in case the previous one was unreadable
+            out.writeInt(MAGIC);
+        }
+
+        long position = length == HEADER_SIZE ? 0 : length;
+        Map<UUID, Record> written = new HashMap<UUID, Record>();
+        for (Map.Entry<UUID, byte[]> entry : batch.entrySet()) {
+            written.put(entry.getKey(), new Record(position + out.size(), entry.getValue().length));
+            writeRecord(out, entry.getKey(), entry.getValue());
+        }
+
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "rw"));
+            raf.setLength(position);
+            raf.seek(position);
+            raf.write(buffer.toByteArray());
+        } finally {
+            closer.close();
+        }
+
+        length = position + out.size();
+        for (Map.Entry<UUID, Record> entry : written.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void compact() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) liveLength);
+        DataOutputStream out = new DataOutputStream(buffer);
+        Map<UUID, Record> compacted = new HashMap<UUID, Record>();
+
+        out.writeInt(MAGIC);
+        for (Map.Entry<UUID, Record> entry : index.entrySet()) {
+            byte[] payload = read(entry.getValue());
+            compacted.put(entry.getKey(), new Record(out.size(), payload.length));
+            writeRecord(out, entry.getKey(), payload);
+        }
+
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(tempFile, "rw"));
+            raf.setLength(0);
+            raf.write(buffer.toByteArray());
+            // The .tmp file may be all that is left of the log if the server stops
+            raf.getFD().sync();
+        } finally {
+            closer.close();
+        }
+
+        // Renaming over the log replaces it in one step where the platform allows it
+        if (!tempFile.renameTo(file)) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Failed to delete " + file.getPath() + " so the .tmp file can replace it");
+            }
+
+            if (!tempFile.renameTo(file)) {
+                // The index no longer matches a file, but open() will recover from the .tmp file
+                opened = false;
+                throw new IOException("Failed to rename the compacted session log to " + file.getPath());
+            }
+        }
+
+        index.clear();
+        index.putAll(compacted);
+        length = out.size();
+        liveLength = length;
+    }
+
+    private byte[] read(Record record) throws IOException {
+        Closer closer = Closer.create();
+        try {
+            RandomAccessFile raf = closer.register(new RandomAccessFile(file, "r"));
+            raf.seek(record.position + 8 + 8 + 4);
+            byte[] payload = new byte[record.size];
+            raf.readFully(payload);
+            return payload;
+        } finally {
+            closer.close();
+        }
+    }
+
+    private void put(UUID id, Record record) {
+        Record previous = index.put(id, record);
+        if (previous != null) {
+            liveLength -= RECORD_OVERHEAD + previous.size;
+        }
+        liveLength += RECORD_OVERHEAD + record.size;
+    }
+
+    private static void writeRecord(DataOutputStream out, UUID id, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * The location of a record in the log.
+     */
+    private static final class Record {
+        private final long position;
+        private final int size;
+
+        private Record(long position, int size) {
+            this.position = position;
+            this.size = size;
+        }
+    }
+
+}
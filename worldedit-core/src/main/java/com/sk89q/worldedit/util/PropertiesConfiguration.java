@@ -107,6 +107,7 @@ public void load() {
         navigationWandMaxDistance = getInt("nav-wand-distance", navigationWandMaxDistance);
         navigationUseGlass = getBool("nav-use-glass", navigationUseGlass);
         scriptTimeout = getInt("scripting-timeout", scriptTimeout);
+        scriptOptimizationLevel = Math.max(-1, Math.min(9, getInt("scripting-optimization-level", scriptOptimizationLevel)));
         saveDir = getString("schematic-save-dir", saveDir);
         scriptsDir = getString("craftscript-dir", scriptsDir);
         butcherDefaultRadius = getInt("butcher-default-radius", butcherDefaultRadius);
@@ -118,6 +119,7 @@ public void load() {
         String snapshotsDir = getString("snapshots-dir", "");
         if (!snapshotsDir.isEmpty()) {
             snapshotRepo = new SnapshotRepository(snapshotsDir);
+            snapshotRepo.setIndexFile(new File(getWorkingDirectory(), "snapshots.idx"));
         }
 
         OutputStream output = null;
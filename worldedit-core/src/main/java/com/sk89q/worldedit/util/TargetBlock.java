@@ -20,14 +20,19 @@
 package com.sk89q.worldedit.util;
 
 import com.sk89q.worldedit.*;
+import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
 import com.sk89q.worldedit.entity.Player;
 import com.sk89q.worldedit.internal.LocalWorldAdapter;
 
 /**
- * This class uses an inefficient method to figure out what block a player
- * is looking towards.
+ * This class figures out what block a player is looking towards.
+ *
+ * <p>The line of sight is followed with a voxel traversal (as described
+ * by Amanatides and Woo) that visits every block that the line passes
+ * through exactly once, in order. The trace ends early when the line
+ * leaves the world vertically or enters a chunk that is not loaded.</p>
  * 
  * <p>Originally written by toi. It was ported to WorldEdit and trimmed down by
  * sk89q. Thanks to Raphfrk for optimization of toi's original class.</p>
@@ -36,11 +41,15 @@ public class TargetBlock {
 
     private LocalWorld world;
     private int maxDistance;
-    private double checkDistance, curDistance;
-    private Vector targetPos = new Vector();
-    private Vector targetPosDouble = new Vector();
-    private Vector prevPos = new Vector();
-    private Vector offset = new Vector();
+    private double curDistance;
+    private boolean finished;
+
+    private int blockX, blockY, blockZ;
+    private int prevX, prevY, prevZ;
+    private int stepX, stepY, stepZ;
+    private double tMaxX, tMaxY, tMaxZ;
+    private double tDeltaX, tDeltaY, tDeltaZ;
+    private int chunkX, chunkZ;
 
     /**
      * Constructor requiring a player, uses default values
@@ -49,8 +58,7 @@ public class TargetBlock {
      */
     public TargetBlock(LocalPlayer player) {
         this.world = LocalWorldAdapter.adapt(player.getWorld());
-        this.setValues(player.getPosition(), player.getYaw(), player.getPitch(),
-                300, 1.65, 0.2);
+        this.setValues(player.getPosition(), player.getYaw(), player.getPitch(), 300, 1.65);
     }
 
     /**
@@ -58,7 +66,7 @@ public TargetBlock(LocalPlayer player) {
      *
      * @param player LocalPlayer to work with
      * @param maxDistance how far it checks for blocks
-     * @param checkDistance how often to check for blocks, the smaller the more precise
+     * @param checkDistance no longer used, as every block along the line of sight is checked
      */
     public TargetBlock(LocalPlayer player, int maxDistance, double checkDistance) {
         this((Player) player, maxDistance, checkDistance);
@@ -69,11 +77,11 @@ public TargetBlock(LocalPlayer player, int maxDistance, double checkDistance) {
      *
      * @param player LocalPlayer to work with
      * @param maxDistance how far it checks for blocks
-     * @param checkDistance how often to check for blocks, the smaller the more precise
+     * @param checkDistance no longer used, as every block along the line of sight is checked
      */
     public TargetBlock(Player player, int maxDistance, double checkDistance) {
         this.world = LocalWorldAdapter.adapt(player.getWorld());
-        this.setValues(player.getPosition(), player.getYaw(), player.getPitch(), maxDistance, 1.65, checkDistance);
+        this.setValues(player.getPosition(), player.getYaw(), player.getPitch(), maxDistance, 1.65);
     }
 
     /**
@@ -84,25 +92,42 @@ public TargetBlock(Player player, int maxDistance, double checkDistance) {
      * @param yRotation the Y rotation
      * @param maxDistance how far it checks for blocks
      * @param viewHeight where the view is positioned in y-axis
-     * @param checkDistance how often to check for blocks, the smaller the more precise
      */
-    private void setValues(Vector loc, double xRotation, double yRotation,
-            int maxDistance, double viewHeight, double checkDistance) {
+    private void setValues(Vector loc, double xRotation, double yRotation, int maxDistance, double viewHeight) {
         this.maxDistance = maxDistance;
-        this.checkDistance = checkDistance;
         this.curDistance = 0;
+        this.finished = false;
         xRotation = (xRotation + 90) % 360;
         yRotation = yRotation * -1;
 
-        double h = (checkDistance * Math.cos(Math.toRadians(yRotation)));
+        double h = Math.cos(Math.toRadians(yRotation));
+        double dirX = h * Math.cos(Math.toRadians(xRotation));
+        double dirY = Math.sin(Math.toRadians(yRotation));
+        double dirZ = h * Math.sin(Math.toRadians(xRotation));
+
+        double originX = loc.getX();
+        double originY = loc.getY() + viewHeight;
+        double originZ = loc.getZ();
+        blockX = prevX = (int) Math.floor(originX);
+        blockY = prevY = (int) Math.floor(originY);
+        blockZ = prevZ = (int) Math.floor(originZ);
+        chunkX = blockX >> 4;
+        chunkZ = blockZ >> 4;
 
-        offset = new Vector((h * Math.cos(Math.toRadians(xRotation))),
-                            (checkDistance * Math.sin(Math.toRadians(yRotation))),
-                            (h * Math.sin(Math.toRadians(xRotation))));
+        // Distance along the line to the first boundary on each axis, and between boundaries
+        stepX = dirX > 0 ? 1 : dirX < 0 ? -1 : 0;
+        stepY = dirY > 0 ? 1 : dirY < 0 ? -1 : 0;
+        stepZ = dirZ > 0 ? 1 : dirZ < 0 ? -1 : 0;
+        tDeltaX = stepX != 0 ? Math.abs(1 / dirX) : Double.POSITIVE_INFINITY;
+        tDeltaY = stepY != 0 ? Math.abs(1 / dirY) : Double.POSITIVE_INFINITY;
+        tDeltaZ = stepZ != 0 ? Math.abs(1 / dirZ) : Double.POSITIVE_INFINITY;
+        tMaxX = stepX != 0 ? boundaryDistance(originX, blockX, stepX) * tDeltaX : Double.POSITIVE_INFINITY;
+        tMaxY = stepY != 0 ? boundaryDistance(originY, blockY, stepY) * tDeltaY : Double.POSITIVE_INFINITY;
+        tMaxZ = stepZ != 0 ? boundaryDistance(originZ, blockZ, stepZ) * tDeltaZ : Double.POSITIVE_INFINITY;
+    }
 
-        targetPosDouble = loc.add(0, viewHeight, 0);
-        targetPos = targetPosDouble.toBlockPoint();
-        prevPos = targetPos;
+    private static double boundaryDistance(double origin, int block, int step) {
+        return step > 0 ? block + 1 - origin : origin - block;
     }
 
     /**
@@ -114,8 +139,8 @@ private void setValues(Vector loc, double xRotation, double yRotation,
     public BlockWorldVector getAnyTargetBlock() {
         boolean searchForLastBlock = true;
         BlockWorldVector lastBlock = null;
-        while (getNextBlock() != null) {
-            if (world.getBlockType(getCurrentBlock()) == BlockID.AIR) {
+        while (advance()) {
+            if (getCurrentBlockState().getType() == BlockID.AIR) {
                 if (searchForLastBlock) {
                     lastBlock = getCurrentBlock();
                     if (lastBlock.getBlockY() <= 0 || lastBlock.getBlockY() >= world.getMaxY()) {
@@ -137,7 +162,7 @@ public BlockWorldVector getAnyTargetBlock() {
      * @return Block
      */
     public BlockWorldVector getTargetBlock() {
-        while (getNextBlock() != null && world.getBlockType(getCurrentBlock()) == 0) ;
+        while (advance() && getCurrentBlockState().getType() == BlockID.AIR) ;
         return getCurrentBlock();
     }
 
@@ -148,7 +173,7 @@ public BlockWorldVector getTargetBlock() {
      * @return Block
      */
     public BlockWorldVector getSolidTargetBlock() {
-        while (getNextBlock() != null && BlockType.canPassThrough(world.getBlock(getCurrentBlock()))) ;
+        while (advance() && BlockType.canPassThrough(getCurrentBlockState())) ;
         return getCurrentBlock();
     }
 
@@ -158,24 +183,63 @@ public BlockWorldVector getSolidTargetBlock() {
      * @return next block position
      */
     public BlockWorldVector getNextBlock() {
-        prevPos = targetPos;
-        do {
-            curDistance += checkDistance;
-
-            targetPosDouble = offset.add(targetPosDouble.getX(),
-                                         targetPosDouble.getY(),
-                                         targetPosDouble.getZ());
-            targetPos = targetPosDouble.toBlockPoint();
-        } while (curDistance <= maxDistance
-                && targetPos.getBlockX() == prevPos.getBlockX()
-                && targetPos.getBlockY() == prevPos.getBlockY()
-                && targetPos.getBlockZ() == prevPos.getBlockZ());
+        return advance() ? new BlockWorldVector(world, blockX, blockY, blockZ) : null;
+    }
+
+    /**
+     * Move to the next block along the line of sight.
+     *
+     * @return false if the end of the line was reached
+     */
+    private boolean advance() {
+        if (finished) {
+            return false;
+        }
+
+        prevX = blockX;
+        prevY = blockY;
+        prevZ = blockZ;
+
+        if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+            blockX += stepX;
+            curDistance = tMaxX;
+            tMaxX += tDeltaX;
+        } else if (tMaxY < tMaxZ) {
+            blockY += stepY;
+            curDistance = tMaxY;
+            tMaxY += tDeltaY;
+        } else {
+            blockZ += stepZ;
+            curDistance = tMaxZ;
+            tMaxZ += tDeltaZ;
+        }
 
         if (curDistance > maxDistance) {
-            return null;
+            finished = true;
+        } else if ((blockY < 0 && stepY <= 0) || (blockY > world.getMaxY() && stepY >= 0)) {
+            // Nothing more can be hit once the line has left the world
+            finished = true;
+        } else if (blockX >> 4 != chunkX || blockZ >> 4 != chunkZ) {
+            chunkX = blockX >> 4;
+            chunkZ = blockZ >> 4;
+            if (!world.isChunkLoaded(new BlockVector2D(chunkX, chunkZ))) {
+                finished = true;
+            }
         }
 
-        return new BlockWorldVector(world, targetPos);
+        return !finished;
+    }
+
+    /**
+     * Get the block at the current position along the line of sight.
+     *
+     * @return the block
+     */
+    private BaseBlock getCurrentBlockState() {
+        if (blockY < 0 || blockY > world.getMaxY()) {
+            return new BaseBlock(BlockID.AIR);
+        }
+        return world.getLazyBlock(new Vector(blockX, blockY, blockZ));
     }
 
     /**
@@ -184,10 +248,10 @@ public BlockWorldVector getNextBlock() {
      * @return block position
      */
     public BlockWorldVector getCurrentBlock() {
-        if (curDistance > maxDistance) {
+        if (finished) {
             return null;
         } else {
-            return new BlockWorldVector(world, targetPos);
+            return new BlockWorldVector(world, blockX, blockY, blockZ);
         }
     }
 
@@ -197,7 +261,7 @@ public BlockWorldVector getCurrentBlock() {
      * @return block position
      */
     public BlockWorldVector getPreviousBlock() {
-        return new BlockWorldVector(world, prevPos);
+        return new BlockWorldVector(world, prevX, prevY, prevZ);
     }
 
     public WorldVectorFace getAnyTargetBlockFace() {
@@ -25,6 +25,7 @@
 import com.sk89q.worldedit.session.SessionManager;
 import com.sk89q.worldedit.world.snapshot.SnapshotRepository;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.logging.Level;
@@ -101,6 +102,7 @@ public void load() {
         navigationUseGlass = config.getBoolean("navigation.use-glass", navigationUseGlass);
 
         scriptTimeout = config.getInt("scripting.timeout", scriptTimeout);
+        scriptOptimizationLevel = Math.max(-1, Math.min(9, config.getInt("scripting.optimization-level", scriptOptimizationLevel)));
         scriptsDir = config.getString("scripting.dir", scriptsDir);
 
         saveDir = config.getString("saving.dir", saveDir);
@@ -114,6 +116,7 @@ public void load() {
         String snapshotsDir = config.getString("snapshots.directory", "");
         if (!snapshotsDir.isEmpty()) {
             snapshotRepo = new SnapshotRepository(snapshotsDir);
+            snapshotRepo.setIndexFile(new File(getWorkingDirectory(), "snapshots.idx"));
         }
 
         String type = config.getString("shell-save-type", "").trim();
@@ -0,0 +1,254 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.math.BlockPosition;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A sparse set of block positions that is stored as one bitset for each
+ * 16x16x16 section that contains a position.
+ *
+ * <p>Within a section, the bits for a row of blocks along the X axis are
+ * adjacent, so runs of blocks along the X axis can be added with
+ * {@link #setSpan(int, int, int, int)} a word at a time. Iteration visits
+ * sections in the order in which they were first touched, and positions
+ * within a section in Y, Z, X order.</p>
+ */
+public class BlockBitSet implements Iterable<BlockVector> {
+
+    private static final int SECTION_WORDS = 4096 / 64;
+    private static final int NONE = -1;
+
+    private final LongIntHashMap sectionIndices = new LongIntHashMap();
+    private final List<long[]> sections = new ArrayList<long[]>();
+    private long[] sectionKeys = new long[16];
+    private int size;
+
+    private long lastKey;
+    private long[] lastSection;
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the set is empty.
+     *
+     * @return true if the set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return whether the given position is in the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean get(int x, int y, int z) {
+        long[] section = getSection(x >> 4, y >> 4, z >> 4, false);
+        if (section == null) {
+            return false;
+        }
+        int index = index(x, y, z);
+        return (section[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not already in the set
+     */
+    public boolean set(int x, int y, int z) {
+        long[] section = getSection(x >> 4, y >> 4, z >> 4, true);
+        int index = index(x, y, z);
+        long bit = 1L << index;
+        long word = section[index >>> 6];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        section[index >>> 6] = word | bit;
+        size++;
+        return true;
+    }
+
+    /**
+     * Add a run of positions along the X axis to the set.
+     *
+     * @param minX the minimum X coordinate, inclusive
+     * @param maxX the maximum X coordinate, inclusive
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     */
+    public void setSpan(int minX, int maxX, int y, int z) {
+        checkArgument(minX <= maxX, "minX <= maxX required");
+
+        int x = minX;
+        while (x <= maxX) {
+            int sectionEnd = Math.min(maxX, x | 15);
+            long[] section = getSection(x >> 4, y >> 4, z >> 4, true);
+            int start = index(x, y, z);
+            int count = sectionEnd - x + 1;
+            long mask = (count == 64 ? -1L : ((1L << count) - 1)) << start;
+            int word = start >>> 6;
+            long before = section[word];
+            long after = before | mask;
+            section[word] = after;
+            size += Long.bitCount(after) - Long.bitCount(before);
+            x = sectionEnd + 1;
+        }
+    }
+
+    private long[] getSection(int sectionX, int sectionY, int sectionZ, boolean create) {
+        long key = BlockPosition.pack(sectionX, sectionY, sectionZ);
+        if (lastSection != null && key == lastKey) {
+            return lastSection;
+        }
+
+        int index = sectionIndices.get(key, NONE);
+        long[] section;
+        if (index != NONE) {
+            section = sections.get(index);
+        } else if (create) {
+            section = new long[SECTION_WORDS];
+            if (sections.size() == sectionKeys.length) {
+                long[] newKeys = new long[sectionKeys.length * 2];
+                System.arraycopy(sectionKeys, 0, newKeys, 0, sectionKeys.length);
+                sectionKeys = newKeys;
+            }
+            sectionIndices.put(key, sections.size());
+            sectionKeys[sections.size()] = key;
+            sections.add(section);
+        } else {
+            return null;
+        }
+
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    /**
+     * Create a new set containing the positions of this set that have at
+     * least one of their six neighbours missing from this set.
+     *
+     * @return a new set
+     */
+    public BlockBitSet getShell() {
+        BlockBitSet shell = new BlockBitSet();
+        for (int s = 0; s < sections.size(); s++) {
+            long key = sectionKeys[s];
+            long[] section = sections.get(s);
+            int baseX = BlockPosition.unpackX(key) << 4;
+            int baseY = BlockPosition.unpackY(key) << 4;
+            int baseZ = BlockPosition.unpackZ(key) << 4;
+
+            for (int w = 0; w < SECTION_WORDS; w++) {
+                long word = section[w];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    int index = w << 6 | bit;
+                    int x = baseX + (index & 15);
+                    int z = baseZ + (index >> 4 & 15);
+                    int y = baseY + (index >> 8);
+
+                    if (!get(x + 1, y, z) || !get(x - 1, y, z)
+                            || !get(x, y + 1, z) || !get(x, y - 1, z)
+                            || !get(x, y, z + 1) || !get(x, y, z - 1)) {
+                        shell.set(x, y, z);
+                    }
+                }
+            }
+        }
+        return shell;
+    }
+
+    @Override
+    public Iterator<BlockVector> iterator() {
+        return new Iterator<BlockVector>() {
+            private int sectionIndex = 0;
+            private int wordIndex = 0;
+            private long word = sections.isEmpty() ? 0 : sections.get(0)[0];
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0) {
+                    if (sectionIndex >= sections.size()) {
+                        return false;
+                    }
+                    if (++wordIndex == SECTION_WORDS) {
+                        wordIndex = 0;
+                        if (++sectionIndex >= sections.size()) {
+                            return false;
+                        }
+                    }
+                    word = sections.get(sectionIndex)[wordIndex];
+                }
+                return true;
+            }
+
+            @Override
+            public BlockVector next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                int index = wordIndex << 6 | bit;
+                long key = sectionKeys[sectionIndex];
+                return new BlockVector(
+                        (BlockPosition.unpackX(key) << 4) + (index & 15),
+                        (BlockPosition.unpackY(key) << 4) + (index >> 8),
+                        (BlockPosition.unpackZ(key) << 4) + (index >> 4 & 15));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A dense set of block positions within a fixed box, stored as one bit
+ * per block.
+ *
+ * <p>Each row of blocks along the X axis starts on a word boundary, so
+ * whole-set operations such as {@link #getNeighbours()} work on 64 blocks
+ * at a time.</p>
+ */
+public class BoundedBlockBitSet implements Iterable<BlockVector> {
+
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int wordsPerRow;
+    private final long lastWordMask;
+    private final long[] words;
+
+    /**
+     * Create a new, empty set.
+     *
+     * @param min the minimum point of the box
+     * @param max the maximum point of the box
+     */
+    public BoundedBlockBitSet(Vector min, Vector max) {
+        this(min.getBlockX(), min.getBlockY(), min.getBlockZ(), max.getBlockX(), max.getBlockY(), max.getBlockZ());
+    }
+
+    /**
+     * Create a new, empty set.
+     *
+     * @param minX the minimum X coordinate, inclusive
+     * @param minY the minimum Y coordinate, inclusive
+     * @param minZ the minimum Z coordinate, inclusive
+     * @param maxX the maximum X coordinate, inclusive
+     * @param maxY the maximum Y coordinate, inclusive
+     * @param maxZ the maximum Z coordinate, inclusive
+     */
+    public BoundedBlockBitSet(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        checkArgument(minX <= maxX && minY <= maxY && minZ <= maxZ, "min <= max required");
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = maxX - minX + 1;
+        this.sizeY = maxY - minY + 1;
+        this.sizeZ = maxZ - minZ + 1;
+        this.wordsPerRow = (sizeX + 63) >>> 6;
+        int lastBits = sizeX & 63;
+        this.lastWordMask = lastBits == 0 ? -1L : (1L << lastBits) - 1;
+        long wordCount = (long) wordsPerRow * sizeY * sizeZ;
+        checkArgument(wordCount <= Integer.MAX_VALUE, "box is too large");
+        this.words = new long[(int) wordCount];
+    }
+
+    private BoundedBlockBitSet(BoundedBlockBitSet other) {
+        this.minX = other.minX;
+        this.minY = other.minY;
+        this.minZ = other.minZ;
+        this.sizeX = other.sizeX;
+        this.sizeY = other.sizeY;
+        this.sizeZ = other.sizeZ;
+        this.wordsPerRow = other.wordsPerRow;
+        this.lastWordMask = other.lastWordMask;
+        this.words = new long[other.words.length];
+    }
+
+    /**
+     * Return whether the given position is within the box of this set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is within the box
+     */
+    public boolean isInBounds(int x, int y, int z) {
+        return x - minX >= 0 && x - minX < sizeX
+                && y - minY >= 0 && y - minY < sizeY
+                && z - minZ >= 0 && z - minZ < sizeZ;
+    }
+
+    /**
+     * Return whether the given position is in the set. Positions outside
+     * the box are never in the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position is in the set
+     */
+    public boolean get(int x, int y, int z) {
+        if (!isInBounds(x, y, z)) {
+            return false;
+        }
+        int rx = x - minX;
+        return (words[rowStart(y, z) + (rx >>> 6)] & (1L << rx)) != 0;
+    }
+
+    /**
+     * Add a position to the set.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return true if the position was not already in the set
+     * @throws IndexOutOfBoundsException if the position is outside the box
+     */
+    public boolean set(int x, int y, int z) {
+        if (!isInBounds(x, y, z)) {
+            throw new IndexOutOfBoundsException("(" + x + ", " + y + ", " + z + ") is outside of the box");
+        }
+        int rx = x - minX;
+        int index = rowStart(y, z) + (rx >>> 6);
+        long bit = 1L << rx;
+        if ((words[index] & bit) != 0) {
+            return false;
+        }
+        words[index] |= bit;
+        return true;
+    }
+
+    private int rowStart(int y, int z) {
+        return ((y - minY) * sizeZ + (z - minZ)) * wordsPerRow;
+    }
+
+    /**
+     * Create a new set with the positions that have at least one of their
+     * six neighbours in this set. Positions are only included if they are
+     * within the box.
+     *
+     * @return a new set with the same box
+     */
+    public BoundedBlockBitSet getNeighbours() {
+        BoundedBlockBitSet result = new BoundedBlockBitSet(this);
+        long[] out = result.words;
+        int layer = sizeZ * wordsPerRow;
+
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                int row = (y * sizeZ + z) * wordsPerRow;
+                for (int w = 0; w < wordsPerRow; w++) {
+                    int i = row + w;
+                    long word = words[i];
+                    long n = word << 1 | word >>> 1;
+                    if (w > 0) n |= words[i - 1] >>> 63;
+                    if (w < wordsPerRow - 1) n |= words[i + 1] << 63;
+                    if (z > 0) n |= words[i - wordsPerRow];
+                    if (z < sizeZ - 1) n |= words[i + wordsPerRow];
+                    if (y > 0) n |= words[i - layer];
+                    if (y < sizeY - 1) n |= words[i + layer];
+                    if (w == wordsPerRow - 1) n &= lastWordMask;
+                    out[i] = n;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Add the positions of another set with the same box to this set.
+     *
+     * @param other the other set
+     */
+    public void or(BoundedBlockBitSet other) {
+        checkSameBox(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Keep only the positions that are also in another set with the same box.
+     *
+     * @param other the other set
+     */
+    public void and(BoundedBlockBitSet other) {
+        checkSameBox(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Remove the positions that are in another set with the same box.
+     *
+     * @param other the other set
+     */
+    public void andNot(BoundedBlockBitSet other) {
+        checkSameBox(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    private void checkSameBox(BoundedBlockBitSet other) {
+        checkArgument(other.minX == minX && other.minY == minY && other.minZ == minZ
+                && other.sizeX == sizeX && other.sizeY == sizeY && other.sizeZ == sizeZ,
+                "the sets must have the same box");
+    }
+
+    /**
+     * Get the number of positions in the set.
+     *
+     * @return the number of positions
+     */
+    public int size() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<BlockVector> iterator() {
+        return new Iterator<BlockVector>() {
+            private int index = 0;
+            private long word = words.length == 0 ? 0 : words[0];
+
+            @Override
+            public boolean hasNext() {
+                while (word == 0) {
+                    if (++index >= words.length) {
+                        index = words.length;
+                        return false;
+                    }
+                    word = words[index];
+                }
+                return true;
+            }
+
+            @Override
+            public BlockVector next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                int row = index / wordsPerRow;
+                int x = (index - row * wordsPerRow) << 6 | bit;
+                return new BlockVector(minX + x, minY + row / sizeZ, minZ + row % sizeZ);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+}
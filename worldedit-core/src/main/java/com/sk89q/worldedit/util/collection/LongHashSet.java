@@ -0,0 +1,151 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * A hash set of primitive {@code long} values that uses open addressing, so
+ * that no objects are allocated per element.
+ *
+ * <p>Removal of individual values is not supported.</p>
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * Create a new set.
+     */
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Create a new set.
+     *
+     * @param expectedSize the number of values that is expected to be stored
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        values = new long[capacity];
+        used = new boolean[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Get the number of values in the set.
+     *
+     * @return the number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the set is empty.
+     *
+     * @return true if the set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return whether the set contains the given value.
+     *
+     * @param value the value
+     * @return true if the value is present
+     */
+    public boolean contains(long value) {
+        return used[slot(value)];
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param value the value
+     * @return true if the value was not already present
+     */
+    public boolean add(long value) {
+        int slot = slot(value);
+        if (used[slot]) {
+            return false;
+        }
+        if (size >= resizeAt) {
+            rehash();
+            slot = slot(value);
+        }
+        used[slot] = true;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Remove all values.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int slot(long value) {
+        int mask = values.length - 1;
+        int slot = mix(value) & mask;
+        while (used[slot] && values[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(values.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldValues[i]);
+                used[slot] = true;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return (int) value;
+    }
+
+}
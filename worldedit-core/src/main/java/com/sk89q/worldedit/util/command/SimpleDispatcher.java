@@ -117,14 +117,15 @@ public boolean call(String arguments, CommandLocals locals, String[] parentComma
             throw new CommandPermissionsException();
         }
 
-        String[] split = CommandContext.split(arguments);
         Set<String> aliases = getPrimaryAliases();
 
         if (aliases.isEmpty()) {
             throw new InvalidUsageException("This command has no sub-commands.", this);
-        } else if (split.length > 0) {
-            String subCommand = split[0];
-            String subArguments = Joiner.on(" ").join(Arrays.copyOfRange(split, 1, split.length));
+        } else {
+            // Only the sub-command needs to be split off
+            int space = arguments.indexOf(' ');
+            String subCommand = space != -1 ? arguments.substring(0, space) : arguments;
+            String subArguments = space != -1 ? arguments.substring(space + 1) : "";
             String[] subParents = Arrays.copyOf(parentCommands, parentCommands.length + 1);
             subParents[parentCommands.length] = subCommand;
             CommandMapping mapping = get(subCommand);
@@ -57,6 +57,8 @@ class ParametricCallable implements CommandCallable {
     private final Set<Character> valueFlags = new HashSet<Character>();
     private final boolean anyFlags;
     private final Set<Character> legacyFlags = new HashSet<Character>();
+    private final Set<Character> parameterFlags = new HashSet<Character>();
+    private final int[] requiredConsumedFrom;
     private final SimpleDescription description = new SimpleDescription();
     private final CommandPermissions commandPermissions;
 
@@ -159,6 +161,26 @@ class ParametricCallable implements CommandCallable {
             }
         }
 
+        // Work out ahead of time what each call would otherwise have to
+        // recompute from the parameters
+        requiredConsumedFrom = new int[parameters.length + 1];
+        for (int i = parameters.length - 1; i >= 0; i--) {
+            ParameterData parameter = parameters[i];
+            requiredConsumedFrom[i] = requiredConsumedFrom[i + 1];
+            if (parameter.isNonFlagConsumer() && !parameter.isOptional()) {
+                requiredConsumedFrom[i] += parameter.getConsumedCount();
+            }
+            if (parameter.getFlag() != null) {
+                parameterFlags.add(parameter.getFlag());
+            }
+        }
+
+        try {
+            // Skip the access checks on every call
+            method.setAccessible(true);
+        } catch (SecurityException ignored) {
+        }
+
         // Gather legacy flags
         anyFlags = definition.anyFlags();
         legacyFlags.addAll(Chars.asList(definition.flags().toCharArray()));
@@ -348,14 +370,9 @@ private boolean mayConsumeArguments(int i, ContextArgumentStack scoped) {
             if (parameter.getFlag() != null) {
                 return !parameter.isValueFlag() || context.hasFlag(parameter.getFlag());
             } else {
-                int numberFree = context.argsLength() - scoped.position();
-                for (int j = i; j < parameters.length; j++) {
-                    if (parameters[j].isNonFlagConsumer() && !parameters[j].isOptional()) {
-                        // We already checked if the consumed count was > -1
-                        // when we created this object
-                        numberFree -= parameters[j].getConsumedCount();
-                    }
-                }
+                // We already checked if the consumed count was > -1
+                // when we created this object
+                int numberFree = context.argsLength() - scoped.position() - requiredConsumedFrom[i];
 
                 // Skip this optional parameter
                 if (numberFree < 1) {
@@ -425,21 +442,11 @@ private String getUnusedFlags(CommandContext context) {
         if (!anyFlags) {
             Set<Character> unusedFlags = null;
             for (char flag : context.getFlags()) {
-                boolean found = false;
-
                 if (legacyFlags.contains(flag)) {
                     break;
                 }
 
-                for (ParameterData parameter : parameters) {
-                    Character paramFlag = parameter.getFlag();
-                    if (paramFlag != null && flag == paramFlag) {
-                        found = true;
-                        break;
-                    }
-                }
-
-                if (!found) {
+                if (!parameterFlags.contains(flag)) {
                     if (unusedFlags == null) {
                         unusedFlags = new HashSet<Character>();
                     }
@@ -42,8 +42,10 @@
  * This does allow dispatching during an in-progress dispatch.</p>
  *
  * <p>This implementation utilizes naive synchronization on all getter and
- * setter methods. Dispatch does not occur when a lock has been acquired,
- * however.</p>
+ * setter methods. Posting an event does not take the lock: for each event
+ * class, the sorted array of handlers to call is built once and kept in a
+ * copy-on-write map that is discarded whenever a handler is subscribed or
+ * unsubscribed.</p>
  */
 public class EventBus {
 
@@ -68,6 +70,12 @@ public Set<EventHandler> get() {
     @RequiresNewerGuava
     private HierarchyCache flattenHierarchyCache = new HierarchyCache();
 
+    /**
+     * The handlers to call for each event class, in dispatch order. The map
+     * is never modified once published; it is replaced instead.
+     */
+    private volatile Map<Class<?>, EventHandler[]> dispatchPlans = Collections.emptyMap();
+
     /**
      * Registers the given handler for the given class to receive events.
      *
@@ -78,6 +86,7 @@ public synchronized void subscribe(Class<?> clazz, EventHandler handler) {
         checkNotNull(clazz);
         checkNotNull(handler);
         handlersByType.put(clazz, handler);
+        invalidateDispatchPlans();
     }
 
     /**
@@ -88,6 +97,7 @@ public synchronized void subscribe(Class<?> clazz, EventHandler handler) {
     public synchronized void subscribeAll(Multimap<Class<?>, EventHandler> handlers) {
         checkNotNull(handlers);
         handlersByType.putAll(handlers);
+        invalidateDispatchPlans();
     }
 
     /**
@@ -100,6 +110,7 @@ public synchronized void unsubscribe(Class<?> clazz, EventHandler handler) {
         checkNotNull(clazz);
         checkNotNull(handler);
         handlersByType.remove(clazz, handler);
+        invalidateDispatchPlans();
     }
 
     /**
@@ -113,10 +124,11 @@ public synchronized void unsubscribeAll(Multimap<Class<?>, EventHandler> handler
             Set<EventHandler> currentHandlers = getHandlersForEventType(entry.getKey());
             Collection<EventHandler> eventMethodsInListener = entry.getValue();
 
-            if (currentHandlers != null &&!currentHandlers.containsAll(entry.getValue())) {
+            if (currentHandlers != null) {
                 currentHandlers.removeAll(eventMethodsInListener);
             }
         }
+        invalidateDispatchPlans();
     }
 
     /**
@@ -153,25 +165,55 @@ public void unregister(Object object) {
      * @param event  event to post.
      */
     public void post(Object event) {
-        List<EventHandler> dispatching = new ArrayList<EventHandler>();
+        EventHandler[] dispatching = dispatchPlans.get(event.getClass());
+
+        if (dispatching == null) {
+            dispatching = buildDispatchPlan(event.getClass());
+        }
+
+        for (EventHandler handler : dispatching) {
+            dispatch(event, handler);
+        }
+    }
+
+    /**
+     * Build and publish the sorted handlers for an event class.
+     *
+     * @param eventClass the event class
+     * @return the handlers to call, in order
+     */
+    private synchronized EventHandler[] buildDispatchPlan(Class<?> eventClass) {
+        Map<Class<?>, EventHandler[]> plans = dispatchPlans;
+        EventHandler[] plan = plans.get(eventClass);
 
-        synchronized (this) {
-            Set<Class<?>> dispatchTypes = flattenHierarchy(event.getClass());
+        if (plan == null) {
+            List<EventHandler> dispatching = new ArrayList<EventHandler>();
 
-            for (Class<?> eventType : dispatchTypes) {
+            for (Class<?> eventType : flattenHierarchy(eventClass)) {
                 Set<EventHandler> wrappers = getHandlersForEventType(eventType);
 
                 if (wrappers != null && !wrappers.isEmpty()) {
                     dispatching.addAll(wrappers);
                 }
             }
-        }
 
-        Collections.sort(dispatching);
+            Collections.sort(dispatching);
+            plan = dispatching.toArray(new EventHandler[dispatching.size()]);
 
-        for (EventHandler handler : dispatching) {
-            dispatch(event, handler);
+            Map<Class<?>, EventHandler[]> newPlans = new HashMap<Class<?>, EventHandler[]>(plans);
+            newPlans.put(eventClass, plan);
+            dispatchPlans = newPlans;
         }
+
+        return plan;
+    }
+
+    /**
+     * Discard the built dispatch plans after the registered handlers have
+     * changed.
+     */
+    private void invalidateDispatchPlans() {
+        dispatchPlans = Collections.emptyMap();
     }
 
     /**
@@ -19,23 +19,42 @@
 
 package com.sk89q.worldedit.world;
 
+import com.google.common.base.Predicate;
+import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BaseItemStack;
 import com.sk89q.worldedit.blocks.BlockID;
 import com.sk89q.worldedit.blocks.BlockType;
+import com.sk89q.worldedit.entity.Entities;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.extension.platform.Platform;
 import com.sk89q.worldedit.function.mask.BlockMask;
 import com.sk89q.worldedit.function.mask.Mask;
 import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.history.change.BlockChange;
+import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
+import com.sk89q.worldedit.world.chunk.ChunkSnapshotExtent;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * An abstract implementation of {@link World}.
@@ -139,6 +158,206 @@ public void simulateBlockMine(Vector pt) {
         }
     }
 
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position) {
+        return captureChunk(position, 0, getMaxY());
+    }
+
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position, int minY, int maxY) {
+        ChunkColumn column = new ChunkColumn(position, getMaxY() + 1);
+        int baseX = position.getBlockX() << 4;
+        int baseZ = position.getBlockZ() << 4;
+        int top = Math.min(maxY, column.getHeight() - 1);
+        for (int y = Math.max(minY, 0); y <= top; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    BaseBlock block = getBlock(new Vector(baseX + x, y, baseZ + z));
+                    if (block.hasNbtData()) {
+                        column.setTileBlock(x, y, z, block);
+                    } else {
+                        column.setTypeIdAndData(x, y, z, block.getType(), block.getData());
+                    }
+                }
+            }
+        }
+        return column;
+    }
+
+    @Override
+    public ChunkSnapshotExtent captureRegion(Region region, int maxBlocks) throws MaxChangedBlocksException {
+        checkNotNull(region);
+        int minY = Math.max(region.getMinimumPoint().getBlockY(), 0);
+        int maxY = Math.min(region.getMaximumPoint().getBlockY(), getMaxY());
+        Set<Vector2D> chunks = region.getChunks();
+
+        if (maxBlocks != -1 && (long) chunks.size() * 256 * Math.max(maxY - minY + 1, 0) > maxBlocks) {
+            throw new MaxChangedBlocksException(maxBlocks);
+        }
+
+        List<ChunkColumn> columns = new ArrayList<ChunkColumn>();
+        for (Vector2D chunk : chunks) {
+            BlockVector2D position = chunk.toBlockVector2D();
+            ChunkColumn column = captureChunk(position, minY, maxY);
+            column.setBiomes(getChunkBiomes(position));
+            columns.add(column);
+        }
+        return new ChunkSnapshotExtent(columns);
+    }
+
+    @Override
+    public boolean isChunkLoaded(BlockVector2D position) {
+        return true;
+    }
+
+    @Override
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        checkNotNull(min);
+        checkNotNull(max);
+        checkNotNull(type);
+        int minX = min.getBlockX();
+        int minZ = min.getBlockZ();
+        int width = max.getBlockX() - minX + 1;
+        int length = max.getBlockZ() - minZ + 1;
+        int top = Math.min(maxY, getMaxY());
+        int bottom = Math.max(minY, 0);
+        int[] heights = new int[width * length];
+
+        for (int z = 0; z < length; z++) {
+            for (int x = 0; x < width; x++) {
+                int height = minY - 1;
+                for (int y = top; y >= bottom; y--) {
+                    BaseBlock block = getLazyBlock(new Vector(minX + x, y, minZ + z));
+                    if (type.matches(block.getType(), block.getData())) {
+                        height = y;
+                        break;
+                    }
+                }
+                heights[z * width + x] = height;
+            }
+        }
+
+        return heights;
+    }
+
+    @Override
+    public int[] getChunkBiomes(BlockVector2D position) {
+        int[] biomes = new int[256];
+        int baseX = position.getBlockX() << 4;
+        int baseZ = position.getBlockZ() << 4;
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                BaseBiome biome = getBiome(new Vector2D(baseX + x, baseZ + z));
+                biomes[z << 4 | x] = biome != null ? biome.getId() : 0;
+            }
+        }
+        return biomes;
+    }
+
+    /**
+     * Implement {@link #getSurfaceHeights(Vector2D, Vector2D, int, int, SurfaceType)}
+     * by capturing the queried Y range of each chunk in the rectangle with
+     * {@link #captureChunk(BlockVector2D, int, int)} and scanning its
+     * sections.
+     *
+     * <p>Platforms that can copy section arrays quickly should use this
+     * rather than the default implementation, which reads one block at
+     * a time.</p>
+     *
+     * @param min the minimum X and Z coordinates, inclusive
+     * @param max the maximum X and Z coordinates, inclusive
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return an array of heights
+     */
+    protected int[] getSurfaceHeightsFromChunks(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        checkNotNull(min);
+        checkNotNull(max);
+        checkNotNull(type);
+        int minX = min.getBlockX();
+        int minZ = min.getBlockZ();
+        int maxX = max.getBlockX();
+        int maxZ = max.getBlockZ();
+        int width = maxX - minX + 1;
+        int[] heights = new int[width * (maxZ - minZ + 1)];
+
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                ChunkColumn column = captureChunk(new BlockVector2D(cx, cz), minY, maxY);
+                int startX = Math.max(minX, cx << 4);
+                int endX = Math.min(maxX, (cx << 4) + 15);
+                int startZ = Math.max(minZ, cz << 4);
+                int endZ = Math.min(maxZ, (cz << 4) + 15);
+                for (int z = startZ; z <= endZ; z++) {
+                    for (int x = startX; x <= endX; x++) {
+                        heights[(z - minZ) * width + (x - minX)] = column.getSurfaceHeight(x & 15, z & 15, minY, maxY, type);
+                    }
+                }
+            }
+        }
+
+        return heights;
+    }
+
+    /**
+     * Compare a column that was captured before its chunk was regenerated
+     * with the current contents of the chunk.
+     *
+     * <p>Changed blocks that are outside the region are set back to their
+     * previous state, and changed blocks inside the region are recorded
+     * in the history of the given {@link EditSession}. Sections that are
+     * unchanged are skipped without visiting their blocks.</p>
+     *
+     * @param previous the column captured before regeneration
+     * @param region the region that was regenerated
+     * @param editSession the edit session
+     */
+    protected void restoreRegeneratedChunk(ChunkColumn previous, Region region, EditSession editSession) {
+        ChunkColumn current = captureChunk(previous.getPosition());
+        int baseX = previous.getPosition().getBlockX() << 4;
+        int baseZ = previous.getPosition().getBlockZ() << 4;
+        BitSet visited = new BitSet();
+
+        for (int section = 0; section < previous.getSectionCount(); section++) {
+            if (previous.sectionEquals(current, section)) {
+                continue;
+            }
+
+            int minY = section << 4;
+            int maxY = Math.min(minY + 16, previous.getHeight());
+            for (int y = minY; y < maxY; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        if (previous.getTypeId(x, y, z) != current.getTypeId(x, y, z)
+                                || previous.getData(x, y, z) != current.getData(x, y, z)) {
+                            visited.set(ChunkColumn.columnIndex(x, y, z));
+                            restoreRegeneratedBlock(previous, current, baseX, baseZ, x, y, z, region, editSession);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Blocks with NBT data lose it on regeneration even if their type is unchanged
+        for (Map.Entry<Integer, BaseBlock> entry : previous.getTileBlocks().entrySet()) {
+            int index = entry.getKey();
+            if (!visited.get(index)) {
+                restoreRegeneratedBlock(previous, current, baseX, baseZ, index & 15, index >> 8, (index >> 4) & 15, region, editSession);
+            }
+        }
+    }
+
+    private void restoreRegeneratedBlock(ChunkColumn previous, ChunkColumn current, int baseX, int baseZ,
+                                         int x, int y, int z, Region region, EditSession editSession) {
+        BlockVector pt = new BlockVector(baseX + x, y, baseZ + z);
+        if (!region.contains(pt)) {
+            editSession.smartSetBlock(pt, previous.getBlock(x, y, z));
+        } else {
+            editSession.getChangeSet().add(new BlockChange(pt, previous.getBlock(x, y, z), current.getBlock(x, y, z)));
+        }
+    }
+
     @Override
     public boolean generateTree(EditSession editSession, Vector pt) throws MaxChangedBlocksException {
         return generateTree(TreeType.TREE, editSession, pt);
@@ -176,6 +395,10 @@ public void fixAfterFastMode(Iterable<BlockVector2D> chunks) {
     public void fixLighting(Iterable<BlockVector2D> chunks) {
     }
 
+    @Override
+    public void refreshChunks(Iterable<BlockVector2D> chunks) {
+    }
+
     @Override
     public boolean playEffect(Vector position, int type, int data) {
         return false;
@@ -207,6 +430,11 @@ public void run() {
         return true;
     }
 
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return Entities.filter(getEntities(region).iterator(), null, filter);
+    }
+
     @Override
     public Vector getMinimumPoint() {
         return new Vector(-30000000, 0, -30000000);
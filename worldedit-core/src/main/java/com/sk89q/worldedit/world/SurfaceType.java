@@ -0,0 +1,93 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world;
+
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.blocks.BlockType;
+
+/**
+ * The kinds of block that are considered to be the surface of a column
+ * when looking for the highest block in it.
+ *
+ * <p>No surface type matches air, so implementations may skip sections
+ * that only contain air.</p>
+ */
+public enum SurfaceType {
+
+    /**
+     * Any block that is not air.
+     */
+    NON_AIR {
+        @Override
+        public boolean matches(int id, int data) {
+            return id != BlockID.AIR;
+        }
+    },
+
+    /**
+     * Blocks that cannot be passed through, as defined by
+     * {@link BlockType#canPassThrough(int, int)}.
+     */
+    SOLID {
+        @Override
+        public boolean matches(int id, int data) {
+            return !BlockType.canPassThrough(id, data);
+        }
+    },
+
+    /**
+     * Blocks that cannot be passed through, as well as water and lava.
+     */
+    SOLID_OR_LIQUID {
+        @Override
+        public boolean matches(int id, int data) {
+            switch (id) {
+                case BlockID.WATER:
+                case BlockID.STATIONARY_WATER:
+                case BlockID.LAVA:
+                case BlockID.STATIONARY_LAVA:
+                    return true;
+                default:
+                    return !BlockType.canPassThrough(id, data);
+            }
+        }
+    },
+
+    /**
+     * Blocks that occur naturally as terrain, as defined by
+     * {@link BlockType#isNaturalTerrainBlock(int, int)}.
+     */
+    NATURAL_TERRAIN {
+        @Override
+        public boolean matches(int id, int data) {
+            return BlockType.isNaturalTerrainBlock(id, data);
+        }
+    };
+
+    /**
+     * Return whether a block is part of the surface.
+     *
+     * @param id the type ID
+     * @param data the data value
+     * @return true if the block is part of the surface
+     */
+    public abstract boolean matches(int id, int data);
+
+}
@@ -23,6 +23,7 @@
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
 import com.sk89q.worldedit.WorldEditException;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.BaseItemStack;
@@ -32,6 +33,8 @@
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.util.TreeGenerator;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
+import com.sk89q.worldedit.world.chunk.ChunkSnapshotExtent;
 import com.sk89q.worldedit.world.registry.WorldData;
 
 /**
@@ -180,6 +183,94 @@ public interface World extends Extent {
      */
     boolean regenerate(Region region, EditSession editSession);
 
+    /**
+     * Make a copy of all the blocks in a chunk column, loading the
+     * chunk if necessary.
+     *
+     * <p>Implementations should override this to copy the section arrays
+     * of the chunk directly rather than reading one block at a time.</p>
+     *
+     * @param position the chunk coordinates
+     * @return a copy of the column
+     */
+    ChunkColumn captureChunk(BlockVector2D position);
+
+    /**
+     * Make a copy of the blocks in a chunk column between two Y
+     * coordinates, loading the chunk if necessary.
+     *
+     * <p>Only the blocks within the range are guaranteed to be copied.
+     * Blocks outside of it may read as air in the returned column.</p>
+     *
+     * @param position the chunk coordinates
+     * @param minY the lowest Y coordinate to copy
+     * @param maxY the highest Y coordinate to copy
+     * @return a copy of the column
+     */
+    ChunkColumn captureChunk(BlockVector2D position, int minY, int maxY);
+
+    /**
+     * Capture a copy of the blocks and biomes of every chunk that the given
+     * region covers, loading chunks if necessary.
+     *
+     * <p>Only blocks within the Y range of the region are copied, and
+     * blocks above or below it read as air. The number of blocks copied,
+     * which is the number of chunks multiplied by the area of a chunk and
+     * the height of the region, is checked against the given limit before
+     * anything is copied.</p>
+     *
+     * <p>This must be called on the server thread. The returned extent is
+     * read-only and can be read from any thread, so that work which only
+     * reads blocks can be moved off the server thread.</p>
+     *
+     * @param region the region
+     * @param maxBlocks the maximum number of blocks to copy, or -1 for no limit
+     * @return a snapshot of the chunks
+     * @throws MaxChangedBlocksException if more than the maximum number of blocks would be copied
+     */
+    ChunkSnapshotExtent captureRegion(Region region, int maxBlocks) throws MaxChangedBlocksException;
+
+    /**
+     * Return whether a chunk is loaded, so that reading its blocks would
+     * not cause it to be loaded or generated.
+     *
+     * @param position the chunk coordinates
+     * @return true if the chunk is loaded
+     */
+    boolean isChunkLoaded(BlockVector2D position);
+
+    /**
+     * Get the Y coordinate of the highest block of the given surface type
+     * in each column of a rectangle.
+     *
+     * <p>The returned array is indexed by
+     * {@code (z - minZ) * width + (x - minX)}, where the width is the
+     * number of columns along the X axis. Columns that have no matching
+     * block between {@code minY} and {@code maxY} have a height of
+     * {@code minY - 1}.</p>
+     *
+     * @param min the minimum X and Z coordinates, inclusive
+     * @param max the maximum X and Z coordinates, inclusive
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return an array of heights
+     */
+    int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type);
+
+    /**
+     * Get the biome IDs of all the columns in a chunk.
+     *
+     * <p>The returned array has 256 entries and is indexed by
+     * {@code z << 4 | x}, where {@code x} and {@code z} are the
+     * coordinates of the column within the chunk. It is a copy that
+     * may be modified by the caller.</p>
+     *
+     * @param position the chunk coordinates
+     * @return an array of biome IDs
+     */
+    int[] getChunkBiomes(BlockVector2D position);
+
     /**
      * Generate a tree at the given position.
      *
@@ -248,6 +339,14 @@ public interface World extends Extent {
      */
     void fixLighting(Iterable<BlockVector2D> chunks);
 
+    /**
+     * Send the given chunks to nearby clients again, such as after their
+     * biomes were changed, which clients do not otherwise pick up.
+     *
+     * @param chunks a list of chunk coordinates to send
+     */
+    void refreshChunks(Iterable<BlockVector2D> chunks);
+
     /**
      * Play the given effect.
      *
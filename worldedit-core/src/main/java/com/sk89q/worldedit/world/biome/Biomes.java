@@ -22,13 +22,19 @@
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.base.Optional;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.util.WeightedChoice;
 import com.sk89q.worldedit.util.WeightedChoice.Choice;
 import com.sk89q.worldedit.util.function.LevenshteinDistance;
+import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.registry.BiomeRegistry;
 
 import javax.annotation.Nullable;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -67,4 +73,33 @@ public static BaseBiome findBiomeByName(Collection<BaseBiome> biomes, String nam
         }
     }
 
+    /**
+     * Count the number of columns of each biome in a region.
+     *
+     * <p>The biomes of each chunk are read at once with
+     * {@link World#getChunkBiomes(BlockVector2D)}. Biome IDs outside of
+     * the range of the returned array are not counted.</p>
+     *
+     * @param world the world
+     * @param region the region
+     * @return an array of 256 column counts indexed by biome ID
+     */
+    public static int[] getHistogram(World world, Region region) {
+        checkNotNull(world);
+        checkNotNull(region);
+
+        int[] counts = new int[256];
+        for (Map.Entry<BlockVector2D, BitSet> entry : Regions.getColumnsByChunk(region).entrySet()) {
+            int[] biomes = world.getChunkBiomes(entry.getKey());
+            BitSet columns = entry.getValue();
+            for (int i = columns.nextSetBit(0); i >= 0; i = columns.nextSetBit(i + 1)) {
+                int id = biomes[i];
+                if (id >= 0 && id < counts.length) {
+                    counts[id]++;
+                }
+            }
+        }
+        return counts;
+    }
+
 }
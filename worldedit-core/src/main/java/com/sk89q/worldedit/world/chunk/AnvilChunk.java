@@ -26,10 +26,10 @@
 import com.sk89q.jnbt.ListTag;
 import com.sk89q.jnbt.NBTUtils;
 import com.sk89q.jnbt.Tag;
-import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
 import com.sk89q.worldedit.blocks.TileEntityBlock;
+import com.sk89q.worldedit.math.BlockPosition;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.InvalidFormatException;
@@ -48,7 +48,7 @@ public class AnvilChunk implements Chunk {
     private int rootX;
     private int rootZ;
 
-    private Map<BlockVector, Map<String,Tag>> tileEntities;
+    private Map<BlockPosition, Map<String,Tag>> tileEntities;
     @SuppressWarnings("unused")
     private World world; // TODO: remove if stays unused.
 
@@ -196,7 +196,7 @@ private void populateTileEntities() throws DataException {
         List<Tag> tags = NBTUtils.getChildTag(rootTag.getValue(),
                 "TileEntities", ListTag.class).getValue();
 
-        tileEntities = new HashMap<BlockVector, Map<String, Tag>>();
+        tileEntities = new HashMap<BlockPosition, Map<String, Tag>>();
 
         for (Tag tag : tags) {
             if (!(tag instanceof CompoundTag)) {
@@ -230,7 +230,7 @@ private void populateTileEntities() throws DataException {
                 values.put(entry.getKey(), entry.getValue());
             }
 
-            BlockVector vec = new BlockVector(x, y, z);
+            BlockPosition vec = new BlockPosition(x, y, z);
             tileEntities.put(vec, values);
         }
     }
@@ -250,7 +250,7 @@ private CompoundTag getBlockTileEntity(Vector position) throws DataException {
             populateTileEntities();
         }
 
-        Map<String, Tag> values = tileEntities.get(new BlockVector(position));
+        Map<String, Tag> values = tileEntities.get(new BlockPosition(position));
         if (values == null) {
             return null;
         }
@@ -0,0 +1,342 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.chunk;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.world.SurfaceType;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A copy of the blocks in a 16 by 16 column of a world, stored as one
+ * pair of ID and data arrays per 16 block high section.
+ *
+ * <p>Sections that contain only air do not have arrays allocated. Blocks
+ * that carry NBT data (such as chests) are kept separately so that they
+ * can be restored with their contents.</p>
+ *
+ * <p>Within a section, the index of a block is {@code y << 8 | z << 4 | x},
+ * which is the same layout that Minecraft uses for its section arrays,
+ * so that platforms can copy them without translation.</p>
+ */
+public class ChunkColumn {
+
+    /**
+     * The number of blocks in one section.
+     */
+    public static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private final BlockVector2D position;
+    private final int height;
+    private final short[][] ids;
+    private final byte[][] data;
+    private final Map<Integer, BaseBlock> tileBlocks = new HashMap<Integer, BaseBlock>();
+    @Nullable private int[] biomes;
+
+    /**
+     * Create a new, empty column.
+     *
+     * @param position the chunk coordinates of the column
+     * @param height the height of the column in blocks, which should be a multiple of 16
+     */
+    public ChunkColumn(BlockVector2D position, int height) {
+        checkNotNull(position);
+        checkArgument(height > 0, "height must be positive");
+        this.position = position;
+        this.height = height;
+        int sections = (height + 15) >> 4;
+        this.ids = new short[sections][];
+        this.data = new byte[sections][];
+    }
+
+    /**
+     * Get the chunk coordinates of this column.
+     *
+     * @return the chunk coordinates
+     */
+    public BlockVector2D getPosition() {
+        return position;
+    }
+
+    /**
+     * Get the height of this column in blocks.
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of sections in this column.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return ids.length;
+    }
+
+    /**
+     * Return whether the given section only contains air.
+     *
+     * @param section the section index
+     * @return true if the section is empty
+     */
+    public boolean isSectionEmpty(int section) {
+        return ids[section] == null;
+    }
+
+    /**
+     * Get the block ID array of a section, which is indexed
+     * by {@link #index(int, int, int)}.
+     *
+     * @param section the section index
+     * @return the array, or null if the section is empty
+     */
+    @Nullable
+    public short[] getSectionIds(int section) {
+        return ids[section];
+    }
+
+    /**
+     * Get the block data array of a section, which is indexed
+     * by {@link #index(int, int, int)}.
+     *
+     * @param section the section index
+     * @return the array, or null if the section is empty
+     */
+    @Nullable
+    public byte[] getSectionData(int section) {
+        return data[section];
+    }
+
+    /**
+     * Set the arrays of a section.
+     *
+     * <p>The arrays are used as-is and are not copied.</p>
+     *
+     * @param section the section index
+     * @param sectionIds an array of {@link #SECTION_VOLUME} block IDs, or null for an empty section
+     * @param sectionData an array of {@link #SECTION_VOLUME} data values, or null for an empty section
+     */
+    public void setSection(int section, @Nullable short[] sectionIds, @Nullable byte[] sectionData) {
+        checkArgument((sectionIds == null) == (sectionData == null), "both arrays must be null or non-null");
+        checkArgument(sectionIds == null || sectionIds.length == SECTION_VOLUME, "sectionIds has the wrong length");
+        checkArgument(sectionData == null || sectionData.length == SECTION_VOLUME, "sectionData has the wrong length");
+        ids[section] = sectionIds;
+        data[section] = sectionData;
+    }
+
+    /**
+     * Get the type ID of a block.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @return the type ID
+     */
+    public int getTypeId(int x, int y, int z) {
+        short[] section = ids[y >> 4];
+        return section != null ? section[index(x, y, z)] : 0;
+    }
+
+    /**
+     * Get the data value of a block.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @return the data value
+     */
+    public int getData(int x, int y, int z) {
+        byte[] section = data[y >> 4];
+        return section != null ? section[index(x, y, z)] : 0;
+    }
+
+    /**
+     * Set the type ID and data value of a block.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @param id the type ID
+     * @param blockData the data value
+     */
+    public void setTypeIdAndData(int x, int y, int z, int id, int blockData) {
+        int section = y >> 4;
+        if (ids[section] == null) {
+            if (id == 0 && blockData == 0) {
+                return;
+            }
+            ids[section] = new short[SECTION_VOLUME];
+            data[section] = new byte[SECTION_VOLUME];
+        }
+        int index = index(x, y, z);
+        ids[section][index] = (short) id;
+        data[section][index] = (byte) blockData;
+    }
+
+    /**
+     * Get the Y coordinate of the highest block of the given surface type
+     * in a column, skipping sections that only contain air.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param z the Z coordinate within the column (0-15)
+     * @param minY the lowest Y coordinate to look at
+     * @param maxY the highest Y coordinate to look at
+     * @param type the surface type
+     * @return the Y coordinate, or {@code minY - 1} if no block matches
+     */
+    public int getSurfaceHeight(int x, int z, int minY, int maxY, SurfaceType type) {
+        checkNotNull(type);
+        int bottom = Math.max(minY, 0);
+        int y = Math.min(maxY, height - 1);
+        while (y >= bottom) {
+            int section = y >> 4;
+            short[] sectionIds = ids[section];
+            if (sectionIds == null) {
+                y = (section << 4) - 1;
+                continue;
+            }
+            byte[] sectionData = data[section];
+            int index = index(x, y, z);
+            if (type.matches(sectionIds[index], sectionData[index])) {
+                return y;
+            }
+            y--;
+        }
+        return minY - 1;
+    }
+
+    /**
+     * Get a block, including its NBT data if it has any.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @return the block
+     */
+    public BaseBlock getBlock(int x, int y, int z) {
+        BaseBlock block = tileBlocks.get(columnIndex(x, y, z));
+        if (block != null) {
+            return block;
+        } else {
+            return new BaseBlock(getTypeId(x, y, z), getData(x, y, z));
+        }
+    }
+
+    /**
+     * Store a block that carries NBT data. The type ID and data value
+     * of the block are also written to the section arrays.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @param block the block
+     */
+    public void setTileBlock(int x, int y, int z, BaseBlock block) {
+        checkNotNull(block);
+        setTypeIdAndData(x, y, z, block.getType(), block.getData());
+        tileBlocks.put(columnIndex(x, y, z), block);
+    }
+
+    /**
+     * Get the blocks with NBT data in this column, keyed by
+     * {@link #columnIndex(int, int, int)}.
+     *
+     * @return an unmodifiable map of blocks
+     */
+    public Map<Integer, BaseBlock> getTileBlocks() {
+        return Collections.unmodifiableMap(tileBlocks);
+    }
+
+    /**
+     * Get the biome IDs of this column, if they were captured.
+     *
+     * @return an array of 256 biome IDs indexed by {@code z << 4 | x}, or null
+     */
+    @Nullable
+    public int[] getBiomes() {
+        return biomes;
+    }
+
+    /**
+     * Set the biome IDs of this column.
+     *
+     * <p>The array is used as-is and is not copied.</p>
+     *
+     * @param biomes an array of 256 biome IDs indexed by {@code z << 4 | x}, or null
+     */
+    public void setBiomes(@Nullable int[] biomes) {
+        checkArgument(biomes == null || biomes.length == 256, "biomes has the wrong length");
+        this.biomes = biomes;
+    }
+
+    /**
+     * Return whether a section has the same type IDs and data values as
+     * the same section in another column.
+     *
+     * <p>Blocks with NBT data are not compared.</p>
+     *
+     * @param other the other column
+     * @param section the section index
+     * @return true if the sections are equal
+     */
+    public boolean sectionEquals(ChunkColumn other, int section) {
+        checkNotNull(other);
+        if (section >= other.ids.length) {
+            return ids[section] == null;
+        }
+        return Arrays.equals(ids[section], other.ids[section]) && Arrays.equals(data[section], other.data[section]);
+    }
+
+    /**
+     * Get the index of a block within its section array.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @return the index
+     */
+    public static int index(int x, int y, int z) {
+        return (y & 15) << 8 | z << 4 | x;
+    }
+
+    /**
+     * Get the index of a block within the whole column.
+     *
+     * @param x the X coordinate within the column (0-15)
+     * @param y the Y coordinate
+     * @param z the Z coordinate within the column (0-15)
+     * @return the index
+     */
+    public static int columnIndex(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.chunk;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.entity.BaseEntity;
+import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.mask.MaskIntersection;
+import com.sk89q.worldedit.function.mask.MaskUnion;
+import com.sk89q.worldedit.function.operation.Operation;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.Location;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read-only extent that serves blocks and biomes from a set of
+ * {@link ChunkColumn}s captured from a world.
+ *
+ * <p>The columns are not changed once the extent has been created, so
+ * the extent can be read from any number of threads at once without
+ * locking. Work that only reads blocks, such as counting or planning
+ * changes, can then be done on worker threads while the world carries on
+ * changing on the server thread. The masks, functions and expressions
+ * used for that work must read from this extent rather than the world,
+ * and must themselves be safe to use from several threads:
+ * {@link MaskIntersection} and {@link MaskUnion} keep their state per
+ * thread, but most other masks and functions have not been written with
+ * threads in mind and should get one instance per thread.</p>
+ *
+ * <p>Blocks in columns that were not captured, and blocks outside of
+ * the Y range that was captured, are read as air. Changes are not
+ * accepted, and there are no entities.</p>
+ *
+ * @see World#captureRegion(Region, int)
+ */
+public class ChunkSnapshotExtent implements Extent {
+
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int width;
+    private final int length;
+    private final int height;
+    private final ChunkColumn[] columns;
+
+    /**
+     * Create a new extent.
+     *
+     * <p>The columns must not be changed after they have been given to
+     * this extent.</p>
+     *
+     * @param columns the columns, which must all have the same height and
+     *                different positions
+     */
+    public ChunkSnapshotExtent(Collection<ChunkColumn> columns) {
+        checkNotNull(columns);
+
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        int height = -1;
+        if (columns.isEmpty()) {
+            // An empty region captures nothing
+            minX = minZ = 0;
+            maxX = maxZ = -1;
+            height = 0;
+        }
+        for (ChunkColumn column : columns) {
+            BlockVector2D position = column.getPosition();
+            minX = Math.min(minX, position.getBlockX());
+            minZ = Math.min(minZ, position.getBlockZ());
+            maxX = Math.max(maxX, position.getBlockX());
+            maxZ = Math.max(maxZ, position.getBlockZ());
+            checkArgument(height == -1 || column.getHeight() == height, "columns must all have the same height");
+            height = column.getHeight();
+        }
+
+        this.minChunkX = minX;
+        this.minChunkZ = minZ;
+        this.width = maxX - minX + 1;
+        this.length = maxZ - minZ + 1;
+        this.height = height;
+        this.columns = new ChunkColumn[width * length];
+        for (ChunkColumn column : columns) {
+            BlockVector2D position = column.getPosition();
+            this.columns[(position.getBlockZ() - minZ) * width + position.getBlockX() - minX] = column;
+        }
+    }
+
+    /**
+     * Get the column that contains the given block.
+     *
+     * @param x the X coordinate
+     * @param z the Z coordinate
+     * @return the column, or null if it was not captured
+     */
+    @Nullable
+    public ChunkColumn getColumn(int x, int z) {
+        int chunkX = (x >> 4) - minChunkX;
+        int chunkZ = (z >> 4) - minChunkZ;
+        if (chunkX < 0 || chunkX >= width || chunkZ < 0 || chunkZ >= length) {
+            return null;
+        }
+        return columns[chunkZ * width + chunkX];
+    }
+
+    /**
+     * Get the type ID of a block without creating a {@link BaseBlock}.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the type ID
+     */
+    public int getTypeId(int x, int y, int z) {
+        ChunkColumn column = getColumn(x, z);
+        if (column == null || y < 0 || y >= height) {
+            return 0;
+        }
+        return column.getTypeId(x & 15, y, z & 15);
+    }
+
+    /**
+     * Get the data value of a block without creating a {@link BaseBlock}.
+     *
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param z the Z coordinate
+     * @return the data value
+     */
+    public int getData(int x, int y, int z) {
+        ChunkColumn column = getColumn(x, z);
+        if (column == null || y < 0 || y >= height) {
+            return 0;
+        }
+        return column.getData(x & 15, y, z & 15);
+    }
+
+    @Override
+    public Vector getMinimumPoint() {
+        return new Vector(minChunkX << 4, 0, minChunkZ << 4);
+    }
+
+    @Override
+    public Vector getMaximumPoint() {
+        return new Vector(((minChunkX + width) << 4) - 1, height - 1, ((minChunkZ + length) << 4) - 1);
+    }
+
+    @Override
+    public BaseBlock getBlock(Vector position) {
+        int x = position.getBlockX();
+        int y = position.getBlockY();
+        int z = position.getBlockZ();
+        ChunkColumn column = getColumn(x, z);
+        if (column == null || y < 0 || y >= height) {
+            return new BaseBlock(0);
+        }
+
+        BaseBlock block = column.getBlock(x & 15, y, z & 15);
+        // Blocks with NBT data are shared, so hand out a copy that can be changed
+        return block.hasNbtData() ? new BaseBlock(block) : block;
+    }
+
+    @Override
+    public BaseBlock getLazyBlock(Vector position) {
+        return getBlock(position);
+    }
+
+    @Nullable
+    @Override
+    public BaseBiome getBiome(Vector2D position) {
+        int x = position.getBlockX();
+        int z = position.getBlockZ();
+        ChunkColumn column = getColumn(x, z);
+        int[] biomes = column != null ? column.getBiomes() : null;
+        if (biomes == null) {
+            return null;
+        }
+        return new BaseBiome(biomes[(z & 15) << 4 | (x & 15)]);
+    }
+
+    @Override
+    public List<? extends Entity> getEntities(Region region) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<? extends Entity> getEntities() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        return Iterators.emptyIterator();
+    }
+
+    @Nullable
+    @Override
+    public Entity createEntity(Location location, BaseEntity entity) {
+        return null;
+    }
+
+    @Override
+    public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+        return false;
+    }
+
+    @Override
+    public boolean setBiome(Vector2D position, BaseBiome biome) {
+        return false;
+    }
+
+    @Nullable
+    @Override
+    public Operation commit() {
+        return null;
+    }
+
+}
@@ -25,9 +25,9 @@
 import com.sk89q.jnbt.ListTag;
 import com.sk89q.jnbt.NBTUtils;
 import com.sk89q.jnbt.Tag;
-import com.sk89q.worldedit.BlockVector;
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.math.BlockPosition;
 import com.sk89q.worldedit.world.DataException;
 import com.sk89q.worldedit.world.World;
 import com.sk89q.worldedit.world.storage.InvalidFormatException;
@@ -47,7 +47,7 @@ public class OldChunk implements Chunk {
     private int rootX;
     private int rootZ;
 
-    private Map<BlockVector, Map<String,Tag>> tileEntities;
+    private Map<BlockPosition, Map<String,Tag>> tileEntities;
 
     /**
      * Construct the chunk with a compound tag.
@@ -123,7 +123,7 @@ private void populateTileEntities() throws DataException {
                 rootTag.getValue(), "TileEntities", ListTag.class)
                 .getValue();
 
-        tileEntities = new HashMap<BlockVector, Map<String, Tag>>();
+        tileEntities = new HashMap<BlockPosition, Map<String, Tag>>();
 
         for (Tag tag : tags) {
             if (!(tag instanceof CompoundTag)) {
@@ -156,7 +156,7 @@ private void populateTileEntities() throws DataException {
                 values.put(entry.getKey(), entry.getValue());
             }
 
-            BlockVector vec = new BlockVector(x, y, z);
+            BlockPosition vec = new BlockPosition(x, y, z);
             tileEntities.put(vec, values);
         }
     }
@@ -175,7 +175,7 @@ private CompoundTag getBlockTileEntity(Vector position) throws DataException {
             populateTileEntities();
         }
 
-        Map<String, Tag> values = tileEntities.get(new BlockVector(position));
+        Map<String, Tag> values = tileEntities.get(new BlockPosition(position));
         if (values == null) {
             return null;
         }
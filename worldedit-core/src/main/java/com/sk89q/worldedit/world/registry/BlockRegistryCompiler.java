@@ -0,0 +1,60 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.registry;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compiles {@code blocks.json} into the binary form that is read by
+ * {@link BundledBlockData}.
+ *
+ * <p>This is run as part of the build.</p>
+ */
+public final class BlockRegistryCompiler {
+
+    private BlockRegistryCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BlockRegistryCompiler <blocks.json> <output>");
+            System.exit(1);
+            return;
+        }
+
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        byte[] data = BundledBlockData.compile(BundledBlockData.parseJson(Files.toString(input, Charsets.UTF_8)));
+
+        // Make sure that what was written can be read back
+        new BundledBlockData(data);
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create " + parent.getPath());
+        }
+        Files.write(data, output);
+    }
+
+}
@@ -28,12 +28,24 @@
 import com.sk89q.worldedit.util.gson.VectorAdapter;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,17 +56,27 @@
  * <p>A new instance cannot be created. Use {@link #getInstance()} to get
  * an instance.</p>
  *
- * <p>The data is read from a JSON file that is bundled with WorldEdit. If
- * reading fails (which occurs when this class is first instantiated), then
- * the methods will return {@code null}s for all blocks.</p>
+ * <p>The data is read from a binary file that is compiled from
+ * {@code blocks.json} by {@link BlockRegistryCompiler} when WorldEdit is
+ * built, or from the JSON file itself if the compiled file is missing.
+ * Only the table of IDs is read up front; the states and material of a
+ * block are decoded the first time that they are requested. If reading
+ * fails (which occurs when this class is first instantiated), then the
+ * methods will return {@code null}s for all blocks.</p>
  */
 public class BundledBlockData {
 
     private static final Logger log = Logger.getLogger(BundledBlockData.class.getCanonicalName());
     private static final BundledBlockData INSTANCE = new BundledBlockData();
+    static final String COMPILED_RESOURCE = "blocks.bin";
+    private static final int MAGIC = 0x57454252;
+    private static final int FORMAT_VERSION = 1;
 
-    private final Map<String, BlockEntry> idMap = new HashMap<String, BlockEntry>();
-    private final Map<Integer, BlockEntry> legacyMap = new HashMap<Integer, BlockEntry>(); // Trove usage removed temporarily
+    private String[] sortedIds = new String[0];
+    private int[] sortedLegacyIds = new int[0];
+    private int[] offsets = new int[0];
+    private byte[] entryData = new byte[0];
+    private AtomicReferenceArray<BlockEntry> entries = new AtomicReferenceArray<BlockEntry>(0);
 
     /**
      * Create a new instance.
@@ -67,27 +89,67 @@ private BundledBlockData() {
         }
     }
 
+    /**
+     * Create a new instance from compiled data.
+     *
+     * @param data the compiled data
+     * @throws IOException thrown if the data is invalid
+     */
+    BundledBlockData(byte[] data) throws IOException {
+        load(data);
+    }
+
     /**
      * Attempt to load the data from file.
      *
      * @throws IOException thrown on I/O error
      */
     private void loadFromResource() throws IOException {
-        GsonBuilder gsonBuilder = new GsonBuilder();
-        gsonBuilder.registerTypeAdapter(Vector.class, new VectorAdapter());
-        Gson gson = gsonBuilder.create();
-        URL url = BundledBlockData.class.getResource("blocks.json");
+        URL url = BundledBlockData.class.getResource(COMPILED_RESOURCE);
+        if (url != null) {
+            load(Resources.toByteArray(url));
+            return;
+        }
+
+        url = BundledBlockData.class.getResource("blocks.json");
         if (url == null) {
             throw new IOException("Could not find blocks.json");
         }
-        String data = Resources.toString(url, Charset.defaultCharset());
-        List<BlockEntry> entries = gson.fromJson(data, new TypeToken<List<BlockEntry>>() {}.getType());
+        load(compile(parseJson(Resources.toString(url, Charset.defaultCharset()))));
+    }
 
-        for (BlockEntry entry : entries) {
-            entry.postDeserialization();
-            idMap.put(entry.id, entry);
-            legacyMap.put(entry.legacyId, entry);
+    /**
+     * Read the table of IDs from compiled data.
+     *
+     * @param data the compiled data
+     * @throws IOException thrown if the data is invalid
+     */
+    private void load(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("The compiled block registry is not in a supported format");
         }
+
+        int count = in.readInt();
+        int maxLegacyId = in.readInt();
+        String[] ids = new String[count];
+        int[] legacyIds = new int[count];
+        int[] entryOffsets = new int[maxLegacyId + 1];
+        Arrays.fill(entryOffsets, -1);
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readUTF();
+            legacyIds[i] = in.readUnsignedShort();
+            entryOffsets[legacyIds[i]] = in.readInt();
+        }
+
+        byte[] entryBytes = new byte[in.readInt()];
+        in.readFully(entryBytes);
+
+        sortedIds = ids;
+        sortedLegacyIds = legacyIds;
+        offsets = entryOffsets;
+        entryData = entryBytes;
+        entries = new AtomicReferenceArray<BlockEntry>(entryOffsets.length);
     }
 
     /**
@@ -98,7 +160,8 @@ private void loadFromResource() throws IOException {
      */
     @Nullable
     private BlockEntry findById(String id) {
-        return idMap.get(id);
+        int index = Arrays.binarySearch(sortedIds, id);
+        return index >= 0 ? findById(sortedLegacyIds[index]) : null;
     }
 
     /**
@@ -109,7 +172,24 @@ private BlockEntry findById(String id) {
      */
     @Nullable
     private BlockEntry findById(int id) {
-        return legacyMap.get(id);
+        if (id < 0 || id >= offsets.length || offsets[id] == -1) {
+            return null;
+        }
+
+        BlockEntry entry = entries.get(id);
+        if (entry == null) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(entryData, offsets[id], entryData.length - offsets[id]));
+                entry = BlockEntry.read(in);
+            } catch (IOException e) {
+                throw new RuntimeException("The compiled block registry is corrupt", e);
+            }
+            // Another thread may have got here first
+            if (!entries.compareAndSet(id, null, entry)) {
+                entry = entries.get(id);
+            }
+        }
+        return entry;
     }
 
     /**
@@ -120,9 +200,9 @@ private BlockEntry findById(int id) {
      */
     @Nullable
     public Integer toLegacyId(String id) {
-        BlockEntry entry = findById(id);
-        if (entry != null) {
-            return entry.legacyId;
+        int index = Arrays.binarySearch(sortedIds, id);
+        if (index >= 0) {
+            return sortedLegacyIds[index];
         } else {
             return null;
         }
@@ -169,7 +249,76 @@ public static BundledBlockData getInstance() {
         return INSTANCE;
     }
 
-    private static class BlockEntry {
+    /**
+     * Parse the JSON form of the block registry.
+     *
+     * @param json the JSON
+     * @return a list of entries
+     */
+    static List<BlockEntry> parseJson(String json) {
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        gsonBuilder.registerTypeAdapter(Vector.class, new VectorAdapter());
+        Gson gson = gsonBuilder.create();
+        List<BlockEntry> entries = gson.fromJson(json, new TypeToken<List<BlockEntry>>() {}.getType());
+        for (BlockEntry entry : entries) {
+            entry.postDeserialization();
+        }
+        return entries;
+    }
+
+    /**
+     * Compile entries into the binary form that is read by
+     * {@link #BundledBlockData(byte[])}.
+     *
+     * <p>The file starts with a table of string IDs, sorted so that they
+     * can be binary searched, together with the legacy ID of each block
+     * and the offset of its entry. The entries follow.</p>
+     *
+     * @param entries the entries
+     * @return the compiled data
+     * @throws IOException thrown on I/O error
+     */
+    static byte[] compile(List<BlockEntry> entries) throws IOException {
+        List<BlockEntry> sorted = new ArrayList<BlockEntry>(entries);
+        Collections.sort(sorted, new Comparator<BlockEntry>() {
+            @Override
+            public int compare(BlockEntry o1, BlockEntry o2) {
+                return o1.id.compareTo(o2.id);
+            }
+        });
+
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entryBytes);
+        int[] entryOffsets = new int[sorted.size()];
+        int maxLegacyId = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            BlockEntry entry = sorted.get(i);
+            if (entry.legacyId < 0 || entry.legacyId > 0xFFFF) {
+                throw new IOException("Legacy ID out of range for " + entry.id);
+            }
+            maxLegacyId = Math.max(maxLegacyId, entry.legacyId);
+            entryOffsets[i] = entryOut.size();
+            entry.write(entryOut);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(sorted.size());
+        out.writeInt(maxLegacyId);
+        for (int i = 0; i < sorted.size(); i++) {
+            out.writeUTF(sorted.get(i).id);
+            out.writeShort(sorted.get(i).legacyId);
+            out.writeInt(entryOffsets[i]);
+        }
+        out.writeInt(entryOut.size());
+        entryBytes.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static class BlockEntry {
         private int legacyId;
         private String id;
         private String unlocalizedName;
@@ -182,6 +331,44 @@ void postDeserialization() {
                 state.postDeserialization();
             }
         }
+
+        void write(DataOutput out) throws IOException {
+            out.writeBoolean(unlocalizedName != null);
+            if (unlocalizedName != null) {
+                out.writeUTF(unlocalizedName);
+            }
+            out.writeShort(aliases != null ? aliases.size() : 0);
+            if (aliases != null) {
+                for (String alias : aliases) {
+                    out.writeUTF(alias);
+                }
+            }
+            out.writeShort(states.size());
+            for (Map.Entry<String, SimpleState> entry : states.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+            material.write(out);
+        }
+
+        static BlockEntry read(DataInput in) throws IOException {
+            BlockEntry entry = new BlockEntry();
+            entry.unlocalizedName = in.readBoolean() ? in.readUTF() : null;
+            int aliasCount = in.readUnsignedShort();
+            if (aliasCount > 0) {
+                entry.aliases = new ArrayList<String>(aliasCount);
+                for (int i = 0; i < aliasCount; i++) {
+                    entry.aliases.add(in.readUTF());
+                }
+            }
+            int stateCount = in.readUnsignedShort();
+            entry.states = new LinkedHashMap<String, SimpleState>(stateCount);
+            for (int i = 0; i < stateCount; i++) {
+                entry.states.put(in.readUTF(), SimpleState.read(in));
+            }
+            entry.material = SimpleBlockMaterial.read(in);
+            return entry;
+        }
     }
 
 }
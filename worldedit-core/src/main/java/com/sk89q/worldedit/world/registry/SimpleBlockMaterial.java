@@ -21,6 +21,10 @@
 
 import com.sk89q.worldedit.blocks.BlockMaterial;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 class SimpleBlockMaterial implements BlockMaterial {
 
     private boolean renderedAsNormalBlock;
@@ -243,4 +247,72 @@ public boolean isReplacedDuringPlacement() {
     public void setReplacedDuringPlacement(boolean replacedDuringPlacement) {
         this.replacedDuringPlacement = replacedDuringPlacement;
     }
+    /**
+     * Write this material in the compiled registry format.
+     *
+     * @param out the output
+     * @throws IOException thrown on I/O error
+     */
+    void write(DataOutput out) throws IOException {
+        int flags = 0;
+        if (renderedAsNormalBlock) flags |= 1 << 0;
+        if (fullCube) flags |= 1 << 1;
+        if (opaque) flags |= 1 << 2;
+        if (powerSource) flags |= 1 << 3;
+        if (liquid) flags |= 1 << 4;
+        if (solid) flags |= 1 << 5;
+        if (grassBlocking) flags |= 1 << 6;
+        if (fragileWhenPushed) flags |= 1 << 7;
+        if (unpushable) flags |= 1 << 8;
+        if (adventureModeExempt) flags |= 1 << 9;
+        if (ticksRandomly) flags |= 1 << 10;
+        if (usingNeighborLight) flags |= 1 << 11;
+        if (movementBlocker) flags |= 1 << 12;
+        if (burnable) flags |= 1 << 13;
+        if (toolRequired) flags |= 1 << 14;
+        if (replacedDuringPlacement) flags |= 1 << 15;
+        out.writeInt(flags);
+        out.writeFloat(hardness);
+        out.writeFloat(resistance);
+        out.writeFloat(slipperiness);
+        out.writeFloat(ambientOcclusionLightValue);
+        out.writeShort(lightOpacity);
+        out.writeShort(lightValue);
+    }
+
+    /**
+     * Read a material in the compiled registry format.
+     *
+     * @param in the input
+     * @return a material
+     * @throws IOException thrown on I/O error
+     */
+    static SimpleBlockMaterial read(DataInput in) throws IOException {
+        SimpleBlockMaterial material = new SimpleBlockMaterial();
+        int flags = in.readInt();
+        material.renderedAsNormalBlock = (flags & 1 << 0) != 0;
+        material.fullCube = (flags & 1 << 1) != 0;
+        material.opaque = (flags & 1 << 2) != 0;
+        material.powerSource = (flags & 1 << 3) != 0;
+        material.liquid = (flags & 1 << 4) != 0;
+        material.solid = (flags & 1 << 5) != 0;
+        material.grassBlocking = (flags & 1 << 6) != 0;
+        material.fragileWhenPushed = (flags & 1 << 7) != 0;
+        material.unpushable = (flags & 1 << 8) != 0;
+        material.adventureModeExempt = (flags & 1 << 9) != 0;
+        material.ticksRandomly = (flags & 1 << 10) != 0;
+        material.usingNeighborLight = (flags & 1 << 11) != 0;
+        material.movementBlocker = (flags & 1 << 12) != 0;
+        material.burnable = (flags & 1 << 13) != 0;
+        material.toolRequired = (flags & 1 << 14) != 0;
+        material.replacedDuringPlacement = (flags & 1 << 15) != 0;
+        material.hardness = in.readFloat();
+        material.resistance = in.readFloat();
+        material.slipperiness = in.readFloat();
+        material.ambientOcclusionLightValue = in.readFloat();
+        material.lightOpacity = in.readShort();
+        material.lightValue = in.readShort();
+        return material;
+    }
+
 }
@@ -22,7 +22,11 @@
 import com.sk89q.worldedit.blocks.BaseBlock;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 class SimpleState implements State {
@@ -68,4 +72,41 @@ void postDeserialization() {
         }
     }
 
+    /**
+     * Write this state in the compiled registry format.
+     *
+     * @param out the output
+     * @throws IOException thrown on I/O error
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeBoolean(dataMask != null);
+        out.writeByte(dataMask != null ? dataMask : 0);
+        out.writeShort(values.size());
+        for (Map.Entry<String, SimpleStateValue> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    /**
+     * Read a state in the compiled registry format.
+     *
+     * @param in the input
+     * @return a state
+     * @throws IOException thrown on I/O error
+     */
+    static SimpleState read(DataInput in) throws IOException {
+        SimpleState state = new SimpleState();
+        boolean hasDataMask = in.readBoolean();
+        byte dataMask = in.readByte();
+        state.dataMask = hasDataMask ? dataMask : null;
+        int count = in.readUnsignedShort();
+        state.values = new LinkedHashMap<String, SimpleStateValue>(count);
+        for (int i = 0; i < count; i++) {
+            state.values.put(in.readUTF(), SimpleStateValue.read(in));
+        }
+        state.postDeserialization();
+        return state;
+    }
+
 }
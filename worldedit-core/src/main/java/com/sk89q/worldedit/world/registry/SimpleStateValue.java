@@ -22,6 +22,10 @@
 import com.sk89q.worldedit.Vector;
 import com.sk89q.worldedit.blocks.BaseBlock;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 class SimpleStateValue implements StateValue {
 
     private SimpleState state;
@@ -52,4 +56,39 @@ public Vector getDirection() {
         return direction;
     }
 
+    /**
+     * Write this value in the compiled registry format.
+     *
+     * @param out the output
+     * @throws IOException thrown on I/O error
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeBoolean(data != null);
+        out.writeByte(data != null ? data : 0);
+        out.writeBoolean(direction != null);
+        if (direction != null) {
+            out.writeDouble(direction.getX());
+            out.writeDouble(direction.getY());
+            out.writeDouble(direction.getZ());
+        }
+    }
+
+    /**
+     * Read a value in the compiled registry format.
+     *
+     * @param in the input
+     * @return a value
+     * @throws IOException thrown on I/O error
+     */
+    static SimpleStateValue read(DataInput in) throws IOException {
+        SimpleStateValue value = new SimpleStateValue();
+        boolean hasData = in.readBoolean();
+        byte data = in.readByte();
+        value.data = hasData ? data : null;
+        if (in.readBoolean()) {
+            value.direction = new Vector(in.readDouble(), in.readDouble(), in.readDouble());
+        }
+        return value;
+    }
+
 }
@@ -0,0 +1,533 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.snapshot;
+
+import com.sk89q.worldedit.util.io.Closer;
+import com.sk89q.worldedit.world.storage.MissingWorldException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps an index of the snapshots in a {@link SnapshotRepository}.
+ *
+ * <p>For every world, the index keeps the sorted list of snapshots and their
+ * dates, which is reused until the modification time of the repository
+ * directory, the world's own directory or any of the snapshots that were
+ * looked at changes. When it does, only snapshots that are new or have
+ * been modified since they were last seen have their date detected and
+ * their contents checked. If an index file has been set, the index is
+ * also written to it so that it survives restarts.</p>
+ */
+class SnapshotCatalogue {
+
+    private static final Logger log = Logger.getLogger(SnapshotCatalogue.class.getCanonicalName());
+    private static final int FORMAT_VERSION = 2;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final SnapshotRepository repository;
+    private final Map<String, FileEntry> files = new HashMap<String, FileEntry>();
+    private final Map<String, WorldIndex> worlds = new HashMap<String, WorldIndex>();
+    @Nullable private File indexFile;
+    private boolean loaded = false;
+
+    /**
+     * Create a new catalogue.
+     *
+     * @param repository the repository
+     */
+    SnapshotCatalogue(SnapshotRepository repository) {
+        checkNotNull(repository);
+        this.repository = repository;
+    }
+
+    /**
+     * Get the index of a world, refreshing it if the repository has
+     * changed since it was built.
+     *
+     * @param worldName the name of the world
+     * @return the index
+     * @throws MissingWorldException thrown if the repository can't be read
+     */
+    synchronized WorldIndex getIndex(String worldName) throws MissingWorldException {
+        checkNotNull(worldName);
+
+        if (!loaded) {
+            loaded = true;
+            load();
+        }
+
+        File dir = repository.getDirectory();
+        WorldIndex index = worlds.get(worldName);
+        if (index != null && index.isCurrent(dir)) {
+            return index;
+        }
+
+        index = build(worldName);
+        worlds.put(worldName, index);
+        save();
+        return index;
+    }
+
+    /**
+     * Set the file that the index is kept in between restarts, forgetting
+     * everything that has been indexed so far.
+     *
+     * @param indexFile the file, or null to only keep the index in memory
+     */
+    synchronized void setIndexFile(@Nullable File indexFile) {
+        this.indexFile = indexFile;
+        files.clear();
+        worlds.clear();
+        loaded = false;
+    }
+
+    private WorldIndex build(String worldName) throws MissingWorldException {
+        File dir = repository.getDirectory();
+        long modified = dir.lastModified();
+        File[] snapshotFiles = dir.listFiles();
+        if (snapshotFiles == null) {
+            throw new MissingWorldException(worldName);
+        }
+
+        List<Snapshot> list = new ArrayList<Snapshot>(snapshotFiles.length);
+        List<String> worldDirs = new ArrayList<String>();
+        List<Long> worldDirsModified = new ArrayList<Long>();
+        List<String> checked = new ArrayList<String>();
+        List<Long> checkedModified = new ArrayList<Long>();
+        Set<String> seen = new HashSet<String>();
+
+        for (File file : snapshotFiles) {
+            seen.add(file.getName());
+            if (repository.isValidSnapshot(file)) {
+                FileEntry entry = getEntry(file.getName(), file);
+                checked.add(file.getName());
+                checkedModified.add(entry.modified);
+                if (entry.containsWorld(file.getName(), worldName)) {
+                    list.add(entry.createSnapshot(file.getName()));
+                }
+            } else if (file.isDirectory() && file.getName().equalsIgnoreCase(worldName)) {
+                worldDirs.add(file.getName());
+                worldDirsModified.add(file.lastModified());
+                File[] children = file.listFiles();
+                if (children == null) {
+                    continue;
+                }
+                for (File child : children) {
+                    String name = file.getName() + "/" + child.getName();
+                    seen.add(name);
+                    if (repository.isValidSnapshot(child)) {
+                        FileEntry entry = getEntry(name, child);
+                        checked.add(name);
+                        checkedModified.add(entry.modified);
+                        list.add(entry.createSnapshot(name));
+                    }
+                }
+            }
+        }
+
+        // Forget about snapshots that were in the directories we listed but are now gone
+        for (Iterator<String> it = files.keySet().iterator(); it.hasNext(); ) {
+            String name = it.next();
+            int slash = name.indexOf('/');
+            if ((slash == -1 || worldDirs.contains(name.substring(0, slash))) && !seen.contains(name)) {
+                it.remove();
+            }
+        }
+
+        Collections.sort(list);
+
+        String[] names = new String[list.size()];
+        long[] dates = new long[list.size()];
+        for (int i = 0; i < names.length; i++) {
+            Snapshot snapshot = list.get(i);
+            names[i] = snapshot.getName();
+            dates[i] = snapshot.getDate() != null ? snapshot.getDate().getTimeInMillis() : NO_DATE;
+        }
+
+        return new WorldIndex(modified,
+                worldDirs.toArray(new String[worldDirs.size()]), toLongArray(worldDirsModified),
+                checked.toArray(new String[checked.size()]), toLongArray(checkedModified),
+                names, dates);
+    }
+
+    private FileEntry getEntry(String name, File file) {
+        long modified = file.lastModified();
+        FileEntry entry = files.get(name);
+        if (entry == null || entry.modified != modified) {
+            entry = new FileEntry(modified);
+            files.put(name, entry);
+        }
+        return entry;
+    }
+
+    private static long[] toLongArray(List<Long> list) {
+        long[] array = new long[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static Calendar toCalendar(long date) {
+        if (date == NO_DATE) {
+            return null;
+        }
+
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(date);
+        return calendar;
+    }
+
+    private void load() {
+        File file = indexFile;
+        if (file == null || !file.isFile()) {
+            return;
+        }
+
+        Closer closer = Closer.create();
+        try {
+            FileInputStream fis = closer.register(new FileInputStream(file));
+            DataInputStream in = closer.register(new DataInputStream(new BufferedInputStream(fis)));
+
+            // An index of a different directory is of no use
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(repository.getDirectory().getAbsolutePath())) {
+                return;
+            }
+
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String name = in.readUTF();
+                FileEntry entry = new FileEntry(in.readLong());
+                entry.dateDetected = in.readBoolean();
+                entry.date = in.readLong();
+                int worldCount = in.readInt();
+                for (int j = 0; j < worldCount; j++) {
+                    entry.worlds.put(in.readUTF(), in.readBoolean());
+                }
+                files.put(name, entry);
+            }
+
+            int indexCount = in.readInt();
+            for (int i = 0; i < indexCount; i++) {
+                String worldName = in.readUTF();
+                long modified = in.readLong();
+                String[] worldDirs = new String[in.readInt()];
+                long[] worldDirsModified = new long[worldDirs.length];
+                for (int j = 0; j < worldDirs.length; j++) {
+                    worldDirs[j] = in.readUTF();
+                    worldDirsModified[j] = in.readLong();
+                }
+                String[] checked = new String[in.readInt()];
+                long[] checkedModified = new long[checked.length];
+                for (int j = 0; j < checked.length; j++) {
+                    checked[j] = in.readUTF();
+                    checkedModified[j] = in.readLong();
+                }
+                String[] names = new String[in.readInt()];
+                long[] dates = new long[names.length];
+                for (int j = 0; j < names.length; j++) {
+                    names[j] = in.readUTF();
+                    dates[j] = in.readLong();
+                }
+                worlds.put(worldName, new WorldIndex(modified, worldDirs, worldDirsModified, checked, checkedModified, names, dates));
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to read the snapshot index at " + file.getPath() + "; it will be rebuilt", e);
+            files.clear();
+            worlds.clear();
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void save() {
+        File file = indexFile;
+        if (file == null) {
+            return;
+        }
+
+        Closer closer = Closer.create();
+
+        try {
+            FileOutputStream fos = closer.register(new FileOutputStream(file));
+            DataOutputStream out = closer.register(new DataOutputStream(new BufferedOutputStream(fos)));
+
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(repository.getDirectory().getAbsolutePath());
+
+            out.writeInt(files.size());
+            for (Map.Entry<String, FileEntry> entry : files.entrySet()) {
+                FileEntry value = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(value.modified);
+                out.writeBoolean(value.dateDetected);
+                out.writeLong(value.date);
+                out.writeInt(value.worlds.size());
+                for (Map.Entry<String, Boolean> world : value.worlds.entrySet()) {
+                    out.writeUTF(world.getKey());
+                    out.writeBoolean(world.getValue());
+                }
+            }
+
+            out.writeInt(worlds.size());
+            for (Map.Entry<String, WorldIndex> entry : worlds.entrySet()) {
+                WorldIndex index = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(index.modified);
+                out.writeInt(index.worldDirs.length);
+                for (int i = 0; i < index.worldDirs.length; i++) {
+                    out.writeUTF(index.worldDirs[i]);
+                    out.writeLong(index.worldDirsModified[i]);
+                }
+                out.writeInt(index.checked.length);
+                for (int i = 0; i < index.checked.length; i++) {
+                    out.writeUTF(index.checked[i]);
+                    out.writeLong(index.checkedModified[i]);
+                }
+                out.writeInt(index.names.length);
+                for (int i = 0; i < index.names.length; i++) {
+                    out.writeUTF(index.names[i]);
+                    out.writeLong(index.dates[i]);
+                }
+            }
+        } catch (IOException e) {
+            // The in-memory index will have to do
+            log.log(Level.FINE, "Failed to write the snapshot index to " + file.getPath(), e);
+        } finally {
+            try {
+                closer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * What is known about one snapshot file.
+     */
+    private final class FileEntry {
+        private final long modified;
+        private final Map<String, Boolean> worlds = new HashMap<String, Boolean>();
+        private boolean dateDetected = false;
+        private long date = NO_DATE;
+
+        private FileEntry(long modified) {
+            this.modified = modified;
+        }
+
+        private boolean containsWorld(String name, String worldName) {
+            Boolean contains = worlds.get(worldName);
+            if (contains == null) {
+                contains = new Snapshot(repository, name).containsWorld(worldName);
+                worlds.put(worldName, contains);
+            }
+            return contains;
+        }
+
+        private Snapshot createSnapshot(String name) {
+            Snapshot snapshot = new Snapshot(repository, name);
+            if (dateDetected) {
+                snapshot.setDate(toCalendar(date));
+            } else {
+                repository.detectDate(snapshot);
+                dateDetected = true;
+                date = snapshot.getDate() != null ? snapshot.getDate().getTimeInMillis() : NO_DATE;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * The sorted snapshots of one world.
+     */
+    final class WorldIndex {
+        private final long modified;
+        private final String[] worldDirs;
+        private final long[] worldDirsModified;
+        private final String[] checked;
+        private final long[] checkedModified;
+        private final String[] names;
+        private final long[] dates;
+        private final String[] datedNames;
+        private final long[] datedDates;
+
+        private WorldIndex(long modified, String[] worldDirs, long[] worldDirsModified,
+                           String[] checked, long[] checkedModified, String[] names, long[] dates) {
+            this.modified = modified;
+            this.worldDirs = worldDirs;
+            this.worldDirsModified = worldDirsModified;
+            this.checked = checked;
+            this.checkedModified = checkedModified;
+            this.names = names;
+            this.dates = dates;
+
+            int count = 0;
+            for (long date : dates) {
+                if (date != NO_DATE) {
+                    count++;
+                }
+            }
+
+            if (count == dates.length) {
+                // Sorted by date already
+                datedNames = names;
+                datedDates = dates;
+            } else {
+                Snapshot[] dated = new Snapshot[count];
+                int i = 0;
+                for (int j = 0; j < names.length; j++) {
+                    if (dates[j] != NO_DATE) {
+                        dated[i] = new Snapshot(repository, names[j]);
+                        dated[i].setDate(toCalendar(dates[j]));
+                        i++;
+                    }
+                }
+                Arrays.sort(dated);
+                datedNames = new String[count];
+                datedDates = new long[count];
+                for (i = 0; i < count; i++) {
+                    datedNames[i] = dated[i].getName();
+                    datedDates[i] = dated[i].getDate().getTimeInMillis();
+                }
+            }
+        }
+
+        private boolean isCurrent(File dir) {
+            if (dir.lastModified() != modified) {
+                return false;
+            }
+
+            for (int i = 0; i < worldDirs.length; i++) {
+                if (new File(dir, worldDirs[i]).lastModified() != worldDirsModified[i]) {
+                    return false;
+                }
+            }
+
+            // A snapshot that is still being written doesn't change the
+            // modification time of its directory, but does change its own
+            for (int i = 0; i < checked.length; i++) {
+                if (new File(dir, checked[i]).lastModified() != checkedModified[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Get the snapshots of the world.
+         *
+         * @param newestFirst true to get the newest first
+         * @return a list of snapshots
+         */
+        List<Snapshot> getSnapshots(boolean newestFirst) {
+            List<Snapshot> list = new ArrayList<Snapshot>(names.length);
+            for (int i = 0; i < names.length; i++) {
+                int j = newestFirst ? names.length - 1 - i : i;
+                list.add(createSnapshot(names[j], dates[j]));
+            }
+            return list;
+        }
+
+        /**
+         * Get the newest snapshot that is not after the given date.
+         *
+         * @param date the date
+         * @return a snapshot or null
+         */
+        @Nullable
+        Snapshot getSnapshotBefore(Calendar date) {
+            int i = upperBound(date.getTimeInMillis());
+            return i > 0 ? createSnapshot(datedNames[i - 1], datedDates[i - 1]) : null;
+        }
+
+        /**
+         * Get the oldest snapshot that is not before the given date.
+         *
+         * @param date the date
+         * @return a snapshot or null
+         */
+        @Nullable
+        Snapshot getSnapshotAfter(Calendar date) {
+            int i = lowerBound(date.getTimeInMillis());
+            return i < datedDates.length ? createSnapshot(datedNames[i], datedDates[i]) : null;
+        }
+
+        private int lowerBound(long date) {
+            int low = 0;
+            int high = datedDates.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (datedDates[mid] < date) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int upperBound(long date) {
+            int low = 0;
+            int high = datedDates.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (datedDates[mid] <= date) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private Snapshot createSnapshot(String name, long date) {
+            Snapshot snapshot = new Snapshot(repository, name);
+            snapshot.setDate(toCalendar(date));
+            return snapshot;
+        }
+    }
+
+}
@@ -25,10 +25,8 @@
 
 import javax.annotation.Nullable;
 import java.io.File;
-import java.io.FilenameFilter;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -38,6 +36,7 @@ public class SnapshotRepository {
 
     protected File dir;
     protected List<SnapshotDateParser> dateParsers = new ArrayList<SnapshotDateParser>();
+    private final SnapshotCatalogue catalogue = new SnapshotCatalogue(this);
 
     /**
      * Create a new instance of a repository.
@@ -71,43 +70,7 @@ public SnapshotRepository(String dir) {
      * @return a list of snapshots
      */
     public List<Snapshot> getSnapshots(boolean newestFirst, String worldName) throws MissingWorldException {
-        FilenameFilter filter = new FilenameFilter() {
-            @Override
-            public boolean accept(File dir, String name) {
-                File f = new File(dir, name);
-                return isValidSnapshot(f);
-            }
-        };
-
-        File[] snapshotFiles = dir.listFiles();
-        if (snapshotFiles == null) {
-            throw new MissingWorldException(worldName);
-        }
-        List<Snapshot> list = new ArrayList<Snapshot>(snapshotFiles.length);
-
-        for (File file : snapshotFiles) {
-            if (isValidSnapshot(file)) {
-                Snapshot snapshot = new Snapshot(this, file.getName());
-                if (snapshot.containsWorld(worldName)) {
-                    detectDate(snapshot);
-                    list.add(snapshot);
-                }
-            } else if (file.isDirectory() && file.getName().equalsIgnoreCase(worldName)) {
-                for (String name : file.list(filter)) {
-                    Snapshot snapshot = new Snapshot(this, file.getName() + "/" + name);
-                    detectDate(snapshot);
-                    list.add(snapshot);
-                }
-            }
-        }
-
-        if (newestFirst) {
-            Collections.sort(list, Collections.reverseOrder());
-        } else {
-            Collections.sort(list);
-        }
-
-        return list;
+        return catalogue.getIndex(worldName).getSnapshots(newestFirst);
     }
 
     /**
@@ -118,18 +81,7 @@ public boolean accept(File dir, String name) {
      */
     @Nullable
     public Snapshot getSnapshotAfter(Calendar date, String world) throws MissingWorldException {
-        List<Snapshot> snapshots = getSnapshots(true, world);
-        Snapshot last = null;
-
-        for (Snapshot snapshot : snapshots) {
-            if (snapshot.getDate() != null && snapshot.getDate().before(date)) {
-                return last;
-            }
-
-            last = snapshot;
-        }
-
-        return last;
+        return catalogue.getIndex(world).getSnapshotAfter(date);
     }
 
     /**
@@ -140,18 +92,7 @@ public Snapshot getSnapshotAfter(Calendar date, String world) throws MissingWorl
      */
     @Nullable
     public Snapshot getSnapshotBefore(Calendar date, String world) throws MissingWorldException {
-        List<Snapshot> snapshots = getSnapshots(false, world);
-        Snapshot last = null;
-
-        for (Snapshot snapshot : snapshots) {
-            if (snapshot.getDate().after(date)) {
-                return last;
-            }
-
-            last = snapshot;
-        }
-
-        return last;
+        return catalogue.getIndex(world).getSnapshotBefore(date);
     }
 
     /**
@@ -231,6 +172,16 @@ public Snapshot getSnapshot(String name) throws InvalidSnapshotException {
         return new Snapshot(this, name);
     }
 
+    /**
+     * Set the file that the index of snapshots is saved to, so that it
+     * doesn't have to be rebuilt after a restart.
+     *
+     * @param indexFile the file, or null to only keep the index in memory
+     */
+    public void setIndexFile(@Nullable File indexFile) {
+        catalogue.setIndexFile(indexFile);
+    }
+
     /**
      * Get the snapshot directory.
      *
@@ -0,0 +1,137 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit;
+
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.event.extent.EditSessionEvent;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.CylinderRegion;
+import com.sk89q.worldedit.regions.EllipsoidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.util.eventbus.EventBus;
+import com.sk89q.worldedit.world.SurfaceType;
+import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link EditSession}.
+ */
+public class EditSessionTest {
+
+    private static final BaseBiome BIOME = new BaseBiome(5);
+
+    private World createWorld() {
+        World world = mock(World.class);
+        when(world.getMinimumPoint()).thenReturn(new Vector(-30000000, 0, -30000000));
+        when(world.getMaximumPoint()).thenReturn(new Vector(30000000, 255, 30000000));
+        when(world.getChunkBiomes(any(BlockVector2D.class))).thenReturn(new int[256]);
+        when(world.setBiome(any(Vector2D.class), any(BaseBiome.class))).thenReturn(true);
+        return world;
+    }
+
+    private EditSession createEditSession(World world) {
+        return new EditSession(new EventBus(), world, -1, null, new EditSessionEvent(world, null, -1, null));
+    }
+
+    @Test
+    public void testSetBiomesBoundingCuboid() throws Exception {
+        World world = createWorld();
+        EditSession editSession = createEditSession(world);
+        Region region = new EllipsoidRegion(world, new Vector(8, 64, 8), new Vector(4, 4, 4));
+
+        // Regions that aren't flat are changed in their whole bounding cuboid
+        assertEquals(81, editSession.setBiomes(region, BIOME, null));
+        verify(world, times(81)).setBiome(any(Vector2D.class), any(BaseBiome.class));
+        verify(world).setBiome(new Vector2D(4, 4), BIOME);
+        verify(world).setBiome(new Vector2D(12, 12), BIOME);
+    }
+
+    @Test
+    public void testSetBiomesFlatRegion() throws Exception {
+        World world = createWorld();
+        EditSession editSession = createEditSession(world);
+        CylinderRegion region = new CylinderRegion(world, new Vector(8, 64, 8), new Vector2D(4, 4), 60, 68);
+
+        int columns = 0;
+        for (Vector2D ignored : region.asFlatRegion()) {
+            columns++;
+        }
+
+        // Flat regions are changed in exactly their own columns
+        assertEquals(columns, editSession.setBiomes(region, BIOME, null));
+        verify(world, times(columns)).setBiome(any(Vector2D.class), any(BaseBiome.class));
+        verify(world).setBiome(new Vector2D(8, 4), BIOME);
+        verify(world, never()).setBiome(new Vector2D(4, 4), BIOME);
+    }
+
+    @Test
+    public void testDeformSourceOutsideWorld() throws Exception {
+        World world = createWorld();
+        when(world.getMaxY()).thenReturn(255);
+        when(world.isValidBlockType(anyInt())).thenReturn(true);
+        when(world.getLazyBlock(any(Vector.class))).thenReturn(new BaseBlock(BlockID.STONE));
+        when(world.getBlock(any(Vector.class))).thenReturn(new BaseBlock(BlockID.STONE));
+        EditSession editSession = createEditSession(world);
+        Region region = new CuboidRegion(world, new Vector(0, 64, 0), new Vector(0, 64, 0));
+
+        // y = 4160 would wrap around to y = 64 if it were packed
+        editSession.deformRegion(region, new Vector(0, 0, 0), new Vector(1, 1, 1), "y += 4096");
+        editSession.flushQueue();
+
+        verify(world).setBlock(new Vector(0, 64, 0), new BaseBlock(BlockID.AIR), true);
+    }
+
+    @Test
+    public void testFlushForgetsSurfaceHeights() throws Exception {
+        World world = createWorld();
+        when(world.getMaxY()).thenReturn(255);
+        int[] before = new int[256];
+        int[] after = new int[256];
+        Arrays.fill(before, 64);
+        Arrays.fill(after, 70);
+        when(world.getSurfaceHeights(any(Vector2D.class), any(Vector2D.class), anyInt(), anyInt(), any(SurfaceType.class)))
+                .thenReturn(before, after);
+        EditSession editSession = createEditSession(world);
+        Vector2D min = new Vector2D(0, 0);
+        Vector2D max = new Vector2D(3, 3);
+
+        assertEquals(64, editSession.getSurfaceHeights(min, max, 0, 255, SurfaceType.SOLID)[0]);
+        // The world is changed without going through the edit session
+        assertEquals(64, editSession.getSurfaceHeights(min, max, 0, 255, SurfaceType.SOLID)[0]);
+
+        editSession.flushQueue();
+        assertEquals(70, editSession.getSurfaceHeights(min, max, 0, 255, SurfaceType.SOLID)[0]);
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.command.tool;
+
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.LocalConfiguration;
+import com.sk89q.worldedit.LocalSession;
+import com.sk89q.worldedit.LocalWorld;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEdit;
+import com.sk89q.worldedit.WorldVector;
+import com.sk89q.worldedit.command.tool.brush.Brush;
+import com.sk89q.worldedit.entity.Player;
+import com.sk89q.worldedit.event.platform.PlatformUnreadyEvent;
+import com.sk89q.worldedit.extension.platform.Platform;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link BrushStroke}.
+ */
+public class BrushStrokeTest {
+
+    private static final long WINDOW = 60000;
+    private static final long ENOUGH_TIME = TimeUnit.MINUTES.toNanos(1);
+
+    private LocalWorld world;
+    private Player player;
+    private EditSession editSession;
+    private Platform platform;
+    private Pattern material;
+
+    @Before
+    public void setUp() throws Exception {
+        world = mock(LocalWorld.class);
+        player = mock(Player.class);
+        when(player.getWorld()).thenReturn(world);
+        editSession = mock(EditSession.class);
+        when(editSession.getWorld()).thenReturn(world);
+        when(editSession.size()).thenReturn(1);
+        platform = mock(Platform.class);
+        when(platform.schedule(anyLong(), anyLong(), any(Runnable.class))).thenReturn(1);
+        material = mock(Pattern.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        BrushStroke.finishAll();
+    }
+
+    @Test
+    public void testScheduleFailure() throws Exception {
+        Platform noScheduler = mock(Platform.class);
+        when(noScheduler.schedule(anyLong(), anyLong(), any(Runnable.class))).thenReturn(-1);
+        BrushStroke stroke = new BrushStroke(mock(LocalSession.class), player, editSession, null, WINDOW);
+        assertFalse(BrushStroke.schedule(noScheduler));
+        assertFalse(stroke.start(noScheduler));
+    }
+
+    @Test
+    public void testMerging() throws Exception {
+        Brush first = mock(Brush.class);
+        Brush second = mock(Brush.class);
+        Brush other = mock(Brush.class);
+        BrushStroke stroke = new BrushStroke(mock(LocalSession.class), player, editSession, null, WINDOW);
+        assertTrue(stroke.start(platform));
+
+        stroke.add(new Vector(0, 64, 0), first, material, 2);
+        stroke.add(new Vector(5, 64, 0), other, material, 2);
+        stroke.add(new Vector(0.5, 64.5, 0.5), second, material, 3);
+        BrushStroke.tick(ENOUGH_TIME);
+
+        verify(first, never()).build(any(EditSession.class), any(Vector.class), any(Pattern.class), anyDouble());
+        verify(second, times(1)).build(editSession, new Vector(0.5, 64.5, 0.5), material, 3);
+        verify(other, times(1)).build(editSession, new Vector(5, 64, 0), material, 2);
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        Brush brush = mock(Brush.class);
+        BrushStroke stroke1 = new BrushStroke(mock(LocalSession.class), player, editSession, null, WINDOW);
+        BrushStroke stroke2 = new BrushStroke(mock(LocalSession.class), player, editSession, null, WINDOW);
+        assertTrue(stroke1.start(platform));
+        assertTrue(stroke2.start(platform));
+        for (int i = 0; i < 3; i++) {
+            stroke1.add(new Vector(i, 64, 0), brush, material, 1);
+            stroke2.add(new Vector(i, 64, 10), brush, material, 1);
+        }
+
+        // Every stroke carries out at least one use, even with no time left
+        BrushStroke.tick(0);
+        verify(brush, times(2)).build(eq(editSession), any(Vector.class), eq(material), eq(1.0));
+        BrushStroke.tick(ENOUGH_TIME);
+        verify(brush, times(6)).build(eq(editSession), any(Vector.class), eq(material), eq(1.0));
+        assertFalse(stroke1.isFinished());
+        assertFalse(stroke2.isFinished());
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        LocalSession session = mock(LocalSession.class);
+        BrushStroke stroke = new BrushStroke(session, player, editSession, null, 1);
+        assertTrue(stroke.start(platform));
+        stroke.add(new Vector(0, 64, 0), mock(Brush.class), material, 1);
+        Thread.sleep(5);
+
+        BrushStroke.tick(ENOUGH_TIME);
+        assertTrue(stroke.isFinished());
+        assertFalse(stroke.canContinue(player));
+        verify(session, times(1)).remember(editSession);
+    }
+
+    @Test
+    public void testFinishAll() throws Exception {
+        LocalSession session = mock(LocalSession.class);
+        Brush brush = mock(Brush.class);
+        BrushStroke stroke = new BrushStroke(session, player, editSession, null, WINDOW);
+        assertTrue(stroke.start(platform));
+        stroke.add(new Vector(0, 64, 0), brush, material, 1);
+
+        BrushStroke.finishAll();
+        assertTrue(stroke.isFinished());
+        verify(brush, times(1)).build(editSession, new Vector(0, 64, 0), material, 1);
+        verify(session, times(1)).remember(editSession);
+
+        // The task is scheduled again after it has been cancelled
+        assertTrue(BrushStroke.schedule(platform));
+        verify(platform, times(2)).schedule(anyLong(), anyLong(), any(Runnable.class));
+    }
+
+    @Test
+    public void testPlatformUnready() throws Exception {
+        LocalSession session = mock(LocalSession.class);
+        BrushStroke stroke = new BrushStroke(session, player, editSession, null, WINDOW);
+        assertTrue(stroke.start(platform));
+        stroke.add(new Vector(0, 64, 0), mock(Brush.class), material, 1);
+
+        // Strokes are left alone when another platform goes away
+        WorldEdit.getInstance().getEventBus().post(new PlatformUnreadyEvent(mock(Platform.class)));
+        assertFalse(stroke.isFinished());
+
+        WorldEdit.getInstance().getEventBus().post(new PlatformUnreadyEvent(platform));
+        assertTrue(stroke.isFinished());
+        verify(session, times(1)).remember(editSession);
+    }
+
+    @Test
+    public void testFlushedBetweenUses() throws Exception {
+        Brush first = mock(Brush.class);
+        Brush second = mock(Brush.class);
+        BrushStroke stroke = new BrushStroke(mock(LocalSession.class), player, editSession, null, WINDOW);
+        assertTrue(stroke.start(platform));
+        stroke.add(new Vector(0, 64, 0), first, material, 1);
+        stroke.add(new Vector(5, 64, 0), second, material, 1);
+        BrushStroke.tick(ENOUGH_TIME);
+
+        InOrder order = inOrder(first, second, editSession);
+        order.verify(first).build(editSession, new Vector(0, 64, 0), material, 1);
+        order.verify(editSession).flushQueue();
+        order.verify(second).build(editSession, new Vector(5, 64, 0), material, 1);
+        order.verify(editSession).flushQueue();
+    }
+
+    @Test
+    public void testRememberedBeforeLaterEdits() throws Exception {
+        final List<EditSession> history = new ArrayList<EditSession>();
+        LocalConfiguration config = mock(LocalConfiguration.class);
+        LocalSession session = new LocalSession(config) {
+            @Override
+            public EditSession createEditSession(Player player) {
+                return editSession;
+            }
+
+            @Override
+            public void remember(EditSession editSession) {
+                super.remember(editSession);
+                history.add(editSession);
+            }
+        };
+        when(player.getBlockTrace(anyInt(), eq(true))).thenReturn(new WorldVector(world, 0, 64, 0));
+
+        BrushTool tool = new BrushTool("worldedit.brush.sphere");
+        tool.setBrush(mock(Brush.class), "worldedit.brush.sphere");
+        tool.setStrokeWindow(WINDOW);
+        session.setTool(300, tool);
+        tool.actPrimary(platform, config, player, session);
+
+        // The stroke was started first, so it must come first in the history
+        EditSession later = mock(EditSession.class);
+        when(later.size()).thenReturn(1);
+        session.remember(later);
+        assertEquals(2, history.size());
+        assertSame(editSession, history.get(0));
+        assertSame(later, history.get(1));
+
+        // The stroke has ended and is not remembered again
+        BrushStroke.tick(ENOUGH_TIME);
+        assertEquals(2, history.size());
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.inventory;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.WorldVector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BaseItem;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.Operations;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BlockBagExtent}.
+ */
+public class BlockBagExtentTest {
+
+    @Test
+    public void testBatchedPaymentFetchesInBulk() throws Exception {
+        MemoryBlockBag bag = new MemoryBlockBag();
+        bag.add(BlockID.STONE, 100);
+        MemoryExtent world = new MemoryExtent();
+        BlockBagExtent extent = new BlockBagExtent(world, bag);
+        extent.setBatching(true);
+
+        for (int x = 0; x < 40; x++) {
+            assertTrue(extent.setBlock(new Vector(x, 0, 0), new BaseBlock(BlockID.STONE)));
+        }
+        Operations.completeBlindly(extent.commit());
+
+        assertEquals(40, world.blocks.size());
+        assertEquals(60, bag.count(BlockID.STONE));
+        assertTrue(extent.popMissing().isEmpty());
+        // 16, 32 and then the rest, rather than one call per block
+        assertTrue(bag.fetchCalls < 40);
+    }
+
+    @Test
+    public void testUnpaidChangesAreRejected() throws Exception {
+        MemoryBlockBag bag = new MemoryBlockBag();
+        bag.add(BlockID.STONE, 10);
+        MemoryExtent world = new MemoryExtent();
+        BlockBagExtent extent = new BlockBagExtent(world, bag);
+        extent.setBatching(true);
+
+        int changed = 0;
+        for (int x = 0; x < 15; x++) {
+            if (extent.setBlock(new Vector(x, 0, 0), new BaseBlock(BlockID.STONE))) {
+                changed++;
+            }
+        }
+        Operations.completeBlindly(extent.commit());
+
+        assertEquals(10, changed);
+        assertEquals(10, world.blocks.size());
+        assertEquals(0, bag.count(BlockID.STONE));
+        assertEquals(Integer.valueOf(5), extent.popMissing().get(BlockID.STONE));
+    }
+
+    @Test
+    public void testReplacedBlocksPayForLaterChanges() throws Exception {
+        MemoryBlockBag bag = new MemoryBlockBag();
+        bag.add(BlockID.GLASS, 1);
+        MemoryExtent world = new MemoryExtent();
+        for (int x = 0; x < 5; x++) {
+            world.blocks.put(new BlockVector(x, 0, 0), new BaseBlock(BlockID.GLASS));
+        }
+        BlockBagExtent extent = new BlockBagExtent(world, bag);
+        extent.setBatching(true);
+
+        // Each glass block replaces a glass block, which is given back to pay for the next one
+        for (int x = 0; x < 5; x++) {
+            assertTrue(extent.setBlock(new Vector(x, 1, 0), new BaseBlock(BlockID.GLASS)));
+            assertTrue(extent.setBlock(new Vector(x, 0, 0), new BaseBlock(BlockID.AIR)));
+        }
+        Operations.completeBlindly(extent.commit());
+
+        assertEquals(1, bag.count(BlockID.GLASS));
+        assertTrue(extent.popMissing().isEmpty());
+    }
+
+    @Test
+    public void testUnplaceableAndFreeBlocks() throws Exception {
+        MemoryBlockBag bag = new MemoryBlockBag();
+        MemoryExtent world = new MemoryExtent();
+        BlockBagExtent extent = new BlockBagExtent(world, bag);
+        extent.setBatching(true);
+
+        assertFalse(extent.setBlock(new Vector(0, 0, 0), new BaseBlock(BlockID.BEDROCK)));
+        assertTrue(extent.setBlock(new Vector(1, 0, 0), new BaseBlock(BlockID.WATER)));
+        Operations.completeBlindly(extent.commit());
+
+        assertEquals(1, world.blocks.size());
+        assertTrue(extent.popMissing().isEmpty());
+    }
+
+    @Test
+    public void testBatchedMatchesUnbatched() throws Exception {
+        for (boolean batching : new boolean[] { false, true }) {
+            MemoryBlockBag bag = new MemoryBlockBag();
+            bag.add(BlockID.STONE, 7);
+            bag.add(BlockID.COBBLESTONE, 3);
+            MemoryExtent world = new MemoryExtent();
+            world.blocks.put(new BlockVector(0, 0, 0), new BaseBlock(BlockID.DIRT));
+            BlockBagExtent extent = new BlockBagExtent(world, bag);
+            extent.setBatching(batching);
+
+            int changed = 0;
+            for (int x = 0; x < 12; x++) {
+                if (extent.setBlock(new Vector(x, 0, 0), new BaseBlock(BlockID.STONE))) {
+                    changed++;
+                }
+            }
+            Operations.completeBlindly(extent.commit());
+
+            // Stone can also be paid for with cobblestone, the block that stone drops
+            assertEquals(10, changed);
+            assertEquals(0, bag.count(BlockID.STONE));
+            assertEquals(0, bag.count(BlockID.COBBLESTONE));
+            assertEquals(1, bag.count(BlockID.DIRT));
+            assertEquals(Integer.valueOf(2), extent.popMissing().get(BlockID.STONE));
+        }
+    }
+
+    @Test
+    public void testFlushChangesGivesBackUnusedBlocks() throws Exception {
+        MemoryBlockBag bag = new MemoryBlockBag();
+        bag.add(BlockID.STONE, 100);
+        MemoryExtent world = new MemoryExtent();
+        world.blocks.put(new BlockVector(0, 0, 0), new BaseBlock(BlockID.DIRT));
+        BlockBagExtent extent = new BlockBagExtent(world, bag);
+        extent.setBatching(true);
+
+        // The extent is never committed, as when the change limit is reached
+        assertTrue(extent.setBlock(new Vector(0, 0, 0), new BaseBlock(BlockID.STONE)));
+        assertTrue(bag.count(BlockID.STONE) < 99);
+        extent.flushChanges();
+
+        assertEquals(99, bag.count(BlockID.STONE));
+        assertEquals(1, bag.count(BlockID.DIRT));
+        assertEquals(1, bag.flushes);
+
+        // Later changes fetch blocks again
+        assertTrue(extent.setBlock(new Vector(1, 0, 0), new BaseBlock(BlockID.STONE)));
+        Operations.completeBlindly(extent.commit());
+        assertEquals(98, bag.count(BlockID.STONE));
+    }
+
+    private static class MemoryExtent extends NullExtent {
+        private final Map<BlockVector, BaseBlock> blocks = new HashMap<BlockVector, BaseBlock>();
+
+        @Override
+        public BaseBlock getLazyBlock(Vector position) {
+            BaseBlock block = blocks.get(position.toBlockVector());
+            return block != null ? block : new BaseBlock(BlockID.AIR);
+        }
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+            if (block.getType() == BlockID.AIR) {
+                blocks.remove(position.toBlockVector());
+            } else {
+                blocks.put(position.toBlockVector(), block);
+            }
+            return true;
+        }
+    }
+
+    private static class MemoryBlockBag extends BlockBag {
+        private final Map<Integer, Integer> items = new HashMap<Integer, Integer>();
+        private int fetchCalls;
+        private int flushes;
+
+        private void add(int type, int amount) {
+            items.put(type, count(type) + amount);
+        }
+
+        private int count(int type) {
+            Integer count = items.get(type);
+            return count != null ? count : 0;
+        }
+
+        @Override
+        public int fetchItems(BaseItem item, int amount) throws BlockBagException {
+            fetchCalls++;
+            int fetched = Math.min(amount, count(item.getType()));
+            add(item.getType(), -fetched);
+            return fetched;
+        }
+
+        @Override
+        public void fetchItem(BaseItem item) throws BlockBagException {
+            fetchCalls++;
+            if (count(item.getType()) == 0) {
+                throw new OutOfBlocksException();
+            }
+            add(item.getType(), -1);
+        }
+
+        @Override
+        public void storeItem(BaseItem item) throws BlockBagException {
+            add(item.getType(), 1);
+        }
+
+        @Override
+        public void flushChanges() {
+            flushes++;
+        }
+
+        @Override
+        public void addSourcePosition(WorldVector pos) {
+        }
+
+        @Override
+        public void addSingleSourcePosition(WorldVector pos) {
+        }
+    }
+
+}
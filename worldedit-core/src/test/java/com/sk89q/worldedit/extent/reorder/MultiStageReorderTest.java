@@ -0,0 +1,109 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.extent.reorder;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.WorldEditException;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.NullExtent;
+import com.sk89q.worldedit.function.operation.Operations;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link MultiStageReorder}.
+ */
+public class MultiStageReorderTest {
+
+    @Test
+    public void testBlocksAreGroupedByChunk() throws Exception {
+        RecordingExtent recorder = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(recorder);
+
+        reorder.setBlock(new Vector(0, 1, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(16, 1, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(0, 2, 0), new BaseBlock(BlockID.SAND));
+        reorder.setBlock(new Vector(-1, 1, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(17, 1, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(15, 3, 15), new BaseBlock(BlockID.SAND));
+        Operations.completeBlindly(reorder.commit());
+
+        // Chunks in the order they were first used, and blocks in their original order within a chunk
+        assertEquals(Arrays.asList(
+                new BlockVector(0, 1, 0), new BlockVector(0, 2, 0), new BlockVector(15, 3, 15),
+                new BlockVector(16, 1, 0), new BlockVector(17, 1, 0),
+                new BlockVector(-1, 1, 0)), recorder.positions);
+    }
+
+    @Test
+    public void testStagesAreCommittedInOrder() throws Exception {
+        RecordingExtent recorder = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(recorder);
+
+        reorder.setBlock(new Vector(0, 2, 0), new BaseBlock(BlockID.SIGN_POST));
+        reorder.setBlock(new Vector(1, 2, 0), new BaseBlock(BlockID.TORCH));
+        reorder.setBlock(new Vector(0, 1, 0), new BaseBlock(BlockID.STONE));
+        Operations.completeBlindly(reorder.commit());
+
+        assertEquals(Arrays.asList(
+                new BlockVector(0, 1, 0), new BlockVector(1, 2, 0), new BlockVector(0, 2, 0)), recorder.positions);
+    }
+
+    @Test
+    public void testStage3IsPlacedAfterAttachments() throws Exception {
+        RecordingExtent recorder = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(recorder);
+
+        // A lower door half is placed after the upper half, and the upper half after nothing else in stage 3
+        reorder.setBlock(new Vector(0, 1, 0), new BaseBlock(BlockID.WOODEN_DOOR, 0));
+        reorder.setBlock(new Vector(0, 2, 0), new BaseBlock(BlockID.WOODEN_DOOR, 8));
+        Operations.completeBlindly(reorder.commit());
+
+        assertEquals(Arrays.asList(new BlockVector(0, 2, 0), new BlockVector(0, 1, 0)), recorder.positions);
+    }
+
+    @Test
+    public void testDisabledPassesThrough() throws Exception {
+        RecordingExtent recorder = new RecordingExtent();
+        MultiStageReorder reorder = new MultiStageReorder(recorder, false);
+
+        reorder.setBlock(new Vector(16, 1, 0), new BaseBlock(BlockID.STONE));
+        reorder.setBlock(new Vector(0, 1, 0), new BaseBlock(BlockID.STONE));
+        assertEquals(Arrays.asList(new BlockVector(16, 1, 0), new BlockVector(0, 1, 0)), recorder.positions);
+    }
+
+    private static class RecordingExtent extends NullExtent {
+        private final List<BlockVector> positions = new ArrayList<BlockVector>();
+
+        @Override
+        public boolean setBlock(Vector position, BaseBlock block) throws WorldEditException {
+            positions.add(position.toBlockVector());
+            return true;
+        }
+    }
+
+}
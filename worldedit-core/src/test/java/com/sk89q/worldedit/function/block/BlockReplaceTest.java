@@ -0,0 +1,64 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.block;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.Extent;
+import com.sk89q.worldedit.function.pattern.Pattern;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link BlockReplace}.
+ */
+public class BlockReplaceTest {
+
+    @Test
+    public void testPatternOnlyAppliedToSetPositions() throws Exception {
+        Extent extent = mock(Extent.class);
+        when(extent.setBlock(any(Vector.class), any(BaseBlock.class))).thenReturn(true);
+        Pattern pattern = mock(Pattern.class);
+        when(pattern.apply(any(Vector.class))).thenReturn(new BaseBlock(BlockID.STONE));
+        BlockReplace replace = new BlockReplace(extent, pattern);
+
+        // A 2x2x2 box with two positions selected
+        BitSet positions = new BitSet();
+        positions.set(0);
+        positions.set(7);
+        assertEquals(2, replace.apply(10, 64, 20, 2, 2, 2, positions));
+
+        verify(pattern, times(2)).apply(any(Vector.class));
+        verify(pattern).apply(new Vector(10, 64, 20));
+        verify(pattern).apply(new Vector(11, 65, 21));
+        verify(extent).setBlock(new Vector(11, 65, 21), new BaseBlock(BlockID.STONE));
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.function.mask;
+
+import com.sk89q.worldedit.Vector;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link MaskIntersection}.
+ */
+public class MaskIntersectionTest {
+
+    @Test
+    public void testDecidingMaskMovesToFront() throws Exception {
+        CountingMask passing = new CountingMask(true);
+        CountingMask failing = new CountingMask(false);
+        MaskIntersection intersection = new MaskIntersection(passing, failing);
+
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(intersection.test(new Vector(i, 0, 0)));
+        }
+
+        // Once reordered, the failing mask decides every test on its own
+        int before = passing.count.get();
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(intersection.test(new Vector(i, 0, 0)));
+        }
+        assertEquals(before, passing.count.get());
+    }
+
+    @Test
+    public void testEditsThroughGetMasks() throws Exception {
+        Mask passing = new CountingMask(true);
+        MaskIntersection intersection = new MaskIntersection(passing, new CountingMask(true));
+        assertTrue(intersection.test(new Vector(0, 0, 0)));
+
+        // Replace a mask without changing the number of masks
+        Iterator<Mask> it = intersection.getMasks().iterator();
+        it.next();
+        it.next();
+        it.remove();
+        intersection.getMasks().add(new CountingMask(false));
+        assertEquals(2, intersection.getMasks().size());
+        assertFalse(intersection.test(new Vector(0, 0, 0)));
+
+        intersection.getMasks().clear();
+        assertFalse(intersection.test(new Vector(0, 0, 0)));
+        intersection.getMasks().add(passing);
+        assertTrue(intersection.test(new Vector(0, 0, 0)));
+    }
+
+    @Test
+    public void testConcurrentTests() throws Exception {
+        final MaskIntersection intersection = new MaskIntersection(
+                new ParityMask(0), new ParityMask(1), new ParityMask(2));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int wrong = 0;
+                        for (int i = 0; i < 100000; i++) {
+                            Vector vector = new Vector(i & 1, (i >> 1) & 1, (i >> 2) & 1);
+                            if (intersection.test(vector) != ((i & 7) == 0)) {
+                                wrong++;
+                            }
+                        }
+                        return wrong;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(0, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static final class CountingMask extends AbstractMask {
+        private final boolean result;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private CountingMask(boolean result) {
+            this.result = result;
+        }
+
+        @Override
+        public boolean test(Vector vector) {
+            count.incrementAndGet();
+            return result;
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            return null;
+        }
+    }
+
+    /**
+     * Matches positions where one coordinate is even.
+     */
+    private static final class ParityMask extends AbstractMask {
+        private final int axis;
+
+        private ParityMask(int axis) {
+            this.axis = axis;
+        }
+
+        @Override
+        public boolean test(Vector vector) {
+            int value = axis == 0 ? vector.getBlockX() : axis == 1 ? vector.getBlockY() : vector.getBlockZ();
+            return (value & 1) == 0;
+        }
+
+        @Nullable
+        @Override
+        public Mask2D toMask2D() {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.math;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BlockPosition}.
+ */
+public class BlockPositionTest {
+
+    @Test
+    public void testPackRoundTrip() throws Exception {
+        int[] xs = { 0, 1, -1, 15, -16, 30000000, -30000000 };
+        int[] ys = { 0, 1, 255, -1, 2047, -2048 };
+        for (int x : xs) {
+            for (int y : ys) {
+                for (int z : xs) {
+                    BlockPosition position = new BlockPosition(x, y, z);
+                    long packed = position.toLong();
+                    assertEquals(position, BlockPosition.fromLong(packed));
+                    assertEquals(x, BlockPosition.unpackX(packed));
+                    assertEquals(y, BlockPosition.unpackY(packed));
+                    assertEquals(z, BlockPosition.unpackZ(packed));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPackDistinguishesNeighbours() throws Exception {
+        long origin = BlockPosition.pack(0, 64, 0);
+        assertFalse(origin == BlockPosition.pack(1, 64, 0));
+        assertFalse(origin == BlockPosition.pack(0, 65, 0));
+        assertFalse(origin == BlockPosition.pack(0, 64, 1));
+        assertFalse(BlockPosition.pack(-1, 0, 0) == BlockPosition.pack(0, 0, -1));
+    }
+
+    @Test
+    public void testIsPackable() throws Exception {
+        assertTrue(BlockPosition.isPackable(0, 64, 0));
+        assertTrue(BlockPosition.isPackable(0x1FFFFFF, 2047, -0x2000000));
+        assertFalse(BlockPosition.isPackable(0x2000000, 64, 0));
+        assertFalse(BlockPosition.isPackable(0, 64, -0x2000001));
+        assertFalse(BlockPosition.isPackable(0, 2048, 0));
+        assertFalse(BlockPosition.isPackable(0, -2049, 0));
+    }
+
+    @Test
+    public void testVectorConversion() throws Exception {
+        BlockPosition position = new BlockPosition(new Vector(3, -4, 5));
+        assertEquals(new BlockPosition(3, -4, 5), position);
+        assertEquals(new BlockVector(3, -4, 5), position.toBlockVector());
+        assertEquals(position.toLong(), BlockPosition.pack(new Vector(3, -4, 5)));
+    }
+
+    @Test
+    public void testHashCodeMatchesBlockVector() throws Exception {
+        assertEquals(new BlockPosition(7, 8, 9).hashCode(), new BlockVector(7, 8, 9).hashCode());
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.math.noise;
+
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link NoiseGenerators}.
+ */
+public class NoiseGeneratorsTest {
+
+    @Test
+    public void testBulkNoiseMatchesSingleNoise() throws Exception {
+        NoiseGenerator custom = new NoiseGenerator() {
+            @Override
+            public float noise(Vector2D position) {
+                return 0;
+            }
+
+            @Override
+            public float noise(Vector position) {
+                return (position.getBlockX() + 2 * position.getBlockY() + 3 * position.getBlockZ()) & 7;
+            }
+        };
+        NoiseGenerator[] generators = { NoiseGenerators.getPerlin(5, 0.1, 2, 0.5), custom };
+
+        for (NoiseGenerator generator : generators) {
+            float[] values = new float[3 * 4 * 5];
+            NoiseGenerators.noise(generator, -2, 60, 7, 3, 4, 5, values);
+            int i = 0;
+            for (int y = 0; y < 4; y++) {
+                for (int z = 0; z < 5; z++) {
+                    for (int x = 0; x < 3; x++) {
+                        assertEquals(generator.noise(new Vector(-2 + x, 60 + y, 7 + z)), values[i++], 0);
+                    }
+                }
+            }
+        }
+    }
+
+}
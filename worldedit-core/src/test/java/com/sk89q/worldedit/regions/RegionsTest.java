@@ -0,0 +1,89 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions;
+
+import com.sk89q.worldedit.BlockVector2D;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link Regions}.
+ */
+public class RegionsTest {
+
+    @Test
+    public void testMayIntersectBox() throws Exception {
+        Region sphere = new EllipsoidRegion(null, new Vector(0, 64, 0), new Vector(20, 20, 20));
+        assertTrue(Regions.mayIntersectBox(sphere, 0, 64, 0, 15, 79, 15));
+        assertTrue(Regions.mayIntersectBox(sphere, 16, 48, -16, 31, 63, -1));
+        // Inside the bounding box, but beyond the sphere's surface
+        assertFalse(Regions.mayIntersectBox(sphere, 16, 80, 16, 31, 95, 31));
+        assertFalse(Regions.mayIntersectBox(sphere, 32, 64, 0, 47, 79, 15));
+
+        Region cylinder = new CylinderRegion(null, new Vector(0, 64, 0), new Vector2D(20, 20), 60, 70);
+        assertTrue(Regions.mayIntersectBox(cylinder, 0, 64, 0, 15, 79, 15));
+        assertFalse(Regions.mayIntersectBox(cylinder, 0, 80, 0, 15, 95, 15));
+        assertFalse(Regions.mayIntersectBox(cylinder, 16, 64, 16, 31, 79, 31));
+
+        // Every point of a region is in a box that may intersect it
+        for (Region region : new Region[] { sphere, cylinder }) {
+            for (Vector pt : region) {
+                int x = pt.getBlockX() >> 4 << 4;
+                int y = pt.getBlockY() >> 4 << 4;
+                int z = pt.getBlockZ() >> 4 << 4;
+                assertTrue(Regions.mayIntersectBox(region, x, y, z, x + 15, y + 15, z + 15));
+            }
+        }
+    }
+
+    @Test
+    public void testColumnsByChunk() throws Exception {
+        Region sphere = new EllipsoidRegion(null, new Vector(3, 64, -5), new Vector(20, 7, 13));
+        Region cylinder = new CylinderRegion(null, new Vector(0, 64, 0), new Vector2D(20, 9), 60, 70);
+        Region cuboid = new CuboidRegion(new Vector(-17, 0, 5), new Vector(30, 3, 40));
+
+        for (Region region : new Region[] { sphere, cylinder, cuboid }) {
+            // The columns of every point, found the slow way
+            Map<BlockVector2D, BitSet> expected = new HashMap<BlockVector2D, BitSet>();
+            for (Vector pt : region) {
+                BlockVector2D chunk = new BlockVector2D(pt.getBlockX() >> 4, pt.getBlockZ() >> 4);
+                BitSet columns = expected.get(chunk);
+                if (columns == null) {
+                    columns = new BitSet(256);
+                    expected.put(chunk, columns);
+                }
+                columns.set((pt.getBlockZ() & 15) << 4 | (pt.getBlockX() & 15));
+            }
+
+            assertEquals(expected, new HashMap<BlockVector2D, BitSet>(Regions.getColumnsByChunk(region)));
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.patterns.SingleBlockPattern;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link ArbitraryShape}.
+ */
+public class ArbitraryShapeTest {
+
+    private static final int RADIUS = 9;
+    private static final int CENTER_Y = 64;
+
+    @Test
+    public void testHollowSphereAcrossSections() throws Exception {
+        final Set<BlockVector> placed = new HashSet<BlockVector>();
+        EditSession editSession = mock(EditSession.class);
+        when(editSession.setBlock(any(Vector.class), any(BaseBlock.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return placed.add(((Vector) invocation.getArguments()[0]).toBlockVector());
+            }
+        });
+
+        // The sphere is centred on a section corner, so the cache spans eight sections
+        Sphere shape = new Sphere(new CuboidRegion(new Vector(-RADIUS, CENTER_Y - RADIUS, -RADIUS), new Vector(RADIUS, CENTER_Y + RADIUS, RADIUS)));
+        int affected = shape.generate(editSession, new SingleBlockPattern(new BaseBlock(BlockID.STONE)), true);
+
+        Set<BlockVector> expected = new HashSet<BlockVector>();
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int y = CENTER_Y - RADIUS; y <= CENTER_Y + RADIUS; y++) {
+                for (int z = -RADIUS; z <= RADIUS; z++) {
+                    if (Sphere.isInside(x, y, z) && (!Sphere.isInside(x + 1, y, z) || !Sphere.isInside(x - 1, y, z)
+                            || !Sphere.isInside(x, y + 1, z) || !Sphere.isInside(x, y - 1, z)
+                            || !Sphere.isInside(x, y, z + 1) || !Sphere.isInside(x, y, z - 1))) {
+                        expected.add(new BlockVector(x, y, z));
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected, placed);
+        assertEquals(expected.size(), affected);
+        // Every position is only evaluated once, including neighbours outside the region
+        for (int count : shape.queries.values()) {
+            assertEquals(1, count);
+        }
+        assertTrue(shape.queries.containsKey(new BlockVector(RADIUS + 1, CENTER_Y, 0)));
+    }
+
+    private static class Sphere extends ArbitraryShape {
+        private final Map<BlockVector, Integer> queries = new HashMap<BlockVector, Integer>();
+
+        private Sphere(CuboidRegion region) {
+            super(region);
+        }
+
+        private static boolean isInside(int x, int y, int z) {
+            return x * x + (y - CENTER_Y) * (y - CENTER_Y) + z * z <= RADIUS * RADIUS;
+        }
+
+        @Override
+        protected BaseBlock getMaterial(int x, int y, int z, BaseBlock defaultMaterial) {
+            BlockVector position = new BlockVector(x, y, z);
+            Integer count = queries.get(position);
+            queries.put(position, count == null ? 1 : count + 1);
+            return isInside(x, y, z) ? defaultMaterial : null;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.regions.shape;
+
+import com.sk89q.worldedit.BlockVector;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockID;
+import com.sk89q.worldedit.extent.NullExtent;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link WorldEditExpressionEnvironment}.
+ */
+public class WorldEditExpressionEnvironmentTest {
+
+    private static final Vector UNIT = new Vector(1, 1, 1);
+    private static final Vector ZERO = new Vector(0, 0, 0);
+
+    @Test
+    public void testFrozenAndUnfrozenDifferOnlyAfterWrite() throws Exception {
+        MemoryExtent extent = new MemoryExtent();
+        for (int x = 0; x < 40; x++) {
+            extent.set(x, 64, 0, x % 2 == 0 ? BlockID.STONE : BlockID.DIRT, x % 4);
+        }
+
+        WorldEditExpressionEnvironment unfrozen = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+        WorldEditExpressionEnvironment frozen = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+        frozen.setFrozen(true);
+
+        for (int x = 0; x < 40; x++) {
+            unfrozen.setCurrentBlock(new Vector(x, 64, 0));
+            frozen.setCurrentBlock(new Vector(x, 64, 0));
+            for (int dx = -2; dx <= 2; dx++) {
+                assertEquals(unfrozen.getBlockTypeRel(dx, 0, 0), frozen.getBlockTypeRel(dx, 0, 0));
+                assertEquals(unfrozen.getBlockDataRel(dx, 0, 0), frozen.getBlockDataRel(dx, 0, 0));
+            }
+        }
+
+        unfrozen.setCurrentBlock(new Vector(10, 64, 0));
+        assertEquals(BlockID.STONE, unfrozen.getBlockTypeRel(0, 0, 0));
+        extent.set(10, 64, 0, BlockID.GLASS, 0);
+
+        // A write isn't seen until the next block is evaluated
+        assertEquals(BlockID.STONE, unfrozen.getBlockTypeRel(0, 0, 0));
+
+        unfrozen.setCurrentBlock(new Vector(0, 64, 0));
+        frozen.setCurrentBlock(new Vector(0, 64, 0));
+        for (int x = 0; x < 40; x++) {
+            if (x == 10) {
+                assertEquals(BlockID.GLASS, unfrozen.getBlockTypeAbs(x, 64, 0));
+                assertEquals(BlockID.STONE, frozen.getBlockTypeAbs(x, 64, 0));
+            } else {
+                assertEquals(unfrozen.getBlockTypeAbs(x, 64, 0), frozen.getBlockTypeAbs(x, 64, 0));
+                assertEquals(unfrozen.getBlockDataAbs(x, 64, 0), frozen.getBlockDataAbs(x, 64, 0));
+            }
+        }
+
+        frozen.setFrozen(false);
+        assertEquals(BlockID.GLASS, frozen.getBlockTypeAbs(10, 64, 0));
+    }
+
+    @Test
+    public void testReadsEachBlockOncePerEvaluation() throws Exception {
+        MemoryExtent extent = new MemoryExtent();
+        WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+
+        environment.setCurrentBlock(new Vector(0, 64, 0));
+        environment.getBlockTypeAbs(1, 64, 1);
+        environment.getBlockDataAbs(1, 64, 1);
+        environment.getBlockTypeRel(1, 0, 1);
+        assertEquals(1, extent.reads);
+
+        environment.setCurrentBlock(new Vector(1, 64, 0));
+        environment.getBlockTypeAbs(1, 64, 1);
+        assertEquals(2, extent.reads);
+    }
+
+    @Test
+    public void testManySections() throws Exception {
+        MemoryExtent extent = new MemoryExtent();
+        for (int x = 0; x < 200; x++) {
+            extent.set(x * 16, 64, 0, BlockID.STONE, 0);
+        }
+
+        WorldEditExpressionEnvironment unfrozen = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+        WorldEditExpressionEnvironment frozen = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+        frozen.setFrozen(true);
+        for (int x = 0; x < 200; x++) {
+            assertEquals(BlockID.STONE, unfrozen.getBlockTypeAbs(x * 16, 64, 0));
+            assertEquals(BlockID.STONE, frozen.getBlockTypeAbs(x * 16, 64, 0));
+        }
+
+        extent.set(0, 64, 0, BlockID.AIR, 0);
+        unfrozen.setCurrentBlock(ZERO);
+        frozen.setCurrentBlock(ZERO);
+        assertEquals(BlockID.AIR, unfrozen.getBlockTypeAbs(0, 64, 0));
+        assertEquals(BlockID.STONE, frozen.getBlockTypeAbs(0, 64, 0));
+    }
+
+    @Test
+    public void testOutOfRangeDoesNotCollide() throws Exception {
+        MemoryExtent extent = new MemoryExtent();
+        extent.set(0, 64, 0, BlockID.STONE, 0);
+        WorldEditExpressionEnvironment environment = new WorldEditExpressionEnvironment(extent, UNIT, ZERO);
+        environment.setFrozen(true);
+
+        assertEquals(BlockID.STONE, environment.getBlockTypeAbs(0, 64, 0));
+        // Y = 65600 is in section 4100, which would wrap around onto section 4
+        assertEquals(BlockID.AIR, environment.getBlockTypeAbs(0, 65600, 0));
+        assertEquals(BlockID.AIR, environment.getBlockTypeAbs(0, 64 + (1 << 16), 0));
+        // X = 2^29 is in section 2^25, which would wrap around onto section -2^25
+        assertEquals(BlockID.AIR, environment.getBlockTypeAbs(1 << 29, 64, 0));
+        assertEquals(BlockID.STONE, environment.getBlockTypeAbs(0, 64, 0));
+    }
+
+    private static class MemoryExtent extends NullExtent {
+        private final Map<BlockVector, BaseBlock> blocks = new HashMap<BlockVector, BaseBlock>();
+        private int reads;
+
+        private void set(int x, int y, int z, int type, int data) {
+            blocks.put(new BlockVector(x, y, z), new BaseBlock(type, data));
+        }
+
+        @Override
+        public Vector getMinimumPoint() {
+            return new Vector(-30000000, 0, -30000000);
+        }
+
+        @Override
+        public Vector getMaximumPoint() {
+            return new Vector(30000000, 255, 30000000);
+        }
+
+        @Override
+        public BaseBlock getLazyBlock(Vector position) {
+            reads++;
+            BaseBlock block = blocks.get(position.toBlockVector());
+            return block != null ? block : new BaseBlock(BlockID.AIR);
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.session.storage;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.sk89q.worldedit.LocalSession;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link LogFileSessionStore}.
+ */
+public class LogFileSessionStoreTest {
+
+    private static final UUID FIRST = new UUID(1, 2);
+    private static final UUID SECOND = new UUID(3, 4);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLogFormat() throws Exception {
+        File dir = folder.newFolder("sessions");
+        LogFileSessionStore store = new LogFileSessionStore(dir);
+        store.save(FIRST, createSession("first.js"));
+        store.close();
+
+        byte[] log = Files.toByteArray(new File(dir, "sessions.log"));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(log));
+        assertEquals(0x57455331, in.readInt());
+        assertEquals(FIRST.getMostSignificantBits(), in.readLong());
+        assertEquals(FIRST.getLeastSignificantBits(), in.readLong());
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        assertEquals((int) crc.getValue(), in.readInt());
+        assertEquals(0, in.available());
+        assertTrue(new String(payload, Charsets.UTF_8).contains("first.js"));
+    }
+
+    @Test
+    public void testRecordsSurviveReopening() throws Exception {
+        File dir = folder.newFolder("sessions");
+        LogFileSessionStore store = new LogFileSessionStore(dir);
+        store.save(FIRST, createSession("first.js"));
+        store.save(SECOND, createSession("second.js"));
+        store.flush();
+        store.save(FIRST, createSession("replaced.js"));
+        store.close();
+
+        LogFileSessionStore reopened = new LogFileSessionStore(dir);
+        assertEquals("replaced.js", reopened.load(FIRST).getLastScript());
+        assertEquals("second.js", reopened.load(SECOND).getLastScript());
+        assertNull(reopened.load(new UUID(5, 6)).getLastScript());
+    }
+
+    @Test
+    public void testTruncatedTailIsDiscarded() throws Exception {
+        File dir = folder.newFolder("sessions");
+        File file = new File(dir, "sessions.log");
+        LogFileSessionStore store = new LogFileSessionStore(dir);
+        store.save(FIRST, createSession("first.js"));
+        store.flush();
+        long firstLength = file.length();
+        store.save(SECOND, createSession("second.js"));
+        store.close();
+
+        // Cut the second record short, as if the server crashed while writing it
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+
+        LogFileSessionStore reopened = new LogFileSessionStore(dir);
+        assertEquals(firstLength, file.length());
+        assertEquals("first.js", reopened.load(FIRST).getLastScript());
+        assertNull(reopened.load(SECOND).getLastScript());
+
+        // New records go after the last complete one
+        reopened.save(SECOND, createSession("again.js"));
+        reopened.close();
+        assertEquals("again.js", new LogFileSessionStore(dir).load(SECOND).getLastScript());
+    }
+
+    @Test
+    public void testCompactedLogIsAdopted() throws Exception {
+        File dir = folder.newFolder("sessions");
+        File file = new File(dir, "sessions.log");
+        File tempFile = new File(dir, "sessions.log.tmp");
+        LogFileSessionStore store = new LogFileSessionStore(dir);
+        store.save(FIRST, createSession("first.js"));
+        store.close();
+
+        // Compaction stopped after the old log was deleted
+        assertTrue(file.renameTo(tempFile));
+        assertEquals("first.js", new LogFileSessionStore(dir).load(FIRST).getLastScript());
+        assertTrue(file.exists());
+        assertFalse(tempFile.exists());
+
+        // Compaction stopped before the old log was replaced
+        Files.write(new byte[] { 1, 2, 3 }, tempFile);
+        assertEquals("first.js", new LogFileSessionStore(dir).load(FIRST).getLastScript());
+        assertFalse(tempFile.exists());
+    }
+
+    @Test
+    public void testSaveAfterClose() throws Exception {
+        File dir = folder.newFolder("sessions");
+        LogFileSessionStore store = new LogFileSessionStore(dir);
+        store.close();
+        store.save(FIRST, createSession("first.js"));
+        assertEquals("first.js", new LogFileSessionStore(dir).load(FIRST).getLastScript());
+    }
+
+    private static LocalSession createSession(String lastScript) {
+        LocalSession session = new LocalSession();
+        session.setLastScript(lastScript);
+        return session;
+    }
+
+}
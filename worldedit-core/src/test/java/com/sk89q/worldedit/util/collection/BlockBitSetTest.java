@@ -0,0 +1,124 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.BlockVector;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link BlockBitSet}.
+ */
+public class BlockBitSetTest {
+
+    @Test
+    public void testEmptyIterator() throws Exception {
+        Iterator<BlockVector> it = new BlockBitSet().iterator();
+        assertFalse(it.hasNext());
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ignored) {
+        }
+    }
+
+    @Test
+    public void testSingleBitIterator() throws Exception {
+        BlockBitSet set = new BlockBitSet();
+        set.set(-17, 300, 5);
+        Iterator<BlockVector> it = set.iterator();
+        assertTrue(it.hasNext());
+        assertEquals(new BlockVector(-17, 300, 5), it.next());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testExhaustedIterator() throws Exception {
+        BlockBitSet set = new BlockBitSet();
+        set.set(15, 15, 15);
+        set.set(16, 0, 0);
+        Iterator<BlockVector> it = set.iterator();
+        it.next();
+        it.next();
+        assertFalse(it.hasNext());
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ignored) {
+        }
+    }
+
+    @Test
+    public void testMatchesHashSet() throws Exception {
+        Random random = new Random(42);
+        BlockBitSet set = new BlockBitSet();
+        Set<BlockVector> expected = new HashSet<BlockVector>();
+        for (int i = 0; i < 5000; i++) {
+            int x = random.nextInt(80) - 40;
+            int y = random.nextInt(80) - 40;
+            int z = random.nextInt(80) - 40;
+            assertEquals(expected.add(new BlockVector(x, y, z)), set.set(x, y, z));
+        }
+        for (int i = 0; i < 50; i++) {
+            int minX = random.nextInt(80) - 40;
+            int maxX = minX + random.nextInt(70);
+            int y = random.nextInt(80) - 40;
+            int z = random.nextInt(80) - 40;
+            set.setSpan(minX, maxX, y, z);
+            for (int x = minX; x <= maxX; x++) {
+                expected.add(new BlockVector(x, y, z));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        Set<BlockVector> actual = new HashSet<BlockVector>();
+        for (BlockVector position : set) {
+            assertTrue(actual.add(position));
+            assertTrue(set.get(position.getBlockX(), position.getBlockY(), position.getBlockZ()));
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testShell() throws Exception {
+        BlockBitSet set = new BlockBitSet();
+        for (int y = 0; y < 3; y++) {
+            for (int z = 0; z < 3; z++) {
+                set.setSpan(0, 2, y, z);
+            }
+        }
+        BlockBitSet shell = set.getShell();
+        assertEquals(26, shell.size());
+        assertFalse(shell.get(1, 1, 1));
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import com.sk89q.worldedit.BlockVector;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests {@link BoundedBlockBitSet} against {@link BlockBitSet}.
+ */
+public class BoundedBlockBitSetTest {
+
+    // Wider than one word along X, so rows span several words
+    private static final int MIN_X = -70, MIN_Y = 3, MIN_Z = -5;
+    private static final int MAX_X = 70, MAX_Y = 12, MAX_Z = 6;
+
+    @Test
+    public void testMatchesBlockBitSet() throws Exception {
+        Random random = new Random(1);
+        BoundedBlockBitSet bounded = newSet();
+        BlockBitSet sparse = new BlockBitSet();
+        fill(random, bounded, sparse, 2000);
+
+        assertEquals(sparse.size(), bounded.size());
+        assertEquals(toSet(sparse), toSet(bounded));
+        for (int y = MIN_Y - 1; y <= MAX_Y + 1; y++) {
+            for (int z = MIN_Z - 1; z <= MAX_Z + 1; z++) {
+                for (int x = MIN_X - 1; x <= MAX_X + 1; x++) {
+                    assertEquals(sparse.get(x, y, z), bounded.get(x, y, z));
+                }
+            }
+        }
+        assertFalse(bounded.get(MIN_X - 1, MIN_Y, MIN_Z));
+    }
+
+    @Test
+    public void testNeighboursMatchBlockBitSet() throws Exception {
+        Random random = new Random(2);
+        BoundedBlockBitSet bounded = newSet();
+        BlockBitSet sparse = new BlockBitSet();
+        fill(random, bounded, sparse, 300);
+
+        BlockBitSet expected = new BlockBitSet();
+        for (int y = MIN_Y; y <= MAX_Y; y++) {
+            for (int z = MIN_Z; z <= MAX_Z; z++) {
+                for (int x = MIN_X; x <= MAX_X; x++) {
+                    if (sparse.get(x + 1, y, z) || sparse.get(x - 1, y, z)
+                            || sparse.get(x, y + 1, z) || sparse.get(x, y - 1, z)
+                            || sparse.get(x, y, z + 1) || sparse.get(x, y, z - 1)) {
+                        expected.set(x, y, z);
+                    }
+                }
+            }
+        }
+
+        assertEquals(toSet(expected), toSet(bounded.getNeighbours()));
+    }
+
+    @Test
+    public void testSetOperations() throws Exception {
+        Random random = new Random(3);
+        BoundedBlockBitSet a = newSet();
+        BlockBitSet sparseA = new BlockBitSet();
+        fill(random, a, sparseA, 1000);
+        BoundedBlockBitSet b = newSet();
+        BlockBitSet sparseB = new BlockBitSet();
+        fill(random, b, sparseB, 1000);
+
+        Set<BlockVector> union = toSet(sparseA);
+        union.addAll(toSet(sparseB));
+        Set<BlockVector> intersection = toSet(sparseA);
+        intersection.retainAll(toSet(sparseB));
+        Set<BlockVector> difference = toSet(sparseA);
+        difference.removeAll(toSet(sparseB));
+
+        BoundedBlockBitSet or = newSet();
+        or.or(a);
+        or.or(b);
+        assertEquals(union, toSet(or));
+
+        BoundedBlockBitSet and = newSet();
+        and.or(a);
+        and.and(b);
+        assertEquals(intersection, toSet(and));
+
+        BoundedBlockBitSet andNot = newSet();
+        andNot.or(a);
+        andNot.andNot(b);
+        assertEquals(difference, toSet(andNot));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSetOutsideBox() throws Exception {
+        newSet().set(MAX_X + 1, MIN_Y, MIN_Z);
+    }
+
+    private static BoundedBlockBitSet newSet() {
+        return new BoundedBlockBitSet(MIN_X, MIN_Y, MIN_Z, MAX_X, MAX_Y, MAX_Z);
+    }
+
+    private static void fill(Random random, BoundedBlockBitSet bounded, BlockBitSet sparse, int count) {
+        for (int i = 0; i < count; i++) {
+            int x = MIN_X + random.nextInt(MAX_X - MIN_X + 1);
+            int y = MIN_Y + random.nextInt(MAX_Y - MIN_Y + 1);
+            int z = MIN_Z + random.nextInt(MAX_Z - MIN_Z + 1);
+            assertEquals(sparse.set(x, y, z), bounded.set(x, y, z));
+        }
+    }
+
+    private static Set<BlockVector> toSet(Iterable<BlockVector> positions) {
+        Set<BlockVector> set = new HashSet<BlockVector>();
+        for (BlockVector position : positions) {
+            set.add(position);
+        }
+        return set;
+    }
+
+}
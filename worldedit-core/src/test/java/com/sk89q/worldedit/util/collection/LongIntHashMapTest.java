@@ -0,0 +1,85 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.util.collection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link LongIntHashMap}.
+ */
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(5, 50);
+        map.put(-5, -50);
+        map.put(Long.MIN_VALUE, 1);
+        map.put(0, 0);
+        assertEquals(4, map.size());
+        assertEquals(50, map.get(5, -1));
+        assertEquals(-50, map.get(-5, -1));
+        assertEquals(1, map.get(Long.MIN_VALUE, -1));
+        assertEquals(0, map.get(0, -1));
+        assertEquals(-1, map.get(6, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(6));
+    }
+
+    @Test
+    public void testPutReplaces() throws Exception {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(7, 1);
+        map.put(7, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(7, -1));
+    }
+
+    @Test
+    public void testGrowsPastExpectedSize() throws Exception {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 0; i < 10000; i++) {
+            map.put((long) i << 32 | i, i);
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, map.get((long) i << 32 | i, -1));
+        }
+        assertFalse(map.containsKey(10000L << 32 | 10000));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(3));
+        map.put(3, 4);
+        assertEquals(4, map.get(3, -1));
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.chunk;
+
+import com.sk89q.worldedit.MaxChangedBlocksException;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.Vector2D;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.regions.CuboidRegion;
+import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.biome.BaseBiome;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link ChunkSnapshotExtent}.
+ */
+public class ChunkSnapshotExtentTest {
+
+    private static final Region REGION = new CuboidRegion(new Vector(-5, 10, -5), new Vector(20, 20, 3));
+    // 3 by 2 chunks, 11 blocks high
+    private static final int REGION_BLOCKS = 6 * 256 * 11;
+
+    private AbstractWorld world;
+
+    private static BaseBlock blockAt(int x, int y, int z) {
+        return new BaseBlock(y + 1, (x + z) & 15);
+    }
+
+    private static int biomeAt(int x, int z) {
+        return (x * 3 + z) & 63;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        world = mock(AbstractWorld.class, CALLS_REAL_METHODS);
+        doReturn(255).when(world).getMaxY();
+        doAnswer(new Answer<BaseBlock>() {
+            @Override
+            public BaseBlock answer(InvocationOnMock invocation) throws Throwable {
+                Vector position = (Vector) invocation.getArguments()[0];
+                return blockAt(position.getBlockX(), position.getBlockY(), position.getBlockZ());
+            }
+        }).when(world).getBlock(any(Vector.class));
+        doAnswer(new Answer<BaseBiome>() {
+            @Override
+            public BaseBiome answer(InvocationOnMock invocation) throws Throwable {
+                Vector2D position = (Vector2D) invocation.getArguments()[0];
+                return new BaseBiome(biomeAt(position.getBlockX(), position.getBlockZ()));
+            }
+        }).when(world).getBiome(any(Vector2D.class));
+    }
+
+    @Test
+    public void testBlocks() throws Exception {
+        ChunkSnapshotExtent extent = world.captureRegion(REGION, -1);
+
+        for (int x = -16; x < 32; x++) {
+            for (int z = -16; z < 16; z++) {
+                for (int y = 10; y <= 20; y++) {
+                    BaseBlock expected = blockAt(x, y, z);
+                    BaseBlock block = extent.getBlock(new Vector(x, y, z));
+                    assertEquals(expected.getType(), block.getType());
+                    assertEquals(expected.getData(), block.getData());
+                    assertEquals(expected.getType(), extent.getTypeId(x, y, z));
+                    assertEquals(expected.getData(), extent.getData(x, y, z));
+                }
+
+                // Only the Y range of the region is captured
+                assertEquals(0, extent.getBlock(new Vector(x, 9, z)).getType());
+                assertEquals(0, extent.getBlock(new Vector(x, 21, z)).getType());
+            }
+        }
+
+        // Chunks that the region doesn't cover are not captured
+        assertEquals(0, extent.getBlock(new Vector(32, 15, 0)).getType());
+        assertEquals(0, extent.getTypeId(0, 15, 16));
+        assertEquals(0, extent.getTypeId(-17, 15, 0));
+    }
+
+    @Test
+    public void testBiomes() throws Exception {
+        ChunkSnapshotExtent extent = world.captureRegion(REGION, -1);
+
+        for (int x = -16; x < 32; x++) {
+            for (int z = -16; z < 16; z++) {
+                assertEquals(biomeAt(x, z), extent.getBiome(new Vector2D(x, z)).getId());
+            }
+        }
+
+        assertNull(extent.getBiome(new Vector2D(32, 0)));
+        assertNull(extent.getBiome(new Vector2D(0, -17)));
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        world.captureRegion(REGION, REGION_BLOCKS);
+
+        try {
+            world.captureRegion(REGION, REGION_BLOCKS - 1);
+            fail("Expected the limit to be reached");
+        } catch (MaxChangedBlocksException e) {
+            assertEquals(REGION_BLOCKS - 1, e.getBlockLimit());
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.sk89q.worldedit.world.registry;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Measures how long it takes to load the bundled block registry from JSON
+ * and from its compiled form, and to then look up every block once, as
+ * the first rotation of a clipboard does.
+ *
+ * <p>Run with {@code gradlew :worldedit-core:benchmarkBlockRegistry}.
+ * The first round of each is the cold start.</p>
+ */
+public final class BundledBlockDataBenchmark {
+
+    private static final int ROUNDS = 20;
+    private static final int MAX_LEGACY_ID = 4096;
+
+    private BundledBlockDataBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String json = Resources.toString(getResource("blocks.json"), Charsets.UTF_8);
+        URL compiledUrl = BundledBlockData.class.getResource(BundledBlockData.COMPILED_RESOURCE);
+        byte[] compiled = compiledUrl != null
+                ? Resources.toByteArray(compiledUrl)
+                : BundledBlockData.compile(BundledBlockData.parseJson(json));
+
+        System.out.println("JSON: " + json.length() + " bytes, compiled: " + compiled.length + " bytes");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<BundledBlockData.BlockEntry> entries = BundledBlockData.parseJson(json);
+            long parsed = System.nanoTime();
+
+            BundledBlockData data = new BundledBlockData(compiled);
+            long loaded = System.nanoTime();
+            int found = lookUpAll(data);
+            long lookedUp = System.nanoTime();
+
+            System.out.printf("round %2d: parse JSON %7.2f ms | load compiled %6.2f ms, first lookups %6.2f ms (%d blocks, %d from JSON)%n",
+                    round + 1, (parsed - start) / 1e6, (loaded - parsed) / 1e6, (lookedUp - loaded) / 1e6, found, entries.size());
+        }
+    }
+
+    private static int lookUpAll(BundledBlockData data) {
+        int found = 0;
+        for (int id = 0; id < MAX_LEGACY_ID; id++) {
+            if (data.getMaterialById(id) != null) {
+                data.getStatesById(id);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static URL getResource(String name) throws IOException {
+        URL url = BundledBlockData.class.getResource(name);
+        if (url == null) {
+            throw new IOException("Could not find " + name);
+        }
+        return url;
+    }
+
+}
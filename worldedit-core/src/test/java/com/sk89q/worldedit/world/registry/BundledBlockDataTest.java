@@ -0,0 +1,144 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.registry;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sk89q.worldedit.Vector;
+import com.sk89q.worldedit.blocks.BaseBlock;
+import com.sk89q.worldedit.blocks.BlockMaterial;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link BundledBlockData}.
+ */
+public class BundledBlockDataTest {
+
+    @Test
+    public void testCompiledMatchesJson() throws Exception {
+        String json = Resources.toString(BundledBlockData.class.getResource("blocks.json"), Charsets.UTF_8);
+        BundledBlockData data = new BundledBlockData(BundledBlockData.compile(BundledBlockData.parseJson(json)));
+        JsonArray blocks = new JsonParser().parse(json).getAsJsonArray();
+
+        assertTrue(blocks.size() > 0);
+        for (JsonElement element : blocks) {
+            JsonObject block = element.getAsJsonObject();
+            String id = block.get("id").getAsString();
+            int legacyId = block.get("legacyId").getAsInt();
+
+            assertEquals(id, Integer.valueOf(legacyId), data.toLegacyId(id));
+            assertMaterialEquals(id, block.getAsJsonObject("material"), data.getMaterialById(legacyId));
+            assertStatesEqual(id, legacyId, block.getAsJsonObject("states"), data.getStatesById(legacyId));
+        }
+    }
+
+    @Test
+    public void testUnknownIds() throws Exception {
+        String json = Resources.toString(BundledBlockData.class.getResource("blocks.json"), Charsets.UTF_8);
+        BundledBlockData data = new BundledBlockData(BundledBlockData.compile(BundledBlockData.parseJson(json)));
+
+        assertNull(data.toLegacyId("minecraft:no_such_block"));
+        assertNull(data.getMaterialById(-1));
+        assertNull(data.getMaterialById(0xFFFF));
+        assertNull(data.getStatesById(0xFFFF));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherData() throws Exception {
+        new BundledBlockData(new byte[] { 0, 0, 0, 0, 0, 0, 0, 1 });
+    }
+
+    private static void assertMaterialEquals(String id, JsonObject expected, BlockMaterial material) throws Exception {
+        assertNotNull(id, material);
+        for (Map.Entry<String, JsonElement> property : expected.entrySet()) {
+            String name = Character.toUpperCase(property.getKey().charAt(0)) + property.getKey().substring(1);
+            Method getter;
+            try {
+                getter = BlockMaterial.class.getMethod("is" + name);
+            } catch (NoSuchMethodException e) {
+                getter = BlockMaterial.class.getMethod("get" + name);
+            }
+
+            Object value = getter.invoke(material);
+            String message = id + " " + property.getKey();
+            if (value instanceof Boolean) {
+                assertEquals(message, property.getValue().getAsBoolean(), value);
+            } else if (value instanceof Float) {
+                assertEquals(message, property.getValue().getAsFloat(), (Float) value, 0);
+            } else {
+                assertEquals(message, property.getValue().getAsInt(), value);
+            }
+        }
+    }
+
+    private static void assertStatesEqual(String id, int legacyId, JsonObject expected, Map<String, ? extends State> states) {
+        assertNotNull(id, states);
+        if (expected == null) {
+            assertTrue(id, states.isEmpty());
+            return;
+        }
+
+        assertEquals(id, expected.entrySet().size(), states.size());
+        for (Map.Entry<String, JsonElement> state : expected.entrySet()) {
+            State actual = states.get(state.getKey());
+            assertNotNull(id + " " + state.getKey(), actual);
+            JsonObject expectedState = state.getValue().getAsJsonObject();
+            int mask = expectedState.has("dataMask") ? expectedState.get("dataMask").getAsInt() : 0xF;
+            JsonObject values = expectedState.getAsJsonObject("values");
+            assertEquals(id + " " + state.getKey(), values.entrySet().size(), actual.valueMap().size());
+
+            for (Map.Entry<String, JsonElement> value : values.entrySet()) {
+                String message = id + " " + state.getKey() + "=" + value.getKey();
+                StateValue actualValue = actual.valueMap().get(value.getKey());
+                assertNotNull(message, actualValue);
+
+                JsonObject expectedValue = value.getValue().getAsJsonObject();
+                int data = expectedValue.get("data").getAsInt();
+                for (int blockData = 0; blockData < 16; blockData++) {
+                    assertEquals(message + " with data " + blockData,
+                            (blockData & mask) == data, actualValue.isSet(new BaseBlock(legacyId, blockData)));
+                }
+
+                JsonArray direction = expectedValue.getAsJsonArray("direction");
+                if (direction != null) {
+                    Vector vector = new Vector(direction.get(0).getAsDouble(), direction.get(1).getAsDouble(), direction.get(2).getAsDouble());
+                    assertEquals(message, vector, actualValue.getDirection());
+                } else {
+                    assertNull(message, actualValue.getDirection());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * WorldEdit, a Minecraft world manipulation toolkit
+ * Copyright (C) sk89q <http://www.sk89q.com>
+ * Copyright (C) WorldEdit team and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.sk89q.worldedit.world.snapshot;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link SnapshotRepository}.
+ */
+public class SnapshotRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotFinishedAfterListing() throws Exception {
+        File dir = folder.newFolder("backups");
+        SnapshotRepository repository = new SnapshotRepository(dir);
+
+        // The backup is still being written and isn't a readable archive yet
+        File file = new File(dir, "2014-05-01-12-00-00.zip");
+        assertTrue(file.createNewFile());
+        file.setLastModified(1000000000000L);
+        assertTrue(repository.getSnapshots(true, "world").isEmpty());
+
+        writeZip(file, "world/level.dat");
+        file.setLastModified(1000000005000L);
+        List<Snapshot> snapshots = repository.getSnapshots(true, "world");
+        assertEquals(1, snapshots.size());
+        assertEquals(file.getName(), snapshots.get(0).getName());
+    }
+
+    @Test
+    public void testIndexFileKeptOutsideRepository() throws Exception {
+        File dir = folder.newFolder("backups");
+        File indexFile = new File(folder.getRoot(), "snapshots.idx");
+        writeZip(new File(dir, "2014-05-01-12-00-00.zip"), "world/level.dat");
+        writeZip(new File(dir, "2014-05-02-12-00-00.zip"), "other/level.dat");
+
+        SnapshotRepository repository = new SnapshotRepository(dir);
+        assertEquals(1, repository.getSnapshots(true, "world").size());
+        assertArrayEquals(new String[] { "2014-05-01-12-00-00.zip", "2014-05-02-12-00-00.zip" }, sortedNames(dir));
+
+        repository.setIndexFile(indexFile);
+        Snapshot other = repository.getSnapshots(true, "other").get(0);
+        assertTrue(indexFile.length() > 0);
+        assertArrayEquals(new String[] { "2014-05-01-12-00-00.zip", "2014-05-02-12-00-00.zip" }, sortedNames(dir));
+
+        SnapshotRepository reloaded = new SnapshotRepository(dir);
+        reloaded.setIndexFile(indexFile);
+        List<Snapshot> snapshots = reloaded.getSnapshots(false, "other");
+        assertEquals(1, snapshots.size());
+        assertEquals("2014-05-02-12-00-00.zip", snapshots.get(0).getName());
+        assertEquals(other.getDate(), snapshots.get(0).getDate());
+    }
+
+    private static String[] sortedNames(File dir) {
+        String[] names = dir.list();
+        Arrays.sort(names);
+        return names;
+    }
+
+    private static void writeZip(File file, String entry) throws IOException {
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            out.putNextEntry(new ZipEntry(entry));
+            out.write(0);
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -19,7 +19,12 @@
 
 package com.sk89q.worldedit.forge;
 
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
 import com.sk89q.jnbt.CompoundTag;
+import com.sk89q.worldedit.BlockVector2D;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.MaxChangedBlocksException;
 import com.sk89q.worldedit.Vector;
@@ -30,30 +35,39 @@
 import com.sk89q.worldedit.blocks.LazyBlock;
 import com.sk89q.worldedit.entity.BaseEntity;
 import com.sk89q.worldedit.entity.Entity;
+import com.sk89q.worldedit.entity.metadata.EntityType;
 import com.sk89q.worldedit.internal.Constants;
 import com.sk89q.worldedit.regions.Region;
+import com.sk89q.worldedit.regions.Regions;
 import com.sk89q.worldedit.util.Location;
 import com.sk89q.worldedit.util.TreeGenerator.TreeType;
 import com.sk89q.worldedit.world.AbstractWorld;
+import com.sk89q.worldedit.world.SurfaceType;
 import com.sk89q.worldedit.world.biome.BaseBiome;
+import com.sk89q.worldedit.world.chunk.ChunkColumn;
 import com.sk89q.worldedit.world.registry.WorldData;
 import net.minecraft.block.Block;
 import net.minecraft.entity.EntityList;
 import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.LongHashMap;
 import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.ChunkProviderServer;
 
 import javax.annotation.Nullable;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
@@ -199,6 +213,24 @@ public boolean setBiome(Vector2D position, BaseBiome biome) {
         return false;
     }
 
+    @Override
+    public int[] getChunkBiomes(BlockVector2D position) {
+        checkNotNull(position);
+
+        Chunk chunk = getWorld().getChunkFromChunkCoords(position.getBlockX(), position.getBlockZ());
+        byte[] array = chunk.getBiomeArray();
+        int[] biomes = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            int id = array[i] & 0xFF;
+            if (id == 0xFF) {
+                // Not generated yet, so let the world decide
+                id = getWorld().getBiomeGenForCoords((position.getBlockX() << 4) + (i & 15), (position.getBlockZ() << 4) + (i >> 4)).biomeID;
+            }
+            biomes[i] = id;
+        }
+        return biomes;
+    }
+
     @Override
     public void dropItem(Vector position, BaseItemStack item) {
         checkNotNull(position);
@@ -215,99 +247,159 @@ public void dropItem(Vector position, BaseItemStack item) {
 
     @Override
     public boolean regenerate(Region region, EditSession editSession) {
-        BaseBlock[] history = new BaseBlock[256 * (getMaxY() + 1)];
-
-        for (Vector2D chunk : region.getChunks()) {
-            Vector min = new Vector(chunk.getBlockX() * 16, 0, chunk.getBlockZ() * 16);
-
-            for (int x = 0; x < 16; x++) {
-                for (int y = 0; y < getMaxY() + 1; y++) {
-                    for (int z = 0; z < 16; z++) {
-                        Vector pt = min.add(x, y, z);
-                        int index = y * 16 * 16 + z * 16 + x;
-                        history[index] = editSession.getBlock(pt);
-                    }
-                }
+        try {
+            IChunkProvider provider = getWorld().getChunkProvider();
+            if (!(provider instanceof ChunkProviderServer)) {
+                return false;
             }
+            ChunkProviderServer chunkServer = (ChunkProviderServer) provider;
+            Field u;
             try {
-                Set<Vector2D> chunks = region.getChunks();
-                IChunkProvider provider = getWorld().getChunkProvider();
-                if (!(provider instanceof ChunkProviderServer)) {
-                    return false;
-                }
-                ChunkProviderServer chunkServer = (ChunkProviderServer) provider;
-                Field u;
-                try {
-                    u = ChunkProviderServer.class.getDeclaredField("field_73248_b"); // chunksToUnload
-                } catch(NoSuchFieldException e) {
-                    u = ChunkProviderServer.class.getDeclaredField("chunksToUnload");
-                }
-                u.setAccessible(true);
-                Set<?> unloadQueue = (Set<?>) u.get(chunkServer);
-                Field m;
-                try {
-                    m = ChunkProviderServer.class.getDeclaredField("field_73244_f"); // loadedChunkHashMap
-                } catch(NoSuchFieldException e) {
-                    m = ChunkProviderServer.class.getDeclaredField("loadedChunkHashMap");
-                }
-                m.setAccessible(true);
-                LongHashMap loadedMap = (LongHashMap) m.get(chunkServer);
-                Field lc;
-                try {
-                    lc = ChunkProviderServer.class.getDeclaredField("field_73245_g"); // loadedChunkHashMap
-                } catch(NoSuchFieldException e) {
-                    lc = ChunkProviderServer.class.getDeclaredField("loadedChunks");
+                u = ChunkProviderServer.class.getDeclaredField("field_73248_b"); // chunksToUnload
+            } catch(NoSuchFieldException e) {
+                u = ChunkProviderServer.class.getDeclaredField("chunksToUnload");
+            }
+            u.setAccessible(true);
+            Set<?> unloadQueue = (Set<?>) u.get(chunkServer);
+            Field m;
+            try {
+                m = ChunkProviderServer.class.getDeclaredField("field_73244_f"); // loadedChunkHashMap
+            } catch(NoSuchFieldException e) {
+                m = ChunkProviderServer.class.getDeclaredField("loadedChunkHashMap");
+            }
+            m.setAccessible(true);
+            LongHashMap loadedMap = (LongHashMap) m.get(chunkServer);
+            Field lc;
+            try {
+                lc = ChunkProviderServer.class.getDeclaredField("field_73245_g"); // loadedChunkHashMap
+            } catch(NoSuchFieldException e) {
+                lc = ChunkProviderServer.class.getDeclaredField("loadedChunks");
+            }
+            lc.setAccessible(true);
+            @SuppressWarnings("unchecked") List<Chunk> loaded = (List<Chunk>) lc.get(chunkServer);
+            Field p;
+            try {
+                p = ChunkProviderServer.class.getDeclaredField("field_73246_d"); // currentChunkProvider
+            } catch(NoSuchFieldException e) {
+                p = ChunkProviderServer.class.getDeclaredField("currentChunkProvider");
+            }
+            p.setAccessible(true);
+            IChunkProvider chunkProvider = (IChunkProvider) p.get(chunkServer);
+
+            for (Vector2D coord : region.getChunks()) {
+                ChunkColumn previous = captureChunk(coord.toBlockVector2D());
+
+                long pos = ChunkCoordIntPair.chunkXZ2Int(coord.getBlockX(), coord.getBlockZ());
+                Chunk mcChunk;
+                if (chunkServer.chunkExists(coord.getBlockX(), coord.getBlockZ())) {
+                    mcChunk = chunkServer.loadChunk(coord.getBlockX(), coord.getBlockZ());
+                    mcChunk.onChunkUnload();
                 }
-                lc.setAccessible(true);
-                @SuppressWarnings("unchecked") List<Chunk> loaded = (List<Chunk>) lc.get(chunkServer);
-                Field p;
-                try {
-                    p = ChunkProviderServer.class.getDeclaredField("field_73246_d"); // currentChunkProvider
-                } catch(NoSuchFieldException e) {
-                    p = ChunkProviderServer.class.getDeclaredField("currentChunkProvider");
+                unloadQueue.remove(pos);
+                loadedMap.remove(pos);
+                mcChunk = chunkProvider.provideChunk(coord.getBlockX(), coord.getBlockZ());
+                loadedMap.add(pos, mcChunk);
+                loaded.add(mcChunk);
+                if (mcChunk != null) {
+                    mcChunk.onChunkLoad();
+                    mcChunk.populateChunk(chunkProvider, chunkProvider, coord.getBlockX(), coord.getBlockZ());
                 }
-                p.setAccessible(true);
-                IChunkProvider chunkProvider = (IChunkProvider) p.get(chunkServer);
-
-                for (Vector2D coord : chunks) {
-                    long pos = ChunkCoordIntPair.chunkXZ2Int(coord.getBlockX(), coord.getBlockZ());
-                    Chunk mcChunk;
-                    if (chunkServer.chunkExists(coord.getBlockX(), coord.getBlockZ())) {
-                        mcChunk = chunkServer.loadChunk(coord.getBlockX(), coord.getBlockZ());
-                        mcChunk.onChunkUnload();
-                    }
-                    unloadQueue.remove(pos);
-                    loadedMap.remove(pos);
-                    mcChunk = chunkProvider.provideChunk(coord.getBlockX(), coord.getBlockZ());
-                    loadedMap.add(pos, mcChunk);
-                    loaded.add(mcChunk);
-                    if (mcChunk != null) {
-                        mcChunk.onChunkLoad();
-                        mcChunk.populateChunk(chunkProvider, chunkProvider, coord.getBlockX(), coord.getBlockZ());
-                    }
+
+                restoreRegeneratedChunk(previous, region, editSession);
+            }
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Failed to generate chunk", t);
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public ChunkColumn captureChunk(BlockVector2D position, int minY, int maxY) {
+        checkNotNull(position);
+
+        Chunk chunk = getWorld().getChunkFromChunkCoords(position.getBlockX(), position.getBlockZ());
+        ChunkColumn column = new ChunkColumn(position, getMaxY() + 1);
+
+        for (ExtendedBlockStorage storage : chunk.getBlockStorageArray()) {
+            if (storage == null || storage.isEmpty()) {
+                continue;
+            }
+
+            int section = storage.getYLocation() >> 4;
+            if (section >= column.getSectionCount() || (section << 4) + 15 < minY || (section << 4) > maxY) {
+                continue;
+            }
+
+            // Section arrays use the same y << 8 | z << 4 | x layout as ChunkColumn
+            byte[] lsb = storage.getBlockLSBArray();
+            NibbleArray msbArray = storage.getBlockMSBArray();
+            byte[] msb = msbArray != null ? msbArray.data : null;
+            byte[] meta = storage.getMetadataArray().data;
+            short[] ids = new short[ChunkColumn.SECTION_VOLUME];
+            byte[] data = new byte[ChunkColumn.SECTION_VOLUME];
+
+            for (int i = 0; i < ChunkColumn.SECTION_VOLUME; i++) {
+                int shift = (i & 1) << 2;
+                int id = lsb[i] & 0xFF;
+                if (msb != null) {
+                    id |= ((msb[i >> 1] >> shift) & 0xF) << 8;
                 }
-            } catch (Throwable t) {
-                logger.log(Level.WARNING, "Failed to generate chunk", t);
-                return false;
+                ids[i] = (short) id;
+                data[i] = (byte) ((meta[i >> 1] >> shift) & 0xF);
             }
 
-            for (int x = 0; x < 16; x++) {
-                for (int y = 0; y < getMaxY() + 1; y++) {
-                    for (int z = 0; z < 16; z++) {
-                        Vector pt = min.add(x, y, z);
-                        int index = y * 16 * 16 + z * 16 + x;
+            column.setSection(section, ids, data);
+        }
 
-                        if (!region.contains(pt))
-                            editSession.smartSetBlock(pt, history[index]);
-                        else {
-                            editSession.rememberChange(pt, history[index], editSession.rawGetBlock(pt));
-                        }
+        for (Object entry : chunk.chunkTileEntityMap.values()) {
+            TileEntity tile = (TileEntity) entry;
+            int x = tile.xCoord & 15;
+            int y = tile.yCoord;
+            int z = tile.zCoord & 15;
+            if (y >= Math.max(minY, 0) && y <= maxY && y < column.getHeight()) {
+                column.setTileBlock(x, y, z, new TileEntityBaseBlock(column.getTypeId(x, y, z), column.getData(x, y, z), tile));
+            }
+        }
+
+        return column;
+    }
+
+    @Override
+    public boolean isChunkLoaded(BlockVector2D position) {
+        checkNotNull(position);
+        return getWorld().getChunkProvider().chunkExists(position.getBlockX(), position.getBlockZ());
+    }
+
+    @Override
+    public int[] getSurfaceHeights(Vector2D min, Vector2D max, int minY, int maxY, SurfaceType type) {
+        return getSurfaceHeightsFromChunks(min, max, minY, maxY, type);
+    }
+
+    @Override
+    public void refreshChunks(Iterable<BlockVector2D> chunks) {
+        checkNotNull(chunks);
+
+        int viewDistance = MinecraftServer.getServer().getConfigurationManager().getViewDistance();
+        for (Object entry : getWorld().playerEntities) {
+            if (!(entry instanceof EntityPlayerMP)) {
+                continue;
+            }
+
+            // Chunks in this list are sent to the player on its next tick
+            EntityPlayerMP player = (EntityPlayerMP) entry;
+            int playerX = (int) Math.floor(player.posX) >> 4;
+            int playerZ = (int) Math.floor(player.posZ) >> 4;
+            for (BlockVector2D chunk : chunks) {
+                if (Math.abs(chunk.getBlockX() - playerX) <= viewDistance && Math.abs(chunk.getBlockZ() - playerZ) <= viewDistance) {
+                    ChunkCoordIntPair coord = new ChunkCoordIntPair(chunk.getBlockX(), chunk.getBlockZ());
+                    if (!player.loadedChunks.contains(coord)) {
+                        player.loadedChunks.add(coord);
                     }
                 }
             }
         }
-
-        return false;
     }
 
     @Override
@@ -369,25 +461,15 @@ public boolean equals(Object o) {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public List<? extends Entity> getEntities(Region region) {
-        List<Entity> entities = new ArrayList<Entity>();
-        World world = getWorld();
-        for (Vector2D pt : region.getChunks()) {
-            if (!world.getChunkProvider().chunkExists(pt.getBlockX(), pt.getBlockZ())) {
-                continue;
-            }
+        return Lists.newArrayList(queryEntities(region, Predicates.<EntityType>alwaysTrue()));
+    }
 
-            Chunk chunk = world.getChunkProvider().provideChunk(pt.getBlockX(), pt.getBlockZ());
-            for (List<net.minecraft.entity.Entity> entitySubList : chunk.entityLists) {
-                for (net.minecraft.entity.Entity entity : entitySubList) {
-                    if (region.contains(new Vector(entity.posX, entity.posY, entity.posZ))) {
-                        entities.add(new ForgeEntity(entity));
-                    }
-                }
-            }
-        }
-        return entities;
+    @Override
+    public Iterator<? extends Entity> queryEntities(Region region, Predicate<? super EntityType> filter) {
+        checkNotNull(region);
+        checkNotNull(filter);
+        return new EntityQueryIterator(getWorld(), region, filter);
     }
 
     @Override
@@ -423,6 +505,85 @@ public Entity createEntity(Location location, BaseEntity entity) {
         }
     }
 
+    /**
+     * Finds entities in a region one loaded chunk at a time, testing the
+     * type and position of each Minecraft entity before adapting it.
+     */
+    private static class EntityQueryIterator extends AbstractIterator<Entity> {
+        private final World world;
+        private final Region region;
+        private final Predicate<? super EntityType> filter;
+        private final List<net.minecraft.entity.Entity> matched = new ArrayList<net.minecraft.entity.Entity>();
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int maxChunkX;
+        private final int maxChunkZ;
+        private int chunkX;
+        private int chunkZ;
+        private int index;
+
+        private EntityQueryIterator(World world, Region region, Predicate<? super EntityType> filter) {
+            this.world = world;
+            this.region = region;
+            this.filter = filter;
+            Vector min = region.getMinimumPoint();
+            Vector max = region.getMaximumPoint();
+            minChunkX = min.getBlockX() >> 4;
+            minChunkZ = min.getBlockZ() >> 4;
+            maxChunkX = max.getBlockX() >> 4;
+            maxChunkZ = max.getBlockZ() >> 4;
+            chunkX = minChunkX;
+            chunkZ = minChunkZ - 1;
+        }
+
+        @Override
+        protected Entity computeNext() {
+            while (index >= matched.size()) {
+                if (!nextChunk()) {
+                    return endOfData();
+                }
+            }
+
+            return new ForgeEntity(matched.get(index++));
+        }
+
+        /**
+         * Collect the matching entities of the next loaded chunk. They are
+         * collected first so that entities being added to or removed from
+         * the chunk while the caller works do not affect iteration.
+         */
+        @SuppressWarnings("unchecked")
+        private boolean nextChunk() {
+            matched.clear();
+            index = 0;
+
+            while (true) {
+                if (++chunkZ > maxChunkZ) {
+                    chunkZ = minChunkZ;
+                    if (++chunkX > maxChunkX) {
+                        return false;
+                    }
+                }
+
+                if (!world.getChunkProvider().chunkExists(chunkX, chunkZ) || !Regions.mayIntersectChunk(region, chunkX, chunkZ)) {
+                    continue;
+                }
+
+                Chunk chunk = world.getChunkProvider().provideChunk(chunkX, chunkZ);
+                for (List<net.minecraft.entity.Entity> entitySubList : chunk.entityLists) {
+                    for (net.minecraft.entity.Entity entity : entitySubList) {
+                        if (filter.apply(new ForgeEntityType(entity))
+                                && region.contains(new Vector(entity.posX, entity.posY, entity.posZ))) {
+                            matched.add(entity);
+                        }
+                    }
+                }
+
+                return true;
+            }
+        }
+    }
+
     /**
      * Thrown when the reference to the world is lost.
      */